@@ -31,8 +31,16 @@ import java.math.BigDecimal;
 public final class Equal<A> {
   private final Func<A, Func<A, Boolean>> f;
 
+  // Whether this is anyEqual, which is checked directly instead of through the curried function.
+  private final boolean natural;
+
   private Equal(final Func<A, Func<A, Boolean>> f) {
+    this(f, false);
+  }
+
+  private Equal(final Func<A, Func<A, Boolean>> f, final boolean natural) {
     this.f = f;
+    this.natural = natural;
   }
 
   /**
@@ -43,7 +51,7 @@ public final class Equal<A> {
    * @return <code>true</code> if the two given arguments are equal, <code>false</code> otherwise.
    */
   public boolean eq(final A a1, final A a2) {
-    return f.f( a1 ).f( a2 );
+    return natural ? a1.equals( a2 ) : f.f( a1 ).f( a2 );
   }
 
   /**
@@ -109,7 +117,7 @@ public final class Equal<A> {
           }
         };
       }
-    });
+    }, true);
   }
 
   /**
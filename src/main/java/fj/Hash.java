@@ -26,8 +26,16 @@ import fj.data.vector.V8;
 public final class Hash<A> {
   private final Func<A, Integer> f;
 
+  // Whether this is anyHash, which calls hashCode directly instead of boxing through the function.
+  private final boolean natural;
+
   private Hash(final Func<A, Integer> f) {
+    this(f, false);
+  }
+
+  private Hash(final Func<A, Integer> f, final boolean natural) {
     this.f = f;
+    this.natural = natural;
   }
 
   /**
@@ -37,7 +45,7 @@ public final class Hash<A> {
    * @return The hash value.
    */
   public int hash(final A a) {
-    return f.f(a);
+    return natural ? a.hashCode() : f.f(a);
   }
 
   /**
@@ -70,7 +78,7 @@ public final class Hash<A> {
       public Integer f(final A a) {
         return a.hashCode();
       }
-    });
+    }, true);
   }
 
   /**
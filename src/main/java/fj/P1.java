@@ -206,9 +206,12 @@ public interface P1<A> {
         A a = v != null ? v.get() : null;
         if (a == null)
           synchronized (latch) {
-            if (v == null || v.get() == null)
+            // Another thread may have computed the value while this one waited for the latch.
+            a = v != null ? v.get() : null;
+            if (a == null) {
               a = self._1();
-            v = new SoftReference<A>(a);
+              v = new SoftReference<A>(a);
+            }
           }
         return a;
       }
@@ -27,6 +27,9 @@ import java.util.concurrent.TimeUnit;
  * are executed concurrently, and the Promise serves as a handle on the result of the computation. Provides monadic
  * operations so that future computations can be combined
  * <p/>
+ * A computation that throws fails its promise, and every promise bound to it. A failed promise is never fulfilled, its
+ * failure is passed to the effects given to {@link #onFailure(Effect)} and rethrown by {@link #claim()}.
+ * <p/>
  * Author: Runar
  */
 public final class Promise<A> {
@@ -38,6 +41,8 @@ public final class Promise<A> {
   private final CountDownLatch l = new CountDownLatch(1);
   private volatile Option<A> v = none();
   private final Queue<Actor<A>> waiting = new LinkedList<Actor<A>>();
+  private Throwable failure;
+  private final Queue<Effect<Throwable>> failing = new LinkedList<Effect<Throwable>>();
 
   private Promise(final Strategy<Unit> s, final Actor<P2<Either<P1<A>, Actor<A>>, Promise<A>>> qa) {
     this.s = s;
@@ -51,7 +56,13 @@ public final class Promise<A> {
             final Promise<A> snd = p._2();
             final Queue<Actor<A>> as = snd.waiting;
             if (p._1().isLeft()) {
-              final A a = p._1().left().value()._1();
+              final A a;
+              try {
+                a = p._1().left().value()._1();
+              } catch (final Throwable t) {
+                snd.fail(t);
+                return;
+              }
               snd.v = some(a);
               snd.l.countDown();
               while (!as.isEmpty())
@@ -195,10 +206,63 @@ public final class Promise<A> {
         r.actor.act(P.p(Either.<P1<B>, Actor<B>>left(P.p(b)), r));
       }
     });
-    to(ab.promise().comap(f));
+    final Effect<Throwable> fail = new Effect<Throwable>() {
+      public void e(final Throwable t) {
+        r.fail(t);
+      }
+    };
+    onFailure(fail);
+    to(actor(s, new Effect<A>() {
+      public void e(final A a) {
+        final Promise<B> pb;
+        try {
+          pb = f.f(a);
+        } catch (final Throwable t) {
+          r.fail(t);
+          return;
+        }
+        pb.onFailure(fail);
+        pb.to(ab);
+      }
+    }));
     return r;
   }
 
+  /**
+   * Runs the given effect with the failure of this promise, once the computation of this promise, or of a promise it
+   * is bound to, has thrown. The effect runs on the thread that fails the promise, or right away if it already has.
+   *
+   * @param e The effect to run with the failure.
+   */
+  public void onFailure(final Effect<Throwable> e) {
+    final Throwable t;
+    synchronized (failing) {
+      if (failure == null) {
+        failing.add(e);
+        return;
+      }
+      t = failure;
+    }
+    e.e(t);
+  }
+
+  /**
+   * Fails this promise, unless it is already fulfilled or failed, and releases everyone waiting for it.
+   */
+  private void fail(final Throwable t) {
+    final List<Effect<Throwable>> es;
+    synchronized (failing) {
+      if (failure != null || v.isSome())
+        return;
+      failure = t;
+      es = List.iterableList(failing);
+      failing.clear();
+    }
+    l.countDown();
+    for (final Effect<Throwable> e : es)
+      e.e(t);
+  }
+
   /**
    * Performs function application within a promise (applicative functor pattern).
    *
@@ -361,6 +425,7 @@ public final class Promise<A> {
    * Waits if necessary for the computation to complete, and then retrieves its result.
    *
    * @return The promised value.
+   * @throws Error wrapping the failure, if the computation threw.
    */
   public A claim() {
     try {
@@ -368,7 +433,7 @@ public final class Promise<A> {
     } catch (InterruptedException e) {
       throw new Error(e);
     }
-    return v.some();
+    return value();
   }
 
   /**
@@ -377,17 +442,28 @@ public final class Promise<A> {
    * @param timeout the maximum time to wait
    * @param unit    the time unit of the timeout argument
    * @return The promised value, or none if the timeout was reached.
+   * @throws Error wrapping the failure, if the computation threw.
    */
   public Option<A> claim(final long timeout, final TimeUnit unit) {
     try {
       if (l.await(timeout, unit))
-        return v;
+        return some(value());
     } catch (InterruptedException e) {
       throw new Error(e);
     }
     return none();
   }
 
+  private A value() {
+    final Throwable t;
+    synchronized (failing) {
+      t = failure;
+    }
+    if (t != null)
+      throw new Error(t);
+    return v.some();
+  }
+
   /**
    * Returns true if this promise has been fulfilled.
    *
@@ -15,8 +15,13 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Functional-style parallel evaluation strategies.
@@ -428,6 +433,61 @@ public final class Strategy<A> {
     });
   }
 
+  /**
+   * Provides a parallelization strategy that evaluates each product-1 in a new virtual thread. Blocking evaluations park
+   * the virtual thread instead of holding on to a platform thread. Virtual threads need Java 21; on older runtimes the
+   * evaluations run on a bounded pool of daemon threads instead, four per processor, and queue up when they are all
+   * busy.
+   *
+   * @return A strategy that evaluates each product-1 in its own virtual thread.
+   */
+  public static <A> Strategy<A> virtualThreadStrategy() {
+    return executorStrategy(VirtualThreads.executor);
+  }
+
+  /**
+   * Indicates whether {@link #virtualThreadStrategy()} runs on virtual threads in this runtime.
+   *
+   * @return true if the runtime supports virtual threads.
+   */
+  public static boolean hasVirtualThreads() {
+    return VirtualThreads.available;
+  }
+
+  /**
+   * Holds the shared executor behind virtual thread strategies. It is looked up reflectively so that the library still
+   * runs on runtimes without virtual threads.
+   */
+  private static final class VirtualThreads {
+    static final boolean available;
+    static final ExecutorService executor;
+
+    static {
+      ExecutorService e;
+      try {
+        e = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (final Exception ignored) {
+        e = null;
+      }
+      available = e != null;
+      executor = e != null ? e : fallback();
+    }
+
+    private static ExecutorService fallback() {
+      final int threads = 4 * Runtime.getRuntime().availableProcessors();
+      final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+          final Thread t = new Thread(r, "strategy-" + r.hashCode());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    }
+  }
+
   /**
    * Provides a parallelization strategy that uses a CompletionService to control the method and
    * degree of parallelism, and where each parallel task's completion is registered with the service.
@@ -0,0 +1,156 @@
+package fj.data;
+
+import java.lang.reflect.Array;
+
+/**
+ * The trie of full chunks behind {@link IntSeq}, {@link LongSeq} and {@link DoubleSeq}. The leaves are primitive arrays
+ * of {@link #WIDTH} elements, and the nodes above them are arrays of up to {@link #WIDTH} children, so finding the
+ * chunk of an index takes O(log32 n). The trie does not look inside its leaves, so it is shared by the three element
+ * types.
+ * <p/>
+ * A sequence is this trie and a tail of the last one to {@link #WIDTH} elements, and the helpers here walk and copy the
+ * chunks of both, treating them as plain Objects. Only the loops over the elements of a chunk are left to the
+ * sequences, so they run on primitive arrays without boxing.
+ */
+final class ChunkTrie {
+  static final int BITS = 5;
+  static final int WIDTH = 1 << BITS;
+  static final int MASK = WIDTH - 1;
+
+  static final ChunkTrie EMPTY = new ChunkTrie(new Object[WIDTH], BITS, 0);
+
+  private final Object[] root;
+  private final int shift;
+  private final int count;
+
+  private ChunkTrie(final Object[] root, final int shift, final int count) {
+    this.root = root;
+    this.shift = shift;
+    this.count = count;
+  }
+
+  /**
+   * The number of elements in the chunks of this trie, a multiple of {@link #WIDTH}.
+   */
+  int count() {
+    return count;
+  }
+
+  /**
+   * The number of elements of a sequence of the given length that are kept in the trie rather than in its tail. The
+   * tail holds the last one to {@link #WIDTH} elements.
+   */
+  static int trieCount(final int length) {
+    return length == 0 ? 0 : ((length - 1) >>> BITS) << BITS;
+  }
+
+  /**
+   * The chunk holding the element at the given index, which must be less than {@link #count()}.
+   */
+  Object leaf(final int i) {
+    Object node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = ((Object[]) node)[(i >>> level) & MASK];
+    }
+    return node;
+  }
+
+  /**
+   * The number of chunks of a sequence with this trie: the leaves of the trie, and then the tail.
+   */
+  int chunks() {
+    return (count >>> BITS) + 1;
+  }
+
+  /**
+   * The chunk with the given number, below {@link #chunks()}, of a sequence with this trie and the given tail.
+   */
+  Object chunk(final int c, final Object tail) {
+    return c < (count >>> BITS) ? leaf(c << BITS) : tail;
+  }
+
+  /**
+   * The chunk holding the element at the given index of a sequence with this trie and the given tail.
+   */
+  Object chunkAt(final int i, final Object tail, final int tailLength) {
+    if (i < 0 || i >= count + tailLength)
+      throw new IndexOutOfBoundsException("Index " + i + " of sequence of length " + (count + tailLength));
+    return i >= count ? tail : leaf(i);
+  }
+
+  /**
+   * Copies the elements of a sequence with this trie and the given tail to the given array, which has the same element
+   * type, from the given offset on.
+   */
+  void copyTo(final Object tail, final int tailLength, final Object values, final int offset) {
+    int n = offset;
+    for (int i = 0; i < count; i += WIDTH) {
+      System.arraycopy(leaf(i), 0, values, n, WIDTH);
+      n += WIDTH;
+    }
+    System.arraycopy(tail, 0, values, n, tailLength);
+  }
+
+  /**
+   * The trie of the full chunks of a sequence of the first n values of the given primitive array. The values from
+   * {@link #count()} to n are its tail.
+   */
+  static ChunkTrie of(final Object values, final int n) {
+    final Class<?> type = values.getClass().getComponentType();
+    final int count = trieCount(n);
+    ChunkTrie trie = EMPTY;
+    for (int i = 0; i < count; i += WIDTH) {
+      final Object leaf = Array.newInstance(type, WIDTH);
+      System.arraycopy(values, i, leaf, 0, WIDTH);
+      trie = trie.push(leaf);
+    }
+    return trie;
+  }
+
+  /**
+   * A trie with the given full chunk added after the chunks of this one.
+   */
+  ChunkTrie push(final Object leaf) {
+    if ((count >>> BITS) >= (1 << shift)) {
+      final Object[] newRoot = new Object[WIDTH];
+      newRoot[0] = root;
+      newRoot[1] = path(shift, leaf);
+      return new ChunkTrie(newRoot, shift + BITS, count + WIDTH);
+    }
+    return new ChunkTrie(push(shift, root, leaf), shift, count + WIDTH);
+  }
+
+  /**
+   * A trie with the chunk holding the given index replaced by the given one.
+   */
+  ChunkTrie set(final int i, final Object leaf) {
+    return new ChunkTrie(set(shift, root, i, leaf), shift, count);
+  }
+
+  private Object[] push(final int level, final Object[] parent, final Object leaf) {
+    final int i = (count >>> level) & MASK;
+    final Object[] node = parent.clone();
+    if (level == BITS)
+      node[i] = leaf;
+    else {
+      final Object[] child = (Object[]) parent[i];
+      node[i] = child != null ? push(level - BITS, child, leaf) : path(level - BITS, leaf);
+    }
+    return node;
+  }
+
+  private static Object path(final int level, final Object leaf) {
+    if (level == 0)
+      return leaf;
+    final Object[] node = new Object[WIDTH];
+    node[0] = path(level - BITS, leaf);
+    return node;
+  }
+
+  private static Object[] set(final int level, final Object[] parent, final int i, final Object leaf) {
+    final Object[] node = parent.clone();
+    final int j = (i >>> level) & MASK;
+    node[j] = level == BITS ? leaf : set(level - BITS, (Object[]) parent[j], i, leaf);
+    return node;
+  }
+}
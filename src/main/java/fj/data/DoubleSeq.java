@@ -0,0 +1,359 @@
+package fj.data;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * An immutable sequence of <code>double</code> values, kept in chunks of <code>double[]</code> so that no value is boxed.
+ * The chunks are the leaves of a trie with 32 children per node, and the last chunk is kept apart from the trie as its
+ * tail, so index and update take O(log32 n) and snoc takes amortised O(1). The bulk operations run over the chunks
+ * directly.
+ *
+ * @see Seq
+ */
+public final class DoubleSeq {
+  private static final double[] NO_VALUES = new double[0];
+
+  private static final DoubleSeq EMPTY = new DoubleSeq(ChunkTrie.EMPTY, NO_VALUES);
+
+  private final ChunkTrie trie;
+  private final double[] tail;
+
+  private DoubleSeq(final ChunkTrie trie, final double[] tail) {
+    this.trie = trie;
+    this.tail = tail;
+  }
+
+  /**
+   * The empty sequence.
+   *
+   * @return A sequence with no elements.
+   */
+  public static DoubleSeq empty() {
+    return EMPTY;
+  }
+
+  /**
+   * A sequence of the given values.
+   *
+   * @param as The values of the sequence.
+   * @return A sequence of the given values, in order.
+   */
+  public static DoubleSeq doubleSeq(final double... as) {
+    return fromArray(as, as.length);
+  }
+
+  /**
+   * A sequence of the given boxed values.
+   *
+   * @param as The values of the sequence.
+   * @return A sequence of the given values, in order.
+   */
+  public static DoubleSeq iterableDoubleSeq(final Iterable<Double> as) {
+    double[] values = new double[ChunkTrie.WIDTH];
+    int n = 0;
+    for (final Double a : as) {
+      if (n == values.length)
+        values = Arrays.copyOf(values, n * 2);
+      values[n++] = a;
+    }
+    return fromArray(values, n);
+  }
+
+  /**
+   * Returns the number of elements in this sequence.
+   *
+   * @return The number of elements in this sequence.
+   */
+  public int length() {
+    return trie.count() + tail.length;
+  }
+
+  /**
+   * Checks if this is the empty sequence.
+   *
+   * @return True if this sequence is empty, otherwise false.
+   */
+  public boolean isEmpty() {
+    return tail.length == 0;
+  }
+
+  /**
+   * Returns the element at the given index. Takes O(log32 n).
+   *
+   * @param i The index of the element to return.
+   * @return The element at the given index.
+   */
+  public double index(final int i) {
+    return chunk(i)[i & ChunkTrie.MASK];
+  }
+
+  /**
+   * Replaces the element at the given index. Takes O(log32 n).
+   *
+   * @param i The index of the element to replace.
+   * @param a The new element.
+   * @return A new sequence with the given element at the given index.
+   */
+  public DoubleSeq update(final int i, final double a) {
+    final double[] chunk = chunk(i).clone();
+    chunk[i & ChunkTrie.MASK] = a;
+    return i >= trie.count() ? new DoubleSeq(trie, chunk) : new DoubleSeq(trie.set(i, chunk), tail);
+  }
+
+  /**
+   * Appends the given element to the end of this sequence.
+   *
+   * @param a An element to append to this sequence.
+   * @return A new sequence with the given element at the end.
+   */
+  public DoubleSeq snoc(final double a) {
+    if (tail.length < ChunkTrie.WIDTH) {
+      final double[] t = Arrays.copyOf(tail, tail.length + 1);
+      t[tail.length] = a;
+      return new DoubleSeq(trie, t);
+    }
+    return new DoubleSeq(trie.push(tail), new double[]{a});
+  }
+
+  /**
+   * Appends the given sequence to this sequence.
+   *
+   * @param as A sequence to append to this one.
+   * @return A new sequence with the elements of this sequence followed by those of the given one.
+   */
+  public DoubleSeq append(final DoubleSeq as) {
+    if (as.isEmpty())
+      return this;
+    if (isEmpty())
+      return as;
+    final double[] values = Arrays.copyOf(toArray(), length() + as.length());
+    as.copyTo(values, length());
+    return fromArray(values, values.length);
+  }
+
+  /**
+   * Maps the given function across this sequence.
+   *
+   * @param f The function to map across this sequence.
+   * @return A new sequence after the given function has been applied to each element.
+   */
+  public DoubleSeq map(final DoubleUnaryOperator f) {
+    final double[] values = new double[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final double a : (double[]) trie.chunk(c, tail)) {
+        values[n++] = f.applyAsDouble(a);
+      }
+    }
+    return fromArray(values, n);
+  }
+
+  /**
+   * Maps the given function across this sequence into a sequence of <code>int</code> values.
+   *
+   * @param f The function to map across this sequence.
+   * @return A new sequence of the results of the given function, in order.
+   */
+  public IntSeq mapToInt(final DoubleToIntFunction f) {
+    final int[] values = new int[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final double a : (double[]) trie.chunk(c, tail)) {
+        values[n++] = f.applyAsInt(a);
+      }
+    }
+    return IntSeq.fromArray(values, n);
+  }
+
+  /**
+   * Maps the given function across this sequence into a sequence of <code>long</code> values.
+   *
+   * @param f The function to map across this sequence.
+   * @return A new sequence of the results of the given function, in order.
+   */
+  public LongSeq mapToLong(final DoubleToLongFunction f) {
+    final long[] values = new long[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final double a : (double[]) trie.chunk(c, tail)) {
+        values[n++] = f.applyAsLong(a);
+      }
+    }
+    return LongSeq.fromArray(values, n);
+  }
+
+  /**
+   * Maps the given function across this sequence, boxing the results into a list.
+   *
+   * @param f The function to map across this sequence.
+   * @return A list of the results of the given function, in order.
+   */
+  public <B> List<B> mapToObj(final DoubleFunction<B> f) {
+    final List.Buffer<B> b = new List.Buffer<B>();
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final double a : (double[]) trie.chunk(c, tail)) {
+        b.snoc(f.apply(a));
+      }
+    }
+    return b.toList();
+  }
+
+  /**
+   * Filters elements from this sequence by returning only elements which produce <code>true</code> when the given
+   * function is applied to them.
+   *
+   * @param f The predicate function to filter on.
+   * @return A new sequence whose elements all match the given predicate.
+   */
+  public DoubleSeq filter(final DoublePredicate f) {
+    final double[] values = new double[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final double a : (double[]) trie.chunk(c, tail)) {
+        if (f.test(a))
+          values[n++] = a;
+      }
+    }
+    return n == length() ? this : fromArray(values, n);
+  }
+
+  /**
+   * Performs a left-fold reduction across this sequence.
+   *
+   * @param f The function to apply on each element of the sequence.
+   * @param b The beginning value to start the application from.
+   * @return The final result after the left-fold reduction.
+   */
+  public double foldLeft(final DoubleBinaryOperator f, final double b) {
+    double x = b;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final double a : (double[]) trie.chunk(c, tail)) {
+        x = f.applyAsDouble(x, a);
+      }
+    }
+    return x;
+  }
+
+  /**
+   * Returns the sum of the elements of this sequence.
+   *
+   * @return The sum of the elements of this sequence.
+   */
+  public double sum() {
+    double x = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final double a : (double[]) trie.chunk(c, tail)) {
+        x += a;
+      }
+    }
+    return x;
+  }
+
+  /**
+   * Performs a side-effect for each element of this sequence.
+   *
+   * @param f The side-effect to perform for the given element.
+   */
+  public void foreach(final DoubleConsumer f) {
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final double a : (double[]) trie.chunk(c, tail)) {
+        f.accept(a);
+      }
+    }
+  }
+
+  /**
+   * Returns an iterator over the elements of this sequence that does not box them.
+   *
+   * @return An iterator over the elements of this sequence.
+   */
+  public PrimitiveIterator.OfDouble iterator() {
+    return new PrimitiveIterator.OfDouble() {
+      private int i;
+      private double[] chunk;
+
+      public boolean hasNext() {
+        return i < length();
+      }
+
+      public double nextDouble() {
+        if (i >= length())
+          throw new NoSuchElementException();
+        if ((i & ChunkTrie.MASK) == 0)
+          chunk = chunk(i);
+        return chunk[i++ & ChunkTrie.MASK];
+      }
+    };
+  }
+
+  /**
+   * Copies the elements of this sequence into a new array.
+   *
+   * @return A new array with the elements of this sequence.
+   */
+  public double[] toArray() {
+    final double[] values = new double[length()];
+    copyTo(values, 0);
+    return values;
+  }
+
+  /**
+   * Boxes the elements of this sequence into a list.
+   *
+   * @return A list of the elements of this sequence.
+   */
+  public List<Double> toList() {
+    final List.Buffer<Double> b = new List.Buffer<Double>();
+    for (final PrimitiveIterator.OfDouble i = iterator(); i.hasNext(); ) {
+      b.snoc(i.nextDouble());
+    }
+    return b.toList();
+  }
+
+  /**
+   * Boxes the elements of this sequence into a stream.
+   *
+   * @return A stream of the elements of this sequence.
+   */
+  public Stream<Double> toStream() {
+    return toList().toStream();
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder s = new StringBuilder("DoubleSeq(");
+    for (final PrimitiveIterator.OfDouble i = iterator(); i.hasNext(); ) {
+      s.append(i.nextDouble());
+      if (i.hasNext())
+        s.append(',');
+    }
+    return s.append(')').toString();
+  }
+
+  private double[] chunk(final int i) {
+    return (double[]) trie.chunkAt(i, tail, tail.length);
+  }
+
+  private void copyTo(final double[] values, final int offset) {
+    trie.copyTo(tail, tail.length, values, offset);
+  }
+
+  /**
+   * The sequence of the first n values of the given array, which is not kept.
+   */
+  static DoubleSeq fromArray(final double[] values, final int n) {
+    if (n == 0)
+      return EMPTY;
+    final ChunkTrie trie = ChunkTrie.of(values, n);
+    return new DoubleSeq(trie, Arrays.copyOfRange(values, trie.count(), n));
+  }
+}
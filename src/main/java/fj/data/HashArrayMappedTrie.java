@@ -0,0 +1,675 @@
+package fj.data;
+
+import fj.Equal;
+import fj.Func;
+import fj.Hash;
+import fj.P;
+import fj.P2;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable hash map, backed by a hash array mapped trie. Each level of the trie uses five bits of the hash of a key,
+ * so get, set and delete take O(log32 n) and a new map shares all but one path of the trie with the map it was made
+ * from. Maps can be shared between threads without locking.
+ * <p/>
+ * Keys are compared with the given {@link Equal} and hashed with the given {@link Hash}, and nothing is allocated
+ * around them to do so. Many changes can be made at once through a {@link Transient}, which changes the nodes it has
+ * copied in place.
+ *
+ * @version %build.number%
+ * @see HashMap
+ */
+public final class HashArrayMappedTrie<K, V> implements Iterable<P2<K, V>> {
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+  private static final int MAX_DEPTH = 10;
+
+  private static final BitmapNode<?, ?> EMPTY_NODE = new BitmapNode<Object, Object>(null, 0, new Object[0]);
+
+  private final Equal<K> e;
+  private final Hash<K> h;
+  private final BitmapNode<K, V> root;
+  private final int size;
+
+  private HashArrayMappedTrie(final Equal<K> e, final Hash<K> h, final BitmapNode<K, V> root, final int size) {
+    this.e = e;
+    this.h = h;
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Constructs an empty hash map.
+   *
+   * @param e The equality strategy for the keys.
+   * @param h The hashing strategy for the keys.
+   * @return an empty map with the given equality and hashing strategy.
+   */
+  @SuppressWarnings({"unchecked"})
+  public static <K, V> HashArrayMappedTrie<K, V> empty(final Equal<K> e, final Hash<K> h) {
+    return new HashArrayMappedTrie<K, V>(e, h, (BitmapNode<K, V>) EMPTY_NODE, 0);
+  }
+
+  /**
+   * Constructs a hash map with the entries of the given mutable map.
+   *
+   * @param e The equality strategy for the keys.
+   * @param h The hashing strategy for the keys.
+   * @param m The map to copy the entries from.
+   * @return a hash map with the entries of the given map.
+   */
+  public static <K, V> HashArrayMappedTrie<K, V> fromMutableMap(final Equal<K> e, final Hash<K> h, final Map<K, V> m) {
+    final Transient<K, V> t = HashArrayMappedTrie.<K, V>empty(e, h).asTransient();
+    for (final Map.Entry<K, V> entry : m.entrySet()) {
+      t.set(entry.getKey(), entry.getValue());
+    }
+    return t.persistent();
+  }
+
+  /**
+   * Returns a potential value that the given key maps to.
+   *
+   * @param k The key to look up in the hash map.
+   * @return A potential value for the given key.
+   */
+  public Option<V> get(final K k) {
+    final Entry<K, V> entry = root.find(hash(k), k, 0, e);
+    return entry == null ? Option.<V>none() : Option.some(entry.value);
+  }
+
+  /**
+   * Returns the value that the given key maps to, or the given default value.
+   *
+   * @param k   The key to look up in the hash map.
+   * @param def The value to return if the key is not in the map.
+   * @return The value for the given key, or the default value.
+   */
+  public V getOrElse(final K k, final V def) {
+    final Entry<K, V> entry = root.find(hash(k), k, 0, e);
+    return entry == null ? def : entry.value;
+  }
+
+  /**
+   * Returns a function that looks up keys in this hash map.
+   *
+   * @return A function that looks up keys in this hash map.
+   */
+  public Func<K, Option<V>> get() {
+    return new Func<K, Option<V>>() {
+      public Option<V> f(final K k) {
+        return get(k);
+      }
+    };
+  }
+
+  /**
+   * Determines if the given key exists in this hash map.
+   *
+   * @param k The key to look for in this hash map.
+   * @return <code>true</code> if this hash map contains the given key, <code>false</code> otherwise.
+   */
+  public boolean contains(final K k) {
+    return root.find(hash(k), k, 0, e) != null;
+  }
+
+  /**
+   * Inserts the given key and value association into the hash map.
+   * If the given key is already mapped to a value, the old value is replaced with the given one.
+   *
+   * @param k The key to insert.
+   * @param v The value to insert.
+   * @return A new hash map with the given value mapped to the given key.
+   */
+  public HashArrayMappedTrie<K, V> set(final K k, final V v) {
+    final Change change = new Change();
+    final BitmapNode<K, V> r = root.set(null, 0, new Entry<K, V>(hash(k), k, v), e, change);
+    return r == root ? this : new HashArrayMappedTrie<K, V>(e, h, r, change.added ? size + 1 : size);
+  }
+
+  /**
+   * Deletes the entry in the hash map that corresponds to the given key.
+   *
+   * @param k The key to delete from this hash map.
+   * @return A new hash map with the entry corresponding to the given key removed.
+   */
+  @SuppressWarnings({"unchecked"})
+  public HashArrayMappedTrie<K, V> delete(final K k) {
+    final Change change = new Change();
+    final Node<K, V> r = root.delete(null, 0, hash(k), k, e, change);
+    return !change.removed ? this : new HashArrayMappedTrie<K, V>(e, h, r == null ? (BitmapNode<K, V>) EMPTY_NODE : (BitmapNode<K, V>) r, size - 1);
+  }
+
+  /**
+   * Returns the number of entries in this hash map.
+   *
+   * @return The number of entries in this hash map.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Determines if this hash map has any entries.
+   *
+   * @return <code>true</code> if this hash map has no entries, <code>false</code> otherwise.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns all keys in this hash map, in no particular order.
+   *
+   * @return All keys in this hash map.
+   */
+  public List<K> keys() {
+    List<K> keys = List.nil();
+    for (final Iterator<Entry<K, V>> i = entries(); i.hasNext(); ) {
+      keys = keys.cons(i.next().key);
+    }
+    return keys;
+  }
+
+  /**
+   * Returns all values in this hash map, in the order of {@link #keys()}.
+   *
+   * @return All values in this hash map.
+   */
+  public List<V> values() {
+    List<V> values = List.nil();
+    for (final Iterator<Entry<K, V>> i = entries(); i.hasNext(); ) {
+      values = values.cons(i.next().value);
+    }
+    return values;
+  }
+
+  /**
+   * Returns an iterator for this map's key-value pairs.
+   * This method exists to permit the use in a <code>for</code>-each loop.
+   *
+   * @return A iterator for this map's key-value pairs.
+   */
+  public Iterator<P2<K, V>> iterator() {
+    final Iterator<Entry<K, V>> entries = entries();
+    return new Iterator<P2<K, V>>() {
+      public boolean hasNext() {
+        return entries.hasNext();
+      }
+
+      public P2<K, V> next() {
+        final Entry<K, V> entry = entries.next();
+        return P.p(entry.key, entry.value);
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * Maps the given function across the values of this hash map.
+   *
+   * @param f A function to apply to the values of this hash map.
+   * @return A hash map with the same keys, mapped to the results of the function.
+   */
+  public <W> HashArrayMappedTrie<K, W> map(final Func<V, W> f) {
+    final Transient<K, W> t = HashArrayMappedTrie.<K, W>empty(e, h).asTransient();
+    for (final Iterator<Entry<K, V>> i = entries(); i.hasNext(); ) {
+      final Entry<K, V> entry = i.next();
+      t.set(entry.key, f.f(entry.value));
+    }
+    return t.persistent();
+  }
+
+  /**
+   * Copies the entries of this hash map into a new mutable map.
+   *
+   * @return A new mutable map with the entries of this hash map.
+   */
+  public Map<K, V> toMutableMap() {
+    final Map<K, V> m = new java.util.HashMap<K, V>();
+    for (final Iterator<Entry<K, V>> i = entries(); i.hasNext(); ) {
+      final Entry<K, V> entry = i.next();
+      m.put(entry.key, entry.value);
+    }
+    return m;
+  }
+
+  /**
+   * Returns a transient copy of this hash map, to make many changes to without copying the trie for each of them.
+   * This hash map is not changed.
+   *
+   * @return A transient hash map with the entries of this one.
+   */
+  public Transient<K, V> asTransient() {
+    return new Transient<K, V>(e, h, root, size);
+  }
+
+  private int hash(final K k) {
+    final int x = h.hash(k);
+    return x ^ (x >>> 16);
+  }
+
+  private Iterator<Entry<K, V>> entries() {
+    return new EntryIterator<K, V>(root);
+  }
+
+  /**
+   * A hash map that is changed in place, for building a {@link HashArrayMappedTrie} with many changes. It copies a
+   * node of the trie the first time it changes it, and changes the copy in place after that. A transient may only be
+   * used by one thread, and not after {@link #persistent()} has been called.
+   */
+  public static final class Transient<K, V> {
+    private final Equal<K> e;
+    private final Hash<K> h;
+    private Object edit = new Object();
+    private BitmapNode<K, V> root;
+    private int size;
+
+    private Transient(final Equal<K> e, final Hash<K> h, final BitmapNode<K, V> root, final int size) {
+      this.e = e;
+      this.h = h;
+      this.root = root;
+      this.size = size;
+    }
+
+    /**
+     * Returns a potential value that the given key maps to.
+     *
+     * @param k The key to look up.
+     * @return A potential value for the given key.
+     */
+    public Option<V> get(final K k) {
+      check();
+      final Entry<K, V> entry = root.find(hash(k), k, 0, e);
+      return entry == null ? Option.<V>none() : Option.some(entry.value);
+    }
+
+    /**
+     * Maps the given key to the given value, replacing the value it was mapped to.
+     *
+     * @param k The key to insert.
+     * @param v The value to insert.
+     * @return This transient.
+     */
+    public Transient<K, V> set(final K k, final V v) {
+      check();
+      final Change change = new Change();
+      root = root.set(edit, 0, new Entry<K, V>(hash(k), k, v), e, change);
+      if (change.added)
+        size++;
+      return this;
+    }
+
+    /**
+     * Deletes the entry that corresponds to the given key.
+     *
+     * @param k The key to delete.
+     * @return This transient.
+     */
+    @SuppressWarnings({"unchecked"})
+    public Transient<K, V> delete(final K k) {
+      check();
+      final Change change = new Change();
+      final Node<K, V> r = root.delete(edit, 0, hash(k), k, e, change);
+      if (change.removed) {
+        root = r == null ? (BitmapNode<K, V>) EMPTY_NODE : (BitmapNode<K, V>) r;
+        size--;
+      }
+      return this;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+      check();
+      return size;
+    }
+
+    /**
+     * Returns a hash map with the entries of this transient, which may not be used after this.
+     *
+     * @return An immutable hash map with the entries of this transient.
+     */
+    public HashArrayMappedTrie<K, V> persistent() {
+      check();
+      edit = null;
+      return new HashArrayMappedTrie<K, V>(e, h, root, size);
+    }
+
+    private int hash(final K k) {
+      final int x = h.hash(k);
+      return x ^ (x >>> 16);
+    }
+
+    private void check() {
+      if (edit == null)
+        throw new IllegalStateException("Transient used after persistent()");
+    }
+  }
+
+  /**
+   * Whether a set added an entry rather than replacing one, and whether a delete found the key.
+   */
+  private static final class Change {
+    boolean added;
+    boolean removed;
+  }
+
+  private static final class Entry<K, V> {
+    final int hash;
+    final K key;
+    final V value;
+
+    Entry(final int hash, final K key, final V value) {
+      this.hash = hash;
+      this.key = key;
+      this.value = value;
+    }
+
+    boolean matches(final int hash, final K key, final Equal<K> e) {
+      return this.hash == hash && (this.key == key || e.eq(this.key, key));
+    }
+  }
+
+  private abstract static class Node<K, V> {
+    /**
+     * The node was made by the transient with this edit, and may be changed in place by it.
+     */
+    final Object edit;
+
+    Node(final Object edit) {
+      this.edit = edit;
+    }
+
+    abstract Entry<K, V> find(int hash, K key, int shift, Equal<K> e);
+
+    abstract Node<K, V> set(Object edit, int shift, Entry<K, V> entry, Equal<K> e, Change change);
+
+    /**
+     * Returns null if the node is left empty.
+     */
+    abstract Node<K, V> delete(Object edit, int shift, int hash, K key, Equal<K> e, Change change);
+
+    /**
+     * The only entry of this node if it has one entry and no children, so the parent can hold the entry instead.
+     */
+    abstract Entry<K, V> single();
+
+    abstract Object[] array();
+
+    final boolean editable(final Object edit) {
+      return edit != null && edit == this.edit;
+    }
+  }
+
+  /**
+   * A node with up to 32 children, which are entries and nodes. A bit is set in the bitmap for each child, and the
+   * children are kept in the order of their bits.
+   */
+  private static final class BitmapNode<K, V> extends Node<K, V> {
+    int bitmap;
+    Object[] array;
+
+    BitmapNode(final Object edit, final int bitmap, final Object[] array) {
+      super(edit);
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    Entry<K, V> find(final int hash, final K key, final int shift, final Equal<K> e) {
+      final int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0)
+        return null;
+      final Object child = array[Integer.bitCount(bitmap & (bit - 1))];
+      if (child instanceof Entry) {
+        final Entry<K, V> entry = (Entry<K, V>) child;
+        return entry.matches(hash, key, e) ? entry : null;
+      }
+      return ((Node<K, V>) child).find(hash, key, shift + BITS, e);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    BitmapNode<K, V> set(final Object edit, final int shift, final Entry<K, V> entry, final Equal<K> e, final Change change) {
+      final int bit = 1 << ((entry.hash >>> shift) & MASK);
+      final int i = Integer.bitCount(bitmap & (bit - 1));
+      if ((bitmap & bit) == 0) {
+        change.added = true;
+        final Object[] a = new Object[array.length + 1];
+        System.arraycopy(array, 0, a, 0, i);
+        a[i] = entry;
+        System.arraycopy(array, i, a, i + 1, array.length - i);
+        if (editable(edit)) {
+          array = a;
+          bitmap |= bit;
+          return this;
+        }
+        return new BitmapNode<K, V>(edit, bitmap | bit, a);
+      }
+      final Object child = array[i];
+      if (child instanceof Entry) {
+        final Entry<K, V> old = (Entry<K, V>) child;
+        if (old.matches(entry.hash, entry.key, e))
+          return old.value == entry.value ? this : with(edit, i, entry);
+        change.added = true;
+        return with(edit, i, pair(edit, shift + BITS, old, entry));
+      }
+      final Node<K, V> node = (Node<K, V>) child;
+      final Node<K, V> n = node.set(edit, shift + BITS, entry, e, change);
+      return n == node ? this : with(edit, i, n);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    Node<K, V> delete(final Object edit, final int shift, final int hash, final K key, final Equal<K> e, final Change change) {
+      final int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0)
+        return this;
+      final int i = Integer.bitCount(bitmap & (bit - 1));
+      final Object child = array[i];
+      if (child instanceof Entry) {
+        if (!((Entry<K, V>) child).matches(hash, key, e))
+          return this;
+        change.removed = true;
+        return without(edit, bit, i);
+      }
+      final Node<K, V> node = (Node<K, V>) child;
+      final Node<K, V> n = node.delete(edit, shift + BITS, hash, key, e, change);
+      if (!change.removed)
+        return this;
+      if (n == null)
+        return without(edit, bit, i);
+      final Entry<K, V> single = n.single();
+      return with(edit, i, single != null ? single : n);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    Entry<K, V> single() {
+      return array.length == 1 && array[0] instanceof Entry ? (Entry<K, V>) array[0] : null;
+    }
+
+    Object[] array() {
+      return array;
+    }
+
+    private BitmapNode<K, V> with(final Object edit, final int i, final Object child) {
+      if (editable(edit)) {
+        array[i] = child;
+        return this;
+      }
+      final Object[] a = array.clone();
+      a[i] = child;
+      return new BitmapNode<K, V>(edit, bitmap, a);
+    }
+
+    private BitmapNode<K, V> without(final Object edit, final int bit, final int i) {
+      if (bitmap == bit)
+        return null;
+      final Object[] a = new Object[array.length - 1];
+      System.arraycopy(array, 0, a, 0, i);
+      System.arraycopy(array, i + 1, a, i, a.length - i);
+      if (editable(edit)) {
+        array = a;
+        bitmap &= ~bit;
+        return this;
+      }
+      return new BitmapNode<K, V>(edit, bitmap & ~bit, a);
+    }
+
+    /**
+     * A node at the given shift holding two entries with different keys.
+     */
+    private static <K, V> Node<K, V> pair(final Object edit, final int shift, final Entry<K, V> a, final Entry<K, V> b) {
+      if (a.hash == b.hash)
+        return new CollisionNode<K, V>(edit, a.hash, new Object[]{a, b});
+      final int ia = (a.hash >>> shift) & MASK;
+      final int ib = (b.hash >>> shift) & MASK;
+      if (ia == ib)
+        return new BitmapNode<K, V>(edit, 1 << ia, new Object[]{pair(edit, shift + BITS, a, b)});
+      return new BitmapNode<K, V>(edit, (1 << ia) | (1 << ib), ia < ib ? new Object[]{a, b} : new Object[]{b, a});
+    }
+  }
+
+  /**
+   * The entries of keys with the same hash.
+   */
+  private static final class CollisionNode<K, V> extends Node<K, V> {
+    final int hash;
+    Object[] entries;
+
+    CollisionNode(final Object edit, final int hash, final Object[] entries) {
+      super(edit);
+      this.hash = hash;
+      this.entries = entries;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    Entry<K, V> find(final int hash, final K key, final int shift, final Equal<K> e) {
+      if (hash != this.hash)
+        return null;
+      for (final Object o : entries) {
+        final Entry<K, V> entry = (Entry<K, V>) o;
+        if (entry.key == key || e.eq(entry.key, key))
+          return entry;
+      }
+      return null;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    Node<K, V> set(final Object edit, final int shift, final Entry<K, V> entry, final Equal<K> e, final Change change) {
+      if (entry.hash != hash)
+        return new BitmapNode<K, V>(edit, 1 << ((hash >>> shift) & MASK), new Object[]{this}).set(edit, shift, entry, e, change);
+      for (int i = 0; i < entries.length; i++) {
+        final Entry<K, V> old = (Entry<K, V>) entries[i];
+        if (e.eq(old.key, entry.key)) {
+          if (old.value == entry.value)
+            return this;
+          if (editable(edit)) {
+            entries[i] = entry;
+            return this;
+          }
+          final Object[] a = entries.clone();
+          a[i] = entry;
+          return new CollisionNode<K, V>(edit, hash, a);
+        }
+      }
+      change.added = true;
+      final Object[] a = new Object[entries.length + 1];
+      System.arraycopy(entries, 0, a, 0, entries.length);
+      a[entries.length] = entry;
+      if (editable(edit)) {
+        entries = a;
+        return this;
+      }
+      return new CollisionNode<K, V>(edit, hash, a);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    Node<K, V> delete(final Object edit, final int shift, final int hash, final K key, final Equal<K> e, final Change change) {
+      if (hash != this.hash)
+        return this;
+      for (int i = 0; i < entries.length; i++) {
+        if (e.eq(((Entry<K, V>) entries[i]).key, key)) {
+          change.removed = true;
+          if (entries.length == 1)
+            return null;
+          final Object[] a = new Object[entries.length - 1];
+          System.arraycopy(entries, 0, a, 0, i);
+          System.arraycopy(entries, i + 1, a, i, a.length - i);
+          if (editable(edit)) {
+            entries = a;
+            return this;
+          }
+          return new CollisionNode<K, V>(edit, hash, a);
+        }
+      }
+      return this;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    Entry<K, V> single() {
+      return entries.length == 1 ? (Entry<K, V>) entries[0] : null;
+    }
+
+    Object[] array() {
+      return entries;
+    }
+  }
+
+  /**
+   * Walks the trie depth first, keeping the path to the current entry in arrays.
+   */
+  private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+    private final Object[][] arrays = new Object[MAX_DEPTH][];
+    private final int[] positions = new int[MAX_DEPTH];
+    private int depth;
+    private Entry<K, V> next;
+
+    EntryIterator(final Node<K, V> root) {
+      arrays[0] = root.array();
+      advance();
+    }
+
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    public Entry<K, V> next() {
+      if (next == null)
+        throw new NoSuchElementException();
+      final Entry<K, V> entry = next;
+      advance();
+      return entry;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private void advance() {
+      next = null;
+      while (depth >= 0) {
+        if (positions[depth] == arrays[depth].length) {
+          depth--;
+          continue;
+        }
+        final Object child = arrays[depth][positions[depth]++];
+        if (child instanceof Entry) {
+          next = (Entry<K, V>) child;
+          return;
+        }
+        depth++;
+        arrays[depth] = ((Node<K, V>) child).array();
+        positions[depth] = 0;
+      }
+    }
+  }
+}
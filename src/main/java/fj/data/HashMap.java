@@ -2,43 +2,27 @@ package fj.data;
 
 import fj.*;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 
 import static fj.P.p;
-import static fj.data.Option.fromNull;
 
 /**
  * A mutable hash map providing O(1) lookup.
+ * <p/>
+ * Entries are kept in parallel arrays of keys, values and hashes, with open addressing and linear probing, so keys are
+ * hashed and compared with the given strategies directly, without a wrapper object per entry or per lookup. A slot is
+ * empty when its value is null, which is why null values are never set.
  *
  * @version %build.number%
  * @see java.util.HashMap
  */
 public final class HashMap<K, V> implements Iterable<K> {
-  private final class Key<K> {
-    private final K k;
-    private final Equal<K> e;
-    private final Hash<K> h;
-
-    Key(final K k, final Equal<K> e, final Hash<K> h) {
-      this.k = k;
-      this.e = e;
-      this.h = h;
-    }
-
-    K k() {
-      return k;
-    }
-
-    @SuppressWarnings({"unchecked"})
-    public boolean equals(final Object o) {
-      return o instanceof Key && e.eq(k, (K) ((Key<?>) o).k());
-    }
-
-    public int hashCode() {
-      return h.hash(k);
-    }
-  }
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+  private static final float MAX_LOAD_FACTOR = 0.9f;
+  private static final int MAX_CAPACITY = 1 << 30;
 
   /**
    * Returns an iterator for this map's keys. This method exists to permit the use in a <code>for</code>-each loop.
@@ -49,10 +33,15 @@ public final class HashMap<K, V> implements Iterable<K> {
     return keys().iterator();
   }
 
-  private final java.util.HashMap<Key<K>, V> m;
-
   private final Equal<K> e;
   private final Hash<K> h;
+  private final float loadFactor;
+
+  private Object[] keys;
+  private Object[] values;
+  private int[] hashes;
+  private int size;
+  private int threshold;
 
   /**
    * Construct a hash map with the given equality and hashing strategy.
@@ -61,13 +50,11 @@ public final class HashMap<K, V> implements Iterable<K> {
    * @param h The hashing strategy.
    */
   public HashMap(final Equal<K> e, final Hash<K> h) {
-    m = new java.util.HashMap<Key<K>, V>();
-    this.e = e;
-    this.h = h;
+    this(e, h, DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
   }
 
   public HashMap(java.util.Map<K, V> map, final Equal<K> e, final Hash<K> h) {
-    this(e, h);
+    this(e, h, (int) (map.size() / DEFAULT_LOAD_FACTOR) + 1, DEFAULT_LOAD_FACTOR);
     for (K key : map.keySet()) {
       set(key, map.get(key));
     }
@@ -81,9 +68,7 @@ public final class HashMap<K, V> implements Iterable<K> {
    * @param initialCapacity The initial capacity.
    */
   public HashMap(final Equal<K> e, final Hash<K> h, final int initialCapacity) {
-    m = new java.util.HashMap<Key<K>, V>(initialCapacity);
-    this.e = e;
-    this.h = h;
+    this(e, h, initialCapacity, DEFAULT_LOAD_FACTOR);
   }
 
     public HashMap(java.util.Map<K, V> map) {
@@ -99,9 +84,19 @@ public final class HashMap<K, V> implements Iterable<K> {
    * @param loadFactor      The load factor.
    */
   public HashMap(final Equal<K> e, final Hash<K> h, final int initialCapacity, final float loadFactor) {
-    m = new java.util.HashMap<Key<K>, V>(initialCapacity, loadFactor);
+    if (initialCapacity < 0)
+      throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+    if (!(loadFactor > 0))
+      throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
     this.e = e;
     this.h = h;
+    // Probing needs free slots, so the table is never filled further than this.
+    this.loadFactor = Math.min(loadFactor, MAX_LOAD_FACTOR);
+    int capacity = 2;
+    while (capacity < MAX_CAPACITY && capacity * this.loadFactor < initialCapacity) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
   }
 
   /**
@@ -142,8 +137,10 @@ public final class HashMap<K, V> implements Iterable<K> {
    * @param k The key to look up in the hash map.
    * @return A potential value for the given key.
    */
+  @SuppressWarnings({"unchecked"})
   public Option<V> get(final K k) {
-    return fromNull(m.get(new Key<K>(k, e, h)));
+    final int i = find(k);
+    return i < 0 ? Option.<V>none() : Option.some((V) values[i]);
   }
 
   /**
@@ -163,7 +160,9 @@ public final class HashMap<K, V> implements Iterable<K> {
    * Clear all entries from this hash map.
    */
   public void clear() {
-    m.clear();
+    Arrays.fill(keys, null);
+    Arrays.fill(values, null);
+    size = 0;
   }
 
   /**
@@ -173,7 +172,7 @@ public final class HashMap<K, V> implements Iterable<K> {
    * @return <code>true</code> if this hash map contains the given key, <code>false</code> otherwise.
    */
   public boolean contains(final K k) {
-    return m.containsKey(new Key<K>(k, e, h));
+    return find(k) >= 0;
   }
 
   /**
@@ -181,11 +180,13 @@ public final class HashMap<K, V> implements Iterable<K> {
    *
    * @return All key entries in this hash map.
    */
+  @SuppressWarnings({"unchecked"})
   public List<K> keys() {
     final List.Buffer<K> b = new List.Buffer<K>();
 
-    for (final Key<K> k : m.keySet()) {
-      b.snoc(k.k());
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null)
+        b.snoc((K) keys[i]);
     }
 
     return b.toList();
@@ -196,12 +197,16 @@ public final class HashMap<K, V> implements Iterable<K> {
    *
    * @return All values in this hash map.
    */
+  @SuppressWarnings({"unchecked"})
   public List<V> values() {
-    return keys().map(new Func<K, V>() {
-      public V f(final K k) {
-        return m.get(new Key<K>(k, e, h));
-      }
-    });
+    final List.Buffer<V> b = new List.Buffer<V>();
+
+    for (final Object v : values) {
+      if (v != null)
+        b.snoc((V) v);
+    }
+
+    return b.toList();
   }
 
   /**
@@ -210,7 +215,7 @@ public final class HashMap<K, V> implements Iterable<K> {
    * @return <code>true</code> if this hash map has no entries, <code>false</code> otherwise.
    */
   public boolean isEmpty() {
-    return m.isEmpty();
+    return size == 0;
   }
 
   /**
@@ -219,7 +224,7 @@ public final class HashMap<K, V> implements Iterable<K> {
    * @return The number of entries in this hash map.
    */
   public int size() {
-    return m.size();
+    return size;
   }
 
   /**
@@ -228,9 +233,24 @@ public final class HashMap<K, V> implements Iterable<K> {
    * @param k The key to insert.
    * @param v The value to insert.
    */
+  @SuppressWarnings({"unchecked"})
   public void set(final K k, final V v) {
     if (v != null) {
-        m.put(new Key<K>(k, e, h), v);
+      final int hash = spread(h.hash(k));
+      final int mask = values.length - 1;
+      int i = hash & mask;
+      while (values[i] != null) {
+        if (hashes[i] == hash && (keys[i] == k || e.eq((K) keys[i], k))) {
+          values[i] = v;
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      keys[i] = k;
+      values[i] = v;
+      hashes[i] = hash;
+      if (++size > threshold)
+        resize();
     }
   }
 
@@ -240,7 +260,9 @@ public final class HashMap<K, V> implements Iterable<K> {
    * @param k The key to delete from this hash map.
    */
   public void delete(final K k) {
-    m.remove(new Key<K>(k, e, h));
+    final int i = find(k);
+    if (i >= 0)
+      remove(i);
   }
 
   /**
@@ -249,8 +271,14 @@ public final class HashMap<K, V> implements Iterable<K> {
    * @param k The key to delete from this hash map.
    * @return The value that was associated with the given key, if there was one.
    */
+  @SuppressWarnings({"unchecked"})
   public Option<V> getDelete(final K k) {
-    return fromNull(m.remove(new Key<K>(k, e, h)));
+    final int i = find(k);
+    if (i < 0)
+      return Option.none();
+    final V v = (V) values[i];
+    remove(i);
+    return Option.some(v);
   }
 
   public <A, B> HashMap<A, B> map(Func<K, A> keyFunction,
@@ -298,12 +326,16 @@ public final class HashMap<K, V> implements Iterable<K> {
     toStream().foreach(function);
   }
 
+  @SuppressWarnings({"unchecked"})
   public List<P2<K, V>> toList() {
-    return keys().map(new Func<K, P2<K, V>>() {
-      public P2<K, V> f(final K k) {
-        return p(k, get(k).some());
-      }
-    });
+    final List.Buffer<P2<K, V>> b = new List.Buffer<P2<K, V>>();
+
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null)
+        b.snoc(p((K) keys[i], (V) values[i]));
+    }
+
+    return b.toList();
   }
 
   /**
@@ -327,14 +359,91 @@ public final class HashMap<K, V> implements Iterable<K> {
     return toList().toArray();
   }
 
+  @SuppressWarnings({"unchecked"})
   public java.util.Map<K, V> toMap() {
     final java.util.HashMap<K,V> result = new java.util.HashMap<K, V>();
-    for (K key : keys()) {
-      result.put(key, get(key).some());
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null)
+        result.put((K) keys[i], (V) values[i]);
     }
     return result;
   }
 
+  /**
+   * The slot of the given key, or -1 if it is not in the map.
+   */
+  @SuppressWarnings({"unchecked"})
+  private int find(final K k) {
+    final int hash = spread(h.hash(k));
+    final int mask = values.length - 1;
+    for (int i = hash & mask; values[i] != null; i = (i + 1) & mask) {
+      if (hashes[i] == hash && (keys[i] == k || e.eq((K) keys[i], k)))
+        return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Empties the given slot, and moves the entries after it that probed past it back, so no lookup stops short.
+   */
+  private void remove(int i) {
+    final int mask = values.length - 1;
+    for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+      final int home = hashes[j] & mask;
+      // The entry at j may move to i if its home slot is not in the cyclic range (i, j].
+      if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        hashes[i] = hashes[j];
+        i = j;
+      }
+    }
+    keys[i] = null;
+    values[i] = null;
+    size--;
+  }
+
+  private void resize() {
+    final Object[] oldKeys = keys;
+    final Object[] oldValues = values;
+    final int[] oldHashes = hashes;
+    if (oldValues.length == MAX_CAPACITY) {
+      if (size >= MAX_CAPACITY - 1)
+        throw new IllegalStateException("Hash map is full");
+      threshold = MAX_CAPACITY - 2;
+      return;
+    }
+    allocate(oldValues.length << 1);
+    final int mask = values.length - 1;
+    for (int j = 0; j < oldValues.length; j++) {
+      if (oldValues[j] != null) {
+        int i = oldHashes[j] & mask;
+        while (values[i] != null) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+        hashes[i] = oldHashes[j];
+      }
+    }
+  }
+
+  private void allocate(final int capacity) {
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    hashes = new int[capacity];
+    threshold = Math.min((int) (capacity * loadFactor), capacity - 1);
+  }
+
+  /**
+   * Scrambles the hash so that keys with nearby hashes, like strings that differ in the last character, do not fill a
+   * run of neighbouring slots, which would make linear probing slow.
+   */
+  static int spread(final int hash) {
+    final int x = hash * 0x9e3779b9;
+    return x ^ (x >>> 16);
+  }
+
   public static <K, V> HashMap<K, V> from(Iterable<P2<K, V>> entries) {
     return from(entries, Equal.<K>anyEqual(), Hash.<K>anyHash());
   }
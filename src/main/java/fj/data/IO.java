@@ -8,6 +8,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.Charset;
@@ -230,6 +231,57 @@ public abstract class IO<A> {
     };
   }
 
+  /**
+   * A function that feeds an iteratee with byte chunks read from an {@link java.io.InputStream}
+   * (byte[] of at most the given size). Every chunk is a new array, so the iteratee may keep it.
+   */
+  public static <A> Func<InputStream, Func<IterV<byte[], A>, IO<IterV<byte[], A>>>> byteChunkReader(final int chunkSize) {
+    final Func<IterV<byte[], A>, Boolean> isDone =
+      new Func<IterV<byte[], A>, Boolean>() {
+        final Func<P2<A, Input<byte[]>>, P1<Boolean>> done = constant(P.p(true));
+        final Func<Func<Input<byte[]>, IterV<byte[], A>>, P1<Boolean>> cont = constant(P.p(false));
+
+        @Override
+        public Boolean f(final IterV<byte[], A> i) {
+          return i.fold(done, cont)._1();
+        }
+      };
+
+    return new Func<InputStream, Func<IterV<byte[], A>, IO<IterV<byte[], A>>>>() {
+      @Override
+      public Func<IterV<byte[], A>, IO<IterV<byte[], A>>> f(final InputStream is) {
+        return new Func<IterV<byte[], A>, IO<IterV<byte[], A>>>() {
+          final Func<P2<A, Input<byte[]>>, P1<IterV<byte[], A>>> done = errorF("iteratee is done"); //$NON-NLS-1$
+
+          @Override
+          public IO<IterV<byte[], A>> f(final IterV<byte[], A> it) {
+            // use loop instead of recursion because of missing TCO
+            return new IO<Iteratee.IterV<byte[], A>>() {
+              @Override
+              public IterV<byte[], A> run() throws IOException {
+                IterV<byte[], A> i = it;
+                while (!isDone.f(i)) {
+                  byte[] buffer = new byte[chunkSize];
+                  final int numRead = is.read(buffer);
+                  if (numRead == -1) { return i; }
+                  if (numRead == 0) { continue; }
+                  if (numRead < buffer.length) {
+                    buffer = Arrays.copyOfRange(buffer, 0, numRead);
+                  }
+                  final Input<byte[]> input = Input.<byte[]>el(buffer);
+                  final Func<Func<Input<byte[]>, IterV<byte[], A>>, P1<IterV<byte[], A>>> cont =
+                      Function.<Input<byte[]>, IterV<byte[], A>>apply(input).lazy();
+                  i = i.fold(done, cont)._1();
+                }
+                return i;
+              }
+            };
+          }
+        };
+      }
+    };
+  }
+
   /**
    * A function that feeds an iteratee with characters read from a {@link java.io.Reader}
    * (chars are read in chunks of size {@link #DEFAULT_BUFFER_SIZE}).
@@ -0,0 +1,378 @@
+package fj.data;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An immutable sequence of <code>int</code> values, kept in chunks of <code>int[]</code> so that no value is boxed.
+ * The chunks are the leaves of a trie with 32 children per node, and the last chunk is kept apart from the trie as its
+ * tail, so index and update take O(log32 n) and snoc takes amortised O(1). The bulk operations run over the chunks
+ * directly.
+ *
+ * @see Seq
+ */
+public final class IntSeq {
+  private static final int[] NO_VALUES = new int[0];
+
+  private static final IntSeq EMPTY = new IntSeq(ChunkTrie.EMPTY, NO_VALUES);
+
+  private final ChunkTrie trie;
+  private final int[] tail;
+
+  private IntSeq(final ChunkTrie trie, final int[] tail) {
+    this.trie = trie;
+    this.tail = tail;
+  }
+
+  /**
+   * The empty sequence.
+   *
+   * @return A sequence with no elements.
+   */
+  public static IntSeq empty() {
+    return EMPTY;
+  }
+
+  /**
+   * A sequence of the given values.
+   *
+   * @param as The values of the sequence.
+   * @return A sequence of the given values, in order.
+   */
+  public static IntSeq intSeq(final int... as) {
+    return fromArray(as, as.length);
+  }
+
+  /**
+   * A sequence of the given boxed values.
+   *
+   * @param as The values of the sequence.
+   * @return A sequence of the given values, in order.
+   */
+  public static IntSeq iterableIntSeq(final Iterable<Integer> as) {
+    int[] values = new int[ChunkTrie.WIDTH];
+    int n = 0;
+    for (final Integer a : as) {
+      if (n == values.length)
+        values = Arrays.copyOf(values, n * 2);
+      values[n++] = a;
+    }
+    return fromArray(values, n);
+  }
+
+  /**
+   * Returns a sequence of the values from the given lower bound up to, but not including, the upper bound.
+   *
+   * @param from The lower bound, included.
+   * @param to   The upper bound, not included.
+   * @return A sequence of the values from the lower bound up to the upper bound.
+   */
+  public static IntSeq range(final int from, final int to) {
+    if (to <= from)
+      return EMPTY;
+    if ((long) to - from > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Range from " + from + " to " + to + " is too long");
+    final int[] values = new int[to - from];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = from + i;
+    }
+    return fromArray(values, values.length);
+  }
+
+  /**
+   * Returns the number of elements in this sequence.
+   *
+   * @return The number of elements in this sequence.
+   */
+  public int length() {
+    return trie.count() + tail.length;
+  }
+
+  /**
+   * Checks if this is the empty sequence.
+   *
+   * @return True if this sequence is empty, otherwise false.
+   */
+  public boolean isEmpty() {
+    return tail.length == 0;
+  }
+
+  /**
+   * Returns the element at the given index. Takes O(log32 n).
+   *
+   * @param i The index of the element to return.
+   * @return The element at the given index.
+   */
+  public int index(final int i) {
+    return chunk(i)[i & ChunkTrie.MASK];
+  }
+
+  /**
+   * Replaces the element at the given index. Takes O(log32 n).
+   *
+   * @param i The index of the element to replace.
+   * @param a The new element.
+   * @return A new sequence with the given element at the given index.
+   */
+  public IntSeq update(final int i, final int a) {
+    final int[] chunk = chunk(i).clone();
+    chunk[i & ChunkTrie.MASK] = a;
+    return i >= trie.count() ? new IntSeq(trie, chunk) : new IntSeq(trie.set(i, chunk), tail);
+  }
+
+  /**
+   * Appends the given element to the end of this sequence.
+   *
+   * @param a An element to append to this sequence.
+   * @return A new sequence with the given element at the end.
+   */
+  public IntSeq snoc(final int a) {
+    if (tail.length < ChunkTrie.WIDTH) {
+      final int[] t = Arrays.copyOf(tail, tail.length + 1);
+      t[tail.length] = a;
+      return new IntSeq(trie, t);
+    }
+    return new IntSeq(trie.push(tail), new int[]{a});
+  }
+
+  /**
+   * Appends the given sequence to this sequence.
+   *
+   * @param as A sequence to append to this one.
+   * @return A new sequence with the elements of this sequence followed by those of the given one.
+   */
+  public IntSeq append(final IntSeq as) {
+    if (as.isEmpty())
+      return this;
+    if (isEmpty())
+      return as;
+    final int[] values = Arrays.copyOf(toArray(), length() + as.length());
+    as.copyTo(values, length());
+    return fromArray(values, values.length);
+  }
+
+  /**
+   * Maps the given function across this sequence.
+   *
+   * @param f The function to map across this sequence.
+   * @return A new sequence after the given function has been applied to each element.
+   */
+  public IntSeq map(final IntUnaryOperator f) {
+    final int[] values = new int[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final int a : (int[]) trie.chunk(c, tail)) {
+        values[n++] = f.applyAsInt(a);
+      }
+    }
+    return fromArray(values, n);
+  }
+
+  /**
+   * Maps the given function across this sequence into a sequence of <code>long</code> values.
+   *
+   * @param f The function to map across this sequence.
+   * @return A new sequence of the results of the given function, in order.
+   */
+  public LongSeq mapToLong(final IntToLongFunction f) {
+    final long[] values = new long[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final int a : (int[]) trie.chunk(c, tail)) {
+        values[n++] = f.applyAsLong(a);
+      }
+    }
+    return LongSeq.fromArray(values, n);
+  }
+
+  /**
+   * Maps the given function across this sequence into a sequence of <code>double</code> values.
+   *
+   * @param f The function to map across this sequence.
+   * @return A new sequence of the results of the given function, in order.
+   */
+  public DoubleSeq mapToDouble(final IntToDoubleFunction f) {
+    final double[] values = new double[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final int a : (int[]) trie.chunk(c, tail)) {
+        values[n++] = f.applyAsDouble(a);
+      }
+    }
+    return DoubleSeq.fromArray(values, n);
+  }
+
+  /**
+   * Maps the given function across this sequence, boxing the results into a list.
+   *
+   * @param f The function to map across this sequence.
+   * @return A list of the results of the given function, in order.
+   */
+  public <B> List<B> mapToObj(final IntFunction<B> f) {
+    final List.Buffer<B> b = new List.Buffer<B>();
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final int a : (int[]) trie.chunk(c, tail)) {
+        b.snoc(f.apply(a));
+      }
+    }
+    return b.toList();
+  }
+
+  /**
+   * Filters elements from this sequence by returning only elements which produce <code>true</code> when the given
+   * function is applied to them.
+   *
+   * @param f The predicate function to filter on.
+   * @return A new sequence whose elements all match the given predicate.
+   */
+  public IntSeq filter(final IntPredicate f) {
+    final int[] values = new int[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final int a : (int[]) trie.chunk(c, tail)) {
+        if (f.test(a))
+          values[n++] = a;
+      }
+    }
+    return n == length() ? this : fromArray(values, n);
+  }
+
+  /**
+   * Performs a left-fold reduction across this sequence.
+   *
+   * @param f The function to apply on each element of the sequence.
+   * @param b The beginning value to start the application from.
+   * @return The final result after the left-fold reduction.
+   */
+  public int foldLeft(final IntBinaryOperator f, final int b) {
+    int x = b;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final int a : (int[]) trie.chunk(c, tail)) {
+        x = f.applyAsInt(x, a);
+      }
+    }
+    return x;
+  }
+
+  /**
+   * Returns the sum of the elements of this sequence.
+   *
+   * @return The sum of the elements of this sequence.
+   */
+  public int sum() {
+    int x = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final int a : (int[]) trie.chunk(c, tail)) {
+        x += a;
+      }
+    }
+    return x;
+  }
+
+  /**
+   * Performs a side-effect for each element of this sequence.
+   *
+   * @param f The side-effect to perform for the given element.
+   */
+  public void foreach(final IntConsumer f) {
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final int a : (int[]) trie.chunk(c, tail)) {
+        f.accept(a);
+      }
+    }
+  }
+
+  /**
+   * Returns an iterator over the elements of this sequence that does not box them.
+   *
+   * @return An iterator over the elements of this sequence.
+   */
+  public PrimitiveIterator.OfInt iterator() {
+    return new PrimitiveIterator.OfInt() {
+      private int i;
+      private int[] chunk;
+
+      public boolean hasNext() {
+        return i < length();
+      }
+
+      public int nextInt() {
+        if (i >= length())
+          throw new NoSuchElementException();
+        if ((i & ChunkTrie.MASK) == 0)
+          chunk = chunk(i);
+        return chunk[i++ & ChunkTrie.MASK];
+      }
+    };
+  }
+
+  /**
+   * Copies the elements of this sequence into a new array.
+   *
+   * @return A new array with the elements of this sequence.
+   */
+  public int[] toArray() {
+    final int[] values = new int[length()];
+    copyTo(values, 0);
+    return values;
+  }
+
+  /**
+   * Boxes the elements of this sequence into a list.
+   *
+   * @return A list of the elements of this sequence.
+   */
+  public List<Integer> toList() {
+    final List.Buffer<Integer> b = new List.Buffer<Integer>();
+    for (final PrimitiveIterator.OfInt i = iterator(); i.hasNext(); ) {
+      b.snoc(i.nextInt());
+    }
+    return b.toList();
+  }
+
+  /**
+   * Boxes the elements of this sequence into a stream.
+   *
+   * @return A stream of the elements of this sequence.
+   */
+  public Stream<Integer> toStream() {
+    return toList().toStream();
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder s = new StringBuilder("IntSeq(");
+    for (final PrimitiveIterator.OfInt i = iterator(); i.hasNext(); ) {
+      s.append(i.nextInt());
+      if (i.hasNext())
+        s.append(',');
+    }
+    return s.append(')').toString();
+  }
+
+  private int[] chunk(final int i) {
+    return (int[]) trie.chunkAt(i, tail, tail.length);
+  }
+
+  private void copyTo(final int[] values, final int offset) {
+    trie.copyTo(tail, tail.length, values, offset);
+  }
+
+  /**
+   * The sequence of the first n values of the given array, which is not kept.
+   */
+  static IntSeq fromArray(final int[] values, final int n) {
+    if (n == 0)
+      return EMPTY;
+    final ChunkTrie trie = ChunkTrie.of(values, n);
+    return new IntSeq(trie, Arrays.copyOfRange(values, trie.count(), n));
+  }
+}
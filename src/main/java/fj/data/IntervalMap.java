@@ -0,0 +1,130 @@
+package fj.data;
+
+import fj.Func;
+import fj.Func2;
+import fj.Monoid;
+import fj.Ord;
+import fj.P2;
+import fj.P3;
+import fj.data.fingertrees.FingerTree;
+import fj.data.fingertrees.Measured;
+
+import static fj.P.p;
+
+/**
+ * An immutable map from closed intervals to values, implemented as a finger tree of intervals ordered by their low
+ * end. The nodes are annotated with the greatest low end and the greatest high end under them, so inserting takes
+ * O(log n), and finding the m intervals that intersect a given one takes O(m log n).
+ */
+public final class IntervalMap<K, A> {
+  private final Ord<K> ord;
+  private final FingerTree<P2<Option<K>, Option<K>>, P3<K, K, A>> ftree;
+
+  private IntervalMap(final Ord<K> ord, final FingerTree<P2<Option<K>, Option<K>>, P3<K, K, A>> ftree) {
+    this.ord = ord;
+    this.ftree = ftree;
+  }
+
+  /**
+   * The empty interval map.
+   *
+   * @param ord An order for the ends of intervals.
+   * @return An interval map with no intervals.
+   */
+  public static <K, A> IntervalMap<K, A> empty(final Ord<K> ord) {
+    final Monoid<Option<K>> max = PriorityQueue.maximum(ord);
+    final Monoid<P2<Option<K>, Option<K>>> both = Monoid.monoid(
+        new Func2<P2<Option<K>, Option<K>>, P2<Option<K>, Option<K>>, P2<Option<K>, Option<K>>>() {
+          public P2<Option<K>, Option<K>> f(final P2<Option<K>, Option<K>> a, final P2<Option<K>, Option<K>> b) {
+            return p(max.sum(a._1(), b._1()), max.sum(a._2(), b._2()));
+          }
+        }, p(Option.<K>none(), Option.<K>none()));
+    final Measured<P2<Option<K>, Option<K>>, P3<K, K, A>> m =
+        FingerTree.measured(both, new Func<P3<K, K, A>, P2<Option<K>, Option<K>>>() {
+          public P2<Option<K>, Option<K>> f(final P3<K, K, A> interval) {
+            return p(Option.some(interval._1()), Option.some(interval._2()));
+          }
+        });
+    return new IntervalMap<K, A>(ord, FingerTree.mkTree(m).empty());
+  }
+
+  /**
+   * Checks if this is the empty interval map.
+   *
+   * @return True if this interval map is empty, otherwise false.
+   */
+  public boolean isEmpty() {
+    return ftree.isEmpty();
+  }
+
+  /**
+   * Adds the given value for the given interval. Intervals with the same low end are kept in the order they were
+   * inserted.
+   *
+   * @param low  The low end of the interval.
+   * @param high The high end of the interval, not less than the low end.
+   * @param a    The value for the interval.
+   * @return A new interval map with the given value for the given interval.
+   */
+  public IntervalMap<K, A> insert(final K low, final K high, final A a) {
+    if (ord.isLessThan(high, low))
+      throw new IllegalArgumentException("Interval [" + low + ", " + high + "] is empty");
+    final P2<FingerTree<P2<Option<K>, Option<K>>, P3<K, K, A>>, FingerTree<P2<Option<K>, Option<K>>, P3<K, K, A>>> s =
+        ftree.split(lowAbove(low));
+    return new IntervalMap<K, A>(ord, s._1().snoc(p(low, high, a)).append(s._2()));
+  }
+
+  /**
+   * Returns the intervals that intersect the given closed interval, with their values.
+   *
+   * @param low  The low end of the interval to search.
+   * @param high The high end of the interval to search.
+   * @return The intervals that intersect the given interval, with their values, ordered by their low ends.
+   */
+  public List<P3<K, K, A>> intersecting(final K low, final K high) {
+    final List.Buffer<P3<K, K, A>> found = new List.Buffer<P3<K, K, A>>();
+    FingerTree<P2<Option<K>, Option<K>>, P3<K, K, A>> t = ftree.split(lowAbove(high))._1();
+    final Func<P2<Option<K>, Option<K>>, Boolean> reaches = new Func<P2<Option<K>, Option<K>>, Boolean>() {
+      public Boolean f(final P2<Option<K>, Option<K>> v) {
+        return v._2().isSome() && !ord.isLessThan(v._2().some(), low);
+      }
+    };
+    while (true) {
+      t = t.split(reaches)._2();
+      if (t.isEmpty())
+        return found.toList();
+      found.snoc(t.head());
+      t = t.tail();
+    }
+  }
+
+  /**
+   * Returns the intervals that contain the given point, with their values.
+   *
+   * @param k The point to search for.
+   * @return The intervals that contain the given point, with their values, ordered by their low ends.
+   */
+  public List<P3<K, K, A>> containing(final K k) {
+    return intersecting(k, k);
+  }
+
+  /**
+   * Returns the intervals of this map with their values, ordered by their low ends.
+   *
+   * @return The intervals of this map with their values, ordered by their low ends.
+   */
+  public List<P3<K, K, A>> toList() {
+    return ftree.foldRight(List.<P3<K, K, A>>cons(), List.<P3<K, K, A>>nil());
+  }
+
+  /**
+   * A predicate on the measures of prefixes, true for those with a low end above the given one.
+   */
+  private Func<P2<Option<K>, Option<K>>, Boolean> lowAbove(final K k) {
+    return new Func<P2<Option<K>, Option<K>>, Boolean>() {
+      public Boolean f(final P2<Option<K>, Option<K>> v) {
+        return v._1().isSome() && ord.isGreaterThan(v._1().some(), k);
+      }
+    };
+  }
+}
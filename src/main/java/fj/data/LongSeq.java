@@ -0,0 +1,378 @@
+package fj.data;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongToIntFunction;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * An immutable sequence of <code>long</code> values, kept in chunks of <code>long[]</code> so that no value is boxed.
+ * The chunks are the leaves of a trie with 32 children per node, and the last chunk is kept apart from the trie as its
+ * tail, so index and update take O(log32 n) and snoc takes amortised O(1). The bulk operations run over the chunks
+ * directly.
+ *
+ * @see Seq
+ */
+public final class LongSeq {
+  private static final long[] NO_VALUES = new long[0];
+
+  private static final LongSeq EMPTY = new LongSeq(ChunkTrie.EMPTY, NO_VALUES);
+
+  private final ChunkTrie trie;
+  private final long[] tail;
+
+  private LongSeq(final ChunkTrie trie, final long[] tail) {
+    this.trie = trie;
+    this.tail = tail;
+  }
+
+  /**
+   * The empty sequence.
+   *
+   * @return A sequence with no elements.
+   */
+  public static LongSeq empty() {
+    return EMPTY;
+  }
+
+  /**
+   * A sequence of the given values.
+   *
+   * @param as The values of the sequence.
+   * @return A sequence of the given values, in order.
+   */
+  public static LongSeq longSeq(final long... as) {
+    return fromArray(as, as.length);
+  }
+
+  /**
+   * A sequence of the given boxed values.
+   *
+   * @param as The values of the sequence.
+   * @return A sequence of the given values, in order.
+   */
+  public static LongSeq iterableLongSeq(final Iterable<Long> as) {
+    long[] values = new long[ChunkTrie.WIDTH];
+    int n = 0;
+    for (final Long a : as) {
+      if (n == values.length)
+        values = Arrays.copyOf(values, n * 2);
+      values[n++] = a;
+    }
+    return fromArray(values, n);
+  }
+
+  /**
+   * Returns a sequence of the values from the given lower bound up to, but not including, the upper bound.
+   *
+   * @param from The lower bound, included.
+   * @param to   The upper bound, not included.
+   * @return A sequence of the values from the lower bound up to the upper bound.
+   */
+  public static LongSeq range(final long from, final long to) {
+    if (to <= from)
+      return EMPTY;
+    if (to - from > Integer.MAX_VALUE || to - from < 0)
+      throw new IllegalArgumentException("Range from " + from + " to " + to + " is too long");
+    final long[] values = new long[(int) (to - from)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = from + i;
+    }
+    return fromArray(values, values.length);
+  }
+
+  /**
+   * Returns the number of elements in this sequence.
+   *
+   * @return The number of elements in this sequence.
+   */
+  public int length() {
+    return trie.count() + tail.length;
+  }
+
+  /**
+   * Checks if this is the empty sequence.
+   *
+   * @return True if this sequence is empty, otherwise false.
+   */
+  public boolean isEmpty() {
+    return tail.length == 0;
+  }
+
+  /**
+   * Returns the element at the given index. Takes O(log32 n).
+   *
+   * @param i The index of the element to return.
+   * @return The element at the given index.
+   */
+  public long index(final int i) {
+    return chunk(i)[i & ChunkTrie.MASK];
+  }
+
+  /**
+   * Replaces the element at the given index. Takes O(log32 n).
+   *
+   * @param i The index of the element to replace.
+   * @param a The new element.
+   * @return A new sequence with the given element at the given index.
+   */
+  public LongSeq update(final int i, final long a) {
+    final long[] chunk = chunk(i).clone();
+    chunk[i & ChunkTrie.MASK] = a;
+    return i >= trie.count() ? new LongSeq(trie, chunk) : new LongSeq(trie.set(i, chunk), tail);
+  }
+
+  /**
+   * Appends the given element to the end of this sequence.
+   *
+   * @param a An element to append to this sequence.
+   * @return A new sequence with the given element at the end.
+   */
+  public LongSeq snoc(final long a) {
+    if (tail.length < ChunkTrie.WIDTH) {
+      final long[] t = Arrays.copyOf(tail, tail.length + 1);
+      t[tail.length] = a;
+      return new LongSeq(trie, t);
+    }
+    return new LongSeq(trie.push(tail), new long[]{a});
+  }
+
+  /**
+   * Appends the given sequence to this sequence.
+   *
+   * @param as A sequence to append to this one.
+   * @return A new sequence with the elements of this sequence followed by those of the given one.
+   */
+  public LongSeq append(final LongSeq as) {
+    if (as.isEmpty())
+      return this;
+    if (isEmpty())
+      return as;
+    final long[] values = Arrays.copyOf(toArray(), length() + as.length());
+    as.copyTo(values, length());
+    return fromArray(values, values.length);
+  }
+
+  /**
+   * Maps the given function across this sequence.
+   *
+   * @param f The function to map across this sequence.
+   * @return A new sequence after the given function has been applied to each element.
+   */
+  public LongSeq map(final LongUnaryOperator f) {
+    final long[] values = new long[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final long a : (long[]) trie.chunk(c, tail)) {
+        values[n++] = f.applyAsLong(a);
+      }
+    }
+    return fromArray(values, n);
+  }
+
+  /**
+   * Maps the given function across this sequence into a sequence of <code>int</code> values.
+   *
+   * @param f The function to map across this sequence.
+   * @return A new sequence of the results of the given function, in order.
+   */
+  public IntSeq mapToInt(final LongToIntFunction f) {
+    final int[] values = new int[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final long a : (long[]) trie.chunk(c, tail)) {
+        values[n++] = f.applyAsInt(a);
+      }
+    }
+    return IntSeq.fromArray(values, n);
+  }
+
+  /**
+   * Maps the given function across this sequence into a sequence of <code>double</code> values.
+   *
+   * @param f The function to map across this sequence.
+   * @return A new sequence of the results of the given function, in order.
+   */
+  public DoubleSeq mapToDouble(final LongToDoubleFunction f) {
+    final double[] values = new double[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final long a : (long[]) trie.chunk(c, tail)) {
+        values[n++] = f.applyAsDouble(a);
+      }
+    }
+    return DoubleSeq.fromArray(values, n);
+  }
+
+  /**
+   * Maps the given function across this sequence, boxing the results into a list.
+   *
+   * @param f The function to map across this sequence.
+   * @return A list of the results of the given function, in order.
+   */
+  public <B> List<B> mapToObj(final LongFunction<B> f) {
+    final List.Buffer<B> b = new List.Buffer<B>();
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final long a : (long[]) trie.chunk(c, tail)) {
+        b.snoc(f.apply(a));
+      }
+    }
+    return b.toList();
+  }
+
+  /**
+   * Filters elements from this sequence by returning only elements which produce <code>true</code> when the given
+   * function is applied to them.
+   *
+   * @param f The predicate function to filter on.
+   * @return A new sequence whose elements all match the given predicate.
+   */
+  public LongSeq filter(final LongPredicate f) {
+    final long[] values = new long[length()];
+    int n = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final long a : (long[]) trie.chunk(c, tail)) {
+        if (f.test(a))
+          values[n++] = a;
+      }
+    }
+    return n == length() ? this : fromArray(values, n);
+  }
+
+  /**
+   * Performs a left-fold reduction across this sequence.
+   *
+   * @param f The function to apply on each element of the sequence.
+   * @param b The beginning value to start the application from.
+   * @return The final result after the left-fold reduction.
+   */
+  public long foldLeft(final LongBinaryOperator f, final long b) {
+    long x = b;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final long a : (long[]) trie.chunk(c, tail)) {
+        x = f.applyAsLong(x, a);
+      }
+    }
+    return x;
+  }
+
+  /**
+   * Returns the sum of the elements of this sequence.
+   *
+   * @return The sum of the elements of this sequence.
+   */
+  public long sum() {
+    long x = 0;
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final long a : (long[]) trie.chunk(c, tail)) {
+        x += a;
+      }
+    }
+    return x;
+  }
+
+  /**
+   * Performs a side-effect for each element of this sequence.
+   *
+   * @param f The side-effect to perform for the given element.
+   */
+  public void foreach(final LongConsumer f) {
+    for (int c = 0; c < trie.chunks(); c++) {
+      for (final long a : (long[]) trie.chunk(c, tail)) {
+        f.accept(a);
+      }
+    }
+  }
+
+  /**
+   * Returns an iterator over the elements of this sequence that does not box them.
+   *
+   * @return An iterator over the elements of this sequence.
+   */
+  public PrimitiveIterator.OfLong iterator() {
+    return new PrimitiveIterator.OfLong() {
+      private int i;
+      private long[] chunk;
+
+      public boolean hasNext() {
+        return i < length();
+      }
+
+      public long nextLong() {
+        if (i >= length())
+          throw new NoSuchElementException();
+        if ((i & ChunkTrie.MASK) == 0)
+          chunk = chunk(i);
+        return chunk[i++ & ChunkTrie.MASK];
+      }
+    };
+  }
+
+  /**
+   * Copies the elements of this sequence into a new array.
+   *
+   * @return A new array with the elements of this sequence.
+   */
+  public long[] toArray() {
+    final long[] values = new long[length()];
+    copyTo(values, 0);
+    return values;
+  }
+
+  /**
+   * Boxes the elements of this sequence into a list.
+   *
+   * @return A list of the elements of this sequence.
+   */
+  public List<Long> toList() {
+    final List.Buffer<Long> b = new List.Buffer<Long>();
+    for (final PrimitiveIterator.OfLong i = iterator(); i.hasNext(); ) {
+      b.snoc(i.nextLong());
+    }
+    return b.toList();
+  }
+
+  /**
+   * Boxes the elements of this sequence into a stream.
+   *
+   * @return A stream of the elements of this sequence.
+   */
+  public Stream<Long> toStream() {
+    return toList().toStream();
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder s = new StringBuilder("LongSeq(");
+    for (final PrimitiveIterator.OfLong i = iterator(); i.hasNext(); ) {
+      s.append(i.nextLong());
+      if (i.hasNext())
+        s.append(',');
+    }
+    return s.append(')').toString();
+  }
+
+  private long[] chunk(final int i) {
+    return (long[]) trie.chunkAt(i, tail, tail.length);
+  }
+
+  private void copyTo(final long[] values, final int offset) {
+    trie.copyTo(tail, tail.length, values, offset);
+  }
+
+  /**
+   * The sequence of the first n values of the given array, which is not kept.
+   */
+  static LongSeq fromArray(final long[] values, final int n) {
+    if (n == 0)
+      return EMPTY;
+    final ChunkTrie trie = ChunkTrie.of(values, n);
+    return new LongSeq(trie, Arrays.copyOfRange(values, trie.count(), n));
+  }
+}
@@ -0,0 +1,119 @@
+package fj.data;
+
+import fj.Func;
+import fj.Func2;
+import fj.Monoid;
+import fj.Ord;
+import fj.P2;
+import fj.P3;
+import fj.data.fingertrees.FingerTree;
+import fj.data.fingertrees.Measured;
+
+import static fj.P.p;
+
+/**
+ * An immutable priority queue, implemented as a finger tree whose nodes are annotated with the highest priority under
+ * them. Enqueueing takes amortized O(1), and finding or removing the element with the highest priority takes
+ * O(log n). Elements with the same priority come out in the order they went in.
+ */
+public final class PriorityQueue<K, A> {
+  private final Ord<K> ord;
+  private final FingerTree<Option<K>, P2<K, A>> ftree;
+
+  private PriorityQueue(final Ord<K> ord, final FingerTree<Option<K>, P2<K, A>> ftree) {
+    this.ord = ord;
+    this.ftree = ftree;
+  }
+
+  /**
+   * The empty priority queue.
+   *
+   * @param ord An order for the priorities.
+   * @return A priority queue with no elements.
+   */
+  public static <K, A> PriorityQueue<K, A> empty(final Ord<K> ord) {
+    final Measured<Option<K>, P2<K, A>> m = FingerTree.measured(maximum(ord), new Func<P2<K, A>, Option<K>>() {
+      public Option<K> f(final P2<K, A> p) {
+        return Option.some(p._1());
+      }
+    });
+    return new PriorityQueue<K, A>(ord, FingerTree.mkTree(m).empty());
+  }
+
+  /**
+   * A monoid of the greatest of optional values in the given order, which keeps the first of equal values.
+   *
+   * @param ord An order for the values.
+   * @return A monoid of the greatest of optional values, with none as its zero.
+   */
+  public static <K> Monoid<Option<K>> maximum(final Ord<K> ord) {
+    return Monoid.monoid(new Func2<Option<K>, Option<K>, Option<K>>() {
+      public Option<K> f(final Option<K> a, final Option<K> b) {
+        return a.isNone() ? b : b.isNone() || !ord.isLessThan(a.some(), b.some()) ? a : b;
+      }
+    }, Option.<K>none());
+  }
+
+  /**
+   * Checks if this is the empty priority queue.
+   *
+   * @return True if this priority queue is empty, otherwise false.
+   */
+  public boolean isEmpty() {
+    return ftree.isEmpty();
+  }
+
+  /**
+   * Adds the given element with the given priority to this priority queue.
+   *
+   * @param k The priority of the element.
+   * @param a The element to add.
+   * @return A new priority queue with the given element added.
+   */
+  public PriorityQueue<K, A> enqueue(final K k, final A a) {
+    return new PriorityQueue<K, A>(ord, ftree.snoc(p(k, a)));
+  }
+
+  /**
+   * Returns the element with the highest priority, and its priority.
+   *
+   * @return The element with the highest priority and its priority, or none if this priority queue is empty.
+   */
+  public Option<P2<K, A>> top() {
+    return isEmpty() ? Option.<P2<K, A>>none() : Option.some(ftree.split1(highest())._2());
+  }
+
+  /**
+   * Removes the element with the highest priority.
+   *
+   * @return A new priority queue without the element with the highest priority, or this priority queue if it is
+   *         empty.
+   */
+  public PriorityQueue<K, A> dequeue() {
+    if (isEmpty())
+      return this;
+    final P3<FingerTree<Option<K>, P2<K, A>>, P2<K, A>, FingerTree<Option<K>, P2<K, A>>> s = ftree.split1(highest());
+    return new PriorityQueue<K, A>(ord, s._1().append(s._3()));
+  }
+
+  /**
+   * Returns the elements of this priority queue with their priorities, in the order they were enqueued.
+   *
+   * @return The elements of this priority queue with their priorities, in the order they were enqueued.
+   */
+  public List<P2<K, A>> toList() {
+    return ftree.foldRight(List.<P2<K, A>>cons(), List.<P2<K, A>>nil());
+  }
+
+  /**
+   * A predicate on the measures of prefixes, true for those that hold the highest priority in this queue.
+   */
+  private Func<Option<K>, Boolean> highest() {
+    final K max = ftree.measure().some();
+    return new Func<Option<K>, Boolean>() {
+      public Boolean f(final Option<K> k) {
+        return k.isSome() && ord.eq(k.some(), max);
+      }
+    };
+  }
+}
@@ -0,0 +1,782 @@
+package fj.data;
+
+import fj.Effect;
+import fj.Func;
+import fj.Func2;
+import fj.P;
+import fj.P2;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static fj.Bottom.error;
+
+/**
+ * An immutable vector, implemented as a relaxed radix balanced tree. Elements are kept in leaves of up to 32, under
+ * nodes of up to 32 children, so index, update and snoc take O(log32 n), which is effectively constant. Concatenation
+ * and splitting take O(log n).
+ * <p/>
+ * A node whose children are all full, except the last, finds a child from the bits of the index. Concatenation and
+ * splitting leave nodes with children that are not full; such a node keeps the cumulative sizes of its children and
+ * searches them instead. When two nodes are joined, their children are packed again if there are more than
+ * {@link #EXTRA} more of them than needed, which keeps the tree shallow.
+ *
+ * @see Seq
+ */
+public final class RrbVector<A> implements Iterable<A> {
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int EXTRA = 2;
+
+  private static final Object[] NONE = new Object[0];
+
+  private static final RrbVector<Object> EMPTY = new RrbVector<Object>(NONE, 0, 0);
+
+  // A leaf (an Object[] of elements) if shift is 0, and a Node otherwise.
+  private final Object root;
+  private final int shift;
+  private final int size;
+
+  private RrbVector(final Object root, final int shift, final int size) {
+    this.root = root;
+    this.shift = shift;
+    this.size = size;
+  }
+
+  /**
+   * The empty vector.
+   *
+   * @return A vector with no elements.
+   */
+  @SuppressWarnings({"unchecked"})
+  public static <A> RrbVector<A> empty() {
+    return (RrbVector<A>) EMPTY;
+  }
+
+  /**
+   * A vector with one element.
+   *
+   * @param a The single element in the vector.
+   * @return A new vector with the given element in it.
+   */
+  public static <A> RrbVector<A> single(final A a) {
+    return new RrbVector<A>(new Object[]{a}, 0, 1);
+  }
+
+  /**
+   * A vector of the given elements.
+   *
+   * @param as The elements of the vector.
+   * @return A vector of the given elements, in order.
+   */
+  @SafeVarargs
+  public static <A> RrbVector<A> rrbVector(final A... as) {
+    return fromArray(Arrays.copyOf(as, as.length, Object[].class), as.length);
+  }
+
+  /**
+   * A vector of the elements of the given iterable.
+   *
+   * @param as The elements of the vector.
+   * @return A vector of the given elements, in order.
+   */
+  public static <A> RrbVector<A> iterableRrbVector(final Iterable<A> as) {
+    final Builder b = new Builder();
+    for (final A a : as) {
+      b.add(a);
+    }
+    return b.build();
+  }
+
+  /**
+   * Returns the number of elements in this vector.
+   *
+   * @return The number of elements in this vector.
+   */
+  public int length() {
+    return size;
+  }
+
+  /**
+   * Checks if this is the empty vector.
+   *
+   * @return True if this vector is empty, otherwise false.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the element at the given index. Takes O(log32 n).
+   *
+   * @param i The index of the element to return.
+   * @return The element at the given index.
+   */
+  @SuppressWarnings({"unchecked"})
+  public A index(final int i) {
+    checkIndex(i);
+    Object node = root;
+    int j = i;
+    for (int level = shift; level > 0; level -= BITS) {
+      final Node n = (Node) node;
+      final int c = n.child(level, j);
+      j -= n.offset(level, c);
+      node = n.children[c];
+    }
+    return (A) ((Object[]) node)[j];
+  }
+
+  /**
+   * The first element of this vector.
+   *
+   * @return The first element of this vector.
+   */
+  public A head() {
+    if (size == 0)
+      throw error("head on empty vector");
+    return index(0);
+  }
+
+  /**
+   * The last element of this vector.
+   *
+   * @return The last element of this vector.
+   */
+  public A last() {
+    if (size == 0)
+      throw error("last on empty vector");
+    return index(size - 1);
+  }
+
+  /**
+   * Replaces the element at the given index. Takes O(log32 n).
+   *
+   * @param i The index of the element to replace.
+   * @param a The new element.
+   * @return A new vector with the given element at the given index.
+   */
+  public RrbVector<A> update(final int i, final A a) {
+    checkIndex(i);
+    return new RrbVector<A>(update(root, shift, i, a), shift, size);
+  }
+
+  /**
+   * Appends the given element to the end of this vector. Takes O(log32 n).
+   *
+   * @param a An element to append to this vector.
+   * @return A new vector with the given element at the end.
+   */
+  public RrbVector<A> snoc(final A a) {
+    final Object r = push(root, shift, a);
+    if (r != null)
+      return new RrbVector<A>(r, shift, size + 1);
+    final int[] sizes = shift == 0 || ((Node) root).sizes == null ? null : new int[]{size, size + 1};
+    return new RrbVector<A>(new Node(new Object[]{root, path(shift, a)}, sizes), shift + BITS, size + 1);
+  }
+
+  /**
+   * Inserts the given element at the front of this vector. Takes O(log n).
+   *
+   * @param a An element to insert at the front of this vector.
+   * @return A new vector with the given element at the front.
+   */
+  public RrbVector<A> cons(final A a) {
+    return single(a).append(this);
+  }
+
+  /**
+   * Appends the given vector to this vector. Takes O(log n).
+   *
+   * @param as A vector to append to this one.
+   * @return A new vector with the elements of this vector followed by those of the given one.
+   */
+  public RrbVector<A> append(final RrbVector<A> as) {
+    if (as.size == 0)
+      return this;
+    if (size == 0)
+      return as;
+    final Object[] nodes = concat(root, shift, as.root, as.shift);
+    final int level = Math.max(shift, as.shift);
+    if (nodes.length == 1)
+      return collapse(nodes[0], level, size + as.size);
+    return collapse(node(nodes, level + BITS), level + BITS, size + as.size);
+  }
+
+  /**
+   * Returns the first n elements of this vector. Takes O(log n).
+   *
+   * @param n The number of elements to take.
+   * @return A vector of the first n elements of this one, or this vector if it is not longer.
+   */
+  public RrbVector<A> take(final int n) {
+    if (n <= 0)
+      return empty();
+    if (n >= size)
+      return this;
+    return collapse(take(root, shift, n), shift, n);
+  }
+
+  /**
+   * Returns this vector without its first n elements. Takes O(log n).
+   *
+   * @param n The number of elements to drop.
+   * @return A vector of the elements after the first n of this one.
+   */
+  public RrbVector<A> drop(final int n) {
+    if (n <= 0)
+      return this;
+    if (n >= size)
+      return empty();
+    return collapse(drop(root, shift, n), shift, size - n);
+  }
+
+  /**
+   * Splits this vector at the given index. Takes O(log n).
+   *
+   * @param i The index to split at.
+   * @return The first i elements of this vector, and the rest.
+   */
+  public P2<RrbVector<A>, RrbVector<A>> splitAt(final int i) {
+    return P.p(take(i), drop(i));
+  }
+
+  /**
+   * Maps the given function across this vector. The result has the same shape as this vector.
+   *
+   * @param f The function to map across this vector.
+   * @return A new vector after the given function has been applied to each element.
+   */
+  @SuppressWarnings({"unchecked"})
+  public <B> RrbVector<B> map(final Func<A, B> f) {
+    return new RrbVector<B>(map(root, shift, (Func<Object, Object>) f), shift, size);
+  }
+
+  /**
+   * Filters elements from this vector by returning only elements which produce <code>true</code> when the given
+   * function is applied to them.
+   *
+   * @param f The predicate function to filter on.
+   * @return A new vector whose elements all match the given predicate.
+   */
+  public RrbVector<A> filter(final Func<A, Boolean> f) {
+    final Builder b = new Builder();
+    for (final A a : this) {
+      if (f.f(a))
+        b.add(a);
+    }
+    return b.size == size ? this : b.<A>build();
+  }
+
+  /**
+   * Binds the given function across each element of this vector, concatenating the results.
+   *
+   * @param f The function to apply to each element of this vector.
+   * @return A new vector of the elements of the vectors the function returns, in order.
+   */
+  public <B> RrbVector<B> bind(final Func<A, RrbVector<B>> f) {
+    final Builder b = new Builder();
+    for (final A a : this) {
+      for (final B x : f.f(a)) {
+        b.add(x);
+      }
+    }
+    return b.build();
+  }
+
+  /**
+   * Performs a left-fold reduction across this vector.
+   *
+   * @param f The function to apply on each element of the vector.
+   * @param b The beginning value to start the application from.
+   * @return The final result after the left-fold reduction.
+   */
+  public <B> B foldLeft(final Func2<B, A, B> f, final B b) {
+    B x = b;
+    for (final A a : this) {
+      x = f.f(x, a);
+    }
+    return x;
+  }
+
+  /**
+   * Performs a right-fold reduction across this vector.
+   *
+   * @param f The function to apply on each element of the vector.
+   * @param b The beginning value to start the application from.
+   * @return The final result after the right-fold reduction.
+   */
+  @SuppressWarnings({"unchecked"})
+  public <B> B foldRight(final Func2<A, B, B> f, final B b) {
+    final Object[] values = toObjectArray();
+    B x = b;
+    for (int i = values.length - 1; i >= 0; i--) {
+      x = f.f((A) values[i], x);
+    }
+    return x;
+  }
+
+  /**
+   * Zips this vector with the given vector to produce a vector of pairs. If one vector is longer than the other, the
+   * extra elements are left out.
+   *
+   * @param bs The vector to zip this vector with.
+   * @return A new vector of pairs of the elements of the two vectors.
+   */
+  public <B> RrbVector<P2<A, B>> zip(final RrbVector<B> bs) {
+    return zipWith(bs, P.<A, B>p2());
+  }
+
+  /**
+   * Zips this vector with the given vector using the given function. If one vector is longer than the other, the
+   * extra elements are left out.
+   *
+   * @param bs The vector to zip this vector with.
+   * @param f  The function to zip the two vectors with.
+   * @return A new vector of the results of the function for the elements at each index.
+   */
+  public <B, C> RrbVector<C> zipWith(final RrbVector<B> bs, final Func<A, Func<B, C>> f) {
+    final Builder b = new Builder();
+    final Iterator<A> i = iterator();
+    final Iterator<B> j = bs.iterator();
+    while (i.hasNext() && j.hasNext()) {
+      b.add(f.f(i.next()).f(j.next()));
+    }
+    return b.build();
+  }
+
+  /**
+   * Reverses this vector.
+   *
+   * @return A new vector with the elements of this vector in reverse order.
+   */
+  public RrbVector<A> reverse() {
+    final Object[] values = toObjectArray();
+    for (int i = 0, j = values.length - 1; i < j; i++, j--) {
+      final Object x = values[i];
+      values[i] = values[j];
+      values[j] = x;
+    }
+    return fromArray(values, values.length);
+  }
+
+  /**
+   * Performs a side-effect for each element of this vector.
+   *
+   * @param f The side-effect to perform for the given element.
+   */
+  public void foreach(final Effect<A> f) {
+    for (final A a : this) {
+      f.e(a);
+    }
+  }
+
+  /**
+   * Returns an iterator for this vector. This method exists to permit the use in a <code>for</code>-each loop.
+   *
+   * @return A iterator for this vector.
+   */
+  public Iterator<A> iterator() {
+    return new LeafIterator<A>(root, shift);
+  }
+
+  /**
+   * Returns a list of the elements of this vector.
+   *
+   * @return A list of the elements of this vector.
+   */
+  public List<A> toList() {
+    final List.Buffer<A> b = new List.Buffer<A>();
+    for (final A a : this) {
+      b.snoc(a);
+    }
+    return b.toList();
+  }
+
+  /**
+   * Returns a stream of the elements of this vector.
+   *
+   * @return A stream of the elements of this vector.
+   */
+  public Stream<A> toStream() {
+    return toList().toStream();
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder s = new StringBuilder("RrbVector(");
+    for (final Iterator<A> i = iterator(); i.hasNext(); ) {
+      s.append(i.next());
+      if (i.hasNext())
+        s.append(',');
+    }
+    return s.append(')').toString();
+  }
+
+  /**
+   * The depth of the tree, for tests of its balance.
+   */
+  int height() {
+    return shift / BITS;
+  }
+
+  private void checkIndex(final int i) {
+    if (i < 0 || i >= size)
+      throw new IndexOutOfBoundsException("Index " + i + " of vector of length " + size);
+  }
+
+  private Object[] toObjectArray() {
+    final Object[] values = new Object[size];
+    int n = 0;
+    for (final A a : this) {
+      values[n++] = a;
+    }
+    return values;
+  }
+
+  /**
+   * A balanced vector of the first n of the given values, which are copied.
+   */
+  private static <A> RrbVector<A> fromArray(final Object[] values, final int n) {
+    if (n == 0)
+      return empty();
+    Object[] nodes = new Object[(n + WIDTH - 1) / WIDTH];
+    for (int k = 0; k < nodes.length; k++) {
+      nodes[k] = Arrays.copyOfRange(values, k * WIDTH, Math.min(n, (k + 1) * WIDTH));
+    }
+    int level = 0;
+    while (nodes.length > 1) {
+      level += BITS;
+      final Object[] parents = new Object[(nodes.length + WIDTH - 1) / WIDTH];
+      for (int k = 0; k < parents.length; k++) {
+        parents[k] = new Node(Arrays.copyOfRange(nodes, k * WIDTH, Math.min(nodes.length, (k + 1) * WIDTH)), null);
+      }
+      nodes = parents;
+    }
+    return new RrbVector<A>(nodes[0], level, n);
+  }
+
+  /**
+   * A vector with the given root, without the nodes with a single child at the top of it.
+   */
+  private static <A> RrbVector<A> collapse(final Object root, final int shift, final int size) {
+    Object r = root;
+    int level = shift;
+    while (level > 0 && ((Node) r).children.length == 1) {
+      r = ((Node) r).children[0];
+      level -= BITS;
+    }
+    return new RrbVector<A>(r, level, size);
+  }
+
+  private static Object update(final Object node, final int level, final int j, final Object a) {
+    if (level == 0) {
+      final Object[] leaf = ((Object[]) node).clone();
+      leaf[j] = a;
+      return leaf;
+    }
+    final Node n = (Node) node;
+    final int c = n.child(level, j);
+    final Object[] children = n.children.clone();
+    children[c] = update(children[c], level - BITS, j - n.offset(level, c), a);
+    return new Node(children, n.sizes);
+  }
+
+  /**
+   * The node with the given element added at the end, or null if the node is full.
+   */
+  private static Object push(final Object node, final int level, final Object a) {
+    if (level == 0) {
+      final Object[] leaf = (Object[]) node;
+      if (leaf.length == WIDTH)
+        return null;
+      final Object[] l = Arrays.copyOf(leaf, leaf.length + 1);
+      l[leaf.length] = a;
+      return l;
+    }
+    final Node n = (Node) node;
+    final int last = n.children.length - 1;
+    final Object child = push(n.children[last], level - BITS, a);
+    if (child != null) {
+      final Object[] children = n.children.clone();
+      children[last] = child;
+      int[] sizes = null;
+      if (n.sizes != null) {
+        sizes = n.sizes.clone();
+        sizes[last]++;
+      }
+      return new Node(children, sizes);
+    }
+    // A balanced node only has balanced children, and one of those is only full when it holds all it can, so adding
+    // a child keeps the node balanced.
+    if (n.children.length == WIDTH)
+      return null;
+    final Object[] children = Arrays.copyOf(n.children, last + 2);
+    children[last + 1] = path(level - BITS, a);
+    int[] sizes = null;
+    if (n.sizes != null) {
+      sizes = Arrays.copyOf(n.sizes, last + 2);
+      sizes[last + 1] = sizes[last] + 1;
+    }
+    return new Node(children, sizes);
+  }
+
+  private static Object path(final int level, final Object a) {
+    return level == 0 ? new Object[]{a} : new Node(new Object[]{path(level - BITS, a)}, null);
+  }
+
+  private static Object take(final Object node, final int level, final int n) {
+    if (level == 0)
+      return Arrays.copyOf((Object[]) node, n);
+    final Node nd = (Node) node;
+    final int c = nd.child(level, n - 1);
+    final Object[] children = Arrays.copyOf(nd.children, c + 1);
+    children[c] = take(children[c], level - BITS, n - nd.offset(level, c));
+    if (nd.sizes == null)
+      return new Node(children, null);
+    final int[] sizes = Arrays.copyOf(nd.sizes, c + 1);
+    sizes[c] = n;
+    return new Node(children, sizes);
+  }
+
+  private static Object drop(final Object node, final int level, final int n) {
+    if (level == 0) {
+      final Object[] leaf = (Object[]) node;
+      return Arrays.copyOfRange(leaf, n, leaf.length);
+    }
+    final Node nd = (Node) node;
+    final int c = nd.child(level, n);
+    final Object[] children = Arrays.copyOfRange(nd.children, c, nd.children.length);
+    children[0] = drop(children[0], level - BITS, n - nd.offset(level, c));
+    return node(children, level);
+  }
+
+  private static Object map(final Object node, final int level, final Func<Object, Object> f) {
+    if (level == 0) {
+      final Object[] leaf = (Object[]) node;
+      final Object[] l = new Object[leaf.length];
+      for (int i = 0; i < leaf.length; i++) {
+        l[i] = f.f(leaf[i]);
+      }
+      return l;
+    }
+    final Node n = (Node) node;
+    final Object[] children = new Object[n.children.length];
+    for (int i = 0; i < children.length; i++) {
+      children[i] = map(n.children[i], level - BITS, f);
+    }
+    return new Node(children, n.sizes);
+  }
+
+  /**
+   * Joins the right edge of a with the left edge of b. The result is one or more nodes at the level of the higher of
+   * the two.
+   */
+  private static Object[] concat(final Object a, final int la, final Object b, final int lb) {
+    if (la > lb) {
+      final Object[] children = ((Node) a).children;
+      final Object[] mid = concat(children[children.length - 1], la - BITS, b, lb);
+      return rebalance(Arrays.copyOf(children, children.length - 1), mid, NONE, la);
+    }
+    if (la < lb) {
+      final Object[] children = ((Node) b).children;
+      final Object[] mid = concat(a, la, children[0], lb - BITS);
+      return rebalance(NONE, mid, Arrays.copyOfRange(children, 1, children.length), lb);
+    }
+    if (la == 0) {
+      final Object[] l = (Object[]) a;
+      final Object[] r = (Object[]) b;
+      if (l.length + r.length > WIDTH)
+        return new Object[]{a, b};
+      final Object[] leaf = Arrays.copyOf(l, l.length + r.length);
+      System.arraycopy(r, 0, leaf, l.length, r.length);
+      return new Object[]{leaf};
+    }
+    final Object[] left = ((Node) a).children;
+    final Object[] right = ((Node) b).children;
+    final Object[] mid = concat(left[left.length - 1], la - BITS, right[0], lb - BITS);
+    return rebalance(Arrays.copyOf(left, left.length - 1), mid, Arrays.copyOfRange(right, 1, right.length), la);
+  }
+
+  /**
+   * Groups the given children, which are at the level below the given one, into nodes at the given level. If there are
+   * more than EXTRA children more than the fewest that could hold what they hold, what they hold is packed into the
+   * fewest children first.
+   */
+  private static Object[] rebalance(final Object[] left, final Object[] mid, final Object[] right, final int level) {
+    Object[] all = new Object[left.length + mid.length + right.length];
+    System.arraycopy(left, 0, all, 0, left.length);
+    System.arraycopy(mid, 0, all, left.length, mid.length);
+    System.arraycopy(right, 0, all, left.length + mid.length, right.length);
+
+    final int childLevel = level - BITS;
+    int slots = 0;
+    for (final Object child : all) {
+      slots += slots(child, childLevel);
+    }
+    final int fewest = (slots + WIDTH - 1) / WIDTH;
+    if (all.length > fewest + EXTRA) {
+      final Object[] flat = new Object[slots];
+      int n = 0;
+      for (final Object child : all) {
+        final Object[] s = childLevel == 0 ? (Object[]) child : ((Node) child).children;
+        System.arraycopy(s, 0, flat, n, s.length);
+        n += s.length;
+      }
+      all = new Object[fewest];
+      for (int k = 0; k < fewest; k++) {
+        final Object[] s = Arrays.copyOfRange(flat, k * WIDTH, Math.min(slots, (k + 1) * WIDTH));
+        all[k] = childLevel == 0 ? s : node(s, childLevel);
+      }
+    }
+
+    final Object[] nodes = new Object[(all.length + WIDTH - 1) / WIDTH];
+    for (int k = 0; k < nodes.length; k++) {
+      nodes[k] = node(Arrays.copyOfRange(all, k * WIDTH, Math.min(all.length, (k + 1) * WIDTH)), level);
+    }
+    return nodes;
+  }
+
+  private static int slots(final Object node, final int level) {
+    return level == 0 ? ((Object[]) node).length : ((Node) node).children.length;
+  }
+
+  /**
+   * A node at the given level with the given children. It is balanced if its children are, and all but the last hold
+   * all they can.
+   */
+  private static Node node(final Object[] children, final int level) {
+    final int[] sizes = new int[children.length];
+    boolean balanced = true;
+    int total = 0;
+    for (int k = 0; k < children.length; k++) {
+      final int s = sizeOf(children[k], level - BITS);
+      total += s;
+      sizes[k] = total;
+      if (level > BITS && ((Node) children[k]).sizes != null)
+        balanced = false;
+      if (k < children.length - 1 && s != 1 << level)
+        balanced = false;
+    }
+    return new Node(children, balanced ? null : sizes);
+  }
+
+  private static int sizeOf(final Object node, final int level) {
+    if (level == 0)
+      return ((Object[]) node).length;
+    final Node n = (Node) node;
+    if (n.sizes != null)
+      return n.sizes[n.sizes.length - 1];
+    final int last = n.children.length - 1;
+    return (last << level) + sizeOf(n.children[last], level - BITS);
+  }
+
+  /**
+   * An inner node. A balanced node has null sizes; the others have the number of elements under each child and the
+   * children before it.
+   */
+  private static final class Node {
+    final Object[] children;
+    final int[] sizes;
+
+    Node(final Object[] children, final int[] sizes) {
+      this.children = children;
+      this.sizes = sizes;
+    }
+
+    /**
+     * The child holding the element at index j of this node, which is at the given level.
+     */
+    int child(final int level, final int j) {
+      if (sizes == null)
+        return j >>> level;
+      // A child holds at most 1 << level elements, so the child is not before this one.
+      int c = j >>> level;
+      while (sizes[c] <= j) {
+        c++;
+      }
+      return c;
+    }
+
+    /**
+     * The number of elements under the children before the given one.
+     */
+    int offset(final int level, final int c) {
+      return c == 0 ? 0 : sizes == null ? c << level : sizes[c - 1];
+    }
+  }
+
+  /**
+   * Collects elements for a balanced vector.
+   */
+  private static final class Builder {
+    private Object[] values = new Object[WIDTH];
+    private int size;
+
+    void add(final Object a) {
+      if (size == values.length)
+        values = Arrays.copyOf(values, size * 2);
+      values[size++] = a;
+    }
+
+    <A> RrbVector<A> build() {
+      return fromArray(values, size);
+    }
+  }
+
+  /**
+   * Walks the leaves in order, keeping the path to the current leaf in arrays.
+   */
+  private static final class LeafIterator<A> implements Iterator<A> {
+    private final Object[][] arrays;
+    private final int[] positions;
+    private final int leafDepth;
+    private int depth;
+
+    LeafIterator(final Object root, final int shift) {
+      leafDepth = shift / BITS;
+      arrays = new Object[leafDepth + 1][];
+      positions = new int[leafDepth + 1];
+      arrays[0] = shift == 0 ? (Object[]) root : ((Node) root).children;
+      descend();
+    }
+
+    public boolean hasNext() {
+      return depth == leafDepth && positions[depth] < arrays[depth].length;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public A next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      final A a = (A) arrays[depth][positions[depth]++];
+      if (positions[depth] == arrays[depth].length)
+        descend();
+      return a;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Moves to the next leaf that has elements left, unless the current one has.
+     */
+    private void descend() {
+      while (depth >= 0) {
+        if (positions[depth] == arrays[depth].length) {
+          if (depth == 0)
+            return;
+          depth--;
+          continue;
+        }
+        if (depth == leafDepth)
+          return;
+        final Object child = arrays[depth][positions[depth]++];
+        depth++;
+        arrays[depth] = depth == leafDepth ? (Object[]) child : ((Node) child).children;
+        positions[depth] = 0;
+      }
+    }
+  }
+}
@@ -1,6 +1,10 @@
 package fj.data;
 
+import fj.Func;
 import fj.Function;
+import fj.P;
+import fj.P2;
+import fj.P3;
 import static fj.Bottom.error;
 import static fj.Monoid.intAdditionMonoid;
 import static fj.data.fingertrees.FingerTree.measured;
@@ -11,7 +15,8 @@ import fj.data.fingertrees.Measured;
 
 /**
  * Provides an immutable finite sequence, implemented as a finger tree. This structure gives O(1) access to
- * the head and tail, as well as O(log n) random access and concatenation of sequences.
+ * the head and tail, as well as O(log n) random access and concatenation of sequences. Splitting, and the positional
+ * operations built on it, take O(log n) in the distance to the nearer end.
  */
 public final class Seq<A> {
   private static <A> MakeTree<Integer, A> mkTree() {
@@ -106,4 +111,75 @@ public final class Seq<A> {
       throw error("Index " + i + "out of bounds.");
     return ftree.lookup(Function.<Integer>identity(), i)._2();
   }
+
+  /**
+   * Replaces the element at the given index.
+   *
+   * @param i The index of the element to replace.
+   * @param a The new element.
+   * @return A new sequence with the given element at the given index, or throws an error if the index is out of bounds.
+   */
+  public Seq<A> update(final int i, final A a) {
+    if (i < 0 || i >= length())
+      throw error("Index " + i + " out of bounds.");
+    final P3<FingerTree<Integer, A>, A, FingerTree<Integer, A>> s = ftree.split1(after(i));
+    return new Seq<A>(s._1().snoc(a).append(s._3()));
+  }
+
+  /**
+   * Inserts the given element at the given index, moving the elements from that index up by one.
+   *
+   * @param i The index to insert the element at, from zero up to the length of this sequence.
+   * @param a The element to insert.
+   * @return A new sequence with the given element at the given index, or throws an error if the index is out of
+   *         bounds.
+   */
+  public Seq<A> insert(final int i, final A a) {
+    if (i < 0 || i > length())
+      throw error("Index " + i + " out of bounds.");
+    final P2<Seq<A>, Seq<A>> s = splitAt(i);
+    return new Seq<A>(s._1().ftree.snoc(a).append(s._2().ftree));
+  }
+
+  /**
+   * Splits this sequence at the given index.
+   *
+   * @param i The index to split at.
+   * @return The first i elements of this sequence, and the rest.
+   */
+  public P2<Seq<A>, Seq<A>> splitAt(final int i) {
+    final P2<FingerTree<Integer, A>, FingerTree<Integer, A>> s = ftree.split(after(i));
+    return P.p(new Seq<A>(s._1()), new Seq<A>(s._2()));
+  }
+
+  /**
+   * Returns the first n elements of this sequence.
+   *
+   * @param n The number of elements to take.
+   * @return A sequence of the first n elements of this one, or this sequence if it is not longer.
+   */
+  public Seq<A> take(final int n) {
+    return splitAt(n)._1();
+  }
+
+  /**
+   * Returns this sequence without its first n elements.
+   *
+   * @param n The number of elements to drop.
+   * @return A sequence of the elements after the first n of this one.
+   */
+  public Seq<A> drop(final int n) {
+    return splitAt(n)._2();
+  }
+
+  /**
+   * A predicate on the lengths of prefixes, true for those that reach past the given index.
+   */
+  private static Func<Integer, Boolean> after(final int i) {
+    return new Func<Integer, Boolean>() {
+      public Boolean f(final Integer length) {
+        return length > i;
+      }
+    };
+  }
 }
@@ -164,6 +164,49 @@ public abstract class Set<A> implements Iterable<A> {
   }
 
 
+  /**
+   * Finds the element of this set that is equal to the given one.
+   *
+   * @param x An element to look up in this set.
+   * @return The element of this set equal to the given element, or None if it is not a member.
+   */
+  final Option<A> lookup(final A x) {
+    Set<A> s = this;
+    while (!s.isEmpty()) {
+      final Ordering i = ord.compare(x, s.head());
+      if (i == LT)
+        s = s.l();
+      else if (i == GT)
+        s = s.r();
+      else
+        return some(s.head());
+    }
+    return Option.none();
+  }
+
+  /**
+   * Returns the elements of this set that are greater than the given element, in order. Only the part of the tree
+   * that holds them is visited, so this takes O(log n + k) for k elements.
+   *
+   * @param a The element the returned elements are greater than.
+   * @return The elements of this set greater than the given element.
+   */
+  public final List<A> greaterThan(final A a) {
+    final List.Buffer<A> found = new List.Buffer<A>();
+    greaterThan(a, found);
+    return found.toList();
+  }
+
+  private void greaterThan(final A a, final List.Buffer<A> found) {
+    if (!isEmpty()) {
+      if (ord.isGreaterThan(head(), a)) {
+        l().greaterThan(a, found);
+        found.snoc(head());
+      }
+      r().greaterThan(a, found);
+    }
+  }
+
   /**
    * First-class membership check.
    *
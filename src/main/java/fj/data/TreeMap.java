@@ -43,7 +43,7 @@ public final class TreeMap<K, V> implements Iterable<P2<K, V>> {
    * @return A potential value for the given key.
    */
   public Option<V> get(final K k) {
-    final Option<P2<K, Option<V>>> x = tree.split(P.p(k, Option.<V>none()))._2();
+    final Option<P2<K, Option<V>>> x = tree.lookup(P.p(k, Option.<V>none()));
     return x.bind(P2.<K, Option<V>>__2());
   }
 
@@ -56,9 +56,7 @@ public final class TreeMap<K, V> implements Iterable<P2<K, V>> {
    * @return A new tree map with the given value mapped to the given key.
    */
   public TreeMap<K, V> set(final K k, final V v) {
-    final P3<Set<P2<K, Option<V>>>, Option<P2<K, Option<V>>>, Set<P2<K, Option<V>>>> x
-        = tree.split(P.p(k, Option.<V>none()));
-    return new TreeMap<K, V>(x._1().union(x._3().insert(P.p(k, Option.some(v)))));
+    return new TreeMap<K, V>(tree.insert(P.p(k, Option.some(v))));
   }
 
   /**
@@ -89,6 +87,17 @@ public final class TreeMap<K, V> implements Iterable<P2<K, V>> {
     return tree.isEmpty();
   }
 
+  /**
+   * Returns the entries of this tree map with keys greater than the given key, in key order. Takes O(log n + k) for
+   * k entries.
+   *
+   * @param k The key the keys of the returned entries are greater than.
+   * @return The entries with keys greater than the given key.
+   */
+  public List<P2<K, V>> greaterThan(final K k) {
+    return tree.greaterThan(P.p(k, Option.<V>none())).map(P2.<K, Option<V>, V>map2_(Option.<V>fromSome()));
+  }
+
   /**
    * Returns all values in this tree map.
    *
@@ -3,9 +3,12 @@ package fj.data.fingertrees;
 import fj.Func;
 import fj.Function;
 import fj.P2;
+import fj.P3;
+import fj.data.Option;
 import fj.data.vector.V2;
 import fj.data.vector.V3;
 import fj.data.vector.V4;
+import static fj.P.p;
 import static fj.data.List.list;
 import static fj.Function.flip;
 
@@ -147,9 +150,9 @@ public final class Deep<V, A> extends FingerTree<V, A> {
 
   @Override public FingerTree<V, A> append(final FingerTree<V, A> t) {
     final Measured<V, A> m = measured();
-    return t.match(Function.<Empty<V, A>, FingerTree<V, A>>constant(t), new Func<Single<V, A>, FingerTree<V, A>>() {
+    return t.match(Function.<Empty<V, A>, FingerTree<V, A>>constant(this), new Func<Single<V, A>, FingerTree<V, A>>() {
       public FingerTree<V, A> f(final Single<V, A> single) {
-        return t.snoc(single.value());
+        return snoc(single.value());
       }
     }, new Func<Deep<V, A>, FingerTree<V, A>>() {
       public FingerTree<V, A> f(final Deep<V, A> deep) {
@@ -159,19 +162,78 @@ public final class Deep<V, A> extends FingerTree<V, A> {
     });
   }
 
-  @SuppressWarnings({"ReturnOfNull", "IfStatementWithIdenticalBranches"})
   @Override public P2<Integer, A> lookup(final Func<V, Integer> o, final int i) {
     final int spr = o.f(prefix.measure());
-    final int spm = o.f(middle.measure());
     if (i < spr)
-        return null; // TODO
-      //return prefix.lookup(o, i);
+      return prefix.lookup(o, i);
+    final int spm = spr + o.f(middle.measure());
     if (i < spm) {
-      return null; // TODO
-      /* final P2<Integer, Node<V, A>> p = middle.lookup(o, i - spr);
-      return p._2().lookup(o, p._1()); */
+      final P2<Integer, Node<V, A>> p = middle.lookup(o, i - spr);
+      return p._2().lookup(o, p._1());
     }
-    return null; // TODO suffix.lookup(i - spm);
+    return suffix.lookup(o, i - spm);
+  }
+
+  @Override public A head() {
+    return prefix.toList().head();
+  }
+
+  @Override public A last() {
+    return suffix.toList().last();
+  }
+
+  @Override public FingerTree<V, A> tail() {
+    return deepL(measured(), Digit.fromList(measured(), prefix.toList().tail()), middle, suffix);
+  }
+
+  @Override public FingerTree<V, A> init() {
+    return deepR(measured(), prefix, middle, Digit.fromList(measured(), suffix.toList().init()));
+  }
+
+  @Override P3<FingerTree<V, A>, A, FingerTree<V, A>> split1(final Func<V, Boolean> predicate, final V acc) {
+    final Measured<V, A> m = measured();
+    final V vpr = m.sum(acc, prefix.measure());
+    if (predicate.f(vpr)) {
+      final P3<Option<Digit<V, A>>, A, Option<Digit<V, A>>> s = prefix.split1(predicate, acc);
+      return p(toTree(m, s._1()), s._2(), deepL(m, s._3(), middle, suffix));
+    }
+    final V vm = m.sum(vpr, middle.measure());
+    if (predicate.f(vm)) {
+      final P3<FingerTree<V, Node<V, A>>, Node<V, A>, FingerTree<V, Node<V, A>>> ms = middle.split1(predicate, vpr);
+      final P3<Option<Digit<V, A>>, A, Option<Digit<V, A>>> s =
+          ms._2().toDigit().split1(predicate, m.sum(vpr, ms._1().measure()));
+      return p(deepR(m, prefix, ms._1(), s._1()), s._2(), deepL(m, s._3(), ms._3(), suffix));
+    }
+    final P3<Option<Digit<V, A>>, A, Option<Digit<V, A>>> s = suffix.split1(predicate, vm);
+    return p(deepR(m, prefix, middle, s._1()), s._2(), toTree(m, s._3()));
+  }
+
+  private static <V, A> FingerTree<V, A> toTree(final Measured<V, A> m, final Option<Digit<V, A>> digit) {
+    return digit.isSome() ? digit.some().toTree() : mkTree(m).empty();
+  }
+
+  /**
+   * A tree of the given parts, where the prefix may be missing. The first node of the middle becomes the prefix then.
+   */
+  private static <V, A> FingerTree<V, A> deepL(final Measured<V, A> m, final Option<Digit<V, A>> prefix,
+                                               final FingerTree<V, Node<V, A>> middle, final Digit<V, A> suffix) {
+    if (prefix.isSome())
+      return mkTree(m).deep(prefix.some(), middle, suffix);
+    if (middle.isEmpty())
+      return suffix.toTree();
+    return mkTree(m).deep(middle.head().toDigit(), middle.tail(), suffix);
+  }
+
+  /**
+   * A tree of the given parts, where the suffix may be missing. The last node of the middle becomes the suffix then.
+   */
+  private static <V, A> FingerTree<V, A> deepR(final Measured<V, A> m, final Digit<V, A> prefix,
+                                               final FingerTree<V, Node<V, A>> middle, final Option<Digit<V, A>> suffix) {
+    if (suffix.isSome())
+      return mkTree(m).deep(prefix, middle, suffix.some());
+    if (middle.isEmpty())
+      return prefix.toTree();
+    return mkTree(m).deep(prefix, middle.init(), middle.last().toDigit());
   }
 
   private static <V, A> FingerTree<V, Node<V, A>> addDigits0(final Measured<V, A> m, final FingerTree<V, Node<V, A>> m1,
@@ -3,9 +3,14 @@ package fj.data.fingertrees;
 import fj.Func;
 import fj.Func2;
 import fj.Function;
+import fj.P2;
+import fj.P3;
+import fj.data.List;
+import fj.data.Option;
 import fj.data.vector.V2;
 import fj.data.vector.V3;
 import fj.data.vector.V4;
+import static fj.P.p;
 import static fj.data.fingertrees.FingerTree.mkTree;
 
 /**
@@ -147,6 +152,74 @@ public abstract class Digit<V, A> {
     }), m.zero());
   }
 
+  /**
+   * Returns the elements of this digit as a list.
+   *
+   * @return the elements of this digit as a list.
+   */
+  public final List<A> toList() {
+    return foldRight(List.<A>cons(), List.<A>nil());
+  }
+
+  /**
+   * Looks up the element at the given position, measuring positions with the given function.
+   *
+   * @param o A function from measures to positions.
+   * @param i The position of the element to find.
+   * @return The position within the element that was found, and the element.
+   */
+  public final P2<Integer, A> lookup(final Func<V, Integer> o, final int i) {
+    int j = i;
+    List<A> as = toList();
+    while (as.tail().isNotEmpty()) {
+      final int s = o.f(m.measure(as.head()));
+      if (j < s)
+        break;
+      j -= s;
+      as = as.tail();
+    }
+    return p(j, as.head());
+  }
+
+  /**
+   * Splits this digit at the first element for which the predicate holds on the given measure summed with the
+   * measures up to and including that element, or at the last element if there is none.
+   */
+  final P3<Option<Digit<V, A>>, A, Option<Digit<V, A>>> split1(final Func<V, Boolean> predicate, final V acc) {
+    V v = acc;
+    List<A> before = List.nil();
+    List<A> as = toList();
+    while (as.tail().isNotEmpty()) {
+      v = m.sum(v, m.measure(as.head()));
+      if (predicate.f(v))
+        break;
+      before = before.cons(as.head());
+      as = as.tail();
+    }
+    return p(fromList(m, before.reverse()), as.head(), fromList(m, as.tail()));
+  }
+
+  /**
+   * A digit of the given one to four elements, or none if the list is empty.
+   */
+  static <V, A> Option<Digit<V, A>> fromList(final Measured<V, A> m, final List<A> as) {
+    final MakeTree<V, A> mk = mkTree(m);
+    switch (as.length()) {
+      case 0:
+        return Option.none();
+      case 1:
+        return Option.<Digit<V, A>>some(mk.one(as.index(0)));
+      case 2:
+        return Option.<Digit<V, A>>some(mk.two(as.index(0), as.index(1)));
+      case 3:
+        return Option.<Digit<V, A>>some(mk.three(as.index(0), as.index(1), as.index(2)));
+      case 4:
+        return Option.<Digit<V, A>>some(mk.four(as.index(0), as.index(1), as.index(2), as.index(3)));
+      default:
+        throw new IllegalArgumentException("A digit has one to four elements, not " + as.length());
+    }
+  }
+
   /**
    * Returns the tree representation of this digit.
    * @return the tree representation of this digit. 
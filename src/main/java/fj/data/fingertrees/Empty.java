@@ -2,6 +2,7 @@ package fj.data.fingertrees;
 
 import fj.Func;
 import fj.P2;
+import fj.P3;
 import static fj.Bottom.error;
 
 /**
@@ -28,6 +29,26 @@ public final class Empty<V, A> extends FingerTree<V, A> {
     throw error("Lookup of empty tree.");
   }
 
+  @Override public A head() {
+    throw error("Head of empty tree.");
+  }
+
+  @Override public A last() {
+    throw error("Last of empty tree.");
+  }
+
+  @Override public FingerTree<V, A> tail() {
+    throw error("Tail of empty tree.");
+  }
+
+  @Override public FingerTree<V, A> init() {
+    throw error("Init of empty tree.");
+  }
+
+  @Override P3<FingerTree<V, A>, A, FingerTree<V, A>> split1(final Func<V, Boolean> predicate, final V acc) {
+    throw error("Split of empty tree.");
+  }
+
   @Override public <B> B foldRight(final Func<A, Func<B, B>> aff, final B z) {
     return z;
   }
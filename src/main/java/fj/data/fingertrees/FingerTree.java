@@ -1,7 +1,9 @@
 package fj.data.fingertrees;
 
 import fj.Func;
+import fj.P;
 import fj.P2;
+import fj.P3;
 import fj.data.Seq;
 import fj.Monoid;
 
@@ -147,5 +149,69 @@ public abstract class FingerTree<V, A> {
    */
   public abstract FingerTree<V, A> append(final FingerTree<V, A> t);
 
+  /**
+   * Looks up the element at the given position, measuring positions with the given function. The position must be
+   * less than the position of the measure of the whole tree.
+   *
+   * @param o A function from measures to positions.
+   * @param i The position of the element to find.
+   * @return The position within the element that was found, and the element.
+   */
   public abstract P2<Integer, A> lookup(final Func<V, Integer> o, final int i);
+
+  /**
+   * Returns the first element of this tree.
+   *
+   * @return the first element of this tree, or throws an error if the tree is empty.
+   */
+  public abstract A head();
+
+  /**
+   * Returns the last element of this tree.
+   *
+   * @return the last element of this tree, or throws an error if the tree is empty.
+   */
+  public abstract A last();
+
+  /**
+   * Returns this tree without its first element.
+   *
+   * @return this tree without its first element, or throws an error if the tree is empty.
+   */
+  public abstract FingerTree<V, A> tail();
+
+  /**
+   * Returns this tree without its last element.
+   *
+   * @return this tree without its last element, or throws an error if the tree is empty.
+   */
+  public abstract FingerTree<V, A> init();
+
+  /**
+   * Splits this tree where the given predicate on measures changes from false to true. The predicate is applied to
+   * the measures of the prefixes of the tree, and is assumed to be false for the empty prefix and to stay true once it
+   * is true. Takes O(log n) in the size of the smaller piece.
+   *
+   * @param predicate A predicate on the measure of a prefix of this tree.
+   * @return The longest prefix of this tree for which the predicate is false, and the rest of the tree.
+   */
+  public final P2<FingerTree<V, A>, FingerTree<V, A>> split(final Func<V, Boolean> predicate) {
+    if (isEmpty() || !predicate.f(measure()))
+      return P.p(this, mkTree(m).empty());
+    final P3<FingerTree<V, A>, A, FingerTree<V, A>> s = split1(predicate, m.zero());
+    return P.p(s._1(), s._3().cons(s._2()));
+  }
+
+  /**
+   * Splits this non-empty tree at the element where the given predicate on measures changes from false to true. If
+   * the predicate is not true for the whole tree, the split is at the last element.
+   *
+   * @param predicate A predicate on the measure of a prefix of this tree.
+   * @return The elements before the split, the element at it, and the elements after it.
+   */
+  public final P3<FingerTree<V, A>, A, FingerTree<V, A>> split1(final Func<V, Boolean> predicate) {
+    return split1(predicate, m.zero());
+  }
+
+  abstract P3<FingerTree<V, A>, A, FingerTree<V, A>> split1(final Func<V, Boolean> predicate, final V acc);
 }
@@ -27,9 +27,8 @@ public final class Node2<V, A> extends Node<V, A> {
     return new Two<V, A>(measured(), as);
   }
 
-  @SuppressWarnings({"ReturnOfNull"})
   @Override public P2<Integer, A> lookup(final Func<V, Integer> o, final int i) {
-    return null; // TODO
+    return toDigit().lookup(o, i);
   }
 
   public <B> B match(final Func<Node2<V, A>, B> n2, final Func<Node3<V, A>, B> n3) {
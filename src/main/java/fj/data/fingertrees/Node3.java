@@ -31,9 +31,8 @@ public final class Node3<V, A> extends Node<V, A> {
     return new Three<V, A>(measured(), as);
   }
 
-  @SuppressWarnings({"ReturnOfNull"})
   public P2<Integer, A> lookup(final Func<V, Integer> o, final int i) {
-    return null;  //TODO
+    return toDigit().lookup(o, i);
   }
 
   public V3<A> toVector() {
@@ -2,6 +2,7 @@ package fj.data.fingertrees;
 
 import fj.Func;
 import fj.P2;
+import fj.P3;
 import static fj.P.p;
 
 /**
@@ -72,6 +73,27 @@ public final class Single<V, A> extends FingerTree<V, A> {
     return p(i, a);
   }
 
+  @Override public A head() {
+    return a;
+  }
+
+  @Override public A last() {
+    return a;
+  }
+
+  @Override public FingerTree<V, A> tail() {
+    return new Empty<V, A>(measured());
+  }
+
+  @Override public FingerTree<V, A> init() {
+    return tail();
+  }
+
+  @Override P3<FingerTree<V, A>, A, FingerTree<V, A>> split1(final Func<V, Boolean> predicate, final V acc) {
+    final FingerTree<V, A> empty = new Empty<V, A>(measured());
+    return p(empty, a, empty);
+  }
+
   /**
    * Returns the single element of this tree.
    *
@@ -11,6 +11,7 @@ import java.sql.Timestamp;
 import java.util.*;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 import java.util.concurrent.*;
 
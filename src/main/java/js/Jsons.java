@@ -0,0 +1,22 @@
+package js;
+
+import peak.response.Json;
+
+/**
+ * How gaver and sekker are written in JSON responses.
+ */
+public class Jsons {
+
+    public static final Json<Gave2> gave2 = (gave, out) ->
+            out.beginObject()
+                    .name( "betegnelse" ).value( gave.betegnelse )
+                    .name( "vekt" ).value( gave.vekt.value )
+                    .endObject();
+
+    public static final Json<Sekk2> sekk2 = (sekk, out) -> {
+        out.beginObject().name( "navn" ).value( sekk.navn ).name( "gaver" );
+        Json.array( gave2 ).write( sekk.gaver, out );
+        out.endObject();
+    };
+
+}
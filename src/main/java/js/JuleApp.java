@@ -3,38 +3,69 @@ package js;
 
 import fj.Func;
 import fj.data.Option;
-import fj.data.Stream;
 import fj.function.Doubles;
 import js.db.*;
 import js.model.AlwaysTruePredicate;
 import js.model.CastToSekk;
 import js.model.OverWeightPredicate;
 import js.model.Predicate;
+import peak.ResponseCache;
 import peak.RouteBuilder;
+import peak.SingleFlight;
 import peak.WebApplication;
 import peak.lifecycle.Register;
 import peak.request.Request;
+import peak.response.Json;
+import peak.response.JsonResponse;
+import peak.response.ResponseBuilder;
 import peak.response.StringResponse;
 
 import javax.servlet.ServletContext;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
-import static js.model.Predicates.sekkPredicateFor;
 
 public class JuleApp extends WebApplication {
 
+    //Vekt velges fritt av klienten, så cachen begrenses både i antall svar, totale bytes og størrelsen på ett svar
+    private final ResponseCache cache = new ResponseCache( 1000, 32 * 1024 * 1024, 256 * 1024, 10, TimeUnit.MINUTES );
+
+    private final SingleFlight flights = new SingleFlight();
+
     protected Func<ServletContext, ServletContext> initContext() {
-        return Register.inContext( new MemoryDb() )
+        MemoryDb db = database();
+        db.onWrite( cache::invalidate );
+        return Register.inContext( db )
                 .andThen( Register.inContext( new HashMapStore() ) );
     }
 
+    /**
+     * Keeps the database in the directory given by the system property js.db, or only in memory if it is not set.
+     */
+    private static MemoryDb database() {
+        String dir = System.getProperty( "js.db" );
+        if (dir == null)
+            return new MemoryDb();
+        try {
+            return MemoryDb.open( new File( dir ) );
+        } catch (IOException e) {
+            throw new RuntimeException( "Could not open database in " + dir, e );
+        }
+    }
+
     protected RouteBuilder init(RouteBuilder builder) {
         return builder
                 .get( "/", (request) ->
                         new StringResponse( "Julespesial" )
                 )
+                .get( "/cache", (request) ->
+                        new StringResponse( cache + " " + flights )
+                )
+                .metrics( "/metrics" )
                 /*
                 *
                 * 1a
@@ -155,7 +186,7 @@ public class JuleApp extends WebApplication {
                 * =================================
                 * Tredje versjon av sekk.
                 * Vi sikrer at vi ikke får null ved å bruke fold
-                * Vi bruker filter og map på innholdet i sekken
+                * Gavene sorteres etter vekt, letteste først, både med og uten vekt-parameter
                 */
                 .get( "/sekk3", (request) -> {
                     //Vi henter ut store
@@ -169,7 +200,7 @@ public class JuleApp extends WebApplication {
                                             .bind( Doubles.fromString() ) //Gjr det om til en double hvis mulig
                                             .fold( () -> (gave) -> true, (d) -> (gave) -> gave.vekt.value > d );
 
-                            return new StringResponse( sekk.gaver.filter( filter ).map( (gave) -> gave.betegnelse ).toString() );
+                            return JsonResponse.array( sekk.gaver.filter( filter ).map( (gave) -> gave.betegnelse ), Json.string );
 
                         }
                     }
@@ -198,7 +229,7 @@ public class JuleApp extends WebApplication {
                                             .bind( Doubles.fromString() ) //Gjr det om til en double hvis mulig
                                             .fold( () -> new AlwaysTruePredicate(), (d) -> new OverWeightPredicate( d ) );
 
-                            return new StringResponse( sekk.gaver.filter( filter ).map( (gave) -> gave.betegnelse ).toString() );
+                            return JsonResponse.array( sekk.gaver.filter( filter ).map( (gave) -> gave.betegnelse ), Json.string );
 
                         }
                     }
@@ -215,26 +246,26 @@ public class JuleApp extends WebApplication {
                 * Vi bruker filter og map på innholdet i sekken
                 * Vi lager domeneobjekter for alle funksjonene
                 * Vi bruker datastrukturer for å hente data fra databasen
+                * Svaret lagres komprimert i cachen per vekt og koding, og kastes når sekken for norge endres
+                * Like forespørsler som kommer samtidig deler på ett oppslag
                 */
-                .get( "/sekk5", (request) -> {
+                .get( "/sekk5" )
+                .coalesced( flights.by( "vekt" ) )
+                .cached( cache.by( "vekt" ).invalidatedBy( "norge" ) )
+                .handle( (request) -> {
                     for (MemoryDb db : request.handlerContext.get( MemoryDb.class )) {
 
-                        //Hent sekken for norge
-                        Get<Sekk2> getSekk =
-                                new Get<Sekk2>( Sekk2.class, "norge" );
-
                         Option<Double> threshold =
                                 request.getParameter( "vekt" ).bind( Doubles.fromString() );
 
-                        DbOp<StringResponse> op =
-                                getSekk.map( (kanskjeIdSekk) ->
-                                        kanskjeIdSekk.fold(
+                        //Vi slår opp i vektindeksen i stedet for å filtrere alle gavene, med eller uten grense,
+                        //så gavene kommer i samme rekkefølge uansett: letteste først, og ellers som i sekken
+                        //Gavene skrives som json rett til responsen, komprimert hvis klienten tar imot det
+                        DbOp<ResponseBuilder> op =
+                                new HeavierThan( "norge", threshold ).map( (kanskjeGaver) ->
+                                        kanskjeGaver.fold(
                                                 () -> new StringResponse( "Ingen sekk funnet" ),
-                                                (idSekk) -> {
-                                                    Stream<Gave2> filtrerteGaver = idSekk.gaver.filter( sekkPredicateFor( threshold ) );
-                                                    return new StringResponse( filtrerteGaver.toString() );
-                                                } )
-
+                                                (gaver) -> JsonResponse.array( gaver, Jsons.gave2 ).compressed() )
                                 );
 
                         return db.run( op );
@@ -0,0 +1,191 @@
+package js;
+
+import fj.data.Stream;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A sekk stored as columns: the weights in one double[], and the descriptions as codes into a dictionary of the
+ * distinct descriptions. A scan over the weights runs through one contiguous array of primitives, which the JIT can
+ * unroll and vectorize, instead of following a Gave2 and a Weight2 per gift through a lazy Stream.
+ * <p/>
+ * The gifts are in the same order as in the Sekk2 the columns are made from, newest first.
+ */
+public final class KolonneSekk {
+
+    public final String navn;
+
+    private final double[] vekter;
+
+    private final int[] betegnelser;
+
+    private final String[] ordbok;
+
+    private KolonneSekk(String navn, double[] vekter, int[] betegnelser, String[] ordbok) {
+        this.navn = navn;
+        this.vekter = vekter;
+        this.betegnelser = betegnelser;
+        this.ordbok = ordbok;
+    }
+
+    public static KolonneSekk fra(Sekk2 sekk) {
+        Bygger bygger = new Bygger( sekk.navn );
+        for (Gave2 gave : sekk.gaver) {
+            bygger.leggTil( gave.betegnelse, gave.vekt.value );
+        }
+        return bygger.bygg();
+    }
+
+    public Sekk2 tilSekk2() {
+        Stream<Gave2> gaver = Stream.nil();
+        for (int i = vekter.length - 1; i >= 0; i--) {
+            gaver = gaver.cons( gave( i ) );
+        }
+        return new Sekk2( navn, gaver );
+    }
+
+    public int antall() {
+        return vekter.length;
+    }
+
+    public Gave2 gave(int i) {
+        return new Gave2( betegnelse( i ), new Weight2( vekter[i] ) );
+    }
+
+    public double vekt(int i) {
+        return vekter[i];
+    }
+
+    public String betegnelse(int i) {
+        return ordbok[betegnelser[i]];
+    }
+
+    public int antallTyngreEnn(double grense) {
+        double[] v = vekter;
+        int antall = 0;
+        for (int i = 0; i < v.length; i++) {
+            antall += v[i] > grense ? 1 : 0;
+        }
+        return antall;
+    }
+
+    /**
+     * The sum of the weights. Four sums side by side, since the JIT keeps the order of floating point additions and
+     * would otherwise wait for each addition before the next.
+     */
+    public double sumVekt() {
+        double[] v = vekter;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < v.length; i += 4) {
+            s0 += v[i];
+            s1 += v[i + 1];
+            s2 += v[i + 2];
+            s3 += v[i + 3];
+        }
+        for (; i < v.length; i++) {
+            s0 += v[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public double sumVektTyngreEnn(double grense) {
+        double[] v = vekter;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < v.length; i += 4) {
+            s0 += hvisTyngre( v[i], grense );
+            s1 += hvisTyngre( v[i + 1], grense );
+            s2 += hvisTyngre( v[i + 2], grense );
+            s3 += hvisTyngre( v[i + 3], grense );
+        }
+        for (; i < v.length; i++) {
+            s0 += hvisTyngre( v[i], grense );
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * The weight if it is over the threshold, otherwise 0, without a branch: the sign of grense - vekt is spread into a
+     * mask over the bits of the weight. A branch here is mispredicted about half the time when the weights are spread
+     * around the threshold. Assumes finite weights.
+     */
+    private static double hvisTyngre(double vekt, double grense) {
+        long maske = Double.doubleToRawLongBits( grense - vekt ) >> 63;
+        return Double.longBitsToDouble( Double.doubleToRawLongBits( vekt ) & maske );
+    }
+
+    public double maksVekt() {
+        double[] v = vekter;
+        double maks = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < v.length; i++) {
+            maks = Math.max( maks, v[i] );
+        }
+        return maks;
+    }
+
+    /**
+     * The gifts heavier than the threshold, in the same order. The new sekk shares the dictionary.
+     */
+    public KolonneSekk tyngreEnn(double grense) {
+        double[] v = vekter;
+        int[] b = betegnelser;
+        double[] nyeVekter = new double[antallTyngreEnn( grense )];
+        int[] nyeBetegnelser = new int[nyeVekter.length];
+        int n = 0;
+        for (int i = 0; i < v.length; i++) {
+            if (v[i] > grense) {
+                nyeVekter[n] = v[i];
+                nyeBetegnelser[n] = b[i];
+                n++;
+            }
+        }
+        return new KolonneSekk( navn, nyeVekter, nyeBetegnelser, ordbok );
+    }
+
+    /**
+     * Builds the columns one gift at a time, in the order the gifts are added.
+     */
+    public static final class Bygger {
+
+        private final String navn;
+
+        private double[] vekter = new double[16];
+
+        private int[] betegnelser = new int[16];
+
+        private final HashMap<String, Integer> koder = new HashMap<>();
+
+        private String[] ordbok = new String[16];
+
+        private int antall;
+
+        public Bygger(String navn) {
+            this.navn = navn;
+        }
+
+        public Bygger leggTil(String betegnelse, double vekt) {
+            if (antall == vekter.length) {
+                vekter = Arrays.copyOf( vekter, antall * 2 );
+                betegnelser = Arrays.copyOf( betegnelser, antall * 2 );
+            }
+            Integer kode = koder.get( betegnelse );
+            if (kode == null) {
+                kode = koder.size();
+                koder.put( betegnelse, kode );
+                if (kode == ordbok.length)
+                    ordbok = Arrays.copyOf( ordbok, kode * 2 );
+                ordbok[kode] = betegnelse;
+            }
+            vekter[antall] = vekt;
+            betegnelser[antall] = kode;
+            antall++;
+            return this;
+        }
+
+        public KolonneSekk bygg() {
+            return new KolonneSekk( navn, Arrays.copyOf( vekter, antall ), Arrays.copyOf( betegnelser, antall ), Arrays.copyOf( ordbok, koder.size() ) );
+        }
+    }
+}
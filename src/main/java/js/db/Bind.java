@@ -0,0 +1,25 @@
+package js.db;
+
+import fj.Func;
+
+import java.util.Map;
+
+/**
+ * An op that picks the next op from the result of its source.
+ */
+class Bind<A, B> extends DbOp<B> {
+
+    final DbOp<A> source;
+
+    final Func<A, DbOp<B>> f;
+
+    Bind(DbOp<A> source, Func<A, DbOp<B>> f) {
+        this.source = source;
+        this.f = f;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public B run(Map<String, Object> stor) {
+        return (B) Interpreter.run( this, stor );
+    }
+}
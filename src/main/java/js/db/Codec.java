@@ -0,0 +1,20 @@
+package js.db;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads values of one type for the log and snapshots of a durable MemoryDb.
+ *
+ * @param <A> The type of the values
+ */
+public interface Codec<A> {
+
+    Class<A> type();
+
+    void write(A value, DataOutput out) throws IOException;
+
+    A read(DataInput in) throws IOException;
+
+}
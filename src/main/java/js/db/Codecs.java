@@ -0,0 +1,118 @@
+package js.db;
+
+import fj.data.Stream;
+import js.Gave2;
+import js.Sekk2;
+import js.Weight2;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The codecs a durable MemoryDb knows. Values are tagged with the name of their type, so codecs can be added or
+ * reordered without breaking existing files.
+ * <p/>
+ * A value is written by the codec for its class, or else for the nearest superclass that has one, and is tagged with
+ * the type of that codec. A subclass is therefore read back as an instance of the codec type.
+ */
+public class Codecs {
+
+    public static final Codec<String> string = new Codec<String>() {
+        @Override public Class<String> type() {
+            return String.class;
+        }
+
+        @Override public void write(String value, DataOutput out) throws IOException {
+            out.writeUTF( value );
+        }
+
+        @Override public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    public static final Codec<Integer> integer = new Codec<Integer>() {
+        @Override public Class<Integer> type() {
+            return Integer.class;
+        }
+
+        @Override public void write(Integer value, DataOutput out) throws IOException {
+            out.writeInt( value );
+        }
+
+        @Override public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    public static final Codec<Sekk2> sekk2 = new Codec<Sekk2>() {
+        @Override public Class<Sekk2> type() {
+            return Sekk2.class;
+        }
+
+        @Override public void write(Sekk2 sekk, DataOutput out) throws IOException {
+            out.writeUTF( sekk.navn );
+            out.writeInt( sekk.gaver.length() );
+            for (Gave2 gave : sekk.gaver) {
+                out.writeUTF( gave.betegnelse );
+                out.writeDouble( gave.vekt.value );
+            }
+        }
+
+        @Override public Sekk2 read(DataInput in) throws IOException {
+            String navn = in.readUTF();
+            int count = in.readInt();
+            ArrayList<Gave2> gaver = new ArrayList<>( count );
+            for (int i = 0; i < count; i++) {
+                gaver.add( new Gave2( in.readUTF(), new Weight2( in.readDouble() ) ) );
+            }
+            Stream<Gave2> stream = Stream.nil();
+            for (int i = count - 1; i >= 0; i--) {
+                stream = stream.cons( gaver.get( i ) );
+            }
+            return new Sekk2( navn, stream );
+        }
+    };
+
+    private final Map<String, Codec<?>> byName = new HashMap<>();
+
+    public Codecs(Codec<?>... codecs) {
+        for (Codec<?> codec : codecs) {
+            byName.put( codec.type().getName(), codec );
+        }
+    }
+
+    public static Codecs defaults() {
+        return new Codecs( string, integer, sekk2 );
+    }
+
+    @SuppressWarnings("unchecked")
+    void write(Object value, DataOutput out) throws IOException {
+        Codec<Object> codec = (Codec<Object>) codecFor( value.getClass() );
+        if (codec == null)
+            throw new IllegalArgumentException( "No codec for " + value.getClass().getName() );
+        out.writeUTF( codec.type().getName() );
+        codec.write( value, out );
+    }
+
+    private Codec<?> codecFor(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            Codec<?> codec = byName.get( c.getName() );
+            if (codec != null)
+                return codec;
+        }
+        return null;
+    }
+
+    Object read(DataInput in) throws IOException {
+        String name = in.readUTF();
+        Codec<?> codec = byName.get( name );
+        if (codec == null)
+            throw new IOException( "No codec for " + name );
+        return codec.read( in );
+    }
+}
@@ -1,11 +1,15 @@
 package js.db;
 
 import fj.Func;
+import fj.P2;
 
 import java.util.Map;
 
 /**
  * Superinterface for all db operations
+ * <p/>
+ * Operations like Get and Put implement run. The ones made with map, bind and zip are data, and are run by
+ * {@link Interpreter} with a loop and a stack of its own, so long chains do not grow the call stack.
  * @author atlosm
  *
  * @param <A>
@@ -15,21 +19,18 @@ public abstract class DbOp<A> {
     public abstract A run(Map<String,Object> stor);
 
     public <B> DbOp<B> map(final Func<A,B> f){
-        return new DbOp<B>() {
-            @Override public B run(Map<String, Object> stor) {
-                return f.f( DbOp.this.run( stor ) );
-            }
-        };
+        return new Mapped<>( this, f );
     }
 
     public <B> DbOp<B> bind(final Func<A,DbOp<B>> f){
-        return new DbOp<B>() {
-            @Override public B run(Map<String, Object> stor) {
-                A a = DbOp.this.run( stor );
-                DbOp <B> bOp = f.f(a);
-                return bOp.run( stor );
-            }
-        };
+        return new Bind<>( this, f );
+    }
+
+    /**
+     * Runs this op and then the other, and yields both results.
+     */
+    public <B> DbOp<P2<A,B>> zip(final DbOp<B> other){
+        return new Zip<>( this, other );
     }
 
 }
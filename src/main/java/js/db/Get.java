@@ -1,5 +1,6 @@
 package js.db;
 
+import fj.data.List;
 import fj.data.Option;
 
 import java.util.Map;
@@ -26,4 +27,31 @@ public class Get<T> extends DbOp<Option<T>> {
             return Option.some(type.cast( value ));
         return Option.none();
     }
+
+    /**
+     * Fetches the objects for all the keys in one op.
+     */
+    public static <T> DbOp<List<Option<T>>> all(Class<T> type, List<String> keys) {
+        return new All<>( type, keys );
+    }
+
+    static class All<T> extends DbOp<List<Option<T>>> {
+
+        private final Class<T> type;
+        private final List<String> keys;
+
+        All(Class<T> type, List<String> keys) {
+            this.type = type;
+            this.keys = keys;
+        }
+
+        @Override public List<Option<T>> run(Map<String, Object> stor) {
+            List.Buffer<Option<T>> found = new List.Buffer<>();
+            for (String key : keys) {
+                Object value = stor.get( key );
+                found.snoc( type.isInstance( value ) ? Option.some( type.cast( value ) ) : Option.<T>none() );
+            }
+            return found.toList();
+        }
+    }
 }
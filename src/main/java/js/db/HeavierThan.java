@@ -0,0 +1,39 @@
+package js.db;
+
+import fj.data.List;
+import fj.data.Option;
+import js.Gave2;
+import js.Sekk2;
+
+import java.util.Map;
+
+/**
+ * Finds the gifts in a sekk that are heavier than a threshold, or all its gifts if there is no threshold, lightest first.
+ * Gifts of the same weight come in the order of the sekk. In a MemoryDb this is a lookup in the weight index of the
+ * sekk; other stores get the gifts sorted first.
+ */
+public class HeavierThan extends DbOp<Option<List<Gave2>>> {
+
+    public final String key;
+    public final Option<Double> threshold;
+
+    public HeavierThan(String key, Option<Double> threshold) {
+        this.key = key;
+        this.threshold = threshold;
+    }
+
+    public HeavierThan(String key, double threshold) {
+        this( key, Option.some( threshold ) );
+    }
+
+    @Override public Option<List<Gave2>> run(Map<String, Object> stor) {
+        Option<WeightIndex> index;
+        if (stor instanceof WeightIndexed)
+            index = ((WeightIndexed) stor).weightIndex( key );
+        else {
+            Object value = stor.get( key );
+            index = value instanceof Sekk2 ? Option.some( WeightIndex.of( (Sekk2) value ) ) : Option.<WeightIndex>none();
+        }
+        return index.map( (i) -> threshold.isSome() ? i.heavierThan( threshold.some() ) : i.all() );
+    }
+}
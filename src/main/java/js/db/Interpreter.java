@@ -0,0 +1,107 @@
+package js.db;
+
+import fj.P;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * Runs the ops made with map, bind and zip. Instead of each op calling run on the op it wraps, the interpreter walks
+ * down to the first op that does the work, and keeps what is left to do with its result on a stack of its own. The call
+ * stack stays flat however long the chain is. The maps on top of the stack are applied one after the other in a single
+ * loop until a bind yields a new op to run.
+ * <p/>
+ * Ops that do the work themselves, like Get and NoOp, are run in place when a bind yields them or when they are the
+ * right side of a zip. Adjacent reads zipped together, <code>get(a).zip(get(b))</code>, are thus done in one step
+ * without a frame for the left result, and the op a bind yields does not outlive the step, so it can often be
+ * eliminated by the JIT.
+ */
+final class Interpreter {
+
+    // A stack per thread, so a run does not have to allocate and grow one. A run started from inside another gets its own.
+    private static final ThreadLocal<ArrayDeque<Object>> stacks = new ThreadLocal<>();
+
+    private Interpreter() {
+    }
+
+    static Object run(DbOp<?> op, Map<String, Object> stor) {
+        ArrayDeque<Object> stack = stacks.get();
+        if (stack == null)
+            stack = new ArrayDeque<>();
+        else
+            stacks.set( null );
+        try {
+            return run( op, stor, stack );
+        } finally {
+            stack.clear();
+            stacks.set( stack );
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object run(DbOp<?> op, Map<String, Object> stor, ArrayDeque<Object> stack) {
+        DbOp<?> current = op;
+        while (true) {
+            while (true) {
+                if (current instanceof Mapped) {
+                    stack.push( current );
+                    current = ((Mapped<?, ?>) current).source;
+                }
+                else if (current instanceof Bind) {
+                    stack.push( current );
+                    current = ((Bind<?, ?>) current).source;
+                }
+                else if (current instanceof Zip) {
+                    stack.push( current );
+                    current = ((Zip<?, ?>) current).left;
+                }
+                else
+                    break;
+            }
+
+            Object value = current.run( stor );
+
+            current = null;
+            while (current == null) {
+                if (stack.isEmpty())
+                    return value;
+                Object next = stack.pop();
+                if (next instanceof Mapped)
+                    value = ((Mapped<Object, ?>) next).f.f( value );
+                else if (next instanceof Bind) {
+                    DbOp<?> following = ((Bind<Object, ?>) next).f.f( value );
+                    if (isComposed( following ))
+                        current = following;
+                    else
+                        value = following.run( stor );
+                }
+                else if (next instanceof Zip) {
+                    DbOp<?> right = ((Zip<?, ?>) next).right;
+                    if (isComposed( right )) {
+                        stack.push( new Left( value ) );
+                        current = right;
+                    }
+                    else
+                        value = P.p( value, right.run( stor ) );
+                }
+                else
+                    value = P.p( ((Left) next).value, value );
+            }
+        }
+    }
+
+    private static boolean isComposed(DbOp<?> op) {
+        return op instanceof Mapped || op instanceof Bind || op instanceof Zip;
+    }
+
+    /**
+     * The result of the left side of a zip, waiting for the right.
+     */
+    private static final class Left {
+        final Object value;
+
+        Left(Object value) {
+            this.value = value;
+        }
+    }
+}
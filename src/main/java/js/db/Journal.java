@@ -0,0 +1,372 @@
+package js.db;
+
+import fj.Ord;
+import fj.P;
+import fj.P2;
+import fj.data.TreeMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * The files behind a durable MemoryDb.
+ * <p/>
+ * Every op that writes is appended as one record to the current log. Appending only copies the record to a buffer;
+ * a sync writes and forces everything appended so far, so the records of ops that commit while a sync is running are
+ * forced together by the next one. A record is the length of the payload, a CRC32 of the payload and the payload.
+ * <p/>
+ * A snapshot holds the contents at the start of a log generation, so recovery loads the newest snapshot and replays
+ * the logs from its generation on. Replay stops at the first record that is cut short or fails its checksum, which is
+ * what a crash in the middle of a write leaves behind, and the log is truncated there.
+ */
+final class Journal {
+
+    private static final String LOG = "wal.";
+
+    private static final String SNAPSHOT = "snapshot.";
+
+    private static final int SNAPSHOT_MAGIC = 0x4a534442;
+
+    private static final int HEADER = 8;
+
+    private final File dir;
+
+    private final Codecs codecs;
+
+    private final Object appendLock = new Object();
+
+    private final Object syncLock = new Object();
+
+    // Guarded by appendLock
+    private byte[] pending = new byte[64 * 1024];
+
+    private int pendingSize;
+
+    private long appended;
+
+    private FileChannel log;
+
+    private long generation;
+
+    // Guarded by syncLock
+    private byte[] flushing = new byte[64 * 1024];
+
+    private volatile long synced;
+
+    private volatile long logSize;
+
+    private volatile IOException failure;
+
+    private Journal(File dir, Codecs codecs, long generation, FileChannel log) throws IOException {
+        this.dir = dir;
+        this.codecs = codecs;
+        this.generation = generation;
+        this.log = log;
+        this.logSize = log.size();
+    }
+
+    /**
+     * Recovers the contents stored in the directory and opens the log for appending.
+     */
+    static P2<TreeMap<String, Object>, Journal> open(File dir, Codecs codecs) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException( "Could not create " + dir );
+
+        long[] snapshots = generations( dir, SNAPSHOT );
+        long start = snapshots.length == 0 ? 0 : snapshots[snapshots.length - 1];
+        TreeMap<String, Object> contents =
+                snapshots.length == 0 ? TreeMap.<String, Object>empty( Ord.stringOrd ) : readSnapshot( file( dir, SNAPSHOT, start ), codecs );
+
+        long[] logs = generations( dir, LOG );
+        long last = start;
+        for (int i = 0; i < logs.length; i++) {
+            if (logs[i] >= start) {
+                contents = replay( file( dir, LOG, logs[i] ), contents, codecs, i == logs.length - 1 );
+                last = logs[i];
+            }
+        }
+
+        FileChannel channel = FileChannel.open( file( dir, LOG, last ).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+        channel.position( channel.size() );
+        return P.p( contents, new Journal( dir, codecs, last, channel ) );
+    }
+
+    /**
+     * Encodes the writes of one op. A value of DELETED removes the key.
+     */
+    byte[] encode(Map<String, Object> writes) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream( bytes );
+            out.writeInt( writes.size() );
+            for (Map.Entry<String, Object> write : writes.entrySet()) {
+                out.writeUTF( write.getKey() );
+                boolean deleted = write.getValue() == MemoryDb.DELETED;
+                out.writeBoolean( !deleted );
+                if (!deleted)
+                    codecs.write( write.getValue(), out );
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException( "Could not encode writes", e );
+        }
+    }
+
+    /**
+     * Appends the record if commit succeeds. Records are appended in the order they committed.
+     *
+     * @return The sequence number to sync on, or -1 if commit failed
+     */
+    long append(byte[] payload, BooleanSupplier commit) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update( payload, 0, payload.length );
+        synchronized (appendLock) {
+            if (failure != null)
+                throw failure;
+            if (!commit.getAsBoolean())
+                return -1;
+
+            int size = HEADER + payload.length;
+            if (pendingSize + size > pending.length)
+                pending = Arrays.copyOf( pending, Math.max( pending.length * 2, pendingSize + size ) );
+            ByteBuffer.wrap( pending, pendingSize, HEADER ).putInt( payload.length ).putInt( (int) crc.getValue() );
+            System.arraycopy( payload, 0, pending, pendingSize + HEADER, payload.length );
+            pendingSize += size;
+            logSize += size;
+            return ++appended;
+        }
+    }
+
+    /**
+     * Returns when the record with the given sequence number, and all before it, are forced to disk.
+     */
+    void sync(long sequence) throws IOException {
+        if (synced >= sequence)
+            return;
+        synchronized (syncLock) {
+            if (synced < sequence)
+                flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (failure != null)
+            throw failure;
+
+        byte[] batch;
+        int size;
+        long upTo;
+        FileChannel channel;
+        synchronized (appendLock) {
+            batch = pending;
+            size = pendingSize;
+            upTo = appended;
+            channel = log;
+            pending = flushing;
+            pendingSize = 0;
+            flushing = batch;
+        }
+        try {
+            write( channel, batch, size );
+            channel.force( false );
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        synced = upTo;
+    }
+
+    long logSize() {
+        return logSize;
+    }
+
+    /**
+     * Starts a new log generation and captures the contents that correspond to the start of it.
+     */
+    <A> P2<Long, A> rotate(Supplier<A> capture) throws IOException {
+        synchronized (syncLock) {
+            FileChannel old;
+            P2<Long, A> rotated;
+            synchronized (appendLock) {
+                if (failure != null)
+                    throw failure;
+                write( log, pending, pendingSize );
+                log.force( false );
+                pendingSize = 0;
+                synced = appended;
+
+                old = log;
+                generation++;
+                log = FileChannel.open( file( dir, LOG, generation ).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+                logSize = 0;
+                rotated = P.p( generation, capture.get() );
+            }
+            old.close();
+            return rotated;
+        }
+    }
+
+    /**
+     * Writes a snapshot through a memory mapped file, and removes the snapshots and logs it replaces.
+     */
+    void writeSnapshot(long generation, TreeMap<String, Object> contents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream( bytes );
+        out.writeInt( contents.size() );
+        for (P2<String, Object> entry : contents) {
+            out.writeUTF( entry._1() );
+            codecs.write( entry._2(), out );
+        }
+        byte[] body = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update( body, 0, body.length );
+
+        File target = file( dir, SNAPSHOT, generation );
+        File temp = new File( dir, target.getName() + ".tmp" );
+        try (FileChannel channel = FileChannel.open( temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING )) {
+            MappedByteBuffer mapped = channel.map( FileChannel.MapMode.READ_WRITE, 0, 12 + body.length );
+            mapped.putInt( SNAPSHOT_MAGIC ).putInt( body.length ).putInt( (int) crc.getValue() ).put( body );
+            mapped.force();
+        }
+        Files.move( temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE );
+
+        for (long old : generations( dir, SNAPSHOT )) {
+            if (old < generation)
+                Files.deleteIfExists( file( dir, SNAPSHOT, old ).toPath() );
+        }
+        for (long old : generations( dir, LOG )) {
+            if (old < generation)
+                Files.deleteIfExists( file( dir, LOG, old ).toPath() );
+        }
+    }
+
+    void close() throws IOException {
+        synchronized (syncLock) {
+            flush();
+            log.close();
+        }
+    }
+
+    private static TreeMap<String, Object> readSnapshot(File file, Codecs codecs) throws IOException {
+        try (FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ )) {
+            MappedByteBuffer mapped = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+            if (mapped.remaining() < 12 || mapped.getInt() != SNAPSHOT_MAGIC)
+                throw new IOException( "Not a snapshot: " + file );
+            int length = mapped.getInt();
+            int checksum = mapped.getInt();
+            if (length != mapped.remaining() || checksum != checksum( mapped.duplicate() ))
+                throw new IOException( "Corrupt snapshot: " + file );
+
+            DataInputStream in = new DataInputStream( stream( mapped ) );
+            TreeMap<String, Object> contents = TreeMap.empty( Ord.stringOrd );
+            for (int count = in.readInt(); count > 0; count--) {
+                contents = contents.set( in.readUTF(), codecs.read( in ) );
+            }
+            return contents;
+        }
+    }
+
+    private static TreeMap<String, Object> replay(File file, TreeMap<String, Object> contents, Codecs codecs, boolean last) throws IOException {
+        long valid = 0;
+        try (FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ )) {
+            MappedByteBuffer mapped = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+            while (mapped.remaining() >= HEADER) {
+                int length = mapped.getInt();
+                int checksum = mapped.getInt();
+                if (length < 0 || length > mapped.remaining())
+                    break;
+                ByteBuffer payload = mapped.slice();
+                payload.limit( length );
+                if (checksum != checksum( payload.duplicate() ))
+                    break;
+
+                DataInputStream in = new DataInputStream( stream( payload ) );
+                for (int count = in.readInt(); count > 0; count--) {
+                    String key = in.readUTF();
+                    contents = in.readBoolean() ? contents.set( key, codecs.read( in ) ) : contents.delete( key );
+                }
+                mapped.position( mapped.position() + length );
+                valid = mapped.position();
+            }
+        }
+
+        if (valid < file.length()) {
+            if (!last)
+                throw new IOException( "Corrupt log: " + file );
+            try (FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.WRITE )) {
+                channel.truncate( valid );
+            }
+        }
+        return contents;
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update( buffer );
+        return (int) crc.getValue();
+    }
+
+    private static InputStream stream(final ByteBuffer buffer) {
+        return new InputStream() {
+            @Override public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+            }
+
+            @Override public int read(byte[] b, int off, int len) {
+                if (!buffer.hasRemaining())
+                    return -1;
+                int n = Math.min( len, buffer.remaining() );
+                buffer.get( b, off, n );
+                return n;
+            }
+        };
+    }
+
+    private static void write(FileChannel channel, byte[] bytes, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap( bytes, 0, size );
+        while (buffer.hasRemaining()) {
+            channel.write( buffer );
+        }
+    }
+
+    private static File file(File dir, String prefix, long generation) {
+        return new File( dir, prefix + generation );
+    }
+
+    private static long[] generations(File dir, String prefix) {
+        ArrayList<Long> found = new ArrayList<>();
+        String[] names = dir.list();
+        for (String name : names == null ? new String[0] : names) {
+            if (name.startsWith( prefix )) {
+                try {
+                    found.add( Long.parseLong( name.substring( prefix.length() ) ) );
+                } catch (NumberFormatException e) {
+                    // Not one of ours, or a snapshot that was never completed
+                }
+            }
+        }
+        long[] generations = new long[found.size()];
+        for (int i = 0; i < generations.length; i++) {
+            generations[i] = found.get( i );
+        }
+        Arrays.sort( generations );
+        return generations;
+    }
+}
@@ -0,0 +1,25 @@
+package js.db;
+
+import fj.Func;
+
+import java.util.Map;
+
+/**
+ * An op with a function applied to its result.
+ */
+class Mapped<A, B> extends DbOp<B> {
+
+    final DbOp<A> source;
+
+    final Func<A, B> f;
+
+    Mapped(DbOp<A> source, Func<A, B> f) {
+        this.source = source;
+        this.f = f;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public B run(Map<String, Object> stor) {
+        return (B) Interpreter.run( this, stor );
+    }
+}
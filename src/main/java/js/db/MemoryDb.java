@@ -1,15 +1,365 @@
 package js.db;
 
 
+import fj.Effect;
+import fj.Ord;
+import fj.P2;
+import fj.data.Option;
+import fj.data.TreeMap;
+import js.Sekk2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * A thread safe store that runs each DbOp as an atomic transaction.
+ * <p/>
+ * The contents are an immutable map held in a single reference. An op runs against the map it found when it started, so
+ * reads always see a consistent snapshot and never take locks. An op that writes builds a new map from the one it read
+ * and commits by swapping the reference. If another op committed in between, the writes are replayed on the new map if
+ * none of the keys it read have changed, otherwise the op is run again. The functions in a DbOp should therefore not
+ * have side effects outside the store.
+ * <p/>
+ * Every Sekk2 in the store has a {@link WeightIndex}, kept up to date as part of the commit, which {@link HeavierThan}
+ * uses.
+ * <p/>
+ * A store opened on a directory is durable: an op that writes returns once its writes are forced to the log, and a
+ * snapshot is written when the log has grown large. See {@link Journal}. If writing the snapshot fails, the failure is
+ * logged and no snapshot is tried again for a minute; the log keeps growing in the meantime.
+ * <p/>
+ * Listeners added with {@link #onWrite(Effect)} are told the keys an op has put or deleted, after it has committed.
+ */
 public class MemoryDb {
 
-    private final HashMap<String,Object> store = new HashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger( MemoryDb.class );
+
+    static final Object DELETED = new Object();
+
+    private static final long CHECKPOINT_RETRY_MILLIS = 60 * 1000;
+
+    private static final long SNAPSHOT_AFTER = 64 * 1024 * 1024;
+
+    private final AtomicReference<State> root;
+
+    private final Option<Journal> journal;
+
+    private final long snapshotAfter;
+
+    private final AtomicBoolean checkpointing = new AtomicBoolean();
+
+    private volatile long checkpointFailedAt;
+
+    private final CopyOnWriteArrayList<Effect<String>> listeners = new CopyOnWriteArrayList<>();
+
+    public MemoryDb() {
+        this( TreeMap.<String, Object>empty( Ord.stringOrd ), Option.<Journal>none(), 0 );
+    }
+
+    private MemoryDb(TreeMap<String, Object> contents, Option<Journal> journal, long snapshotAfter) {
+        this.root = new AtomicReference<>( State.of( contents ) );
+        this.journal = journal;
+        this.snapshotAfter = snapshotAfter;
+    }
+
+    /**
+     * Opens a durable store in the directory, with the contents that were committed there before.
+     *
+     * @param codecs        The codecs for the types of values that will be stored
+     * @param snapshotAfter The size in bytes the log grows to before a snapshot is written
+     */
+    public static MemoryDb open(File dir, Codecs codecs, long snapshotAfter) throws IOException {
+        P2<TreeMap<String, Object>, Journal> recovered = Journal.open( dir, codecs );
+        return new MemoryDb( recovered._1(), Option.some( recovered._2() ), snapshotAfter );
+    }
+
+    public static MemoryDb open(File dir) throws IOException {
+        return open( dir, Codecs.defaults(), SNAPSHOT_AFTER );
+    }
+
+    public <A> A run(final DbOp<A> op) {
+        while (true) {
+            Transaction tx = new Transaction( root.get() );
+            A a = op.run( tx );
+            if (tx.writes.isEmpty())
+                return a;
+            if (tx.commit()) {
+                for (String key : tx.writes.keySet()) {
+                    for (Effect<String> listener : listeners) {
+                        listener.e( key );
+                    }
+                }
+                return a;
+            }
+        }
+    }
+
+    /**
+     * Calls the listener with every key that is put or deleted, once the op that wrote it has committed. The listener
+     * runs on the thread that ran the op.
+     */
+    public void onWrite(Effect<String> listener) {
+        listeners.add( listener );
+    }
+
+    /**
+     * Writes a snapshot of the current contents and removes the log it replaces. Does nothing if the store is not durable.
+     */
+    public void checkpoint() throws IOException {
+        for (Journal j : journal) {
+            P2<Long, TreeMap<String, Object>> rotated = j.rotate( () -> root.get().contents );
+            j.writeSnapshot( rotated._1(), rotated._2() );
+        }
+    }
+
+    /**
+     * Forces what is left of the log to disk and closes it.
+     */
+    public void close() throws IOException {
+        for (Journal j : journal) {
+            j.close();
+        }
+    }
+
+    private void checkpointIfLogIsLarge(final Journal j) {
+        if (j.logSize() > snapshotAfter
+                && System.currentTimeMillis() - checkpointFailedAt > CHECKPOINT_RETRY_MILLIS
+                && checkpointing.compareAndSet( false, true )) {
+            Thread thread = new Thread( () -> {
+                try {
+                    checkpoint();
+                } catch (IOException | RuntimeException e) {
+                    checkpointFailedAt = System.currentTimeMillis();
+                    logger.error( "Problems while writing snapshot, retrying in " + CHECKPOINT_RETRY_MILLIS / 1000 + "s", e );
+                } finally {
+                    checkpointing.set( false );
+                }
+            }, "MemoryDb checkpoint" );
+            thread.setDaemon( true );
+            thread.start();
+        }
+    }
+
+    /**
+     * The current contents of the store. The snapshot does not change when later ops commit.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot( root.get() );
+    }
+
+    /**
+     * The contents and the weight indexes of the sekks in them, replaced as a whole when an op commits.
+     */
+    private static final class State {
+
+        final TreeMap<String, Object> contents;
+
+        final TreeMap<String, WeightIndex> indexes;
+
+        private State(TreeMap<String, Object> contents, TreeMap<String, WeightIndex> indexes) {
+            this.contents = contents;
+            this.indexes = indexes;
+        }
+
+        static State of(TreeMap<String, Object> contents) {
+            TreeMap<String, WeightIndex> indexes = TreeMap.empty( Ord.stringOrd );
+            for (P2<String, Object> entry : contents) {
+                if (entry._2() instanceof Sekk2)
+                    indexes = indexes.set( entry._1(), WeightIndex.of( (Sekk2) entry._2() ) );
+            }
+            return new State( contents, indexes );
+        }
+
+        State with(Map<String, Object> writes) {
+            TreeMap<String, Object> contents = this.contents;
+            TreeMap<String, WeightIndex> indexes = this.indexes;
+            for (Map.Entry<String, Object> write : writes.entrySet()) {
+                String key = write.getKey();
+                Object value = write.getValue();
+                contents = value == DELETED ? contents.delete( key ) : contents.set( key, value );
+                if (value instanceof Sekk2)
+                    indexes = indexes.set( key, index( indexes, key, (Sekk2) value ) );
+                else if (indexes.contains( key ))
+                    indexes = indexes.delete( key );
+            }
+            return new State( contents, indexes );
+        }
+
+        static WeightIndex index(TreeMap<String, WeightIndex> indexes, String key, Sekk2 sekk) {
+            Option<WeightIndex> index = indexes.get( key );
+            return index.isSome() ? index.some().update( sekk ) : WeightIndex.of( sekk );
+        }
+    }
+
+    /**
+     * A read only view of the store as it was at one point in time.
+     */
+    public static class Snapshot extends AbstractMap<String, Object> implements WeightIndexed {
+
+        private final TreeMap<String, Object> contents;
+
+        private final TreeMap<String, WeightIndex> indexes;
+
+        private Snapshot(State state) {
+            this.contents = state.contents;
+            this.indexes = state.indexes;
+        }
+
+        /**
+         * Runs a read only op against this snapshot. Ops that write fail with an UnsupportedOperationException.
+         */
+        public <A> A run(DbOp<A> op) {
+            return op.run( this );
+        }
+
+        @Override public Object get(Object key) {
+            return contents.get( (String) key ).toNull();
+        }
+
+        @Override public boolean containsKey(Object key) {
+            return contents.contains( (String) key );
+        }
+
+        @Override public int size() {
+            return contents.size();
+        }
+
+        @Override public Set<Entry<String, Object>> entrySet() {
+            return entries( contents );
+        }
+
+        @Override public Option<WeightIndex> weightIndex(String key) {
+            return indexes.get( key );
+        }
+    }
+
+    private static Set<Map.Entry<String, Object>> entries(TreeMap<String, Object> contents) {
+        LinkedHashMap<String, Object> view = new LinkedHashMap<>();
+        for (P2<String, Object> entry : contents) {
+            view.put( entry._1(), entry._2() );
+        }
+        return Collections.unmodifiableSet( view.entrySet() );
+    }
+
+    /**
+     * The view of the store one attempt of an op runs against.
+     */
+    private class Transaction extends AbstractMap<String, Object> implements WeightIndexed {
+
+        private final State base;
+
+        private TreeMap<String, Object> view;
+
+        private final HashMap<String, Object> reads = new HashMap<>();
+
+        private final LinkedHashMap<String, Object> writes = new LinkedHashMap<>();
+
+        private boolean scanned;
+
+        Transaction(State base) {
+            this.base = base;
+            this.view = base.contents;
+        }
+
+        @Override public Object get(Object key) {
+            String k = (String) key;
+            Object value = view.get( k ).toNull();
+            if (!writes.containsKey( k ) && !reads.containsKey( k ))
+                reads.put( k, value );
+            return value;
+        }
+
+        @Override public boolean containsKey(Object key) {
+            return get( key ) != null;
+        }
+
+        @Override public Object put(String key, Object value) {
+            Object previous = get( key );
+            writes.put( key, value );
+            view = view.set( key, value );
+            return previous;
+        }
+
+        @Override public Object remove(Object key) {
+            Object previous = get( key );
+            writes.put( (String) key, DELETED );
+            view = view.delete( (String) key );
+            return previous;
+        }
+
+        @Override public int size() {
+            scanned = true;
+            return view.size();
+        }
+
+        @Override public Set<Entry<String, Object>> entrySet() {
+            scanned = true;
+            return entries( view );
+        }
+
+        @Override public Option<WeightIndex> weightIndex(String key) {
+            Object value = get( key );
+            if (value instanceof Sekk2)
+                return Option.some( State.index( base.indexes, key, (Sekk2) value ) );
+            return Option.none();
+        }
+
+        /**
+         * Commits the writes, and waits until they are on disk if the store is durable.
+         *
+         * @return false if a key this transaction read has changed, and the op must be run again
+         */
+        boolean commit() {
+            if (journal.isNone())
+                return swap();
+
+            Journal j = journal.some();
+            try {
+                long sequence = j.append( j.encode( writes ), this::swap );
+                if (sequence < 0)
+                    return false;
+                j.sync( sequence );
+            } catch (IOException e) {
+                throw new RuntimeException( "Problems while writing to the log", e );
+            }
+            checkpointIfLogIsLarge( j );
+            return true;
+        }
 
+        /**
+         * Swaps in the new contents, replaying the writes on contents committed since this transaction started.
+         */
+        private boolean swap() {
+            State current = base;
+            State next = base.with( writes );
+            while (!root.compareAndSet( current, next )) {
+                current = root.get();
+                if (!unchangedIn( current.contents ))
+                    return false;
+                next = current.with( writes );
+            }
+            return true;
+        }
 
-    public <A> A run(final DbOp<A> op){
-        return op.run( store );
+        private boolean unchangedIn(TreeMap<String, Object> contents) {
+            if (scanned)
+                return false;
+            for (Entry<String, Object> read : reads.entrySet()) {
+                if (contents.get( read.getKey() ).toNull() != read.getValue())
+                    return false;
+            }
+            return true;
+        }
     }
 
 }
@@ -0,0 +1,90 @@
+package js.db;
+
+import fj.Ord;
+import fj.P2;
+import fj.data.List;
+import fj.data.Option;
+import fj.data.Stream;
+import fj.data.TreeMap;
+import js.Gave2;
+import js.Sekk2;
+
+/**
+ * The gifts of a sekk sorted by weight, so the gifts heavier than a threshold are found in O(log n + k).
+ * <p/>
+ * The index remembers the gifts it was built from. Sekk2.leggTilGave puts new gifts in front of the gifts of the old
+ * sekk, so when a sekk is stored the index only has to add the gifts in front of the ones it already has. Any other
+ * change rebuilds it.
+ */
+public final class WeightIndex {
+
+    private static final WeightIndex empty = new WeightIndex( TreeMap.<Double, List<Gave2>>empty( Ord.doubleOrd ), Stream.<Gave2>nil() );
+
+    private final TreeMap<Double, List<Gave2>> byWeight;
+
+    private final Stream<Gave2> indexed;
+
+    private WeightIndex(TreeMap<Double, List<Gave2>> byWeight, Stream<Gave2> indexed) {
+        this.byWeight = byWeight;
+        this.indexed = indexed;
+    }
+
+    public static WeightIndex of(Sekk2 sekk) {
+        return empty.update( sekk );
+    }
+
+    /**
+     * The index for the gifts in the sekk.
+     */
+    public WeightIndex update(Sekk2 sekk) {
+        if (sekk.gaver == indexed)
+            return this;
+
+        List<Gave2> added = List.nil();
+        Stream<Gave2> gaver = sekk.gaver;
+        while (gaver != indexed && gaver.isNotEmpty()) {
+            added = added.cons( gaver.head() );
+            gaver = gaver.tail()._1();
+        }
+        boolean extendsIndexed = gaver == indexed || gaver.isEmpty() && indexed.isEmpty();
+        return extendsIndexed ? add( byWeight, added, sekk.gaver ) : rebuild( sekk.gaver );
+    }
+
+    private static WeightIndex rebuild(Stream<Gave2> gaver) {
+        List<Gave2> all = List.nil();
+        for (Gave2 gave : gaver) {
+            all = all.cons( gave );
+        }
+        return add( empty.byWeight, all, gaver );
+    }
+
+    // The gifts are oldest first, so the newest gift of a weight ends up first in its list, as in the sekk
+    private static WeightIndex add(TreeMap<Double, List<Gave2>> byWeight, List<Gave2> gaver, Stream<Gave2> indexed) {
+        for (Gave2 gave : gaver) {
+            Option<List<Gave2>> same = byWeight.get( gave.vekt.value );
+            byWeight = byWeight.set( gave.vekt.value, same.orSome( List.<Gave2>nil() ).cons( gave ) );
+        }
+        return new WeightIndex( byWeight, indexed );
+    }
+
+    /**
+     * The gifts heavier than the threshold, lightest first.
+     */
+    public List<Gave2> heavierThan(double threshold) {
+        List.Buffer<Gave2> found = new List.Buffer<>();
+        for (P2<Double, List<Gave2>> weight : byWeight.greaterThan( threshold )) {
+            for (Gave2 gave : weight._2()) {
+                found.snoc( gave );
+            }
+        }
+        return found.toList();
+    }
+
+    /**
+     * All the gifts, lightest first.
+     */
+    public List<Gave2> all() {
+        // Only the gifts that weigh -Infinity are not heavier than it
+        return byWeight.get( Double.NEGATIVE_INFINITY ).orSome( List.<Gave2>nil() ).append( heavierThan( Double.NEGATIVE_INFINITY ) );
+    }
+}
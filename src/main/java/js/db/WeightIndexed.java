@@ -0,0 +1,15 @@
+package js.db;
+
+import fj.data.Option;
+
+/**
+ * A store that keeps a {@link WeightIndex} for the sekks in it.
+ */
+interface WeightIndexed {
+
+    /**
+     * The index for the sekk stored under the key, or none if there is no sekk there.
+     */
+    Option<WeightIndex> weightIndex(String key);
+
+}
@@ -0,0 +1,25 @@
+package js.db;
+
+import fj.P2;
+
+import java.util.Map;
+
+/**
+ * Two ops that do not depend on each other's results.
+ */
+class Zip<A, B> extends DbOp<P2<A, B>> {
+
+    final DbOp<A> left;
+
+    final DbOp<B> right;
+
+    Zip(DbOp<A> left, DbOp<B> right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public P2<A, B> run(Map<String, Object> stor) {
+        return (P2<A, B>) Interpreter.run( this, stor );
+    }
+}
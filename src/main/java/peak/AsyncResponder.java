@@ -0,0 +1,31 @@
+package peak;
+
+
+import fj.control.parallel.Promise;
+import peak.request.Request;
+import peak.response.ResponseBuilder;
+
+
+/**
+ * Responders that promise a ResponseBuilder instead of producing one. The RouteFilter puts the request in async mode and
+ * writes the response when the promise is fulfilled, so the container thread is free while the work is in progress.
+ * <p/>
+ * A Promise that fails is answered with 500 as soon as the failure is reported through {@link Promise#onFailure}. A
+ * promise that is neither fulfilled nor failed in time is answered by the async timeout of the RouteFilter.
+ */
+public interface AsyncResponder extends Responder
+{
+
+    /**
+     * @return a Promise of the ResponseBuilder that mutates the HttpServletResponse
+     */
+    public Promise<ResponseBuilder> runAsync(final Request context);
+
+    /**
+     * Waits for the promised ResponseBuilder. Used when the container does not support async requests.
+     */
+    public default ResponseBuilder run(final Request context) {
+        return runAsync( context ).claim();
+    }
+
+}
@@ -0,0 +1,256 @@
+package peak;
+
+import fj.P;
+import fj.Unit;
+import fj.control.parallel.Promise;
+import fj.control.parallel.Strategy;
+import peak.request.Request;
+import peak.response.ResponseBuilder;
+import peak.response.ResponseCode;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for a route. At most <code>limit</code> requests run the responder at the same time. Requests over
+ * the limit wait in a bounded queue for a while, and are answered with 503 at once when the queue is full or the wait
+ * is over. A slow route therefore uses at most its limit and its queue of the container's threads, and the other
+ * routes keep theirs.
+ * <p/>
+ * The limit is either fixed, or adapted to the latency of the route: it grows by one for every <code>limit</code>
+ * requests that finish within the target latency, and shrinks by a tenth for each request that does not (AIMD).
+ * <p/>
+ * A request holds its place while the responder runs and while the ResponseBuilder it returns is handled, since that is
+ * where builders like JsonResponse and CompressedResponse do their work; the latency the limit adapts to is measured
+ * the same way. An AsyncResponder holds its place until its builder is handled or its promise fails, or until the async
+ * request ends, whichever comes first, so a request that times out gives its place back too.
+ */
+public class ConcurrencyLimit {
+
+    private static final double DECREASE = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long targetLatency;
+
+    private final int maxWaiting;
+
+    private final long maxWait;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+
+    private int inFlight;
+
+    private int waiting;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private ConcurrencyLimit(int minLimit, int maxLimit, long targetLatency, int maxWaiting, long maxWait) {
+        if (minLimit < 1 || maxLimit < minLimit)
+            throw new IllegalArgumentException( "Limits must satisfy 1 <= min <= max, was " + minLimit + " and " + maxLimit );
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatency = targetLatency;
+        this.maxWaiting = maxWaiting;
+        this.maxWait = maxWait;
+        this.limit = minLimit;
+    }
+
+    /**
+     * Lets at most maxInFlight requests run at a time, and rejects the rest.
+     */
+    public static ConcurrencyLimit fixed(int maxInFlight) {
+        return new ConcurrencyLimit( maxInFlight, maxInFlight, Long.MAX_VALUE, 0, 0 );
+    }
+
+    /**
+     * Starts with a limit of min and moves it between min and max, keeping the latency of the route around the target.
+     */
+    public static ConcurrencyLimit adaptive(int min, int max, long targetLatency, TimeUnit unit) {
+        return new ConcurrencyLimit( min, max, unit.toNanos( targetLatency ), 0, 0 );
+    }
+
+    /**
+     * A limit like this one, where up to maxWaiting requests over the limit wait up to maxWait for a place before they
+     * are rejected.
+     */
+    public ConcurrencyLimit withQueue(int maxWaiting, long maxWait, TimeUnit unit) {
+        return new ConcurrencyLimit( minLimit, maxLimit, targetLatency, maxWaiting, unit.toNanos( maxWait ) );
+    }
+
+    /**
+     * Takes a place, waiting in the queue if there is room in it.
+     *
+     * @return false if the request should be rejected
+     */
+    public boolean acquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return true;
+            }
+            if (waiting < maxWaiting) {
+                waiting++;
+                try {
+                    long remaining = maxWait;
+                    while (inFlight >= (int) limit && remaining > 0)
+                        remaining = available.awaitNanos( remaining );
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    waiting--;
+                }
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return true;
+                }
+            }
+            rejected.increment();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a place taken by acquire, and adapts the limit to how long the request took.
+     */
+    public void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (latencyNanos > targetLatency)
+                limit = Math.max( minLimit, limit * DECREASE );
+            else
+                limit = Math.min( maxLimit, limit + 1 / limit );
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private void releaseOnce(AtomicBoolean released, long started) {
+        if (released.compareAndSet( false, true ))
+            release( System.nanoTime() - started );
+    }
+
+    /**
+     * Makes a responder that runs the given one within this limit, and answers with 503 when it is rejected.
+     */
+    public Responder wrap(final Responder responder) {
+        if (responder instanceof AsyncResponder) {
+            final AsyncResponder async = (AsyncResponder) responder;
+            return new AsyncResponder() {
+                public Promise<ResponseBuilder> runAsync(Request request) {
+                    if (!acquire())
+                        return Promise.promise( Strategy.<Unit>seqStrategy(), P.p( (ResponseBuilder) ResponseCode.service_unavailable ) );
+                    final long started = System.nanoTime();
+                    final AtomicBoolean released = new AtomicBoolean();
+                    if (request.underlying.isAsyncStarted())
+                        request.underlying.getAsyncContext().addListener( new AsyncListener() {
+                            public void onComplete(AsyncEvent event) {
+                                releaseOnce( released, started );
+                            }
+
+                            public void onTimeout(AsyncEvent event) {
+                                releaseOnce( released, started );
+                            }
+
+                            public void onError(AsyncEvent event) {
+                                releaseOnce( released, started );
+                            }
+
+                            public void onStartAsync(AsyncEvent event) {
+                            }
+                        } );
+                    Promise<ResponseBuilder> promise;
+                    try {
+                        promise = async.runAsync( request );
+                    } catch (RuntimeException e) {
+                        releaseOnce( released, started );
+                        throw e;
+                    }
+                    promise.onFailure( (t) -> releaseOnce( released, started ) );
+                    return promise.fmap( (builder) -> (ResponseBuilder) new Releasing( builder, released, started ) );
+                }
+            };
+        }
+        return new Responder() {
+            public ResponseBuilder run(Request request) {
+                if (!acquire())
+                    return ResponseCode.service_unavailable;
+                long started = System.nanoTime();
+                AtomicBoolean released = new AtomicBoolean();
+                try {
+                    return new Releasing( responder.run( request ), released, started );
+                } catch (RuntimeException | Error e) {
+                    releaseOnce( released, started );
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /**
+     * Handles the builder of an admitted request, and then gives its place back.
+     */
+    private final class Releasing extends ResponseBuilder {
+
+        private final ResponseBuilder builder;
+
+        private final AtomicBoolean released;
+
+        private final long started;
+
+        Releasing(ResponseBuilder builder, AtomicBoolean released, long started) {
+            this.builder = builder;
+            this.released = released;
+            this.started = started;
+        }
+
+        @Override public void handle(HttpServletRequest request, HttpServletResponse response) throws Exception {
+            try {
+                builder.handle( request, response );
+            } finally {
+                releaseOnce( released, started );
+            }
+        }
+    }
+
+}
@@ -1,6 +1,5 @@
 package peak;
 
-import fj.Func;
 import fj.data.Option;
 
 import javax.servlet.ServletContext;
@@ -8,6 +7,10 @@ import javax.servlet.ServletContext;
 /**
  * The context for the web handlers. It contains typesafe getters and setter to the servlet context, the httprequest wrapped in
  * a typesafe interface and convenience functions for getting from and setting to the context.
+ * <p/>
+ * One context is shared by all the requests of a RouteFilter. Services are looked up in the {@link Services} registered
+ * when the application started, and then in the servlet context. Values set through the context replace the ones in the
+ * registry, so a service that is set again is never shadowed by the one it replaced.
  *
  * @author atlosm
  */
@@ -15,34 +18,34 @@ public class HandlerContext {
 
     private final ServletContext servletContext;
 
+    private volatile Services services;
+
     public HandlerContext(ServletContext servletContext) {
+        this( servletContext, Services.empty() );
+    }
+
+    public HandlerContext(ServletContext servletContext, Services services) {
         this.servletContext = servletContext;
+        this.services = services;
     }
 
     public void set(Object value) {
         set( value.getClass().getName(), value );
     }
 
-    public void set(String name, Object value) {
+    public synchronized void set(String name, Object value) {
         servletContext.setAttribute( name, value );
+        services = value != null && value.getClass().getName().equals( name ) ? services.with( value ) : services.without( name );
     }
 
     public <T> Option<T> get(Class<T> c) {
-        return get( c, c.getName(), servletContext );
+        Option<T> service = services.get( c );
+        return service.isSome() ? service : get( c, c.getName(), servletContext );
     }
 
     public <T> Option<T> get(final Class<T> c, String name, ServletContext sc) {
-        return Option
-                .fromNull( sc.getAttribute( name ) )
-                .bind( new Func<Object, Option<T>>() {
-                    @Override public Option<T> f(Object o) {
-                        try {
-                            return Option.some( c.cast( o ) );
-                        } catch (Exception e) {
-                            return Option.none();
-                        }
-                    }
-                } );
+        Object o = sc.getAttribute( name );
+        return c.isInstance( o ) ? Option.some( c.cast( o ) ) : Option.<T>none();
     }
 
 
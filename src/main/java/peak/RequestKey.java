@@ -0,0 +1,44 @@
+package peak;
+
+import fj.data.List;
+import peak.request.Request;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * Keys for requests that should be answered alike: the path of the request and the values of a chosen set of query
+ * parameters. The names and values are url encoded, so a value holding <code>&amp;</code> or <code>=</code> does not
+ * make the key of another request.
+ */
+final class RequestKey {
+
+    private RequestKey() {
+    }
+
+    static String of(Request request, List<String> params) {
+        StringBuilder key = new StringBuilder( request.underlying.getRequestURI() );
+        char separator = '?';
+        for (String param : params) {
+            for (List<String> values : request.getParameters().get( param )) {
+                for (String value : values) {
+                    key.append( separator ).append( encode( param ) ).append( '=' ).append( encode( value ) );
+                    separator = '&';
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    private static String encode(String s) {
+        try {
+            return URLEncoder.encode( s, "UTF-8" );
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    static boolean isGet(Request request) {
+        return "GET".equals( request.underlying.getMethod() );
+    }
+}
@@ -0,0 +1,509 @@
+package peak;
+
+import fj.P;
+import fj.Unit;
+import fj.control.parallel.Promise;
+import fj.control.parallel.Strategy;
+import fj.data.List;
+import fj.data.Option;
+import peak.request.Request;
+import peak.response.CompressedResponse;
+import peak.response.ResponseBuilder;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the responses of GET routes, so repeated requests are answered without running the responder again. An entry
+ * is keyed by the path of the request and the values of the query parameters chosen for the route.
+ * <p/>
+ * On a miss the ResponseBuilder of the responder is handled as usual, and the status, headers and bytes it writes are
+ * recorded on the way. A hit writes the recorded bytes, so serializing and compressing happens once per entry. Only
+ * complete 200 responses are kept. A response that names request headers in Vary, like a compressed one does with
+ * Accept-Encoding, is kept once for every combination of the values of those headers, so compressed bytes are kept
+ * once for each coding.
+ * <p/>
+ * The cache holds at most a given number of entries and a given number of body bytes, dropping the least recently used
+ * entries, and an entry is dropped when it is older than the given time to live. A body larger than the largest
+ * cacheable body is not kept: the recording stops as soon as the body grows past it, so a miss holds at most that many
+ * bytes on the heap besides what the response itself buffers. Entries are tagged with the names of the data they were made from, and
+ * {@link #invalidate(String)} drops the ones with a tag when that data changes.
+ *
+ * @author atlosm
+ */
+public class ResponseCache {
+
+    /**
+     * The largest body kept when no limit is given.
+     */
+    public static final int DEFAULT_MAX_BODY_SIZE = 256 * 1024;
+
+    /**
+     * The total size of the bodies kept when no limit is given.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    private final int maxBodySize;
+
+    private final long timeToLive;
+
+    private final LinkedHashMap<String, Cached> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    // Counts the invalidations, so a response made before one is not stored after it.
+    private long generation;
+
+    // The size of the bodies of all the entries.
+    private long bytes;
+
+    public ResponseCache(int maxEntries, long timeToLive, TimeUnit unit) {
+        this( maxEntries, DEFAULT_MAX_BYTES, DEFAULT_MAX_BODY_SIZE, timeToLive, unit );
+    }
+
+    /**
+     * @param maxEntries  the number of entries kept
+     * @param maxBytes    the total size of the bodies kept
+     * @param maxBodySize the largest body kept; larger responses are passed through and not recorded
+     */
+    public ResponseCache(int maxEntries, long maxBytes, int maxBodySize, long timeToLive, TimeUnit unit) {
+        if (maxEntries < 1 || maxBytes < 1 || maxBodySize < 0)
+            throw new IllegalArgumentException( "Limits must be positive, was " + maxEntries + " entries, " + maxBytes + " bytes and bodies of " + maxBodySize );
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxBodySize = (int) Math.min( maxBodySize, maxBytes );
+        this.timeToLive = unit.toNanos( timeToLive );
+        this.entries = new LinkedHashMap<String, Cached>( 16, 0.75f, true );
+    }
+
+    /**
+     * A rule for caching a route, keyed by the path and the given query parameters. Parameters that are not named do
+     * not make a different entry.
+     */
+    public Rule by(String... params) {
+        return new Rule( List.list( params ), List.<String>nil() );
+    }
+
+    /**
+     * Drops the entries tagged with the given name.
+     */
+    public synchronized void invalidate(String tag) {
+        generation++;
+        Iterator<Cached> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Cached entry = it.next();
+            if (entry.tags.exists( tag::equals )) {
+                bytes -= entry.bytes;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops all entries.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The size of the bodies kept.
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    @Override public String toString() {
+        return "ResponseCache(hits=" + hits() + ", misses=" + misses() + ", size=" + size() + "/" + maxEntries + ", bytes=" + bytes() + "/" + maxBytes + ")";
+    }
+
+    private synchronized Option<ResponseBuilder> lookup(String key, HttpServletRequest request) {
+        Cached entry = entries.get( key );
+        if (entry != null && System.nanoTime() - entry.created > timeToLive) {
+            entries.remove( key );
+            bytes -= entry.bytes;
+            entry = null;
+        }
+        Recorded recorded = entry == null ? null : entry.variants.get( variant( request, entry.vary ) );
+        if (recorded == null) {
+            misses.incrementAndGet();
+            return Option.none();
+        }
+        hits.incrementAndGet();
+        return Option.<ResponseBuilder>some( recorded );
+    }
+
+    private synchronized long generation() {
+        return generation;
+    }
+
+    private synchronized void store(String key, HttpServletRequest request, Recorded recorded, List<String> tags, long seen) {
+        if (generation != seen)
+            return;
+        Cached entry = entries.get( key );
+        if (entry == null || !entry.vary.equals( recorded.vary ) || System.nanoTime() - entry.created > timeToLive) {
+            Cached replaced = entries.put( key, entry = new Cached( recorded.vary, tags ) );
+            if (replaced != null)
+                bytes -= replaced.bytes;
+        }
+        Recorded previous = entry.variants.put( variant( request, recorded.vary ), recorded );
+        int added = recorded.body.length - (previous == null ? 0 : previous.body.length);
+        entry.bytes += added;
+        bytes += added;
+        evict();
+    }
+
+    /**
+     * Drops the least recently used entries until the cache is within its limits.
+     */
+    private void evict() {
+        Iterator<Cached> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * The values of the request headers the response varies by. Accept-Encoding is reduced to the coding it negotiates,
+     * so the clients that get the same compressed bytes share one variant.
+     */
+    private static String variant(HttpServletRequest request, List<String> vary) {
+        StringBuilder variant = new StringBuilder();
+        for (String name : vary) {
+            String value = request.getHeader( name );
+            if (name.equalsIgnoreCase( "Accept-Encoding" ))
+                value = CompressedResponse.negotiate( value );
+            variant.append( value ).append( '\n' );
+        }
+        return variant.toString();
+    }
+
+    /**
+     * The recorded responses for one key, one for every variant of the request headers the responses vary by.
+     */
+    private static final class Cached {
+
+        final List<String> vary;
+
+        final List<String> tags;
+
+        final HashMap<String, Recorded> variants = new HashMap<>();
+
+        final long created = System.nanoTime();
+
+        long bytes;
+
+        Cached(List<String> vary, List<String> tags) {
+            this.vary = vary;
+            this.tags = tags;
+        }
+    }
+
+    /**
+     * Handles the builder of a miss, and stores what it wrote if it is a complete 200 response.
+     */
+    private final class Recording extends ResponseBuilder {
+
+        private final String key;
+
+        private final ResponseBuilder builder;
+
+        private final List<String> tags;
+
+        private final long seen;
+
+        Recording(String key, ResponseBuilder builder, List<String> tags, long seen) {
+            this.key = key;
+            this.builder = builder;
+            this.tags = tags;
+            this.seen = seen;
+        }
+
+        @Override public void handle(HttpServletRequest request, HttpServletResponse response) throws Exception {
+            if (request.getHeader( "Range" ) != null) {
+                builder.handle( request, response );
+                return;
+            }
+            Recorder recorder = new Recorder( response, maxBodySize );
+            builder.handle( request, recorder );
+            recorder.finish();
+            if (recorder.status == HttpServletResponse.SC_OK && recorder.body != null)
+                store( key, request, recorder.recorded(), tags, seen );
+        }
+    }
+
+    /**
+     * A response as it was written: status, content type, headers and body.
+     */
+    private static final class Recorded extends ResponseBuilder {
+
+        final int status;
+
+        final String contentType;
+
+        final List<String[]> headers;
+
+        final List<String> vary;
+
+        final byte[] body;
+
+        Recorded(int status, String contentType, List<String[]> headers, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+            List<String> vary = List.nil();
+            for (String[] header : headers) {
+                if (header[0].equalsIgnoreCase( "Vary" )) {
+                    for (String name : header[1].split( "," )) {
+                        vary = vary.snoc( name.trim() );
+                    }
+                }
+            }
+            this.vary = vary;
+        }
+
+        @Override public void handle(HttpServletRequest request, HttpServletResponse response) throws Exception {
+            response.setStatus( status );
+            if (contentType != null)
+                response.setContentType( contentType );
+            for (String[] header : headers) {
+                response.addHeader( header[0], header[1] );
+            }
+            response.setHeader( "Content-Length", Integer.toString( body.length ) );
+            response.getOutputStream().write( body );
+        }
+    }
+
+    /**
+     * Passes everything on to the response, and keeps a copy of the status, the headers and the bytes written. The copy
+     * of the body is dropped, and no more is copied, once it grows past the given size.
+     */
+    private static final class Recorder extends HttpServletResponseWrapper {
+
+        private final LinkedHashMap<String, ArrayList<String>> headers = new LinkedHashMap<>();
+
+        private final int maxBodySize;
+
+        private ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private int status = HttpServletResponse.SC_OK;
+
+        private ServletOutputStream stream;
+
+        private PrintWriter writer;
+
+        Recorder(HttpServletResponse response, int maxBodySize) {
+            super( response );
+            this.maxBodySize = maxBodySize;
+        }
+
+        @Override public void setStatus(int sc) {
+            status = sc;
+            super.setStatus( sc );
+        }
+
+        @Override public void sendError(int sc) throws IOException {
+            status = sc;
+            super.sendError( sc );
+        }
+
+        @Override public void sendError(int sc, String msg) throws IOException {
+            status = sc;
+            super.sendError( sc, msg );
+        }
+
+        @Override public void sendRedirect(String location) throws IOException {
+            status = HttpServletResponse.SC_FOUND;
+            super.sendRedirect( location );
+        }
+
+        @Override public void setHeader(String name, String value) {
+            ArrayList<String> values = new ArrayList<>();
+            values.add( value );
+            headers.put( name, values );
+            super.setHeader( name, value );
+        }
+
+        @Override public void addHeader(String name, String value) {
+            ArrayList<String> values = headers.get( name );
+            if (values == null) {
+                values = new ArrayList<>();
+                headers.put( name, values );
+            }
+            values.add( value );
+            super.addHeader( name, value );
+        }
+
+        @Override public void setIntHeader(String name, int value) {
+            setHeader( name, Integer.toString( value ) );
+        }
+
+        @Override public void addIntHeader(String name, int value) {
+            addHeader( name, Integer.toString( value ) );
+        }
+
+        @Override public ServletOutputStream getOutputStream() throws IOException {
+            if (stream == null) {
+                final ServletOutputStream os = super.getOutputStream();
+                stream = new ServletOutputStream() {
+                    @Override public void write(int b) throws IOException {
+                        os.write( b );
+                        if (keep( 1 ))
+                            body.write( b );
+                    }
+
+                    @Override public void write(byte[] b, int off, int len) throws IOException {
+                        os.write( b, off, len );
+                        if (keep( len ))
+                            body.write( b, off, len );
+                    }
+
+                    @Override public void flush() throws IOException {
+                        os.flush();
+                    }
+                };
+            }
+            return stream;
+        }
+
+        @Override public PrintWriter getWriter() throws IOException {
+            if (writer == null)
+                writer = new PrintWriter( new OutputStreamWriter( getOutputStream(), Charset.forName( getCharacterEncoding() ) ) );
+            return writer;
+        }
+
+        @Override public void flushBuffer() throws IOException {
+            if (writer != null)
+                writer.flush();
+            super.flushBuffer();
+        }
+
+        /**
+         * Whether the copy of the body has room for the given number of bytes more. If not, the copy is dropped.
+         */
+        private boolean keep(int len) {
+            if (body != null && body.size() + (long) len > maxBodySize)
+                body = null;
+            return body != null;
+        }
+
+        void finish() {
+            if (writer != null)
+                writer.flush();
+        }
+
+        Recorded recorded() {
+            List.Buffer<String[]> kept = new List.Buffer<>();
+            for (Map.Entry<String, ArrayList<String>> header : headers.entrySet()) {
+                if (header.getKey().equalsIgnoreCase( "Content-Length" ))
+                    continue;
+                for (String value : header.getValue()) {
+                    kept.snoc( new String[]{header.getKey(), value} );
+                }
+            }
+            return new Recorded( status, getContentType(), kept.toList(), body.toByteArray() );
+        }
+    }
+
+    /**
+     * How the responses of one route are cached. See {@link RouteBuilder.HandleType#cached(Rule)}.
+     */
+    public class Rule {
+
+        private final List<String> params;
+
+        private final List<String> tags;
+
+        private Rule(List<String> params, List<String> tags) {
+            this.params = params;
+            this.tags = tags;
+        }
+
+        /**
+         * Tags the entries of this route, so they are dropped when any of the given names are invalidated.
+         */
+        public Rule invalidatedBy(String... names) {
+            return new Rule( params, tags.append( List.list( names ) ) );
+        }
+
+        /**
+         * Makes a responder that answers GET requests from the cache, and runs the given responder on a miss. The
+         * response of a miss is recorded when it is written. Other requests are passed through. An AsyncResponder stays
+         * asynchronous.
+         */
+        public Responder wrap(final Responder responder) {
+            if (responder instanceof AsyncResponder) {
+                final AsyncResponder async = (AsyncResponder) responder;
+                return new AsyncResponder() {
+                    public Promise<ResponseBuilder> runAsync(final Request request) {
+                        if (!cacheable( request ))
+                            return async.runAsync( request );
+                        final String key = key( request );
+                        Option<ResponseBuilder> cached = lookup( key, request.underlying );
+                        if (cached.isSome())
+                            return Promise.promise( Strategy.<Unit>seqStrategy(), P.p( cached.some() ) );
+                        final long seen = generation();
+                        return async.runAsync( request ).fmap( (builder) -> (ResponseBuilder) new Recording( key, builder, tags, seen ) );
+                    }
+                };
+            }
+            return new Responder() {
+                public ResponseBuilder run(final Request request) {
+                    if (!cacheable( request ))
+                        return responder.run( request );
+                    String key = key( request );
+                    Option<ResponseBuilder> cached = lookup( key, request.underlying );
+                    if (cached.isSome())
+                        return cached.some();
+                    long seen = generation();
+                    return new Recording( key, responder.run( request ), tags, seen );
+                }
+            };
+        }
+
+        private boolean cacheable(Request request) {
+            return RequestKey.isGet( request );
+        }
+
+        private String key(Request request) {
+            return RequestKey.of( request, params );
+        }
+    }
+
+}
@@ -1,8 +1,11 @@
 package peak;
 
+import fj.Func;
+import fj.Function;
 import fj.P;
 import fj.P2;
 import fj.data.List;
+import peak.metrics.Metrics;
 import peak.request.*;
 
 /**
@@ -14,9 +17,17 @@ public class RouteBuilder
 {
     private final List<P2<RequestMatcher, Responder>> ehs;
 
+    private final Metrics metrics;
+
     public RouteBuilder(List<P2<RequestMatcher, Responder>> ehs)
+    {
+        this(ehs, new Metrics());
+    }
+
+    private RouteBuilder(List<P2<RequestMatcher, Responder>> ehs, Metrics metrics)
     {
         this.ehs = ehs;
+        this.metrics = metrics;
     }
 
     public static RouteBuilder create()
@@ -29,6 +40,14 @@ public class RouteBuilder
         return ehs;
     }
 
+    /**
+     * The metrics the RouteFilter records for the routes of this builder.
+     */
+    public Metrics getMetrics()
+    {
+        return metrics;
+    }
+
     public HandleType match(RequestMatcher matcher)
     {
         return new HandleType(matcher);
@@ -59,18 +78,82 @@ public class RouteBuilder
         return post(route).handle(app);
     }
 
+    public RouteBuilder getAsync(String route, AsyncResponder app)
+    {
+        return get(route).handleAsync(app);
+    }
+
+    public RouteBuilder postAsync(String route, AsyncResponder app)
+    {
+        return post(route).handleAsync(app);
+    }
+
+    /**
+     * Serves the metrics of all routes on the given route, as JSON or with <code>?format=prometheus</code> in the
+     * Prometheus text format.
+     */
+    public RouteBuilder metrics(String route)
+    {
+        return get(route, metrics.responder());
+    }
+
     public class HandleType
     {
         private final RequestMatcher matcher;
 
+        private final Func<Responder, Responder> decorator;
+
         public HandleType(RequestMatcher matcher)
+        {
+            this(matcher, Function.<Responder>identity());
+        }
+
+        private HandleType(RequestMatcher matcher, Func<Responder, Responder> decorator)
         {
             this.matcher = matcher;
+            this.decorator = decorator;
+        }
+
+        /**
+         * Wraps the responder of this route. Decorators added later wrap the ones added before.
+         */
+        public HandleType with(Func<Responder, Responder> outer)
+        {
+            return new HandleType(matcher, decorator.andThen(outer));
+        }
+
+        /**
+         * Serves repeated requests for this route from the cache. See {@link ResponseCache#by(String...)}.
+         */
+        public HandleType cached(ResponseCache.Rule rule)
+        {
+            return with(rule::wrap);
+        }
+
+        /**
+         * Lets identical concurrent requests for this route share one run of the responder. See {@link SingleFlight#by(String...)}.
+         */
+        public HandleType coalesced(SingleFlight.Rule rule)
+        {
+            return with(rule::wrap);
+        }
+
+        /**
+         * Runs the responder of this route within the limit, answering with 503 when it is full. See {@link ConcurrencyLimit}.
+         */
+        public HandleType limited(ConcurrencyLimit limit)
+        {
+            return with(limit::wrap);
         }
 
         public RouteBuilder handle(Responder app)
         {
-            return new RouteBuilder(ehs.cons(P.p(matcher, app)));
+            return new RouteBuilder(ehs.cons(P.p(matcher, decorator.f(app))), metrics);
+        }
+
+        public RouteBuilder handleAsync(AsyncResponder app)
+        {
+            return handle(app);
         }
     }
 }
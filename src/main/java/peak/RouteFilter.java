@@ -1,25 +1,41 @@
 package peak;
 
+import fj.Effect;
 import fj.Func;
-import fj.Func2;
+import fj.P;
+import fj.P1;
 import fj.P2;
 import fj.Unit;
 import fj.data.List;
+import fj.control.parallel.Actor;
+import fj.control.parallel.Promise;
+import fj.control.parallel.Strategy;
 import fj.data.Option;
+import org.eclipse.jetty.server.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import peak.metrics.Metrics;
+import peak.metrics.RouteMetrics;
 import peak.request.Request;
 import peak.request.RequestMatcher;
+import peak.request.RouteMatch;
+import peak.request.RouteTrie;
 import peak.request.UrlParam;
+import peak.response.ResponseBuilder;
+import peak.response.ResponseCode;
 
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The routefilter is a superclass/DSL for servletfilters that answer to some httpservletrequest.
+ * <p/>
+ * Every request a route answers is recorded in the {@link Metrics} of the RouteBuilder: count, errors, bytes written,
+ * requests in flight and latency, under the method and pattern of the route.
  *
  * @author atlosm
  */
@@ -29,6 +45,10 @@ public abstract class RouteFilter implements Filter {
 
     private List<P2<RequestMatcher, Responder>> handlers;
 
+    private RouteTrie<Handler> routes;
+
+    private HandlerContext handlerContext;
+
     public void destroy() {
 
     }
@@ -42,19 +62,8 @@ public abstract class RouteFilter implements Filter {
 
         logger.debug( "Matching request " + httpReq.getMethod() + " - " + httpReq.getRequestURL() );
 
-        Option<Responder> handler =
-
-                handlers.foldLeft(
-                        new Func2<Option<Responder>, P2<RequestMatcher, Responder>, Option<Responder>>() {
-                            public Option<Responder> f(Option<Responder> found, P2<RequestMatcher, Responder> current) {
-                                if (found.isSome())
-                                    return found;
-                                else if (current._1().matches( httpReq ))
-                                    return Option.some( current._2() );
-                                else
-                                    return Option.none();
-                            }
-                        }, Option.<Responder>none() );
+        Option<P2<Handler, RouteMatch>> handler =
+                routes.lookup( httpReq );
 
         Action<Unit> action =
                 handler.option( invokeChain( request, response, chain ), runResponder( httpReq, httpRes ) );
@@ -75,6 +84,25 @@ public abstract class RouteFilter implements Filter {
         for (P2<RequestMatcher, Responder> handler : handlers) {
             logger.info( "Registered " + handler._1() +":"+handler._2().getClass().getName() );
         }
+
+        for (final Strategy<Unit> strategy : responderStrategy()) {
+            logger.info( "Running responders on " + (Strategy.hasVirtualThreads() ? "virtual threads" : "a separate thread pool") );
+            handlers =
+                    handlers.map( P2.<RequestMatcher, Responder, Responder>map2_( new Func<Responder, Responder>() {
+                        public Responder f(Responder responder) {
+                            return responder instanceof AsyncResponder ? responder : onStrategy( responder, strategy );
+                        }
+                    } ) );
+        }
+
+        handlerContext =
+                handlerContext( fc.getServletContext() );
+
+        final Metrics metrics =
+                builder.getMetrics();
+
+        routes =
+                RouteTrie.compile( handlers.map( (handler) -> P.p( handler._1(), new Handler( handler._2(), metrics.route( handler._1() ) ) ) ) );
     }
 
     /**
@@ -116,22 +144,40 @@ public abstract class RouteFilter implements Filter {
      * @param response
      * @return
      */
-    private Func<Responder, Action<Unit>> runResponder(final HttpServletRequest request, final HttpServletResponse response) {
-        return new Func<Responder, Action<Unit>>() {
-            public Action<Unit> f(final Responder responder) {
+    private Func<P2<Handler, RouteMatch>, Action<Unit>> runResponder(final HttpServletRequest request, final HttpServletResponse response) {
+        return new Func<P2<Handler, RouteMatch>, Action<Unit>>() {
+            public Action<Unit> f(final P2<Handler, RouteMatch> handler) {
+                final Responder responder = handler._1().responder;
+                final RouteMetrics metrics = handler._1().metrics;
                 return new Action<Unit>() {
                     public Unit execute() {
+                        long started = metrics.start();
+                        boolean async = false;
+                        boolean failed = false;
                         try {
                             request.setCharacterEncoding( "UTF-8" );
                             response.setCharacterEncoding( "UTF-8" );
                             response.setContentType( "application/json" );//Default encoding
                             logger.debug( "Invoking application " + responder.getClass().getName() );
-                            responder.run( new Request( request, new HandlerContext( request.getServletContext() ) ) ).handle( request, response );
+                            Request context = new Request( request, handlerContext, handler._2() );
+                            if (responder instanceof AsyncResponder && request.isAsyncSupported()) {
+                                respondAsync( (AsyncResponder) responder, context, request, response, metrics, started );
+                                async = true;
+                            }
+                            else
+                                responder.run( context ).handle( request, response );
 
                         } catch (UnsupportedEncodingException e) {
                             logger.error( "Unsupported encoding", e );
+                            failed = true;
                         } catch (Exception e) {
                             logger.error("Unhandled exception in responder for"+request.getRequestURL(),e);
+                            failed = true;
+                        } finally {
+                            if (!async) {
+                                end( metrics, started, failed, response );
+                                Request.deleteUploads( request );
+                            }
                         }
                         return Unit.unit();
                     }
@@ -140,6 +186,141 @@ public abstract class RouteFilter implements Filter {
         };
     }
 
+    /**
+     * Puts the request in async mode and writes the response from the thread that fulfils the promise. Whichever comes
+     * first of the promised ResponseBuilder, a failure of the promise (answered with 500) and the async timeout gets to
+     * answer.
+     *
+     * @param responder
+     * @param context
+     * @param request
+     * @param response
+     * @param metrics
+     * @param started
+     */
+    private void respondAsync(final AsyncResponder responder, final Request context, final HttpServletRequest request, final HttpServletResponse response, final RouteMetrics metrics, final long started) {
+        final AsyncContext async = request.startAsync( request, response );
+        final AtomicBoolean done = new AtomicBoolean( false );
+        async.setTimeout( asyncTimeout() );
+        async.addListener( new AsyncListener() {
+            public void onComplete(AsyncEvent event) {
+                Request.deleteUploads( request );
+            }
+
+            public void onTimeout(AsyncEvent event) {
+                if (done.compareAndSet( false, true )) {
+                    logger.error( "Timed out waiting for async responder for " + request.getRequestURL() );
+                    complete( async, ResponseCode.service_unavailable, request, response, metrics, started );
+                }
+            }
+
+            public void onError(AsyncEvent event) {
+                if (done.compareAndSet( false, true )) {
+                    logger.error( "Error in async request for " + request.getRequestURL(), event.getThrowable() );
+                    metrics.end( started, true, -1 );
+                }
+            }
+
+            public void onStartAsync(AsyncEvent event) {
+            }
+        } );
+
+        Promise<ResponseBuilder> promise;
+        try {
+            promise = responder.runAsync( context );
+        } catch (Exception e) {
+            logger.error( "Unhandled exception in responder for" + request.getRequestURL(), e );
+            if (done.compareAndSet( false, true ))
+                complete( async, ResponseCode.internal_server_error, request, response, metrics, started );
+            return;
+        }
+
+        promise.onFailure( new Effect<Throwable>() {
+            public void e(Throwable t) {
+                if (done.compareAndSet( false, true )) {
+                    logger.error( "Unhandled exception in responder for" + request.getRequestURL(), t );
+                    complete( async, ResponseCode.internal_server_error, request, response, metrics, started );
+                }
+            }
+        } );
+        promise.to( Actor.actor( Strategy.<Unit>seqStrategy(), new Effect<ResponseBuilder>() {
+            public void e(ResponseBuilder builder) {
+                if (done.compareAndSet( false, true ))
+                    complete( async, builder, request, response, metrics, started );
+            }
+        } ) );
+    }
+
+    private void complete(AsyncContext async, ResponseBuilder builder, HttpServletRequest request, HttpServletResponse response, RouteMetrics metrics, long started) {
+        boolean failed = false;
+        try {
+            builder.handle( request, response );
+        } catch (Exception e) {
+            logger.error( "Unhandled exception in responder for" + request.getRequestURL(), e );
+            failed = true;
+        } finally {
+            end( metrics, started, failed, response );
+            async.complete();
+        }
+    }
+
+    /**
+     * Records a finished request. Responses with a 5xx status count as errors. The bytes written are known when the
+     * response is Jetty's own.
+     */
+    private static void end(RouteMetrics metrics, long started, boolean failed, HttpServletResponse response) {
+        long written = response instanceof Response ? ((Response) response).getContentCount() : -1;
+        metrics.end( started, failed || response.getStatus() >= 500, written );
+    }
+
+    /**
+     * Makes a responder that runs the given responder with the strategy, and answers through the async path. Exceptions
+     * thrown by the responder are logged and answered with 500 within the task, so the promise is fulfilled with that
+     * answer rather than failed.
+     *
+     * @param responder
+     * @param strategy
+     * @return
+     */
+    private static AsyncResponder onStrategy(final Responder responder, final Strategy<Unit> strategy) {
+        return new AsyncResponder() {
+            public Promise<ResponseBuilder> runAsync(final Request context) {
+                return Promise.promise( strategy, new P1<ResponseBuilder>() {
+                    public ResponseBuilder _1() {
+                        try {
+                            return responder.run( context );
+                        } catch (Exception e) {
+                            logger.error( "Unhandled exception in responder for" + context.underlying.getRequestURL(), e );
+                            return ResponseCode.internal_server_error;
+                        }
+                    }
+                } );
+            }
+        };
+    }
+
+    /**
+     * The strategy to run synchronous responders with. By default they run on the container thread; if a strategy is
+     * given each responder runs with it, and the request is answered asynchronously.
+     */
+    protected Option<Strategy<Unit>> responderStrategy() {
+        return Option.none();
+    }
+
+    /**
+     * The context shared by all the requests of this filter. By default it only looks in the servlet context.
+     */
+    protected HandlerContext handlerContext(ServletContext servletContext) {
+        return new HandlerContext( servletContext );
+    }
+
+    /**
+     * How long an async request may wait for its promise before it is answered with 503, in milliseconds.
+     */
+    protected long asyncTimeout() {
+        return 30000;
+    }
+
     /**
      * The DSL entry point.
      *
@@ -149,6 +330,19 @@ public abstract class RouteFilter implements Filter {
      */
     protected abstract RouteBuilder init(RouteBuilder builder, FilterConfig config);
 
+    /**
+     * A responder and the metrics of its route, as they are found in the trie.
+     */
+    private static final class Handler {
+        final Responder responder;
+        final RouteMetrics metrics;
+
+        Handler(Responder responder, RouteMetrics metrics) {
+            this.responder = responder;
+            this.metrics = metrics;
+        }
+    }
+
     private static abstract class Action<A>{
         public abstract A execute();
     }
@@ -0,0 +1,104 @@
+package peak;
+
+import fj.data.Option;
+
+import javax.servlet.ServletContext;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable registry of the services of an application, such as databases and stores, looked up by their class.
+ * <p/>
+ * Every class gets a number the first time it is registered or looked up, and a registry is an array indexed by that
+ * number. A lookup is therefore an array access, instead of a string lookup in the attributes of the servlet context.
+ * The Options handed out are made when the service is registered, so a lookup allocates nothing.
+ * <p/>
+ * A service is found by its own class only, not by its superclasses or interfaces, the same as when it is put in the
+ * servlet context with {@link peak.lifecycle.Register#inContext(Object)}.
+ *
+ * @author atlosm
+ */
+public final class Services {
+
+    private static final AtomicInteger classes = new AtomicInteger();
+
+    private static final ClassValue<Integer> index = new ClassValue<Integer>() {
+        @Override protected Integer computeValue(Class<?> type) {
+            return classes.getAndIncrement();
+        }
+    };
+
+    private static final Option<Object> none = Option.none();
+
+    private static final Services empty = new Services( new Option<?>[0] );
+
+    private final Option<?>[] services;
+
+    private Services(Option<?>[] services) {
+        this.services = services;
+    }
+
+    public static Services empty() {
+        return empty;
+    }
+
+    /**
+     * The services in the servlet context, that is the attributes that are named by the class of their value.
+     */
+    public static Services fromContext(ServletContext context) {
+        Services services = empty;
+        Enumeration<String> names = context.getAttributeNames();
+        while (names != null && names.hasMoreElements()) {
+            String name = names.nextElement();
+            Object value = context.getAttribute( name );
+            if (value != null && value.getClass().getName().equals( name ))
+                services = services.with( value );
+        }
+        return services;
+    }
+
+    /**
+     * A registry with the given service added, replacing any service of the same class.
+     */
+    public Services with(Object service) {
+        int i = index.get( service.getClass() );
+        Option<?>[] copy = Arrays.copyOf( services, Math.max( services.length, i + 1 ) );
+        copy[i] = Option.some( service );
+        return new Services( copy );
+    }
+
+    /**
+     * A registry without the service whose class has the given name, or this one if there is no such service.
+     */
+    public Services without(String className) {
+        for (int i = 0; i < services.length; i++) {
+            if (services[i] != null && services[i].some().getClass().getName().equals( className )) {
+                Option<?>[] copy = services.clone();
+                copy[i] = null;
+                return new Services( copy );
+            }
+        }
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Option<T> get(Class<T> c) {
+        int i = index.get( c );
+        Option<?> service = i < services.length ? services[i] : null;
+        return (Option<T>) (service != null ? service : none);
+    }
+
+    @Override public String toString() {
+        StringBuilder s = new StringBuilder( "Services(" );
+        for (Option<?> service : services) {
+            if (service != null) {
+                if (s.length() > "Services(".length())
+                    s.append( ", " );
+                s.append( service.some().getClass().getSimpleName() );
+            }
+        }
+        return s.append( ")" ).toString();
+    }
+
+}
@@ -0,0 +1,132 @@
+package peak;
+
+import fj.data.List;
+import peak.request.Request;
+import peak.response.ResponseBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical GET requests that arrive while one of them is being answered. The first request runs the
+ * responder, and the ones that come in before it is done wait for it and answer with the same ResponseBuilder. Requests
+ * are identical when they have the same path and the same values of the query parameters chosen for the route.
+ * <p/>
+ * Nothing is kept once the responder is done, so a request that comes after gets a fresh answer. Combine it with a
+ * {@link ResponseCache} to keep answers for longer. As with the cache, the ResponseBuilders should be written more than
+ * once without changing, and here by several threads at once. A JsonResponse of a lazy Stream is, since the Stream
+ * remembers each tail under a lock the first time it is walked.
+ * <p/>
+ * Waiting requests block their thread. AsyncResponders are not coalesced, since they are used to keep threads free
+ * while the answer is made.
+ *
+ * @author atlosm
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<String, CompletableFuture<ResponseBuilder>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong runs = new AtomicLong();
+
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * A rule for coalescing the requests of a route, keyed by the path and the given query parameters.
+     */
+    public Rule by(String... params) {
+        return new Rule( List.list( params ) );
+    }
+
+    /**
+     * The number of times a responder was run for a group of requests.
+     */
+    public long runs() {
+        return runs.get();
+    }
+
+    /**
+     * The number of requests that were answered with the result of another request.
+     */
+    public long shared() {
+        return shared.get();
+    }
+
+    @Override public String toString() {
+        return "SingleFlight(runs=" + runs() + ", shared=" + shared() + ", inFlight=" + inFlight.size() + ")";
+    }
+
+    private ResponseBuilder run(String key, Responder responder, Request request) {
+        CompletableFuture<ResponseBuilder> mine = new CompletableFuture<>();
+        CompletableFuture<ResponseBuilder> theirs = inFlight.putIfAbsent( key, mine );
+        if (theirs != null) {
+            shared.incrementAndGet();
+            return await( theirs );
+        }
+
+        runs.incrementAndGet();
+        try {
+            ResponseBuilder builder = responder.run( request );
+            mine.complete( builder );
+            return builder;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally( e );
+            throw e;
+        } finally {
+            inFlight.remove( key, mine );
+        }
+    }
+
+    private static ResponseBuilder await(CompletableFuture<ResponseBuilder> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw new RuntimeException( cause );
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * How the requests of one route are coalesced. See {@link RouteBuilder.HandleType#coalesced(Rule)}.
+     */
+    public class Rule {
+
+        private final List<String> params;
+
+        private Rule(List<String> params) {
+            this.params = params;
+        }
+
+        /**
+         * Makes a responder that lets identical GET requests share one run of the given responder. Other requests, and
+         * AsyncResponders, are passed through.
+         */
+        public Responder wrap(final Responder responder) {
+            if (responder instanceof AsyncResponder)
+                return responder;
+            return new Responder() {
+                public ResponseBuilder run(Request request) {
+                    if (!RequestKey.isGet( request ))
+                        return responder.run( request );
+                    return SingleFlight.this.run( RequestKey.of( request, params ), responder, request );
+                }
+            };
+        }
+    }
+
+}
@@ -2,6 +2,11 @@ package peak;
 
 import fj.Func;
 import fj.Function;
+import fj.Unit;
+import fj.control.parallel.Strategy;
+import fj.data.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import peak.lifecycle.Register;
 
 import javax.servlet.FilterConfig;
@@ -11,16 +16,31 @@ import javax.servlet.ServletContextListener;
 
 public abstract class WebApplication implements ServletContextListener {
 
-
+    private static final Logger logger = LoggerFactory.getLogger( WebApplication.class );
 
     @Override
     public void contextInitialized(ServletContextEvent servletContextEvent) {
         final RouteBuilder b = init(RouteBuilder.create());
-        initContext().f(servletContextEvent.getServletContext());
+        final ServletContext servletContext = initContext().f(servletContextEvent.getServletContext());
+        final HandlerContext handlerContext = new HandlerContext(servletContext, Services.fromContext(servletContext));
         Register.filter(servletContextEvent,"*",new RouteFilter() {
             @Override protected RouteBuilder init(RouteBuilder builder, FilterConfig config) {
                 return b;
             }
+
+            @Override protected HandlerContext handlerContext(ServletContext context) {
+                return handlerContext;
+            }
+
+            @Override protected Option<Strategy<Unit>> responderStrategy() {
+                if (!virtualThreads())
+                    return Option.none();
+                if (!Strategy.hasVirtualThreads()) {
+                    logger.warn( "Virtual threads are not available in this runtime, responders run on the container threads" );
+                    return Option.none();
+                }
+                return Option.some( Strategy.<Unit>virtualThreadStrategy() );
+            }
         });
     }
 
@@ -29,10 +49,24 @@ public abstract class WebApplication implements ServletContextListener {
 
     }
 
+    /**
+     * Override to put the services of the application in the servlet context, named by their class as
+     * {@link Register#inContext(Object)} does. They are registered in the {@link Services} of the HandlerContext once
+     * this has run, so the handlers find them without going through the servlet context.
+     */
     protected Func<ServletContext,ServletContext> initContext(){
         return Function.identity();
     }
 
+    /**
+     * Override to return true to run every Responder on its own virtual thread, leaving the container thread free while
+     * the responder blocks. See {@link Strategy#virtualThreadStrategy()}. On runtimes without virtual threads the
+     * responders stay on the container threads.
+     */
+    protected boolean virtualThreads(){
+        return false;
+    }
+
     protected abstract RouteBuilder init(RouteBuilder builder);
 
 }
@@ -9,7 +9,8 @@ import java.util.EnumSet;
 public class Register {
 
     public static void filter(ServletContextEvent event, String path, Filter filter) {
-        FilterRegistration registration = event.getServletContext().addFilter( filter.getClass().getName(), filter );
+        FilterRegistration.Dynamic registration = event.getServletContext().addFilter( filter.getClass().getName(), filter );
+        registration.setAsyncSupported( true );
         registration.addMappingForUrlPatterns( EnumSet.allOf( DispatcherType.class ), true, path );
     }
 
@@ -0,0 +1,89 @@
+package peak.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values with log-linear buckets, in the style of HdrHistogram. Each power of two is split
+ * in {@link #SUB_BUCKETS} buckets, so a value is counted in a bucket no more than 1/16 wider than itself. Values up to
+ * 2^40 are kept apart; larger ones go in the last bucket.
+ * <p/>
+ * Recording is a few bit operations and an atomic increment, with no locks or allocation. Readers see the counts as
+ * they are, so a quantile read while values are recorded may be off by the values in flight.
+ */
+public final class Histogram {
+
+    static final int SUB_BITS = 4;
+
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private static final int MAX_EXPONENT = 40;
+
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long value) {
+        counts.incrementAndGet( bucketOf( Math.max( 0, value ) ) );
+        count.increment();
+        sum.add( value );
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * The upper bound of the bucket that holds the value at the quantile, or 0 if nothing is recorded.
+     *
+     * @param quantile Between 0 and 1
+     */
+    public long valueAt(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get( i );
+            total += snapshot[i];
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max( 1, (long) Math.ceil( quantile * total ) );
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return upperBound( i );
+        }
+        return upperBound( BUCKETS - 1 );
+    }
+
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros( value );
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * The largest value counted in the bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+}
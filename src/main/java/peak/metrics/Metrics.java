@@ -0,0 +1,133 @@
+package peak.metrics;
+
+import fj.P2;
+import fj.data.Option;
+import peak.Responder;
+import peak.request.RequestMatcher;
+import peak.request.Route;
+import peak.request.RouteTrie;
+import peak.response.Json;
+import peak.response.JsonResponse;
+import peak.response.SetContentType;
+import peak.response.StringResponse;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The metrics of the routes of an application, keyed by the method and pattern of the route. The counters of a route
+ * are made when the routes are compiled, so recording a request only touches counters that are already there.
+ */
+public class Metrics {
+
+    private static final double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+
+    private static final String[] quantileNames = {"p50", "p90", "p99", "p999"};
+
+    private final ConcurrentSkipListMap<String, RouteMetrics> routes = new ConcurrentSkipListMap<>();
+
+    /**
+     * The counters for the route, made the first time they are asked for.
+     */
+    public RouteMetrics route(String name) {
+        return routes.computeIfAbsent( name, RouteMetrics::new );
+    }
+
+    public RouteMetrics route(RequestMatcher matcher) {
+        return route( nameOf( matcher ) );
+    }
+
+    public Iterable<RouteMetrics> routes() {
+        return routes.values();
+    }
+
+    /**
+     * The method and pattern of a route, like <code>GET /sekk/:navn</code>, or a description of other matchers.
+     */
+    public static String nameOf(RequestMatcher matcher) {
+        Option<P2<String, Route>> key = RouteTrie.keyOf( matcher );
+        return key.isSome() ? key.some()._1() + " " + key.some()._2().getPath() : matcher.toString();
+    }
+
+    /**
+     * Answers with the metrics as JSON, or in the Prometheus text format if the request has the parameter
+     * <code>format=prometheus</code>.
+     */
+    public Responder responder() {
+        return (request) -> request.getParameter( "format" ).exists( "prometheus"::equals )
+                ? new SetContentType( "text/plain; version=0.0.4" ).and( new StringResponse( prometheus() ) )
+                : new JsonResponse<>( this, json );
+    }
+
+    public static final Json<RouteMetrics> routeJson = (route, out) -> {
+        out.beginObject()
+                .name( "route" ).value( route.route )
+                .name( "requests" ).value( route.requests() )
+                .name( "errors" ).value( route.errors() )
+                .name( "inFlight" ).value( route.inFlight() )
+                .name( "bytesWritten" ).value( route.bytesWritten() )
+                .name( "latencyMicros" ).beginObject()
+                .name( "count" ).value( route.latency().count() )
+                .name( "sum" ).value( route.latency().sum() );
+        for (int i = 0; i < quantiles.length; i++) {
+            out.name( quantileNames[i] ).value( route.latency().valueAt( quantiles[i] ) );
+        }
+        out.endObject().endObject();
+    };
+
+    public static final Json<Metrics> json = (metrics, out) -> {
+        out.beginObject().name( "routes" );
+        Json.array( routeJson ).write( metrics.routes(), out );
+        out.endObject();
+    };
+
+    /**
+     * The metrics in the Prometheus text exposition format. Latency is a summary in seconds.
+     */
+    public String prometheus() {
+        StringBuilder out = new StringBuilder();
+        header( out, "peak_requests_total", "counter", "Requests answered by the route." );
+        for (RouteMetrics route : routes()) {
+            sample( out, "peak_requests_total", route, "", route.requests() );
+        }
+        header( out, "peak_request_errors_total", "counter", "Requests that failed with an exception or a 5xx status." );
+        for (RouteMetrics route : routes()) {
+            sample( out, "peak_request_errors_total", route, "", route.errors() );
+        }
+        header( out, "peak_requests_in_flight", "gauge", "Requests being answered by the route." );
+        for (RouteMetrics route : routes()) {
+            sample( out, "peak_requests_in_flight", route, "", route.inFlight() );
+        }
+        header( out, "peak_response_bytes_total", "counter", "Bytes written in response bodies." );
+        for (RouteMetrics route : routes()) {
+            sample( out, "peak_response_bytes_total", route, "", route.bytesWritten() );
+        }
+        header( out, "peak_request_duration_seconds", "summary", "Time from invoking the responder to having written the response." );
+        for (RouteMetrics route : routes()) {
+            for (double q : quantiles) {
+                sample( out, "peak_request_duration_seconds", route, ",quantile=\"" + q + "\"", route.latency().valueAt( q ) / 1e6 );
+            }
+            sample( out, "peak_request_duration_seconds_sum", route, "", route.latency().sum() / 1e6 );
+            sample( out, "peak_request_duration_seconds_count", route, "", route.latency().count() );
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append( "# HELP " ).append( name ).append( ' ' ).append( help ).append( '\n' );
+        out.append( "# TYPE " ).append( name ).append( ' ' ).append( type ).append( '\n' );
+    }
+
+    private static void sample(StringBuilder out, String name, RouteMetrics route, String labels, Object value) {
+        out.append( name ).append( "{route=\"" );
+        for (char c : route.route.toCharArray()) {
+            if (c == '\\' || c == '"')
+                out.append( '\\' ).append( c );
+            else if (c == '\n')
+                out.append( "\\n" );
+            else
+                out.append( c );
+        }
+        out.append( '"' ).append( labels ).append( "} " ).append( value ).append( '\n' );
+    }
+
+}
@@ -0,0 +1,75 @@
+package peak.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters of one route. A request calls {@link #start()} when its responder is invoked and {@link #end} when the
+ * response is written, from whichever thread writes it.
+ */
+public final class RouteMetrics {
+
+    public final String route;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private final Histogram latency = new Histogram();
+
+    RouteMetrics(String route) {
+        this.route = route;
+    }
+
+    /**
+     * @return The time the request started, to pass to end
+     */
+    public long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * @param started The time returned by start
+     * @param error   Whether the request failed, with an exception or a 5xx status
+     * @param written The number of bytes in the response body, or a negative number if it is not known
+     */
+    public void end(long started, boolean error, long written) {
+        latency.record( TimeUnit.NANOSECONDS.toMicros( System.nanoTime() - started ) );
+        inFlight.decrementAndGet();
+        requests.increment();
+        if (error)
+            errors.increment();
+        if (written > 0)
+            bytes.add( written );
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    public long bytesWritten() {
+        return bytes.sum();
+    }
+
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The time from invoking the responder to having written the response, in microseconds.
+     */
+    public Histogram latency() {
+        return latency;
+    }
+
+}
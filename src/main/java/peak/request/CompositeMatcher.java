@@ -22,6 +22,10 @@ public class CompositeMatcher extends RequestMatcher
 		return new CompositeMatcher(List.list(matchers));
 	}
 	
+	List<RequestMatcher> matchers() {
+		return matchers;
+	}
+
 	@Override
 	public Boolean f(final HttpServletRequest req) {
 		for(RequestMatcher matcher:matchers.reverse())
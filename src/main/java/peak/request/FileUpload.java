@@ -1,18 +1,118 @@
 package peak.request;
 
+import fj.data.Either;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
 /**
- * Contains the file upload bytes
+ * Contains an uploaded file. Small uploads are kept as bytes; uploads larger than the spool threshold are written to a
+ * temporary file as they are read, so their size does not matter for the heap.
+ * <p/>
+ * The temporary file of an upload read with {@link Request#getPartAsFile(String)} is deleted when the request ends.
+ * Uploads read otherwise must be deleted with {@link #delete()}.
  * @author atlosm
  *
  */
 public class FileUpload {
-	
-	public final byte[] bytes;
+
+	/**
+	 * Uploads up to this size are kept in memory.
+	 */
+	public static final int SPOOL_THRESHOLD = 1024 * 1024;
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
 	public final String name;
-	
-	 public FileUpload(String name, byte[] bytes) {
-		 this.name = name;
-		 this.bytes = bytes;
+	public final long size;
+	public final Either<byte[], File> content;
+
+	/**
+	 * The content of an upload kept in memory, or null if it was spooled to a temporary file.
+	 * @deprecated Spooled uploads have no bytes here; use {@link #content}, {@link #openStream()} or {@link #bytes()}.
+	 */
+	@Deprecated
+	public final byte[] bytes;
+
+	public FileUpload(String name, byte[] bytes) {
+		this.name = name;
+		this.size = bytes.length;
+		this.content = Either.left(bytes);
+		this.bytes = bytes;
+	}
+
+	public FileUpload(String name, File file) {
+		this.name = name;
+		this.size = file.length();
+		this.content = Either.right(file);
+		this.bytes = null;
+	}
+
+	/**
+	 * Reads the whole stream, and keeps it in memory if it is no larger than the threshold. Otherwise what is read so
+	 * far and the rest of the stream are written to a temporary file through a FileChannel.
+	 */
+	public static FileUpload read(String name, InputStream is, int threshold) throws IOException {
+		ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(threshold, CHUNK_SIZE));
+		byte[] chunk = new byte[Math.min(threshold + 1, CHUNK_SIZE)];
+		while (head.size() <= threshold) {
+			int n = is.read(chunk, 0, Math.min(chunk.length, threshold + 1 - head.size()));
+			if (n == -1)
+				return new FileUpload(name, head.toByteArray());
+			head.write(chunk, 0, n);
+		}
+
+		File file = File.createTempFile("upload", ".part");
+		try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			head.writeTo(Channels.newOutputStream(out));
+			ReadableByteChannel in = Channels.newChannel(is);
+			long position = out.position();
+			for (long n; (n = out.transferFrom(in, position, CHUNK_SIZE)) > 0; )
+				position += n;
+		} catch (IOException | RuntimeException e) {
+			file.delete();
+			throw e;
+		}
+		return new FileUpload(name, file);
+	}
+
+	/**
+	 * The content as bytes. Spooled uploads are read from the temporary file, so prefer {@link #openStream()} for those.
+	 */
+	public byte[] bytes() throws IOException {
+		if (content.isLeft())
+			return content.left().value();
+		return Files.readAllBytes(content.right().value().toPath());
+	}
+
+	public boolean isInMemory() {
+		return content.isLeft();
+	}
+
+	/**
+	 * Opens the content for reading, from memory or from the temporary file.
+	 */
+	public InputStream openStream() throws IOException {
+		if (content.isLeft())
+			return new ByteArrayInputStream(content.left().value());
+		return new FileInputStream(content.right().value());
+	}
+
+	/**
+	 * Deletes the temporary file, if the upload has one.
+	 */
+	public void delete() {
+		if (content.isRight())
+			content.right().value().delete();
 	}
 
 }
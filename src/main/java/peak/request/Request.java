@@ -3,6 +3,7 @@ package peak.request;
 import fj.Func;
 import fj.Ord;
 import fj.data.*;
+import fj.data.Iteratee.IterV;
 import peak.HandlerContext;
 
 import javax.servlet.http.HttpServletRequest;
@@ -11,6 +12,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Map;
 
 /**
  * A wrapper around a HttpServletRequest.
@@ -20,19 +22,53 @@ import java.io.InputStreamReader;
 public class Request {
 
 	private static final int DEFAULT_BUFFER_SIZE = 10240;
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final String UPLOADS = Request.class.getName() + ".uploads";
 	public final HttpServletRequest underlying;
     public final HandlerContext handlerContext;
+	public final RouteMatch routeMatch;
+	private Map<String, String[]> parameterMap;
+	private TreeMap<String, List<String>> parameters;
 	public Request(HttpServletRequest underlying, HandlerContext context) {
+		this(underlying, context, RouteMatch.empty);
+	}
+
+	public Request(HttpServletRequest underlying, HandlerContext context, RouteMatch routeMatch) {
 		this.underlying = underlying;
         this.handlerContext = context;
+		this.routeMatch = routeMatch;
 	}
 
+	/**
+	 * The parameters of the request. They are parsed on first use and kept for the rest of the request.
+	 */
 	public TreeMap<String, List<String>> getParameters() {
-		return TreeMap.fromMutableMap(Ord.stringOrd, underlying.getParameterMap()).map( Array.<String>wrap().andThen( Conversions.<String>Array_List() ));
+		if (parameters == null)
+			parameters = TreeMap.fromMutableMap(Ord.stringOrd, getParameterMap()).map( Array.<String>wrap().andThen( Conversions.<String>Array_List() ));
+		return parameters;
 	}
 
 	public Option<String> getParameter(final String name) {
-		return getParameters().get(name).<String> map(List.<String> head_());
+		String[] values = getParameterMap().get(name);
+		if (values == null || values.length == 0)
+			return Option.none();
+		return Option.some(values[0]);
+	}
+
+	/**
+	 * The container copies the parameter map on every call, so we ask for it once.
+	 */
+	private Map<String, String[]> getParameterMap() {
+		if (parameterMap == null)
+			parameterMap = underlying.getParameterMap();
+		return parameterMap;
+	}
+
+	/**
+	 * A named or splat param captured by the route that matched this request.
+	 */
+	public Option<String> getRouteParam(final String name) {
+		return routeMatch.get(name);
 	}
 
 	public Option<String> getAttributeAsString(final String name) {
@@ -54,7 +90,7 @@ public class Request {
 	public Option<Part> getPart(String name) {
 		try {
 			Part part = underlying.getPart(name);
-			return Option.some(part);
+			return Option.fromNull(part);
 		} catch (Exception e) {
 			return Option.none();
 		}
@@ -64,8 +100,55 @@ public class Request {
 		return getPart(name).bind( Request.partToString());
 	}
 
+	/**
+	 * Reads the whole part. If it is spooled to a temporary file, the file is deleted when the request ends.
+	 */
 	public Option<FileUpload> getPartAsFile(String name) {
-		return getPart(name).bind( Request.partToFile());
+		Option<FileUpload> upload = getPart(name).bind( Request.partToFile());
+		for (FileUpload spooled : upload.filter(u -> !u.isInMemory()))
+			deleteWhenDone(spooled);
+		return upload;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void deleteWhenDone(FileUpload upload) {
+		synchronized (underlying) {
+			Object uploads = underlying.getAttribute(UPLOADS);
+			List<FileUpload> spooled = uploads instanceof List ? (List<FileUpload>) uploads : List.<FileUpload>nil();
+			underlying.setAttribute(UPLOADS, spooled.cons(upload));
+		}
+	}
+
+	/**
+	 * Deletes the temporary files of the uploads read with {@link #getPartAsFile(String)} during the request. Called by
+	 * RouteFilter when the request ends.
+	 */
+	public static void deleteUploads(HttpServletRequest request) {
+		Object uploads;
+		synchronized (request) {
+			uploads = request.getAttribute(UPLOADS);
+			request.removeAttribute(UPLOADS);
+		}
+		if (uploads instanceof List) {
+			for (Object upload : (List<?>) uploads)
+				((FileUpload) upload).delete();
+		}
+	}
+
+	/**
+	 * Feeds the content of the part to the iteratee in chunks, so the iteratee never needs more than one chunk of it in
+	 * memory. The container has already read the whole request body by the time the part is found, and where it keeps
+	 * the part meanwhile is up to its multipart configuration. Fails if there is no such part or it cannot be read.
+	 */
+	public <A> Validation<Exception, A> streamPart(String name, final IterV<byte[], A> iteratee) {
+		Option<Part> part = getPart(name);
+		if (part.isNone())
+			return Validation.fail(new IllegalArgumentException("No part named " + name));
+		try (InputStream is = part.some().getInputStream()) {
+			return Validation.success(IO.<A>byteChunkReader(CHUNK_SIZE).f(is).f(iteratee).run().run());
+		} catch (Exception e) {
+			return Validation.fail(e);
+		}
 	}
 
 	public Validation<Exception, InputStream> getInputStream() {
@@ -98,17 +181,16 @@ public class Request {
 		};
 	}
 
+	/**
+	 * Reads the whole part. Parts larger than {@link FileUpload#SPOOL_THRESHOLD} are spooled to a temporary file.
+	 */
 	public static Func<Part, Option<FileUpload>> partToFile() {
 		return new Func<Part, Option<FileUpload>>() {
 			public Option<FileUpload> f(Part part) {
 
-				try {
-					InputStream is = part.getInputStream();
-					int i = is.available();
-					byte[] bytes = new byte[i];
-					is.read(bytes);
+				try (InputStream is = part.getInputStream()) {
 					String name = getFileName(part);
-					return Option.some(new FileUpload(name, bytes));
+					return Option.some(FileUpload.read(name, is, FileUpload.SPOOL_THRESHOLD));
 				} catch (IOException e) {
 					return Option.none();
 				}
@@ -1,6 +1,9 @@
 package peak.request;
 
+import fj.data.Option;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,39 +22,53 @@ public class Route {
 	private static final String splatParam = "/\\*\\w+";
 	
 	private final String path;
-	private List<String> paramsNames = new ArrayList<String>();
+	private final String[] paramsNames;
 	private final Pattern routePattern;
 	
 	public Route(String path) {
 		this.path = path;
 		String regex = path.replaceAll( namedParam, "/:?([\\\\w\\\\.\\\\-]+)").replaceAll(splatParam,"/\\\\*?(.+)");
 		routePattern = Pattern.compile( regex );
+		List<String> names = new ArrayList<String>();
 		Matcher paramMatcher = routePattern.matcher(path);
 		while(paramMatcher.find()){
 			int count = paramMatcher.groupCount()+1;
 			for(int i = 1; i < count; i++){
-				paramsNames.add(paramMatcher.group(i));
+				names.add(paramMatcher.group(i));
 			}
 		}
+		paramsNames = names.toArray(new String[names.size()]);
 	}
 	
+	/**
+	 * The path this route was created from, e.g. <code>/user/:id</code>
+	 */
+	public String getPath(){
+		return path;
+	}
+
 	public boolean matches(String test){
 		return routePattern.matcher(test).matches();
 	}
 	
-	public Map<String,String> getParams(String test){
-		Map<String,String> params = new HashMap<String, String>();
+	/**
+	 * Matches the path and captures the params in the same pass.
+	 * @return The captured params if the path matches this route
+	 */
+	public Option<RouteMatch> match(String test){
 		Matcher m = routePattern.matcher(test);
-		int n = 0;
-		
-		while (m.find()) {
-			int count = m.groupCount()+1;
-			for(int i = 1; i < count; i++){
-				params.put(paramsNames.get(n),m.group(i));
-				n++;
-			}
+		if(!m.matches())
+			return Option.none();
+		int count = Math.min(m.groupCount(), paramsNames.length);
+		String[] values = new String[count];
+		for(int i = 0; i < count; i++){
+			values[i] = m.group(i+1);
 		}
-		return params;
+		return Option.some(new RouteMatch(count == paramsNames.length ? paramsNames : Arrays.copyOf(paramsNames, count), values));
+	}
+
+	public Map<String,String> getParams(String test){
+		return match(test).option(new HashMap<String, String>(), (routeMatch) -> routeMatch.toMap());
 	}
 	
 	@Override
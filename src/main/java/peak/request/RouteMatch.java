@@ -0,0 +1,49 @@
+package peak.request;
+
+import fj.data.Option;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The named and splat params captured when a route matched a path. The names are shared with the route, so a match costs
+ * one array of values.
+ */
+public class RouteMatch {
+
+	public static final RouteMatch empty = new RouteMatch(new String[0], new String[0]);
+
+	private final String[] names;
+	private final String[] values;
+
+	RouteMatch(String[] names, String[] values) {
+		this.names = names;
+		this.values = values;
+	}
+
+	public Option<String> get(String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name))
+				return Option.some(values[i]);
+		}
+		return Option.none();
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public Map<String, String> toMap() {
+		Map<String, String> params = new HashMap<String, String>();
+		for (int i = 0; i < names.length; i++) {
+			params.put(names[i], values[i]);
+		}
+		return params;
+	}
+
+	@Override
+	public String toString() {
+		return "RouteMatch(" + toMap() + ")";
+	}
+
+}
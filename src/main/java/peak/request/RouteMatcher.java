@@ -1,13 +1,13 @@
 package peak.request;
 
+import fj.data.Option;
 import peak.FilterUtils;
 
 import javax.servlet.http.HttpServletRequest;
-import java.util.Map;
-import java.util.Map.Entry;
 
 /**
- * Matches a request based on the give route.
+ * Matches a request based on the give route. The captured params are kept in a single request attribute, see
+ * {@link Request#getRouteParam(String)}.
  * @author atlosm
  *
  */
@@ -27,15 +27,10 @@ public class RouteMatcher extends RequestMatcher
 	
 	@Override
 	public Boolean f(HttpServletRequest req) {
-		String path = FilterUtils.getRelativePath( req );
-		boolean match =  route.matches(path);
-		if(match){
-			Map<String,String> params = route.getParams(path);
-			for(Entry<String,String> entry:params.entrySet()){
-				req.setAttribute(entry.getKey(), entry.getValue());
-			}
-		}
-		return match;
+		Option<RouteMatch> match = route.match(FilterUtils.getRelativePath( req ));
+		if(match.isSome())
+			req.setAttribute(RouteMatch.class.getName(), match.some());
+		return match.isSome();
 	}
 
 }
@@ -0,0 +1,308 @@
+package peak.request;
+
+import fj.P;
+import fj.P2;
+import fj.data.List;
+import fj.data.Option;
+import peak.FilterUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Handlers compiled into a trie keyed by http method and path segment. Literal segments are found by a hash lookup, named
+ * params (<code>:name</code>) and splats (<code>*name</code>) are tried as wildcard branches, so the cost of a lookup
+ * depends on the depth of the path and not on the number of routes.
+ * <p/>
+ * Matchers that are not a plain route, or a method and a route, are kept aside and tried in registration order. The first
+ * registered handler that matches a request wins, just as with a linear scan.
+ *
+ * @param <A> The type of the handlers
+ */
+public class RouteTrie<A> {
+
+	private static final String ANY_METHOD = "*";
+
+	private static final Pattern namedSegment = Pattern.compile( ":\\w+" );
+	private static final Pattern splatSegment = Pattern.compile( "\\*\\w+" );
+	private static final Pattern literalSegment = Pattern.compile( "[^\\\\.\\[\\]{}()*+?^$|:]*" );
+
+	private final HashMap<String, Node<A>> roots;
+	private final List<Fallback<A>> fallbacks;
+
+	private RouteTrie(HashMap<String, Node<A>> roots, List<Fallback<A>> fallbacks) {
+		this.roots = roots;
+		this.fallbacks = fallbacks;
+	}
+
+	/**
+	 * Compiles the handlers, given in registration order.
+	 */
+	public static <A> RouteTrie<A> compile(List<P2<RequestMatcher, A>> handlers) {
+		HashMap<String, Node<A>> roots = new HashMap<String, Node<A>>();
+		List<Fallback<A>> fallbacks = List.nil();
+		int index = 0;
+		for (P2<RequestMatcher, A> handler : handlers) {
+			Option<P2<String, Route>> key = keyOf( handler._1() );
+			String[] segments = key.isSome() ? segmentsOf( key.some()._2() ) : null;
+			if (segments != null) {
+				Node<A> root = roots.get( key.some()._1() );
+				if (root == null) {
+					root = new Node<A>();
+					roots.put( key.some()._1(), root );
+				}
+				root.insert( index, segments, handler._2() );
+			}
+			else {
+				fallbacks = fallbacks.cons( new Fallback<A>( index, handler._1(), handler._2() ) );
+			}
+			index++;
+		}
+		return new RouteTrie<A>( roots, fallbacks.reverse() );
+	}
+
+	/**
+	 * Finds the first registered handler that matches the request, together with the params captured by its route.
+	 */
+	public Option<P2<A, RouteMatch>> lookup(HttpServletRequest request) {
+		Search<A> search = search( request.getMethod(), FilterUtils.getRelativePath( request ) );
+
+		for (Fallback<A> fallback : fallbacks) {
+			if (fallback.index > search.bestIndex)
+				break;
+			request.removeAttribute( RouteMatch.class.getName() );
+			if (fallback.matcher.matches( request )) {
+				Object match = request.getAttribute( RouteMatch.class.getName() );
+				return Option.some( P.p( fallback.value, match instanceof RouteMatch ? (RouteMatch) match : RouteMatch.empty ) );
+			}
+		}
+
+		return search.result();
+	}
+
+	/**
+	 * Finds the first registered route handler for the method and path, ignoring matchers that are not compiled into the
+	 * trie.
+	 */
+	public Option<P2<A, RouteMatch>> find(String method, String path) {
+		return search( method, path ).result();
+	}
+
+	private Search<A> search(String method, String path) {
+		Search<A> search = new Search<A>( path );
+		if (!path.startsWith( "/" ))
+			return search;
+
+		Node<A> root = roots.get( method.toUpperCase( Locale.ROOT ) );
+		if (root != null)
+			search.visit( root, 0, 0 );
+
+		Node<A> any = roots.get( ANY_METHOD );
+		if (any != null)
+			search.visit( any, 0, 0 );
+
+		return search;
+	}
+
+	/**
+	 * The http method and route of a matcher the trie can index, or none for other matchers. The method is
+	 * <code>*</code> for a route without one.
+	 */
+	public static Option<P2<String, Route>> keyOf(RequestMatcher matcher) {
+		if (matcher instanceof RouteMatcher)
+			return Option.some( P.p( ANY_METHOD, ((RouteMatcher) matcher).route ) );
+
+		if (matcher instanceof CompositeMatcher) {
+			List<RequestMatcher> matchers = ((CompositeMatcher) matcher).matchers();
+			if (matchers.length() != 2)
+				return Option.none();
+
+			RequestMatcher first = matchers.index( 0 );
+			RequestMatcher second = matchers.index( 1 );
+			if (first instanceof RouteMatcher && second instanceof MethodMatcher) {
+				RequestMatcher tmp = first;
+				first = second;
+				second = tmp;
+			}
+			if (first instanceof MethodMatcher && second instanceof RouteMatcher)
+				return Option.some( P.p( ((MethodMatcher) first).method.name(), ((RouteMatcher) second).route ) );
+		}
+		return Option.none();
+	}
+
+	/**
+	 * Splits the route into segments, or yields null if the route uses regex features the trie cannot represent.
+	 */
+	private static String[] segmentsOf(Route route) {
+		String path = route.getPath();
+		if (!path.startsWith( "/" ))
+			return null;
+
+		String[] segments = path.substring( 1 ).split( "/", -1 );
+		for (String segment : segments) {
+			if (segment.startsWith( ":" ) ? !namedSegment.matcher( segment ).matches()
+					: segment.startsWith( "*" ) ? !splatSegment.matcher( segment ).matches()
+					: !literalSegment.matcher( segment ).matches())
+				return null;
+		}
+		return segments;
+	}
+
+	private static boolean isParamChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '.' || c == '-';
+	}
+
+	private static final class Node<A> {
+		final HashMap<String, Node<A>> literals = new HashMap<String, Node<A>>();
+		Node<A> param;
+		Node<A> splat;
+		Leaf<A> leaf;
+		int minIndex = Integer.MAX_VALUE;
+
+		void insert(int index, String[] segments, A value) {
+			String[] names = new String[segments.length];
+			int count = 0;
+			Node<A> node = this;
+			for (String segment : segments) {
+				node.minIndex = Math.min( node.minIndex, index );
+				Node<A> next;
+				if (segment.startsWith( ":" ) || segment.startsWith( "*" )) {
+					names[count++] = segment.substring( 1 );
+					next = segment.startsWith( ":" ) ? node.param : node.splat;
+					if (next == null) {
+						next = new Node<A>();
+						if (segment.startsWith( ":" ))
+							node.param = next;
+						else
+							node.splat = next;
+					}
+				}
+				else {
+					next = node.literals.get( segment );
+					if (next == null) {
+						next = new Node<A>();
+						node.literals.put( segment, next );
+					}
+				}
+				node = next;
+			}
+			node.minIndex = Math.min( node.minIndex, index );
+			if (node.leaf == null)
+				node.leaf = new Leaf<A>( index, value, Arrays.copyOf( names, count ) );
+		}
+	}
+
+	private static final class Leaf<A> {
+		final int index;
+		final A value;
+		final String[] names;
+
+		Leaf(int index, A value, String[] names) {
+			this.index = index;
+			this.value = value;
+			this.names = names;
+		}
+	}
+
+	private static final class Fallback<A> {
+		final int index;
+		final RequestMatcher matcher;
+		final A value;
+
+		Fallback(int index, RequestMatcher matcher, A value) {
+			this.index = index;
+			this.matcher = matcher;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The state of one depth first search through the trie. Keeps the lowest indexed leaf that matches the whole path.
+	 */
+	private static final class Search<A> {
+		final String path;
+		final int[] starts;
+		final int[] ends;
+		final int count;
+		final String[] captures;
+
+		Leaf<A> best;
+		String[] bestCaptures;
+		int bestIndex = Integer.MAX_VALUE;
+
+		Search(String path) {
+			this.path = path;
+			int n = 1;
+			for (int i = 1; i < path.length(); i++) {
+				if (path.charAt( i ) == '/')
+					n++;
+			}
+			starts = new int[n];
+			ends = new int[n];
+			int segment = 0;
+			starts[0] = 1;
+			for (int i = 1; i < path.length(); i++) {
+				if (path.charAt( i ) == '/') {
+					ends[segment] = i;
+					starts[++segment] = i + 1;
+				}
+			}
+			ends[segment] = Math.max( 1, path.length() );
+			count = n;
+			captures = new String[n];
+		}
+
+		Option<P2<A, RouteMatch>> result() {
+			if (best == null)
+				return Option.none();
+			return Option.some( P.p( best.value, new RouteMatch( best.names, bestCaptures ) ) );
+		}
+
+		void visit(Node<A> node, int segment, int depth) {
+			if (node.minIndex >= bestIndex)
+				return;
+
+			if (segment == count) {
+				if (node.leaf != null && node.leaf.index < bestIndex) {
+					best = node.leaf;
+					bestIndex = node.leaf.index;
+					bestCaptures = Arrays.copyOf( captures, depth );
+				}
+				return;
+			}
+
+			Node<A> literal = node.literals.isEmpty() ? null : node.literals.get( path.substring( starts[segment], ends[segment] ) );
+			if (literal != null)
+				visit( literal, segment + 1, depth );
+
+			if (node.param != null) {
+				int start = starts[segment];
+				if (start < ends[segment] && path.charAt( start ) == ':')
+					start++;
+				boolean valid = start < ends[segment];
+				for (int i = start; valid && i < ends[segment]; i++)
+					valid = isParamChar( path.charAt( i ) );
+				if (valid) {
+					captures[depth] = path.substring( start, ends[segment] );
+					visit( node.param, segment + 1, depth + 1 );
+				}
+			}
+
+			if (node.splat != null) {
+				for (int last = count - 1; last >= segment; last--) {
+					int start = starts[segment];
+					int end = ends[last];
+					if (end - start > 1 && path.charAt( start ) == '*')
+						start++;
+					if (start < end) {
+						captures[depth] = path.substring( start, end );
+						visit( node.splat, last + 1, depth + 1 );
+					}
+				}
+			}
+		}
+	}
+}
@@ -14,7 +14,7 @@ public class UrlParam {
 	public UrlParam(final String name) {this.name = name;}
 	
 	public Option<String> get(Request req){
-		return req.getAttributeAsString(name);
+		return req.getRouteParam(name).orElse(req.getAttributeAsString(name));
 	}
 	
 }
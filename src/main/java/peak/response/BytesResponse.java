@@ -2,12 +2,11 @@ package peak.response;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.util.Arrays;
 
 /**
- * A binary response.
+ * A binary response. The bytes are written in one bulk call, with Content-Length, an ETag and support for single byte
+ * ranges.
  * @author atlosm
  *
  */
@@ -17,6 +16,8 @@ public class BytesResponse extends ResponseBuilder
 	public final byte[] bytes;
 	public final String mimetype;
 
+	private volatile String etag;
+
 	public BytesResponse(byte[] bytes, String mimetype) {
 		this.bytes = bytes;
 		this.mimetype = mimetype;
@@ -26,15 +27,22 @@ public class BytesResponse extends ResponseBuilder
 		
 		try {
 			new SetContentType(mimetype).handle(request, response);
-			InputStream is = new ByteArrayInputStream(bytes);
-			OutputStream os = response.getOutputStream();
-			int val;
-			while ((val = is.read()) != -1)
-				os.write(val);
+			for (Transfer.Range range : Transfer.prepare(request, response, bytes.length, etag())) {
+				response.getOutputStream().write(bytes, (int) range.start, (int) range.length);
+			}
 		} catch (Exception e) {
 			// This is actually plausible, what to tell?
 			throw new RuntimeException("Problems while streaming file",e);
 		}
 	}
 
+	private String etag() {
+		String tag = etag;
+		if (tag == null) {
+			tag = "\"" + Integer.toHexString(Arrays.hashCode(bytes)) + "-" + Integer.toHexString(bytes.length) + "\"";
+			etag = tag;
+		}
+		return tag;
+	}
+
 }
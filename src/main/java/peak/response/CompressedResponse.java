@@ -0,0 +1,336 @@
+package peak.response;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses the body written by another ResponseBuilder with gzip or deflate, whichever the client accepts first.
+ * <p/>
+ * The body is collected in a buffer of {@link #BUFFER_SIZE} bytes before it is compressed, so bodies that end below the
+ * threshold are sent as they are. Deflaters and buffers are pooled, so a compressed response allocates little besides
+ * the wrapper around the servlet response. Range requests are passed through uncompressed, since a range of the
+ * compressed body is not a range of the content.
+ * @author atlosm
+ *
+ */
+public class CompressedResponse extends ResponseBuilder
+{
+
+	static final int BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * Bodies up to this size are not worth compressing.
+	 */
+	public static final int DEFAULT_THRESHOLD = 1024;
+
+	private static final int POOL_SIZE = 64;
+
+	private static final ArrayBlockingQueue<Deflater> gzipDeflaters = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+	private static final ArrayBlockingQueue<Deflater> zlibDeflaters = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+	private static final ArrayBlockingQueue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(2 * POOL_SIZE);
+
+	private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+	private final ResponseBuilder wrapped;
+	private final int threshold;
+
+	public CompressedResponse(ResponseBuilder wrapped, int threshold) {
+		this.wrapped = wrapped;
+		this.threshold = Math.min(threshold, BUFFER_SIZE);
+	}
+
+	public CompressedResponse(ResponseBuilder wrapped) {
+		this(wrapped, DEFAULT_THRESHOLD);
+	}
+
+	@Override
+	public void handle(HttpServletRequest request, HttpServletResponse response) throws Exception {
+		response.addHeader("Vary", "Accept-Encoding");
+		String encoding = negotiate(request.getHeader("Accept-Encoding"));
+		if (encoding == null || request.getHeader("Range") != null) {
+			wrapped.handle(request, response);
+			return;
+		}
+
+		Compressing compressing = new Compressing(response, encoding);
+		try {
+			wrapped.handle(request, compressing);
+			compressing.stream.finish();
+		} finally {
+			compressing.stream.release();
+		}
+	}
+
+	/**
+	 * The coding to answer with for the given Accept-Encoding header: gzip if the header accepts it, otherwise deflate if
+	 * it accepts that, otherwise null. A coding is accepted if it is named with a quality above zero, or if it is not
+	 * named and <code>*</code> is, with a quality above zero.
+	 */
+	public static String negotiate(String acceptEncoding) {
+		if (acceptEncoding == null)
+			return null;
+		double gzip = -1;
+		double deflate = -1;
+		double any = -1;
+		for (String part : acceptEncoding.split(",")) {
+			String[] params = part.split(";");
+			String coding = params[0].trim().toLowerCase();
+			double quality = 1;
+			for (int i = 1; i < params.length; i++) {
+				String param = params[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						quality = Double.parseDouble(param.substring(2).trim());
+					} catch (NumberFormatException e) {
+						quality = 0;
+					}
+				}
+			}
+			if (coding.equals("gzip") || coding.equals("x-gzip"))
+				gzip = Math.max(gzip, quality);
+			else if (coding.equals("deflate"))
+				deflate = Math.max(deflate, quality);
+			else if (coding.equals("*"))
+				any = Math.max(any, quality);
+		}
+		if ((gzip < 0 ? any : gzip) > 0)
+			return "gzip";
+		if ((deflate < 0 ? any : deflate) > 0)
+			return "deflate";
+		return null;
+	}
+
+	private static Deflater deflater(boolean gzip) {
+		Deflater deflater = (gzip ? gzipDeflaters : zlibDeflaters).poll();
+		return deflater != null ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+	}
+
+	private static void release(Deflater deflater, boolean gzip) {
+		deflater.reset();
+		if (!(gzip ? gzipDeflaters : zlibDeflaters).offer(deflater))
+			deflater.end();
+	}
+
+	private static byte[] buffer() {
+		byte[] buffer = buffers.poll();
+		return buffer != null ? buffer : new byte[BUFFER_SIZE];
+	}
+
+	/**
+	 * The response the wrapped builder writes to. Content-Length is held back until we know whether the body is
+	 * compressed.
+	 */
+	private final class Compressing extends HttpServletResponseWrapper {
+
+		final HttpServletResponse response;
+		final CompressingStream stream;
+		private PrintWriter writer;
+		private String contentLength;
+
+		Compressing(HttpServletResponse response, String encoding) {
+			super(response);
+			this.response = response;
+			this.stream = new CompressingStream(this, encoding);
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return stream;
+		}
+
+		@Override
+		public PrintWriter getWriter() {
+			if (writer == null)
+				writer = new PrintWriter(new OutputStreamWriter(stream, Charset.forName(getCharacterEncoding())));
+			return writer;
+		}
+
+		@Override
+		public void setContentLength(int length) {
+			contentLength = Integer.toString(length);
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			if ("Content-Length".equalsIgnoreCase(name))
+				contentLength = value;
+			else
+				super.setHeader(name, value);
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if ("Content-Length".equalsIgnoreCase(name))
+				contentLength = value;
+			else
+				super.addHeader(name, value);
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			stream.flush();
+		}
+
+		void sendPlain() {
+			if (contentLength != null)
+				response.setHeader("Content-Length", contentLength);
+		}
+
+		void sendCompressed(String encoding) {
+			response.setHeader("Content-Encoding", encoding);
+		}
+	}
+
+	/**
+	 * Collects the body until it is larger than the threshold, and then deflates it to the real output stream.
+	 */
+	private final class CompressingStream extends ServletOutputStream {
+
+		private static final int INPUT = 0;
+		private static final int SYNC = 1;
+		private static final int END = 2;
+
+		private final Compressing response;
+		private final String encoding;
+		private final boolean gzip;
+		private final CRC32 crc = new CRC32();
+
+		private byte[] in = buffer();
+		private int count;
+		private byte[] out;
+		private Deflater deflater;
+		private long total;
+		private boolean finished;
+
+		CompressingStream(Compressing response, String encoding) {
+			this.response = response;
+			this.encoding = encoding;
+			this.gzip = encoding.equals("gzip");
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (count == in.length)
+				deflateBuffered();
+			in[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (count == in.length)
+					deflateBuffered();
+				int n = Math.min(len, in.length - count);
+				System.arraycopy(b, off, in, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (deflater == null || finished)
+				return;
+			deflateBuffered();
+			drain(SYNC);
+			response.response.getOutputStream().flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			finish();
+		}
+
+		void finish() throws IOException {
+			if (finished)
+				return;
+			if (writer() != null)
+				writer().flush();
+			finished = true;
+			if (deflater == null && count <= threshold) {
+				response.sendPlain();
+				if (count > 0)
+					response.response.getOutputStream().write(in, 0, count);
+				return;
+			}
+			deflateBuffered();
+			deflater.finish();
+			drain(END);
+			if (gzip) {
+				trailer(crc.getValue());
+				trailer(total);
+			}
+		}
+
+		private PrintWriter writer() {
+			return response.writer;
+		}
+
+		/**
+		 * Starts compressing if it has not started yet, and deflates what is in the buffer.
+		 */
+		private void deflateBuffered() throws IOException {
+			if (deflater == null) {
+				deflater = deflater(gzip);
+				out = buffer();
+				response.sendCompressed(encoding);
+				if (gzip)
+					response.response.getOutputStream().write(GZIP_HEADER);
+			}
+			if (count == 0)
+				return;
+			if (gzip)
+				crc.update(in, 0, count);
+			total += count;
+			deflater.setInput(in, 0, count);
+			drain(INPUT);
+			count = 0;
+		}
+
+		/**
+		 * Deflates until the input is used up, the output is flushed, or the stream is ended, depending on the mode.
+		 */
+		private void drain(int mode) throws IOException {
+			ServletOutputStream os = response.response.getOutputStream();
+			int n;
+			do {
+				n = deflater.deflate(out, 0, out.length, mode == SYNC ? Deflater.SYNC_FLUSH : Deflater.NO_FLUSH);
+				if (n > 0)
+					os.write(out, 0, n);
+			} while (mode == INPUT ? !deflater.needsInput() : mode == SYNC ? n == out.length : !deflater.finished());
+		}
+
+		private void trailer(long value) throws IOException {
+			ServletOutputStream os = response.response.getOutputStream();
+			for (int i = 0; i < 4; i++)
+				os.write((int) (value >> (8 * i)) & 0xff);
+		}
+
+		/**
+		 * Gives the deflater and the buffers back to the pools.
+		 */
+		void release() {
+			if (deflater != null) {
+				CompressedResponse.release(deflater, gzip);
+				deflater = null;
+			}
+			if (in != null)
+				buffers.offer(in);
+			if (out != null)
+				buffers.offer(out);
+			in = null;
+			out = null;
+		}
+	}
+
+}
@@ -1,19 +1,32 @@
 package peak.response;
 
+import org.eclipse.jetty.server.HttpOutput;
+
 import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * A file response, responding with the file with the given name. The file is fetched from the classpath, not the filesystem.
+ * <p/>
+ * When the servlet context maps the resource to a real file, the file is sent through its FileChannel with Content-Length,
+ * an ETag and support for single byte ranges. Large files are memory mapped and handed to Jetty in one buffer; otherwise
+ * the channel transfers to the response. Resources that are not files are copied in bulk.
  * @author atlosm
  *
  */
 public class FileResponse extends ResponseBuilder
 {
 
+	static final long MAP_THRESHOLD = 1024 * 1024;
+
 	private Filename filename;
 
 	public FileResponse(Filename filename) {
@@ -24,15 +37,44 @@ public class FileResponse extends ResponseBuilder
 	public void handle(HttpServletRequest request, HttpServletResponse response) {
 		try {
 			ServletContext context = request.getServletContext();
-			InputStream is = context.getResourceAsStream(filename.value);
-			OutputStream os = response.getOutputStream();
-			int val;
-			while ((val = is.read()) != -1)
-				os.write(val);
+			String realPath = context.getRealPath(filename.value);
+			File file = realPath == null ? null : new File(realPath);
+			if (file != null && file.isFile()) {
+				sendFile(file, request, response);
+			}
+			else {
+				try (InputStream is = context.getResourceAsStream(filename.value)) {
+					Transfer.copy(is, response.getOutputStream());
+				}
+			}
 		} catch (Exception e) {
 			// This is actually plausible, what to tell?
 			throw new RuntimeException("Problems while streaming file",e);
 		}
 	}
 
+	private static void sendFile(File file, HttpServletRequest request, HttpServletResponse response) throws Exception {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			String etag = "\"" + Long.toHexString(file.lastModified()) + "-" + Long.toHexString(size) + "\"";
+			for (Transfer.Range range : Transfer.prepare(request, response, size, etag)) {
+				ServletOutputStream os = response.getOutputStream();
+				if (os instanceof HttpOutput && range.length >= MAP_THRESHOLD) {
+					((HttpOutput) os).sendContent(channel.map(FileChannel.MapMode.READ_ONLY, range.start, range.length));
+				}
+				else {
+					WritableByteChannel out = Channels.newChannel(os);
+					long position = range.start;
+					long end = range.start + range.length;
+					while (position < end) {
+						long sent = channel.transferTo(position, end - position, out);
+						if (sent <= 0)
+							break;
+						position += sent;
+					}
+				}
+			}
+		}
+	}
+
 }
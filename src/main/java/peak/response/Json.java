@@ -0,0 +1,30 @@
+package peak.response;
+
+import java.io.IOException;
+
+/**
+ * Writes values of one type as JSON.
+ *
+ * @param <A> The type of the values
+ */
+public interface Json<A> {
+
+	void write(A value, JsonWriter out) throws IOException;
+
+	/**
+	 * Writes the values in order as a JSON array. The values are written as they are iterated, so a lazy Iterable is
+	 * not forced before the first one goes out.
+	 */
+	static <A> Json<Iterable<A>> array(final Json<A> json) {
+		return (values, out) -> {
+			out.beginArray();
+			for (A value : values) {
+				json.write(value, out);
+			}
+			out.endArray();
+		};
+	}
+
+	Json<String> string = (value, out) -> out.value(value);
+
+}
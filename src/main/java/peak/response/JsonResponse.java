@@ -0,0 +1,41 @@
+package peak.response;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A JSON response, written straight to the response stream as the value is walked. Unlike a StringResponse of the same
+ * document it never holds the whole body in memory, and the first bytes go out while the rest is still being written.
+ * @param <A> The type of the value
+ */
+public class JsonResponse<A> extends ResponseBuilder
+{
+
+	// The buffers are reused by the requests on a thread.
+	private static final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[JsonWriter.BUFFER_SIZE]);
+
+	public final A value;
+	public final Json<A> json;
+
+	public JsonResponse(A value, Json<A> json) {
+		this.value = value;
+		this.json = json;
+	}
+
+	public static <A> JsonResponse<Iterable<A>> array(Iterable<A> values, Json<A> json) {
+		return new JsonResponse<>(values, Json.array(json));
+	}
+
+	@Override
+	public void handle(HttpServletRequest request, HttpServletResponse response) {
+		try {
+			SetContentType.json.handle(request, response);
+			JsonWriter out = new JsonWriter(response.getOutputStream(), buffers.get());
+			json.write(value, out);
+			out.flush();
+		} catch (Exception e) {
+			throw new RuntimeException("Problems while writing json", e);
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+package peak.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes JSON as UTF-8 straight to an OutputStream. Output is collected in a fixed buffer that is written out each time
+ * it fills up, so the memory used does not depend on how large the document is. Commas are put in by the writer.
+ */
+public final class JsonWriter {
+
+	static final int BUFFER_SIZE = 8 * 1024;
+
+	private static final int MAX_DEPTH = 64;
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+	private final OutputStream out;
+
+	private final byte[] buffer;
+
+	private int position;
+
+	// Whether the array or object at each depth has had a value yet, and whether the last thing written was a name.
+	private final boolean[] hasValue = new boolean[MAX_DEPTH];
+
+	private int depth;
+
+	private boolean afterName;
+
+	public JsonWriter(OutputStream out, byte[] buffer) {
+		this.out = out;
+		this.buffer = buffer;
+	}
+
+	public JsonWriter(OutputStream out) {
+		this(out, new byte[BUFFER_SIZE]);
+	}
+
+	public JsonWriter beginArray() throws IOException {
+		return open('[');
+	}
+
+	public JsonWriter endArray() throws IOException {
+		return close(']');
+	}
+
+	public JsonWriter beginObject() throws IOException {
+		return open('{');
+	}
+
+	public JsonWriter endObject() throws IOException {
+		return close('}');
+	}
+
+	public JsonWriter name(String name) throws IOException {
+		beforeValue();
+		quoted(name);
+		put(':');
+		afterName = true;
+		return this;
+	}
+
+	public JsonWriter value(String value) throws IOException {
+		if (value == null)
+			return nullValue();
+		beforeValue();
+		quoted(value);
+		return this;
+	}
+
+	/**
+	 * Writes the number, or null for NaN and the infinities, which JSON cannot express.
+	 */
+	public JsonWriter value(double value) throws IOException {
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return nullValue();
+		beforeValue();
+		ascii(Double.toString(value));
+		return this;
+	}
+
+	public JsonWriter value(long value) throws IOException {
+		beforeValue();
+		ascii(Long.toString(value));
+		return this;
+	}
+
+	public JsonWriter value(boolean value) throws IOException {
+		beforeValue();
+		ascii(value ? "true" : "false");
+		return this;
+	}
+
+	public JsonWriter nullValue() throws IOException {
+		beforeValue();
+		ascii("null");
+		return this;
+	}
+
+	/**
+	 * Writes what is left in the buffer to the stream. Does not flush the stream.
+	 */
+	public void flush() throws IOException {
+		if (position > 0) {
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	private JsonWriter open(char c) throws IOException {
+		beforeValue();
+		if (depth == MAX_DEPTH)
+			throw new IllegalStateException("JSON nested deeper than " + MAX_DEPTH);
+		put(c);
+		hasValue[depth++] = false;
+		return this;
+	}
+
+	private JsonWriter close(char c) throws IOException {
+		if (depth == 0)
+			throw new IllegalStateException("Nothing to close with " + c);
+		depth--;
+		put(c);
+		return this;
+	}
+
+	private void beforeValue() throws IOException {
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+		if (depth > 0) {
+			if (hasValue[depth - 1])
+				put(',');
+			hasValue[depth - 1] = true;
+		}
+	}
+
+	private void ascii(String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			put(s.charAt(i));
+		}
+	}
+
+	private void quoted(String s) throws IOException {
+		put('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				put('\\');
+				put(c);
+			}
+			else if (c < 0x20) {
+				put('\\');
+				put('u');
+				put('0');
+				put('0');
+				put(HEX[c >> 4]);
+				put(HEX[c & 0xf]);
+			}
+			else if (c < 0x80)
+				put(c);
+			else if (c < 0x800) {
+				put(0xc0 | c >> 6);
+				put(0x80 | c & 0x3f);
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				put(0xf0 | cp >> 18);
+				put(0x80 | cp >> 12 & 0x3f);
+				put(0x80 | cp >> 6 & 0x3f);
+				put(0x80 | cp & 0x3f);
+			}
+			else if (Character.isSurrogate(c))
+				put('?');
+			else {
+				put(0xe0 | c >> 12);
+				put(0x80 | c >> 6 & 0x3f);
+				put(0x80 | c & 0x3f);
+			}
+		}
+		put('"');
+	}
+
+	private void put(int b) throws IOException {
+		if (position == buffer.length)
+			flush();
+		buffer[position++] = (byte) b;
+	}
+
+}
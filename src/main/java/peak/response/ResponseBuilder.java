@@ -29,6 +29,13 @@ public abstract class ResponseBuilder {
         return new CompositeResponseBuilder( List.list( other, this ) );
     }
 
+    /**
+     * Compresses the body this builder writes, if the client accepts it. See {@link CompressedResponse}.
+     */
+    public ResponseBuilder compressed() {
+        return new CompressedResponse( this );
+    }
+
     public ResponseBuilder or(ResponseBuilder other) {
         return new OnExceptionResponseBuilder( this, Function.<Exception, ResponseBuilder>constant( other ) );
     }
@@ -0,0 +1,125 @@
+package peak.response;
+
+import fj.data.Option;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Shared plumbing for the binary responses: bulk copying, ETag validation and single byte ranges.
+ */
+final class Transfer {
+
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private Transfer() {
+	}
+
+	/**
+	 * Copies the stream in chunks of {@link #BUFFER_SIZE} bytes.
+	 */
+	static long copy(InputStream is, OutputStream os) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long total = 0;
+		for (int n; (n = is.read(buffer)) != -1; ) {
+			os.write(buffer, 0, n);
+			total += n;
+		}
+		return total;
+	}
+
+	/**
+	 * Sets the validator and length headers and answers conditional and range requests.
+	 *
+	 * @return The range of the content that should be written, or none if the response is already complete (304 or 416)
+	 */
+	static Option<Range> prepare(HttpServletRequest request, HttpServletResponse response, long length, String etag) {
+		response.setHeader("ETag", etag);
+		response.setHeader("Accept-Ranges", "bytes");
+
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return Option.none();
+		}
+
+		String rangeHeader = request.getHeader("Range");
+		String ifRange = request.getHeader("If-Range");
+		if (rangeHeader != null && (ifRange == null || ifRange.trim().equals(etag))) {
+			Option<Range> range = Range.parse(rangeHeader, length);
+			if (range.isSome()) {
+				Range r = range.some();
+				if (r.length <= 0) {
+					response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+					response.setHeader("Content-Range", "bytes */" + length);
+					return Option.none();
+				}
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader("Content-Range", "bytes " + r.start + "-" + (r.start + r.length - 1) + "/" + length);
+				response.setHeader("Content-Length", Long.toString(r.length));
+				return range;
+			}
+		}
+
+		response.setHeader("Content-Length", Long.toString(length));
+		return Option.some(new Range(0, length));
+	}
+
+	private static boolean matches(String ifNoneMatch, String etag) {
+		for (String candidate : ifNoneMatch.split(",")) {
+			String tag = candidate.trim();
+			if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * A single byte range. Multiple ranges are not supported, such requests get the whole content.
+	 */
+	static final class Range {
+		final long start;
+		final long length;
+
+		Range(long start, long length) {
+			this.start = start;
+			this.length = length;
+		}
+
+		/**
+		 * Parses <code>bytes=a-b</code>, <code>bytes=a-</code> and <code>bytes=-n</code>. Yields none for headers we
+		 * ignore, and a range of length zero if the range cannot be satisfied.
+		 */
+		static Option<Range> parse(String header, long total) {
+			String value = header.trim();
+			if (!value.startsWith("bytes=") || value.indexOf(',') >= 0)
+				return Option.none();
+
+			String spec = value.substring("bytes=".length()).trim();
+			int dash = spec.indexOf('-');
+			if (dash < 0)
+				return Option.none();
+
+			try {
+				String first = spec.substring(0, dash).trim();
+				String last = spec.substring(dash + 1).trim();
+				if (first.isEmpty()) {
+					if (last.isEmpty())
+						return Option.none();
+					long suffix = Math.min(Long.parseLong(last), total);
+					return Option.some(new Range(total - suffix, suffix));
+				}
+				long start = Long.parseLong(first);
+				long end = last.isEmpty() ? total - 1 : Math.min(Long.parseLong(last), total - 1);
+				if (end < start && start < total)
+					return Option.none();
+				return Option.some(new Range(start, start >= total ? 0 : end - start + 1));
+			} catch (NumberFormatException e) {
+				return Option.none();
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package fj;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestP1 {
+
+    @Test
+    public void memoIsComputedOnceForThreadsThatWaitForIt() throws Exception {
+        final AtomicInteger computed = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final P1<String> memo = new P1<String>() {
+            public String _1() {
+                computed.incrementAndGet();
+                started.countDown();
+                try {
+                    Thread.sleep( 50 );
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "verdi";
+            }
+        }.memo();
+
+        ExecutorService pool = Executors.newFixedThreadPool( 8 );
+        List<Future<String>> calls = new ArrayList<>();
+        calls.add( pool.submit( memo::_1 ) );
+        Assert.assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+        for (int i = 0; i < 7; i++) {
+            calls.add( pool.submit( memo::_1 ) );
+        }
+        for (Future<String> call : calls) {
+            Assert.assertEquals( "verdi", call.get( 5, TimeUnit.SECONDS ) );
+        }
+        pool.shutdown();
+        Assert.assertEquals( "verdi", memo._1() );
+        Assert.assertEquals( 1, computed.get() );
+    }
+}
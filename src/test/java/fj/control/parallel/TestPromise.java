@@ -0,0 +1,86 @@
+package fj.control.parallel;
+
+import fj.P;
+import fj.P1;
+import fj.Unit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestPromise {
+
+    private static final P1<Integer> broken = new P1<Integer>() {
+        public Integer _1() {
+            throw new IllegalStateException( "broken" );
+        }
+    };
+
+    @Test
+    public void failureReachesBoundPromises() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool( 2 );
+        try {
+            Strategy<Unit> s = Strategy.executorStrategy( pool );
+            Promise<Integer> failing = Promise.promise( s, broken ).fmap( (i) -> i + 1 );
+
+            CountDownLatch failed = new CountDownLatch( 1 );
+            AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            failing.onFailure( (t) -> {
+                failure.set( t );
+                failed.countDown();
+            } );
+            Assert.assertTrue( failed.await( 5, TimeUnit.SECONDS ) );
+            Assert.assertEquals( "broken", failure.get().getMessage() );
+            Assert.assertFalse( failing.isFulfilled() );
+
+            try {
+                failing.claim();
+                Assert.fail( "Claimed a failed promise" );
+            } catch (Error e) {
+                Assert.assertTrue( e.getCause() instanceof IllegalStateException );
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void failureInABoundFunction() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool( 2 );
+        try {
+            Strategy<Unit> s = Strategy.executorStrategy( pool );
+            Promise<Integer> failing = Promise.promise( s, P.p( 1 ) ).bind( (i) -> {
+                throw new IllegalArgumentException( "bound" );
+            } );
+            try {
+                failing.claim( 5, TimeUnit.SECONDS );
+                Assert.fail( "Claimed a failed promise" );
+            } catch (Error e) {
+                Assert.assertEquals( "bound", e.getCause().getMessage() );
+            }
+
+            AtomicReference<Throwable> late = new AtomicReference<Throwable>();
+            failing.onFailure( late::set );
+            Assert.assertEquals( "bound", late.get().getMessage() );
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void fulfilledPromisesNeverFail() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool( 2 );
+        try {
+            Strategy<Unit> s = Strategy.executorStrategy( pool );
+            Promise<Integer> ok = Promise.promise( s, P.p( 20 ) ).fmap( (i) -> i + 1 );
+            ok.onFailure( (t) -> Assert.fail( t.getMessage() ) );
+            Assert.assertEquals( 21, (int) ok.claim() );
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package fj.data;
+
+import fj.Equal;
+import fj.Hash;
+import fj.Ord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up all the keys of a map of <code>size</code> strings, in <code>java.util.HashMap</code>, the mutable
+ * <code>fj.data.HashMap</code>, the persistent <code>HashArrayMappedTrie</code> and <code>TreeMap</code>. The
+ * <code>build</code> benchmarks set all the keys, one persistent map at a time and through a transient. The keys are
+ * looked up in random order, since keys with consecutive hashes looked up in order favour <code>java.util.HashMap</code>,
+ * which then walks its table front to back.
+ * <p/>
+ * Run with <code>-prof gc</code> to see the allocation per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashMapBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private String[] keys;
+
+    private java.util.HashMap<String, Integer> javaMap;
+
+    private HashMap<String, Integer> fjMap;
+
+    private HashArrayMappedTrie<String, Integer> trie;
+
+    private TreeMap<String, Integer> treeMap;
+
+    @Setup
+    public void setup() {
+        keys = new String[size];
+        javaMap = new java.util.HashMap<String, Integer>();
+        fjMap = new HashMap<String, Integer>( Equal.stringEqual, Hash.stringHash );
+        trie = HashArrayMappedTrie.empty( Equal.stringEqual, Hash.stringHash );
+        treeMap = TreeMap.empty( Ord.stringOrd );
+        for (int i = 0; i < size; i++) {
+            keys[i] = "sekk" + i;
+            javaMap.put( keys[i], i );
+            fjMap.set( keys[i], i );
+            trie = trie.set( keys[i], i );
+            treeMap = treeMap.set( keys[i], i );
+        }
+        Collections.shuffle( Arrays.asList( keys ), new Random( 42 ) );
+    }
+
+    @Benchmark
+    public int getJavaHashMap() {
+        int sum = 0;
+        for (String key : keys) {
+            sum += javaMap.get( key );
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int getFjHashMap() {
+        int sum = 0;
+        for (String key : keys) {
+            sum += fjMap.get( key ).some();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int getHashArrayMappedTrie() {
+        int sum = 0;
+        for (String key : keys) {
+            sum += trie.getOrElse( key, 0 );
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int getTreeMap() {
+        int sum = 0;
+        for (String key : keys) {
+            sum += treeMap.get( key ).some();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Object buildPersistent() {
+        HashArrayMappedTrie<String, Integer> map = HashArrayMappedTrie.empty( Equal.stringEqual, Hash.stringHash );
+        for (int i = 0; i < keys.length; i++) {
+            map = map.set( keys[i], i );
+        }
+        return map;
+    }
+
+    @Benchmark
+    public Object buildTransient() {
+        HashArrayMappedTrie.Transient<String, Integer> map = HashArrayMappedTrie.<String, Integer>empty( Equal.stringEqual, Hash.stringHash ).asTransient();
+        for (int i = 0; i < keys.length; i++) {
+            map.set( keys[i], i );
+        }
+        return map.persistent();
+    }
+}
@@ -0,0 +1,60 @@
+package fj.data;
+
+import fj.Hash;
+import org.junit.Assert;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Random sets and deletes for testing the hash maps of this package against java.util.HashMap.
+ */
+final class MapChanges {
+
+    /**
+     * Gives the keys only 21 hashes, so many keys collide. The tries of a HashArrayMappedTrie get deep, and the probe
+     * sequences of a HashMap get long and wrap around the table.
+     */
+    static final Hash<Integer> weakHash = Hash.hash( (i) -> (i % 7) << 28 | (i % 3) );
+
+    /**
+     * The map the changes are made to.
+     */
+    interface Target {
+
+        void set(int key, String value);
+
+        /**
+         * Deletes the key, which had the given value.
+         */
+        void delete(int key, Option<String> value);
+
+        int size();
+    }
+
+    private MapChanges() {
+    }
+
+    /**
+     * Makes 20000 changes to keys below the given bound, a third of them deletes, both to the target and to a
+     * java.util.HashMap, and checks that the sizes agree after every change.
+     *
+     * @return the java.util.HashMap, with the entries the target should have
+     */
+    static Map<Integer, String> make(long seed, int keys, Target target) {
+        Random random = new Random( seed );
+        Map<Integer, String> expected = new java.util.HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt( keys );
+            if (random.nextInt( 3 ) == 0) {
+                target.delete( key, Option.fromNull( expected.remove( key ) ) );
+            }
+            else {
+                expected.put( key, "v" + i );
+                target.set( key, "v" + i );
+            }
+            Assert.assertEquals( expected.size(), target.size() );
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,50 @@
+package fj.data;
+
+import fj.Monoid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sums the squares of the even numbers below <code>size</code>, with boxed <code>List</code>s and
+ * <code>Monoid.intAdditionMonoid</code>, and with <code>IntSeq</code>. The sequences are built in the setup, so only
+ * the pipelines are measured.
+ * <p/>
+ * Run with <code>-prof gc</code> to see the Integers allocated per element by the boxed pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveSeqBenchmark {
+
+    @Param({"100", "100000"})
+    public int size;
+
+    private List<Integer> boxed;
+
+    private IntSeq ints;
+
+    @Setup
+    public void setup() {
+        boxed = List.range( 0, size );
+        ints = IntSeq.range( 0, size );
+    }
+
+    @Benchmark
+    public int boxedList() {
+        return Monoid.intAdditionMonoid.sumLeft( boxed.filter( (i) -> i % 2 == 0 ).map( (i) -> i * i ) );
+    }
+
+    @Benchmark
+    public int intSeq() {
+        return ints.filter( (i) -> i % 2 == 0 ).map( (i) -> i * i ).sum();
+    }
+
+    @Benchmark
+    public int intSeqFold() {
+        return ints.foldLeft( (sum, i) -> i % 2 == 0 ? sum + i * i : sum, 0 );
+    }
+}
@@ -0,0 +1,108 @@
+package fj.data;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares <code>RrbVector</code> with <code>List</code> and <code>Seq</code> for random access, and measures
+ * concatenating and splitting vectors of <code>size</code> elements. The indices are drawn in the setup, in a random
+ * order, so the lookups are not helped by the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RrbVectorBenchmark {
+
+    private static final int LOOKUPS = 1000;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private List<Integer> list;
+
+    private Seq<Integer> seq;
+
+    private RrbVector<Integer> vector;
+
+    private RrbVector<Integer> relaxed;
+
+    private int[] indices;
+
+    @Setup
+    public void setup() {
+        List.Buffer<Integer> buffer = new List.Buffer<Integer>();
+        seq = Seq.empty();
+        for (int i = 0; i < size; i++) {
+            buffer.snoc( i );
+            seq = seq.snoc( i );
+        }
+        list = buffer.toList();
+        vector = RrbVector.iterableRrbVector( list );
+        relaxed = vector.drop( size / 3 ).append( vector.take( size / 3 ) );
+        Random random = new Random( 42 );
+        indices = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            indices[i] = random.nextInt( size );
+        }
+    }
+
+    @Benchmark
+    public int listIndex() {
+        int sum = 0;
+        for (int i : indices) {
+            sum += list.index( i );
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int seqIndex() {
+        int sum = 0;
+        for (int i : indices) {
+            sum += seq.index( i );
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int vectorIndex() {
+        int sum = 0;
+        for (int i : indices) {
+            sum += vector.index( i );
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int relaxedVectorIndex() {
+        int sum = 0;
+        for (int i : indices) {
+            sum += relaxed.index( i );
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public RrbVector<Integer> vectorSnoc() {
+        RrbVector<Integer> v = vector;
+        for (int i = 0; i < LOOKUPS; i++) {
+            v = v.snoc( i );
+        }
+        return v;
+    }
+
+    @Benchmark
+    public RrbVector<Integer> vectorConcat() {
+        return vector.append( relaxed );
+    }
+
+    @Benchmark
+    public RrbVector<Integer> vectorSplit() {
+        return vector.splitAt( size / 2 + 1 )._2();
+    }
+}
@@ -0,0 +1,99 @@
+package fj.data;
+
+import fj.Equal;
+import fj.Hash;
+import fj.P2;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class TestHashArrayMappedTrie {
+
+    private static void assertSameEntries(Map<Integer, String> expected, HashArrayMappedTrie<Integer, String> actual) {
+        Assert.assertEquals( expected.size(), actual.size() );
+        Assert.assertEquals( expected, actual.toMutableMap() );
+        int count = 0;
+        for (P2<Integer, String> entry : actual) {
+            Assert.assertEquals( expected.get( entry._1() ), entry._2() );
+            count++;
+        }
+        Assert.assertEquals( expected.size(), count );
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            Assert.assertEquals( entry.getValue(), actual.get( entry.getKey() ).some() );
+        }
+    }
+
+    private static void randomChanges(final Hash<Integer> hash) {
+        class Versions implements MapChanges.Target {
+            HashArrayMappedTrie<Integer, String> map = HashArrayMappedTrie.empty( Equal.intEqual, hash );
+
+            public void set(int key, String value) {
+                map = map.set( key, value );
+            }
+
+            public void delete(int key, Option<String> value) {
+                map = map.delete( key );
+            }
+
+            public int size() {
+                return map.size();
+            }
+        }
+        Versions versions = new Versions();
+        assertSameEntries( MapChanges.make( 42, 2000, versions ), versions.map );
+        Assert.assertTrue( versions.map.get( 5000 ).isNone() );
+    }
+
+    @Test
+    public void behavesLikeAMutableMap() {
+        randomChanges( Hash.intHash );
+    }
+
+    @Test
+    public void handlesCollidingHashes() {
+        randomChanges( MapChanges.weakHash );
+    }
+
+    @Test
+    public void changesLeaveOldVersionsAlone() {
+        HashArrayMappedTrie<Integer, String> empty = HashArrayMappedTrie.empty( Equal.intEqual, MapChanges.weakHash );
+        HashArrayMappedTrie<Integer, String> one = empty.set( 1, "en" );
+        HashArrayMappedTrie<Integer, String> two = one.set( 2, "to" ).set( 1, "ein" );
+        HashArrayMappedTrie<Integer, String> deleted = two.delete( 1 );
+
+        Assert.assertTrue( empty.isEmpty() );
+        Assert.assertEquals( "en", one.get( 1 ).some() );
+        Assert.assertEquals( "ein", two.get( 1 ).some() );
+        Assert.assertFalse( deleted.contains( 1 ) );
+        Assert.assertEquals( 1, deleted.size() );
+        Assert.assertSame( deleted, deleted.delete( 1 ) );
+    }
+
+    @Test
+    public void transientsBuildWithoutChangingTheSource() {
+        HashArrayMappedTrie<Integer, String> source = HashArrayMappedTrie.<Integer, String>empty( Equal.intEqual, MapChanges.weakHash ).set( 1, "en" );
+        HashArrayMappedTrie.Transient<Integer, String> t = source.asTransient();
+        Map<Integer, String> expected = new java.util.HashMap<>();
+        expected.put( 1, "en" );
+        for (int i = 0; i < 1000; i++) {
+            t.set( i, "t" + i );
+            expected.put( i, "t" + i );
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            t.delete( i );
+            expected.remove( i );
+        }
+        HashArrayMappedTrie<Integer, String> built = t.persistent();
+
+        assertSameEntries( expected, built );
+        Assert.assertEquals( 1, source.size() );
+        Assert.assertEquals( "en", source.get( 1 ).some() );
+        try {
+            t.set( 1, "for sent" );
+            Assert.fail( "Transient was usable after persistent()" );
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
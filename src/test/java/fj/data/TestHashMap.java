@@ -0,0 +1,130 @@
+package fj.data;
+
+import fj.Equal;
+import fj.Hash;
+import fj.P2;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+public class TestHashMap {
+
+    private static void randomChanges(Hash<Integer> hash) {
+        final HashMap<Integer, String> map = new HashMap<>( Equal.intEqual, hash );
+        Map<Integer, String> expected = MapChanges.make( 7, 500, new MapChanges.Target() {
+            public void set(int key, String value) {
+                map.set( key, value );
+            }
+
+            public void delete(int key, Option<String> value) {
+                if (key % 2 == 0)
+                    Assert.assertEquals( value, map.getDelete( key ) );
+                else
+                    map.delete( key );
+            }
+
+            public int size() {
+                return map.size();
+            }
+        } );
+        Assert.assertEquals( expected, map.toMap() );
+        for (int key = 0; key < 500; key++) {
+            Assert.assertEquals( Option.fromNull( expected.get( key ) ), map.get( key ) );
+            Assert.assertEquals( expected.containsKey( key ), map.contains( key ) );
+        }
+        Assert.assertEquals( expected.size(), map.keys().length() );
+        Assert.assertEquals( expected.size(), map.values().length() );
+        for (P2<Integer, String> entry : map.toList()) {
+            Assert.assertEquals( expected.get( entry._1() ), entry._2() );
+        }
+    }
+
+    /**
+     * A hash that the map puts in the given slot of a table with the given capacity.
+     */
+    private static int hashForSlot(int slot, int capacity) {
+        int hash = 0;
+        while ((HashMap.spread( hash ) & (capacity - 1)) != slot)
+            hash++;
+        return hash;
+    }
+
+    @Test
+    public void behavesLikeJavaHashMap() {
+        randomChanges( Hash.intHash );
+    }
+
+    @Test
+    public void handlesCollidingHashes() {
+        randomChanges( MapChanges.weakHash );
+    }
+
+    @Test
+    public void deletesShiftEntriesBackAcrossTheEndOfTheTable() {
+        // A map for 12 entries has 16 slots. Keys 0-3 belong in the last slot and wrap around to the first three, so
+        // keys 4-5, which belong in the first slot, end up in the fourth and fifth.
+        final int last = hashForSlot( 15, 16 );
+        final int first = hashForSlot( 0, 16 );
+        Hash<Integer> hash = Hash.hash( (k) -> k < 4 ? last : first );
+        for (int deleted = 0; deleted < 6; deleted++) {
+            HashMap<Integer, String> map = new HashMap<>( Equal.intEqual, hash, 12 );
+            for (int k = 0; k < 6; k++) {
+                map.set( k, "v" + k );
+            }
+            map.delete( deleted );
+            for (int k = 0; k < 6; k++) {
+                Assert.assertEquals( "after deleting " + deleted, k != deleted, map.contains( k ) );
+            }
+            for (int k = 0; k < 6; k++) {
+                if (k != deleted) {
+                    Assert.assertEquals( "v" + k, map.getDelete( k ).some() );
+                    for (int rest = k + 1; rest < 6; rest++) {
+                        Assert.assertEquals( rest != deleted, map.contains( rest ) );
+                    }
+                }
+            }
+            Assert.assertTrue( map.isEmpty() );
+        }
+    }
+
+    @Test
+    public void growsWhileMostChangesAreDeletes() {
+        Random random = new Random( 11 );
+        Map<Integer, String> expected = new java.util.HashMap<>();
+        HashMap<Integer, String> map = new HashMap<>( Equal.intEqual, MapChanges.weakHash );
+        int next = 0;
+        // Every round sets five new keys and deletes four, so the map resizes again and again between the deletes.
+        for (int round = 0; round < 2000; round++) {
+            for (int i = 0; i < 5; i++, next++) {
+                expected.put( next, "v" + next );
+                map.set( next, "v" + next );
+            }
+            for (int i = 0; i < 4; i++) {
+                int key = random.nextInt( next );
+                Assert.assertEquals( Option.fromNull( expected.remove( key ) ), map.getDelete( key ) );
+            }
+            Assert.assertEquals( expected.size(), map.size() );
+        }
+        Assert.assertTrue( expected.size() > 2000 );
+        Assert.assertEquals( expected, map.toMap() );
+        for (int key = 0; key < next; key++) {
+            Assert.assertEquals( Option.fromNull( expected.get( key ) ), map.get( key ) );
+        }
+    }
+
+    @Test
+    public void ignoresNullValuesAndClears() {
+        HashMap<String, String> map = HashMap.hashMap();
+        map.set( "sekk", null );
+        Assert.assertTrue( map.isEmpty() );
+        map.set( "sekk", "norge" );
+        map.set( "sekk", "sverige" );
+        Assert.assertEquals( 1, map.size() );
+        Assert.assertEquals( "sverige", map.get( "sekk" ).some() );
+        map.clear();
+        Assert.assertTrue( map.isEmpty() );
+        Assert.assertTrue( map.get( "sekk" ).isNone() );
+    }
+}
@@ -0,0 +1,58 @@
+package fj.data;
+
+import fj.Ord;
+import fj.P3;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class TestIntervalMap {
+
+    @Test
+    public void findsIntersectingIntervals() {
+        IntervalMap<Integer, String> map = IntervalMap.<Integer, String>empty( Ord.intOrd )
+                .insert( 10, 20, "b" ).insert( 0, 5, "a" ).insert( 15, 15, "c" ).insert( 30, 40, "d" );
+        Assert.assertEquals( "[a, b, c, d]", values( map.toList() ) );
+        Assert.assertEquals( "[b, c]", values( map.containing( 15 ) ) );
+        Assert.assertEquals( "[a, b]", values( map.intersecting( 5, 10 ) ) );
+        Assert.assertEquals( "[]", values( map.intersecting( 21, 29 ) ) );
+        Assert.assertEquals( "[d]", values( map.intersecting( 40, 100 ) ) );
+    }
+
+    @Test
+    public void agreesWithAScanOfAllIntervals() {
+        Random random = new Random( 3 );
+        IntervalMap<Integer, Integer> map = IntervalMap.empty( Ord.intOrd );
+        ArrayList<int[]> intervals = new ArrayList<int[]>();
+        for (int i = 0; i < 300; i++) {
+            int low = random.nextInt( 1000 );
+            int high = low + random.nextInt( 50 );
+            map = map.insert( low, high, i );
+            intervals.add( new int[]{low, high} );
+        }
+        for (int q = 0; q < 200; q++) {
+            int low = random.nextInt( 1000 );
+            int high = low + random.nextInt( 20 );
+            int expected = 0;
+            for (int[] interval : intervals) {
+                if (interval[0] <= high && interval[1] >= low)
+                    expected++;
+            }
+            List<P3<Integer, Integer, Integer>> found = map.intersecting( low, high );
+            Assert.assertEquals( expected, found.length() );
+            for (P3<Integer, Integer, Integer> interval : found) {
+                Assert.assertTrue( interval._1() <= high && interval._2() >= low );
+            }
+        }
+    }
+
+    private static String values(List<P3<Integer, Integer, String>> intervals) {
+        ArrayList<String> values = new ArrayList<String>();
+        for (P3<Integer, Integer, String> interval : intervals) {
+            values.add( interval._3() );
+        }
+        return values.toString();
+    }
+}
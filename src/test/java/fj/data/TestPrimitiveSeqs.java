@@ -0,0 +1,107 @@
+package fj.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.PrimitiveIterator;
+
+public class TestPrimitiveSeqs {
+
+    /**
+     * Long enough for a trie of three levels, and not a whole number of chunks.
+     */
+    private static final int N = 32 * 32 * 32 + 32 * 3 + 7;
+
+    @Test
+    public void indexUpdateAndSnocAgreeWithAnArray() {
+        IntSeq seq = IntSeq.empty();
+        for (int i = 0; i < N; i++) {
+            seq = seq.snoc( i * 3 );
+        }
+        Assert.assertEquals( N, seq.length() );
+        for (int i = 0; i < N; i++) {
+            Assert.assertEquals( i * 3, seq.index( i ) );
+        }
+
+        IntSeq updated = seq.update( 0, -1 ).update( 5000, -2 ).update( N - 1, -3 );
+        Assert.assertEquals( -1, updated.index( 0 ) );
+        Assert.assertEquals( -2, updated.index( 5000 ) );
+        Assert.assertEquals( -3, updated.index( N - 1 ) );
+        Assert.assertEquals( 5000 * 3, seq.index( 5000 ) );
+        Assert.assertEquals( (N - 1) * 3, seq.index( N - 1 ) );
+
+        Assert.assertArrayEquals( IntSeq.range( 0, N ).map( (i) -> i * 3 ).toArray(), seq.toArray() );
+        try {
+            seq.index( N );
+            Assert.fail( "Index past the end" );
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void bulkOperationsDoNotNeedBoxing() {
+        IntSeq ints = IntSeq.range( 1, 101 );
+        Assert.assertEquals( 5050, ints.sum() );
+        Assert.assertEquals( 5050, ints.foldLeft( (a, b) -> a + b, 0 ) );
+        Assert.assertEquals( 2550, ints.filter( (i) -> i % 2 == 0 ).sum() );
+        Assert.assertEquals( 50, ints.filter( (i) -> i % 2 == 0 ).length() );
+        Assert.assertEquals( 5050L * 1000000000L, ints.mapToLong( (i) -> i * 1000000000L ).sum() );
+        Assert.assertEquals( 50.5, ints.mapToDouble( (i) -> i / 100.0 ).sum(), 1e-9 );
+
+        LongSeq longs = LongSeq.range( 0, N );
+        Assert.assertEquals( (long) N * (N - 1) / 2, longs.sum() );
+        DoubleSeq doubles = longs.mapToDouble( (l) -> l * 0.5 );
+        Assert.assertEquals( longs.sum() * 0.5, doubles.sum(), 1e-6 );
+        Assert.assertEquals( N / 2 + 1, doubles.filter( (d) -> d * 2 % 2 == 0 ).length() );
+
+        long total = 0;
+        for (PrimitiveIterator.OfLong i = longs.iterator(); i.hasNext(); ) {
+            total += i.nextLong();
+        }
+        Assert.assertEquals( longs.sum(), total );
+    }
+
+    @Test
+    public void convertsToAndFromBoxedValues() {
+        List<Integer> boxed = List.range( 0, 100 );
+        IntSeq seq = IntSeq.iterableIntSeq( boxed );
+        Assert.assertEquals( boxed, seq.toList() );
+        Assert.assertEquals( boxed.toStream().toList(), seq.toStream().toList() );
+        Assert.assertEquals( List.list( "0", "1", "2" ), IntSeq.intSeq( 0, 1, 2 ).mapToObj( Integer::toString ) );
+        Assert.assertEquals( "DoubleSeq(1.5,2.5)", DoubleSeq.doubleSeq( 1.5 ).snoc( 2.5 ).toString() );
+        Assert.assertEquals( 200, seq.append( seq ).length() );
+        Assert.assertEquals( 99, seq.append( seq ).index( 199 ) );
+        Assert.assertTrue( IntSeq.empty().isEmpty() );
+        Assert.assertSame( seq, seq.append( IntSeq.empty() ) );
+    }
+
+    @Test
+    public void rangesTooLongForAnArrayAreRejected() {
+        Assert.assertArrayEquals( new int[]{Integer.MAX_VALUE - 1}, IntSeq.range( Integer.MAX_VALUE - 1, Integer.MAX_VALUE ).toArray() );
+        Assert.assertTrue( IntSeq.range( 5, -5 ).isEmpty() );
+        try {
+            IntSeq.range( -2000000000, 2000000000 );
+            Assert.fail( "Range longer than an array" );
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void longAndDoubleSequencesSpanSeveralChunks() {
+        LongSeq longs = LongSeq.range( 0, N ).update( 40, -1L );
+        Assert.assertEquals( -1L, longs.index( 40 ) );
+        Assert.assertEquals( N - 1, longs.index( N - 1 ) );
+        Assert.assertEquals( N, longs.append( LongSeq.longSeq( 7L ) ).length() - 1 );
+        DoubleSeq doubles = longs.mapToDouble( (l) -> l );
+        Assert.assertEquals( 40.0, doubles.update( 40, 40.0 ).toArray()[40], 0 );
+        Assert.assertEquals( N - 1, doubles.mapToInt( (d) -> (int) d ).index( N - 1 ) );
+        try {
+            doubles.index( -1 );
+            Assert.fail( "Negative index" );
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+}
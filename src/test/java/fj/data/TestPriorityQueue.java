@@ -0,0 +1,48 @@
+package fj.data;
+
+import fj.Ord;
+import fj.P2;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestPriorityQueue {
+
+    @Test
+    public void dequeuesInOrderOfPriorityThenArrival() {
+        PriorityQueue<Integer, String> queue = PriorityQueue.<Integer, String>empty( Ord.intOrd )
+                .enqueue( 2, "b" ).enqueue( 5, "e" ).enqueue( 1, "a" ).enqueue( 5, "f" ).enqueue( 3, "c" );
+        StringBuilder order = new StringBuilder();
+        while (!queue.isEmpty()) {
+            order.append( queue.top().some()._2() );
+            queue = queue.dequeue();
+        }
+        Assert.assertEquals( "efcba", order.toString() );
+        Assert.assertTrue( queue.top().isNone() );
+        Assert.assertTrue( queue.dequeue().isEmpty() );
+    }
+
+    @Test
+    public void topIsTheGreatestPriority() {
+        Random random = new Random( 7 );
+        PriorityQueue<Integer, Integer> queue = PriorityQueue.empty( Ord.intOrd );
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < 500; i++) {
+            int k = random.nextInt( 10000 );
+            max = Math.max( max, k );
+            queue = queue.enqueue( k, i );
+        }
+        Assert.assertEquals( 500, queue.toList().length() );
+        int last = Integer.MAX_VALUE;
+        for (int i = 0; i < 500; i++) {
+            P2<Integer, Integer> top = queue.top().some();
+            if (i == 0)
+                Assert.assertEquals( max, (int) top._1() );
+            Assert.assertTrue( top._1() <= last );
+            last = top._1();
+            queue = queue.dequeue();
+        }
+        Assert.assertTrue( queue.isEmpty() );
+    }
+}
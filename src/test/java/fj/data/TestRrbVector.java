@@ -0,0 +1,166 @@
+package fj.data;
+
+import fj.P2;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class TestRrbVector {
+
+    /**
+     * Long enough for a tree of three levels, and not a whole number of leaves.
+     */
+    private static final int N = 32 * 32 * 32 + 32 * 3 + 7;
+
+    @Test
+    public void vectorsOfArraysOfASubtypeTakeOtherElements() {
+        String[] strings = {"a", "b", "c"};
+        RrbVector<CharSequence> vector = RrbVector.<CharSequence>rrbVector( strings );
+        strings[0] = "endret";
+        RrbVector<CharSequence> updated = vector.update( 1, new StringBuilder( "x" ) ).snoc( new StringBuilder( "d" ) );
+        Assert.assertEquals( "a", vector.index( 0 ) );
+        Assert.assertEquals( "x", updated.index( 1 ).toString() );
+        Assert.assertEquals( "d", updated.index( 3 ).toString() );
+    }
+
+    @Test
+    public void indexUpdateAndSnocAgreeWithAList() {
+        RrbVector<Integer> vector = RrbVector.empty();
+        for (int i = 0; i < N; i++) {
+            vector = vector.snoc( i * 3 );
+        }
+        Assert.assertEquals( N, vector.length() );
+        for (int i = 0; i < N; i++) {
+            Assert.assertEquals( i * 3, (int) vector.index( i ) );
+        }
+
+        RrbVector<Integer> updated = vector.update( 0, -1 ).update( 5000, -2 ).update( N - 1, -3 );
+        Assert.assertEquals( -1, (int) updated.index( 0 ) );
+        Assert.assertEquals( -2, (int) updated.index( 5000 ) );
+        Assert.assertEquals( -3, (int) updated.index( N - 1 ) );
+        Assert.assertEquals( 5000 * 3, (int) vector.index( 5000 ) );
+        Assert.assertEquals( 3, vector.height() );
+        try {
+            vector.index( N );
+            Assert.fail( "Index past the end" );
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void concatAndSplitAgreeWithAList() {
+        Random random = new Random( 42 );
+        ArrayList<RrbVector<Integer>> vectors = new ArrayList<RrbVector<Integer>>();
+        ArrayList<ArrayList<Integer>> lists = new ArrayList<ArrayList<Integer>>();
+        int next = 0;
+        for (int i = 0; i < 20; i++) {
+            int n = random.nextInt( 3 ) == 0 ? random.nextInt( 5 ) : random.nextInt( 3000 );
+            RrbVector<Integer> v = RrbVector.empty();
+            ArrayList<Integer> l = new ArrayList<Integer>();
+            for (int j = 0; j < n; j++) {
+                v = v.snoc( next );
+                l.add( next++ );
+            }
+            vectors.add( v );
+            lists.add( l );
+        }
+
+        for (int round = 0; round < 400; round++) {
+            int a = random.nextInt( vectors.size() );
+            int b = random.nextInt( vectors.size() );
+            RrbVector<Integer> v;
+            ArrayList<Integer> l;
+            switch (random.nextInt( 4 )) {
+                case 0:
+                case 1:
+                    v = vectors.get( a ).append( vectors.get( b ) );
+                    l = new ArrayList<Integer>( lists.get( a ) );
+                    l.addAll( lists.get( b ) );
+                    break;
+                case 2:
+                    int i = random.nextInt( lists.get( a ).size() + 1 );
+                    P2<RrbVector<Integer>, RrbVector<Integer>> split = vectors.get( a ).splitAt( i );
+                    assertSame( new ArrayList<Integer>( lists.get( a ).subList( 0, i ) ), split._1() );
+                    v = split._2();
+                    l = new ArrayList<Integer>( lists.get( a ).subList( i, lists.get( a ).size() ) );
+                    break;
+                default:
+                    v = vectors.get( a ).snoc( next ).cons( next + 1 );
+                    l = new ArrayList<Integer>( lists.get( a ) );
+                    l.add( next++ );
+                    l.add( 0, next++ );
+                    if (!l.isEmpty()) {
+                        int k = random.nextInt( l.size() );
+                        v = v.update( k, -k );
+                        l.set( k, -k );
+                    }
+            }
+            assertSame( l, v );
+            if (l.size() < 200000) {
+                int slot = random.nextInt( vectors.size() );
+                vectors.set( slot, v );
+                lists.set( slot, l );
+            }
+        }
+    }
+
+    @Test
+    public void repeatedConcatKeepsTheTreeShallow() {
+        RrbVector<Integer> vector = RrbVector.empty();
+        for (int i = 0; i < N; i++) {
+            vector = vector.append( RrbVector.rrbVector( i, i + 1, i + 2 ).take( 1 + i % 3 ) );
+        }
+        RrbVector<Integer> front = RrbVector.empty();
+        for (int i = 0; i < 2000; i++) {
+            front = front.cons( i );
+        }
+        Assert.assertTrue( "height " + vector.height(), vector.height() <= 3 );
+        Assert.assertTrue( "height " + front.height(), front.height() <= 2 );
+        Assert.assertEquals( 1999, (int) front.head() );
+        Assert.assertEquals( 0, (int) front.last() );
+        int expected = 0;
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j <= i % 3; j++) {
+                Assert.assertEquals( i + j, (int) vector.index( expected++ ) );
+            }
+        }
+        Assert.assertEquals( expected, vector.length() );
+    }
+
+    @Test
+    public void combinatorsAgreeWithList() {
+        List<Integer> list = List.range( 0, 1000 );
+        RrbVector<Integer> vector = RrbVector.iterableRrbVector( list ).drop( 10 ).append( RrbVector.iterableRrbVector( list ).take( 10 ) );
+        List<Integer> rotated = list.drop( 10 ).append( list.take( 10 ) );
+
+        Assert.assertEquals( items( rotated.map( (i) -> i * 2 ) ), items( vector.map( (i) -> i * 2 ).toList() ) );
+        Assert.assertEquals( items( rotated.filter( (i) -> i % 3 == 0 ) ), items( vector.filter( (i) -> i % 3 == 0 ).toList() ) );
+        Assert.assertEquals( rotated.foldLeft( (a, b) -> a - b, 0 ), vector.foldLeft( (a, b) -> a - b, 0 ) );
+        Assert.assertEquals( rotated.foldRight( (a, b) -> a - b, 0 ), vector.foldRight( (a, b) -> a - b, 0 ) );
+        Assert.assertEquals( items( rotated.bind( (i) -> List.list( i, -i ) ) ),
+                items( vector.bind( (i) -> RrbVector.rrbVector( i, -i ) ).toList() ) );
+        Assert.assertEquals( items( rotated.reverse() ), items( vector.reverse().toList() ) );
+
+        RrbVector<P2<Integer, String>> zipped = vector.zip( RrbVector.rrbVector( "a", "b" ) );
+        Assert.assertEquals( 2, zipped.length() );
+        Assert.assertEquals( "b", zipped.index( 1 )._2() );
+        Assert.assertEquals( 11, (int) zipped.index( 1 )._1() );
+        Assert.assertEquals( "RrbVector(1,2,3)", RrbVector.rrbVector( 1, 2, 3 ).toString() );
+        Assert.assertEquals( "RrbVector()", RrbVector.empty().toString() );
+    }
+
+    private static void assertSame(ArrayList<Integer> expected, RrbVector<Integer> actual) {
+        Assert.assertEquals( expected.size(), actual.length() );
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals( expected.get( i ), actual.index( i ) );
+        }
+        Assert.assertEquals( expected, items( actual.toList() ) );
+    }
+
+    private static ArrayList<Integer> items(List<Integer> list) {
+        return new ArrayList<Integer>( list.toCollection() );
+    }
+}
@@ -0,0 +1,83 @@
+package fj.data;
+
+import fj.P2;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class TestSeq {
+
+    private static final int N = 2000;
+
+    @Test
+    public void indexFindsElementsInTheMiddleOfDeepTrees() {
+        Seq<Integer> seq = Seq.empty();
+        for (int i = 0; i < N; i++) {
+            seq = seq.snoc( i );
+        }
+        Assert.assertEquals( N, seq.length() );
+        for (int i = 0; i < N; i++) {
+            Assert.assertEquals( i, (int) seq.index( i ) );
+        }
+    }
+
+    @Test
+    public void appendingASingletonKeepsBothSides() {
+        Seq<Integer> seq = Seq.<Integer>empty().snoc( 1 ).snoc( 2 ).append( Seq.single( 3 ) );
+        Assert.assertEquals( 3, seq.length() );
+        Assert.assertEquals( 1, (int) seq.index( 0 ) );
+        Assert.assertEquals( 3, (int) seq.index( 2 ) );
+    }
+
+    @Test
+    public void splitTakeAndDrop() {
+        Seq<Integer> seq = Seq.empty();
+        for (int i = 0; i < N; i++) {
+            seq = seq.snoc( i );
+        }
+        for (int i = 0; i <= N; i += 37) {
+            P2<Seq<Integer>, Seq<Integer>> split = seq.splitAt( i );
+            Assert.assertEquals( i, split._1().length() );
+            Assert.assertEquals( N - i, split._2().length() );
+            if (i > 0)
+                Assert.assertEquals( i - 1, (int) split._1().index( i - 1 ) );
+            if (i < N)
+                Assert.assertEquals( i, (int) split._2().index( 0 ) );
+        }
+        Assert.assertEquals( 0, seq.take( -1 ).length() );
+        Assert.assertEquals( N, seq.take( N + 1 ).length() );
+        Assert.assertEquals( N, seq.drop( 0 ).length() );
+        Assert.assertTrue( seq.drop( N ).isEmpty() );
+        Assert.assertEquals( 10, (int) seq.drop( 10 ).take( 5 ).index( 0 ) );
+    }
+
+    @Test
+    public void updateAndInsertAgreeWithAList() {
+        Random random = new Random( 42 );
+        Seq<Integer> seq = Seq.empty();
+        ArrayList<Integer> list = new ArrayList<Integer>();
+        for (int round = 0; round < 1000; round++) {
+            int i = random.nextInt( list.size() + 1 );
+            if (list.isEmpty() || random.nextBoolean()) {
+                seq = seq.insert( i, round );
+                list.add( i, round );
+            } else {
+                i = Math.min( i, list.size() - 1 );
+                seq = seq.update( i, -round );
+                list.set( i, -round );
+            }
+        }
+        Assert.assertEquals( list.size(), seq.length() );
+        for (int i = 0; i < list.size(); i++) {
+            Assert.assertEquals( list.get( i ), seq.index( i ) );
+        }
+        try {
+            seq.update( list.size(), 0 );
+            Assert.fail( "Update past the end" );
+        } catch (Error e) {
+            // expected
+        }
+    }
+}
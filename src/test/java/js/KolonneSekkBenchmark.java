@@ -0,0 +1,68 @@
+package js;
+
+import fj.data.Stream;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts and sums the gifts heavier than a threshold in a Sekk2 and in the same sekk as columns.
+ * <p/>
+ * Run with <code>mvn test-compile</code> and <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main KolonneSekkBenchmark</code>.
+ * For the columns alone at 10M gifts, add <code>-p gaver=10000000 KolonneSekkBenchmark.kolonne</code> and a larger -Xmx..
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class KolonneSekkBenchmark {
+
+    @Param({"1000000"})
+    public int gaver;
+
+    private final double grense = 50;
+
+    private Sekk2 sekk;
+
+    private KolonneSekk kolonner;
+
+    @Setup
+    public void setup() {
+        Random random = new Random( 1 );
+        String[] typer = {"sokker", "bok", "sykkel", "lego", "ski"};
+        KolonneSekk.Bygger bygger = new KolonneSekk.Bygger( "norge" );
+        for (int i = 0; i < gaver; i++) {
+            bygger.leggTil( typer[random.nextInt( typer.length )], random.nextDouble() * 100 );
+        }
+        kolonner = bygger.bygg();
+        sekk = kolonner.tilSekk2();
+    }
+
+    @Benchmark
+    public int streamAntall() {
+        return sekk.gaver.filter( (gave) -> gave.vekt.value > grense ).length();
+    }
+
+    @Benchmark
+    public double streamSum() {
+        double sum = 0;
+        for (Gave2 gave : sekk.gaver) {
+            if (gave.vekt.value > grense)
+                sum += gave.vekt.value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int kolonneAntall() {
+        return kolonner.antallTyngreEnn( grense );
+    }
+
+    @Benchmark
+    public double kolonneSum() {
+        return kolonner.sumVektTyngreEnn( grense );
+    }
+}
@@ -9,16 +9,22 @@ import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.junit.Test;
 
+import java.util.EventListener;
+
 public class TestWebServer {
 
 
     public static AsyncHttpClient client = new AsyncHttpClient();
 
     public static Server start(int port) throws Exception {
+        return start( port, new JuleApp() );
+    }
+
+    public static Server start(int port, EventListener application) throws Exception {
         Server server = new Server( port );
         WebAppContext webAppContext = new WebAppContext();
         webAppContext.setContextPath( "/" );
-        webAppContext.addEventListener( new JuleApp() );
+        webAppContext.addEventListener( application );
         webAppContext.setBaseResource( Resource.newResource( "target" ) );
         server.setHandler( webAppContext );
         server.start();
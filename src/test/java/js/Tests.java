@@ -1,7 +1,9 @@
 package js;
 
 import fj.Equal;
-import fj.data.Stream;
+import fj.P;
+import fj.data.IntSeq;
+import fj.data.List;
 import fj.test.Arbitrary;
 import fj.test.Property;
 import fj.test.reflect.Check;
@@ -10,8 +12,8 @@ import org.junit.Test;
 
 public class Tests {
 
-    public final Stream<Integer> ints =
-            Stream.range( 1, 100 );
+    public final IntSeq ints =
+            IntSeq.range( 1, 100 );
 
     public final Arbitrary<Weight2> arbWeight =
             Arbitrary.arbitrary( Arbitrary.arbDouble.gen.map( Weight2::new ) ); //Constructor reference
@@ -22,6 +24,28 @@ public class Tests {
         return Property.prop( Equal.stringEqual.eq( gave2.betegnelse,str ));
     } );
 
+    public final Arbitrary<Gave2> arbGave =
+            Arbitrary.arbitrary( Arbitrary.arbAlphaNumString.gen.bind( arbWeight.gen, (str) -> (weight) -> new Gave2( str, weight ) ) );
+
+    @Name("En kolonnesekk skal ha de samme gavene som sekken den er laget av")
+    Property p2 = Property.property( Arbitrary.arbList( arbGave ), Arbitrary.arbDouble, (gaver) -> (grense) -> {
+        Sekk2 sekk = new Sekk2( "norge", gaver.toStream() );
+        KolonneSekk kolonner = KolonneSekk.fra( sekk );
+        List<Gave2> tyngre = gaver.filter( (gave) -> gave.vekt.value > grense );
+        List<Gave2> tilbake = kolonner.tilSekk2().gaver.toList();
+        List<Gave2> tyngreTilbake = kolonner.tyngreEnn( grense ).tilSekk2().gaver.toList();
+
+        Equal<List<Gave2>> likeGaver = Equal.listEqual( Equal.p2Equal( Equal.stringEqual, Equal.doubleEqual )
+                .comap( (Gave2 gave) -> P.p( gave.betegnelse, gave.vekt.value ) ) );
+        //Summen uten forgreninger legger sammen i en annen rekkefølge, så den kan avvike litt i siste siffer
+        double sumTyngre = tyngre.foldLeft( (sum, gave) -> sum + gave.vekt.value, 0.0 );
+        double toleranse = 1e-9 * gaver.foldLeft( (sum, gave) -> sum + Math.abs( gave.vekt.value ), 1.0 );
+        return Property.prop( likeGaver.eq( gaver, tilbake )
+                && likeGaver.eq( tyngre, tyngreTilbake )
+                && kolonner.antallTyngreEnn( grense ) == tyngre.length()
+                && Math.abs( kolonner.sumVektTyngreEnn( grense ) - sumTyngre ) <= toleranse );
+    } );
+
     @Test
     public void runTest() {
         CheckResults.assertAndPrintResults( Check.check( Tests.class ) );
@@ -0,0 +1,45 @@
+package js.db;
+
+import js.Gave2;
+import js.Sekk2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Operations and files shared by the tests of the database.
+ */
+final class DbFixtures {
+
+    private DbFixtures() {
+    }
+
+    /**
+     * The same get-modify-put as POST /sekk2.
+     */
+    static DbOp<Sekk2> leggTil(final Gave2 gave) {
+        return new Get<>( Sekk2.class, "norge" )
+                .map( (kanskjeSekk) -> kanskjeSekk.orSome( () -> Sekk2.nyTomSekk( "norge" ) ) )
+                .map( (sekk) -> sekk.leggTilGave( gave ) )
+                .bind( Put.put( "norge" ) );
+    }
+
+    /**
+     * A new empty directory for a durable database. Delete it with {@link #delete(File)} when the test is done.
+     */
+    static File tempDir() throws IOException {
+        return Files.createTempDirectory( "memorydb" ).toFile();
+    }
+
+    /**
+     * Deletes the directory of a durable database, with the snapshot and journal files in it.
+     */
+    static void delete(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            Files.delete( file.toPath() );
+        }
+        Files.delete( dir.toPath() );
+    }
+}
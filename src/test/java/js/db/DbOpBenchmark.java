@@ -0,0 +1,74 @@
+package js.db;
+
+import fj.Func;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds and runs a chain of 1000 maps and binds with the interpreted ops, and the same chain as nested closures the
+ * way DbOp used to make them. Run with -prof gc to compare allocations. With a larger steps param the nested version
+ * runs out of stack.
+ * <p/>
+ * Run with <code>mvn test-compile</code> and <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main DbOpBenchmark -prof gc</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DbOpBenchmark {
+
+    @Param({"1000"})
+    public int steps;
+
+    private final Map<String, Object> store = new HashMap<>();
+
+    @Setup
+    public void setup() {
+        store.put( "a", "gave" );
+    }
+
+    @Benchmark
+    public String interpreted() {
+        DbOp<String> op = new Get<>( String.class, "a" ).map( (a) -> a.some() );
+        for (int i = 0; i < steps; i++) {
+            op = i % 10 == 9 ? op.bind( (s) -> new NoOp<>( s ) ) : op.map( (s) -> s.isEmpty() ? "tom" : s );
+        }
+        return op.run( store );
+    }
+
+    @Benchmark
+    public String nested() {
+        DbOp<String> op = Nested.map( new Get<>( String.class, "a" ), (a) -> a.some() );
+        for (int i = 0; i < steps; i++) {
+            op = i % 10 == 9 ? Nested.bind( op, (s) -> new NoOp<>( s ) ) : Nested.map( op, (s) -> s.isEmpty() ? "tom" : s );
+        }
+        return op.run( store );
+    }
+
+    /**
+     * map and bind as they were before the ops were made data.
+     */
+    static class Nested {
+
+        static <A, B> DbOp<B> map(final DbOp<A> op, final Func<A, B> f) {
+            return new DbOp<B>() {
+                @Override public B run(Map<String, Object> stor) {
+                    return f.f( op.run( stor ) );
+                }
+            };
+        }
+
+        static <A, B> DbOp<B> bind(final DbOp<A> op, final Func<A, DbOp<B>> f) {
+            return new DbOp<B>() {
+                @Override public B run(Map<String, Object> stor) {
+                    return f.f( op.run( stor ) ).run( stor );
+                }
+            };
+        }
+    }
+}
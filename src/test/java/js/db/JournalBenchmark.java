@@ -0,0 +1,57 @@
+package js.db;
+
+import js.Gave2;
+import js.Sekk2;
+import js.Weight2;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same op as POST /sekk2 against a durable MemoryDb, where every op waits for its record to be forced to disk. With
+ * more threads, more records share each fsync.
+ * <p/>
+ * Run with <code>mvn test-compile</code> and <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main JournalBenchmark -t 16</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class JournalBenchmark {
+
+    private File dir;
+
+    private MemoryDb db;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory( "journal" ).toFile();
+        db = MemoryDb.open( dir, Codecs.defaults(), 4 * 1024 * 1024 );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        db.close();
+        File[] files = dir.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            Files.delete( file.toPath() );
+        }
+        Files.delete( dir.toPath() );
+    }
+
+    @Benchmark
+    public Sekk2 post() {
+        String sekk = "sekk" + ThreadLocalRandom.current().nextInt( 100 );
+        Gave2 gave = new Gave2( "gave", new Weight2( 1 ) );
+        return db.run( new Get<>( Sekk2.class, sekk )
+                .map( (kanskjeSekk) -> kanskjeSekk.orSome( () -> Sekk2.nyTomSekk( sekk ) ) )
+                .map( (s) -> s.leggTilGave( gave ) )
+                .bind( Put.put( sekk ) ) );
+    }
+}
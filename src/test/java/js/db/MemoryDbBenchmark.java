@@ -0,0 +1,78 @@
+package js.db;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A 90/10 mix of read only ops that read two keys and ops that move a count from one key to another, against the
+ * MemoryDb and against a HashMap behind one lock.
+ * <p/>
+ * Run with <code>mvn test-compile</code> and <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main MemoryDbBenchmark -t 8</code>,
+ * with -t set to each thread count to measure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryDbBenchmark {
+
+    private static final int keys = 1000;
+
+    @Param({"mvcc", "locked"})
+    public String store;
+
+    private Db db;
+
+    private DbOp<Integer>[] sums;
+
+    private DbOp<Integer>[] transfers;
+
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setup() {
+        db = store.equals( "mvcc" ) ? new Mvcc() : new Locked();
+        sums = new DbOp[keys];
+        transfers = new DbOp[keys];
+        for (int i = 0; i < keys; i++) {
+            final String a = "k" + i;
+            final String b = "k" + (i + 1) % keys;
+            db.run( Put.put( a, 1000 ) );
+            sums[i] = new Get<>( Integer.class, a ).bind( (x) -> new Get<>( Integer.class, b ).map( (y) -> x.some() + y.some() ) );
+            transfers[i] = new Get<>( Integer.class, a ).bind( (x) -> new Get<>( Integer.class, b ).bind( (y) ->
+                    Put.put( a, x.some() - 1 ).bind( (ignored) -> Put.put( b, y.some() + 1 ) ) ) );
+        }
+    }
+
+    @Benchmark
+    public Integer mix() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt( keys );
+        return db.run( random.nextInt( 10 ) == 0 ? transfers[key] : sums[key] );
+    }
+
+    interface Db {
+        <A> A run(DbOp<A> op);
+    }
+
+    static class Mvcc implements Db {
+        private final MemoryDb db = new MemoryDb();
+
+        @Override public <A> A run(DbOp<A> op) {
+            return db.run( op );
+        }
+    }
+
+    static class Locked implements Db {
+        private final Map<String, Object> store = new HashMap<>();
+
+        @Override public synchronized <A> A run(DbOp<A> op) {
+            return op.run( store );
+        }
+    }
+}
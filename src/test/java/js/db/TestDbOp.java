@@ -0,0 +1,69 @@
+package js.db;
+
+import fj.P2;
+import fj.data.List;
+import fj.data.Option;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestDbOp {
+
+    private static final int steps = 100000;
+
+    private static DbOp<Integer> countDown(int n) {
+        if (n == 0)
+            return new NoOp<>( 0 );
+        return new NoOp<>( n ).bind( (ignored) -> countDown( n - 1 ) ).map( (count) -> count + 1 );
+    }
+
+    @Test
+    public void longChainsRunWithoutGrowingTheStack() {
+        Map<String, Object> store = new HashMap<>();
+        store.put( "a", 1 );
+
+        DbOp<Integer> maps = new Get<>( Integer.class, "a" ).map( (a) -> a.some() );
+        DbOp<Integer> binds = maps;
+        for (int i = 0; i < steps; i++) {
+            maps = maps.map( (n) -> n + 1 );
+            binds = binds.bind( (n) -> Put.put( "a", n + 1 ) );
+        }
+
+        Assert.assertEquals( (Integer) (steps + 1), maps.run( store ) );
+        Assert.assertEquals( (Integer) (steps + 1), binds.run( store ) );
+        Assert.assertEquals( (Integer) steps, countDown( steps ).run( store ) );
+    }
+
+    @Test
+    public void zipAndGetAllReadSeveralKeys() {
+        Map<String, Object> store = new HashMap<>();
+        store.put( "a", 1 );
+        store.put( "b", 2 );
+
+        P2<Option<Integer>, Option<Integer>> both =
+                new Get<>( Integer.class, "a" ).zip( new Get<>( Integer.class, "b" ) ).run( store );
+        Assert.assertEquals( (Integer) 3, (Integer) (both._1().some() + both._2().some()) );
+
+        List<Option<Integer>> all = Get.all( Integer.class, List.list( "a", "b", "c" ) ).run( store );
+        Assert.assertEquals( List.list( Option.some( 1 ), Option.some( 2 ), Option.<Integer>none() ).toString(), all.toString() );
+    }
+
+    @Test
+    public void zipRunsTheLeftSideFirst() {
+        Map<String, Object> store = new HashMap<>();
+        store.put( "b", 2 );
+
+        P2<Integer, Option<Integer>> leaf = Put.put( "a", 5 ).zip( new Get<>( Integer.class, "a" ) ).run( store );
+        Assert.assertEquals( (Integer) 5, leaf._2().some() );
+
+        P2<P2<Integer, Option<Integer>>, Integer> composed = Put.put( "a", 6 )
+                .zip( new Get<>( Integer.class, "a" ) )
+                .zip( new Get<>( Integer.class, "b" ).bind( (b) -> Put.put( "b", b.some() + 1 ) ).map( (b) -> b * 10 ) )
+                .run( store );
+        Assert.assertEquals( (Integer) 6, composed._1()._2().some() );
+        Assert.assertEquals( (Integer) 30, composed._2() );
+        Assert.assertEquals( 3, store.get( "b" ) );
+    }
+}
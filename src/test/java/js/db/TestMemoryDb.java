@@ -0,0 +1,166 @@
+package js.db;
+
+import fj.data.Option;
+import fj.data.Stream;
+import js.Gave2;
+import js.Sekk2;
+import js.Weight2;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class TestMemoryDb {
+
+    private static final int threads = 8;
+
+    private static final int opsPerThread = 2000;
+
+    @Test
+    public void concurrentPutsLoseNoGifts() throws Exception {
+        final MemoryDb db = new MemoryDb();
+        ExecutorService pool = Executors.newFixedThreadPool( threads );
+        List<Future<Object>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            results.add( pool.submit( (Callable<Object>) () -> {
+                for (int i = 0; i < opsPerThread; i++) {
+                    db.run( DbFixtures.leggTil( new Gave2( thread + "-" + i, new Weight2( i ) ) ) );
+                }
+                return null;
+            } ) );
+        }
+        for (Future<Object> result : results) {
+            result.get( 60, TimeUnit.SECONDS );
+        }
+        pool.shutdown();
+
+        Option<Sekk2> sekk = db.run( new Get<>( Sekk2.class, "norge" ) );
+        Assert.assertEquals( threads * opsPerThread, sekk.some().gaver.length() );
+    }
+
+    @Test
+    public void readersSeeConsistentSnapshots() throws Exception {
+        final MemoryDb db = new MemoryDb();
+        db.run( Put.put( "a", 1000 ).bind( (ignored) -> Put.put( "b", 1000 ) ) );
+
+        final DbOp<Integer> sum =
+                new Get<>( Integer.class, "a" ).bind( (a) -> new Get<>( Integer.class, "b" ).map( (b) -> a.some() + b.some() ) );
+
+        final DbOp<Integer> transfer =
+                new Get<>( Integer.class, "a" ).bind( (a) -> new Get<>( Integer.class, "b" ).bind( (b) ->
+                        Put.put( "a", a.some() - 1 ).bind( (ignored) -> Put.put( "b", b.some() + 1 ) ) ) );
+
+        ExecutorService pool = Executors.newFixedThreadPool( threads );
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final boolean writer = t % 2 == 0;
+            results.add( pool.submit( () -> {
+                for (int i = 0; i < opsPerThread; i++) {
+                    if (writer)
+                        db.run( transfer );
+                    else if (db.run( sum ) != 2000)
+                        return false;
+                }
+                return true;
+            } ) );
+        }
+        for (Future<Boolean> result : results) {
+            Assert.assertTrue( "A reader saw a torn transfer", result.get( 60, TimeUnit.SECONDS ) );
+        }
+        pool.shutdown();
+
+        Assert.assertEquals( (Integer) (1000 - threads / 2 * opsPerThread), db.run( new Get<>( Integer.class, "a" ) ).some() );
+    }
+
+    @Test
+    public void snapshotIsNotChangedByLaterCommits() {
+        MemoryDb db = new MemoryDb();
+        db.run( Put.put( "a", 1 ) );
+        MemoryDb.Snapshot snapshot = db.snapshot();
+        db.run( Put.put( "a", 2 ).bind( (ignored) -> Put.put( "b", 3 ) ) );
+        db.run( new Delete<>( new Id<>( "a", 2 ) ) );
+
+        Assert.assertEquals( (Integer) 1, snapshot.run( new Get<>( Integer.class, "a" ) ).some() );
+        Assert.assertFalse( snapshot.containsKey( "b" ) );
+        Assert.assertEquals( (Integer) 3, db.snapshot().run( new Get<>( Integer.class, "b" ) ).some() );
+        Assert.assertFalse( db.snapshot().containsKey( "a" ) );
+    }
+
+    @Test
+    public void durableDbRecoversSnapshotAndLog() throws Exception {
+        File dir = DbFixtures.tempDir();
+        try {
+            MemoryDb db = MemoryDb.open( dir );
+            db.run( DbFixtures.leggTil( new Gave2( "sokker", new Weight2( 1 ) ) ) );
+            db.run( Put.put( "a", 1 ) );
+            db.checkpoint();
+            db.run( DbFixtures.leggTil( new Gave2( "bok", new Weight2( 2 ) ) ) );
+            db.run( new Delete<>( new Id<>( "a", 1 ) ) );
+
+            MemoryDb recovered = MemoryDb.open( dir );
+            Sekk2 sekk = recovered.run( new Get<>( Sekk2.class, "norge" ) ).some();
+            Assert.assertEquals( "[bok, sokker]", sekk.gaver.map( (gave) -> gave.betegnelse ).toList().toCollection().toString() );
+            Assert.assertFalse( recovered.snapshot().containsKey( "a" ) );
+            db.close();
+            recovered.close();
+        } finally {
+            DbFixtures.delete( dir );
+        }
+    }
+
+    @Test
+    public void subclassesAreStoredWithTheCodecOfTheirSuperclass() throws Exception {
+        File dir = DbFixtures.tempDir();
+        try {
+            MemoryDb db = MemoryDb.open( dir );
+            db.run( Put.put( "norge", new Sekk2( "norge", Stream.single( new Gave2( "bok", new Weight2( 2 ) ) ) ) {
+            } ) );
+            db.close();
+
+            MemoryDb recovered = MemoryDb.open( dir );
+            Sekk2 sekk = recovered.run( new Get<>( Sekk2.class, "norge" ) ).some();
+            Assert.assertEquals( Sekk2.class, sekk.getClass() );
+            Assert.assertEquals( "bok", sekk.gaver.head().betegnelse );
+            recovered.close();
+        } finally {
+            DbFixtures.delete( dir );
+        }
+    }
+
+    @Test
+    public void recoveryDropsTornRecordAtEndOfLog() throws Exception {
+        File dir = DbFixtures.tempDir();
+        try {
+            MemoryDb db = MemoryDb.open( dir );
+            db.run( Put.put( "a", 1 ) );
+            db.run( Put.put( "a", 2 ) );
+            db.close();
+
+            File log = new File( dir, "wal.0" );
+            long length = log.length();
+            try (RandomAccessFile file = new RandomAccessFile( log, "rw" )) {
+                file.setLength( length - 1 );
+            }
+
+            MemoryDb recovered = MemoryDb.open( dir );
+            Assert.assertEquals( (Integer) 1, recovered.run( new Get<>( Integer.class, "a" ) ).some() );
+            recovered.run( Put.put( "a", 3 ) );
+            recovered.close();
+
+            MemoryDb reopened = MemoryDb.open( dir );
+            Assert.assertEquals( (Integer) 3, reopened.run( new Get<>( Integer.class, "a" ) ).some() );
+            reopened.close();
+        } finally {
+            DbFixtures.delete( dir );
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package js.db;
+
+import fj.data.List;
+import fj.data.Option;
+import js.Gave2;
+import js.Sekk2;
+import js.Weight2;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Random;
+
+public class TestWeightIndex {
+
+    private static String names(List<Gave2> gaver) {
+        return gaver.map( (gave) -> gave.betegnelse ).toString();
+    }
+
+    @Test
+    public void indexAnswersLikeFilteringTheSekk() {
+        MemoryDb db = new MemoryDb();
+        Random random = new Random( 1 );
+        for (int i = 0; i < 500; i++) {
+            db.run( DbFixtures.leggTil( new Gave2( "gave" + i, new Weight2( random.nextInt( 50 ) ) ) ) );
+
+            double threshold = random.nextInt( 50 );
+            Sekk2 sekk = db.run( new Get<>( Sekk2.class, "norge" ) ).some();
+            ArrayList<Gave2> heavier = new ArrayList<>();
+            for (Gave2 gave : sekk.gaver.filter( (gave) -> gave.vekt.value > threshold )) {
+                heavier.add( gave );
+            }
+            heavier.sort( Comparator.comparingDouble( (Gave2 gave) -> gave.vekt.value ) );
+            List<Gave2> expected = List.iterableList( heavier );
+
+            Assert.assertEquals( names( expected ), names( db.run( new HeavierThan( "norge", threshold ) ).some() ) );
+            Assert.assertEquals( names( expected ), names( db.snapshot().run( new HeavierThan( "norge", threshold ) ).some() ) );
+            Assert.assertEquals( names( expected ), names( new HeavierThan( "norge", threshold ).run( new HashMap<>( db.snapshot() ) ).some() ) );
+
+            ArrayList<Gave2> all = new ArrayList<>();
+            for (Gave2 gave : sekk.gaver) {
+                all.add( gave );
+            }
+            all.sort( Comparator.comparingDouble( (Gave2 gave) -> gave.vekt.value ) );
+            Assert.assertEquals( names( List.iterableList( all ) ), names( db.run( new HeavierThan( "norge", Option.<Double>none() ) ).some() ) );
+        }
+    }
+
+    @Test
+    public void queryInSameOpSeesItsOwnWrites() {
+        MemoryDb db = new MemoryDb();
+        db.run( DbFixtures.leggTil( new Gave2( "sokker", new Weight2( 1 ) ) ) );
+
+        Option<List<Gave2>> heavy =
+                db.run( DbFixtures.leggTil( new Gave2( "sykkel", new Weight2( 20 ) ) ).bind( (sekk) -> new HeavierThan( "norge", 10 ) ) );
+
+        Assert.assertEquals( "<sykkel>", names( heavy.some() ) );
+        Assert.assertEquals( "<sykkel>", names( db.run( new HeavierThan( "norge", 10 ) ).some() ) );
+        Assert.assertTrue( db.run( new HeavierThan( "sverige", 10 ) ).isNone() );
+    }
+}
@@ -0,0 +1,83 @@
+package peak;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal servlet request and response stand-ins for benchmarks, built with dynamic proxies. Methods that are not
+ * answered by the given handler return null, zero or false.
+ */
+public class ServletStubs {
+
+    public static HttpServletRequest request(final InvocationHandler handler) {
+        return stub( HttpServletRequest.class, handler );
+    }
+
+    public static HttpServletResponse response(final InvocationHandler handler) {
+        return stub( HttpServletResponse.class, handler );
+    }
+
+    /**
+     * A GET request whose parameter map is copied on every call, the way Jetty does it.
+     */
+    public static HttpServletRequest getRequest(final String path, final Map<String, String[]> parameters) {
+        return request( (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getMethod":
+                    return "GET";
+                case "getRequestURI":
+                    return path;
+                case "getContextPath":
+                    return "";
+                case "getParameterMap":
+                    return new HashMap<String, String[]>( parameters );
+                case "getParameter":
+                    String[] values = parameters.get( (String) args[0] );
+                    return values == null ? null : values[0];
+                default:
+                    return null;
+            }
+        } );
+    }
+
+    /**
+     * A servlet context that keeps its attributes in a map.
+     */
+    public static ServletContext context() {
+        final Map<String, Object> attributes = new HashMap<>();
+        return stub( ServletContext.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getAttribute":
+                    return attributes.get( (String) args[0] );
+                case "setAttribute":
+                    return attributes.put( (String) args[0], args[1] );
+                case "getAttributeNames":
+                    return Collections.enumeration( new ArrayList<>( attributes.keySet() ) );
+                default:
+                    return null;
+            }
+        } );
+    }
+
+    private static <A> A stub(final Class<A> type, final InvocationHandler handler) {
+        return type.cast( Proxy.newProxyInstance( ServletStubs.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result = handler.invoke( proxy, method, args );
+            if (result != null || !method.getReturnType().isPrimitive())
+                return result;
+            if (method.getReturnType() == boolean.class)
+                return false;
+            if (method.getReturnType() == long.class)
+                return 0L;
+            if (method.getReturnType() == void.class)
+                return null;
+            return 0;
+        } ) );
+    }
+}
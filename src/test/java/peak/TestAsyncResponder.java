@@ -0,0 +1,97 @@
+package peak;
+
+import com.ning.http.client.ListenableFuture;
+import com.ning.http.client.Response;
+import fj.P;
+import fj.Unit;
+import fj.control.parallel.Promise;
+import fj.control.parallel.Strategy;
+import js.TestWebServer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.Assert;
+import org.junit.Test;
+import peak.response.StringResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TestAsyncResponder {
+
+    private static final int concurrentRequests = 100;
+
+    private static final long delay = 500;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Evaluates each promise after a delay on a single scheduler thread, like a slow downstream call that answers with a
+     * callback.
+     */
+    private final Strategy<Unit> later =
+            Strategy.strategy( (p) -> Strategy.obtain( scheduler.schedule( () -> p._1(), delay, TimeUnit.MILLISECONDS ) ) );
+
+    private class SlowApp extends WebApplication {
+        @Override protected RouteBuilder init(RouteBuilder builder) {
+            return builder
+                    .getAsync( "/slow", (request) -> Promise.promise( later, P.p( new StringResponse( "slow" ) ) ) )
+                    .getAsync( "/broken", (request) -> Promise.promise( later, P.p( "broken" ) ).fmap( (s) -> {
+                        throw new IllegalStateException( s );
+                    } ) );
+        }
+    }
+
+    @Test
+    public void threadCountStaysFlatUnderConcurrentSlowRequests() throws Exception {
+        Server server = TestWebServer.start( 8081, new SlowApp() );
+        try {
+            QueuedThreadPool pool = (QueuedThreadPool) server.getThreadPool();
+            Assert.assertEquals( "slow", TestWebServer.client.prepareGet( "http://localhost:8081/slow" ).execute().get().getResponseBody() );
+            int before = pool.getThreads();
+
+            List<ListenableFuture<Response>> calls = new ArrayList<ListenableFuture<Response>>();
+            for (int i = 0; i < concurrentRequests; i++) {
+                calls.add( TestWebServer.client.prepareGet( "http://localhost:8081/slow" ).execute() );
+            }
+
+            int max = before;
+            while (!allDone( calls )) {
+                max = Math.max( max, pool.getThreads() );
+                Thread.sleep( 10 );
+            }
+            for (ListenableFuture<Response> call : calls) {
+                Assert.assertEquals( "slow", call.get().getResponseBody() );
+            }
+
+            Assert.assertTrue( "Jetty grew from " + before + " to " + max + " threads", max < before + concurrentRequests / 4 );
+        } finally {
+            server.stop();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void failedPromiseIsAnsweredPromptlyWithServerError() throws Exception {
+        Server server = TestWebServer.start( 8081, new SlowApp() );
+        try {
+            long started = System.currentTimeMillis();
+            Response response = TestWebServer.client.prepareGet( "http://localhost:8081/broken" ).execute().get();
+            Assert.assertEquals( 500, response.getStatusCode() );
+            Assert.assertTrue( System.currentTimeMillis() - started < 10 * delay );
+        } finally {
+            server.stop();
+            scheduler.shutdown();
+        }
+    }
+
+    private static boolean allDone(List<ListenableFuture<Response>> calls) {
+        for (ListenableFuture<Response> call : calls) {
+            if (!call.isDone())
+                return false;
+        }
+        return true;
+    }
+}
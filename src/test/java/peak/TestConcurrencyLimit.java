@@ -0,0 +1,164 @@
+package peak;
+
+import fj.P1;
+import fj.Unit;
+import fj.control.parallel.Promise;
+import fj.control.parallel.Strategy;
+import org.junit.Assert;
+import org.junit.Test;
+import peak.request.Request;
+import peak.response.ResponseBuilder;
+import peak.response.ResponseCode;
+import peak.response.StringResponse;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class TestConcurrencyLimit {
+
+    @Test
+    public void requestsOverTheLimitAreRejectedAtOnce() throws Exception {
+        final ConcurrencyLimit limit = ConcurrencyLimit.fixed( 2 );
+        final CountDownLatch entered = new CountDownLatch( 2 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final Responder blocked = limit.wrap( (request) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new StringResponse( "ok" );
+        } );
+
+        ExecutorService pool = Executors.newFixedThreadPool( 2 );
+        List<Future<Object>> running = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            running.add( pool.submit( () -> blocked.run( null ) ) );
+        }
+        entered.await( 5, TimeUnit.SECONDS );
+
+        long started = System.nanoTime();
+        Assert.assertSame( ResponseCode.service_unavailable, blocked.run( null ) );
+        Assert.assertTrue( System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos( 100 ) );
+        Assert.assertEquals( 1, limit.rejected() );
+
+        release.countDown();
+        for (Future<Object> f : running) {
+            ((ResponseBuilder) f.get( 5, TimeUnit.SECONDS )).handle( null, written( new ByteArrayOutputStream() ) );
+        }
+        pool.shutdown();
+        Assert.assertEquals( 0, limit.inFlight() );
+    }
+
+    @Test
+    public void placesAreHeldUntilTheResponseIsWritten() throws Exception {
+        final ConcurrencyLimit limit = ConcurrencyLimit.fixed( 1 );
+        final int[] inFlightWhileWriting = new int[1];
+        Responder writing = limit.wrap( (request) -> new ResponseBuilder() {
+            @Override public void handle(HttpServletRequest req, HttpServletResponse response) {
+                inFlightWhileWriting[0] = limit.inFlight();
+                throw new IllegalStateException( "broken" );
+            }
+        } );
+
+        ResponseBuilder builder = (ResponseBuilder) writing.run( null );
+        Assert.assertEquals( 1, limit.inFlight() );
+        Assert.assertSame( ResponseCode.service_unavailable, writing.run( null ) );
+        try {
+            builder.handle( null, written( new ByteArrayOutputStream() ) );
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals( 1, inFlightWhileWriting[0] );
+        }
+        Assert.assertEquals( 0, limit.inFlight() );
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ((ResponseBuilder) limit.wrap( (request) -> new StringResponse( "ok" ) ).run( null ))
+                .handle( null, written( body ) );
+        Assert.assertEquals( "ok", body.toString( "UTF-8" ) );
+        Assert.assertEquals( 0, limit.inFlight() );
+    }
+
+    private static HttpServletResponse written(final ByteArrayOutputStream body) {
+        return ServletStubs.response( (proxy, method, args) -> !method.getName().equals( "getOutputStream" ) ? null
+                : new ServletOutputStream() {
+                    @Override public void write(int b) {
+                        body.write( b );
+                    }
+                } );
+    }
+
+    @Test
+    public void queuedRequestsGetThePlaceThatIsGivenBack() throws Exception {
+        final ConcurrencyLimit limit = ConcurrencyLimit.fixed( 1 ).withQueue( 1, 5, TimeUnit.SECONDS );
+        Assert.assertTrue( limit.acquire() );
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<Boolean> queued = pool.submit( limit::acquire );
+        Thread.sleep( 50 );
+        Assert.assertFalse( limit.acquire() );
+
+        limit.release( 0 );
+        Assert.assertTrue( queued.get( 5, TimeUnit.SECONDS ) );
+        Assert.assertEquals( 1, limit.inFlight() );
+        pool.shutdown();
+
+        ConcurrencyLimit impatient = ConcurrencyLimit.fixed( 1 ).withQueue( 1, 20, TimeUnit.MILLISECONDS );
+        Assert.assertTrue( impatient.acquire() );
+        Assert.assertFalse( impatient.acquire() );
+    }
+
+    @Test
+    public void adaptiveLimitFollowsLatency() {
+        ConcurrencyLimit limit = ConcurrencyLimit.adaptive( 1, 50, 10, TimeUnit.MILLISECONDS );
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue( limit.acquire() );
+            limit.release( TimeUnit.MILLISECONDS.toNanos( 1 ) );
+        }
+        Assert.assertTrue( "limit grew to " + limit.limit(), limit.limit() > 30 );
+
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue( limit.acquire() );
+            limit.release( TimeUnit.MILLISECONDS.toNanos( 100 ) );
+        }
+        Assert.assertTrue( "limit shrank to " + limit.limit(), limit.limit() < 10 );
+        Assert.assertTrue( limit.limit() >= 1 );
+    }
+
+    @Test
+    public void failedPromisesGiveTheirPlaceBack() throws Exception {
+        final ConcurrencyLimit limit = ConcurrencyLimit.fixed( 1 );
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        final Strategy<Unit> strategy = Strategy.executorStrategy( pool );
+        final AsyncResponder failing = (AsyncResponder) limit.wrap( (AsyncResponder) (request) ->
+                Promise.promise( strategy, new P1<ResponseBuilder>() {
+                    public ResponseBuilder _1() {
+                        throw new IllegalStateException( "broken" );
+                    }
+                } ) );
+        Request request = new Request( ServletStubs.getRequest( "/sekk5", new HashMap<String, String[]>() ), null );
+
+        for (int i = 0; i < 3; i++) {
+            final CountDownLatch failed = new CountDownLatch( 1 );
+            failing.runAsync( request ).onFailure( (t) -> failed.countDown() );
+            Assert.assertTrue( failed.await( 5, TimeUnit.SECONDS ) );
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( 5 );
+            while (limit.inFlight() > 0 && System.nanoTime() < deadline)
+                Thread.sleep( 1 );
+            Assert.assertEquals( 0, limit.inFlight() );
+        }
+        Assert.assertEquals( 0, limit.rejected() );
+        pool.shutdown();
+    }
+}
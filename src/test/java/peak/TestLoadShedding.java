@@ -0,0 +1,80 @@
+package peak;
+
+import com.ning.http.client.ListenableFuture;
+import com.ning.http.client.Response;
+import js.TestWebServer;
+import org.eclipse.jetty.server.Server;
+import org.junit.Assert;
+import org.junit.Test;
+import peak.response.StringResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saturates an expensive route with more concurrent requests than Jetty has threads, and measures a cheap route on the
+ * same server meanwhile.
+ */
+public class TestLoadShedding {
+
+    private static final int slowRequests = 400;
+
+    private static final int cheapRequests = 200;
+
+    private static final long slowMillis = 1000;
+
+    private class App extends WebApplication {
+        @Override protected RouteBuilder init(RouteBuilder builder) {
+            return builder
+                    .get( "/", (request) -> new StringResponse( "ok" ) )
+                    .get( "/slow" ).limited( ConcurrencyLimit.fixed( 8 ).withQueue( 8, 200, TimeUnit.MILLISECONDS ) ).handle( (request) -> {
+                        try {
+                            Thread.sleep( slowMillis );
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return new StringResponse( "slow" );
+                    } );
+        }
+    }
+
+    @Test
+    public void cheapRouteStaysFastWhileSlowRouteIsSaturated() throws Exception {
+        Server server = TestWebServer.start( 8083, new App() );
+        try {
+            Assert.assertEquals( "ok", TestWebServer.client.prepareGet( "http://localhost:8083/" ).execute().get().getResponseBody() );
+
+            List<ListenableFuture<Response>> slow = new ArrayList<ListenableFuture<Response>>();
+            for (int i = 0; i < slowRequests; i++) {
+                slow.add( TestWebServer.client.prepareGet( "http://localhost:8083/slow" ).execute() );
+            }
+
+            long[] latencies = new long[cheapRequests];
+            for (int i = 0; i < cheapRequests; i++) {
+                long started = System.nanoTime();
+                Assert.assertEquals( 200, TestWebServer.client.prepareGet( "http://localhost:8083/" ).execute().get().getStatusCode() );
+                latencies[i] = System.nanoTime() - started;
+            }
+            Arrays.sort( latencies );
+            long p99 = TimeUnit.NANOSECONDS.toMillis( latencies[cheapRequests * 99 / 100 - 1] );
+
+            int served = 0;
+            int shed = 0;
+            for (ListenableFuture<Response> call : slow) {
+                int status = call.get().getStatusCode();
+                if (status == 200)
+                    served++;
+                else if (status == 503)
+                    shed++;
+            }
+
+            Assert.assertEquals( slowRequests, served + shed );
+            Assert.assertTrue( "only " + shed + " slow requests were shed", shed >= slowRequests / 2 );
+            Assert.assertTrue( "cheap p99 was " + p99 + " ms", p99 < slowMillis / 5 );
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package peak;
+
+import fj.data.List;
+import org.junit.Assert;
+import org.junit.Test;
+import peak.request.Request;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestRequestKey {
+
+    private static Request get(String path, String name, String... values) {
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put( name, values );
+        parameters.put( "ignored", new String[]{"x"} );
+        return new Request( ServletStubs.getRequest( path, parameters ), null );
+    }
+
+    @Test
+    public void keysHoldThePathAndTheChosenParameters() {
+        Assert.assertEquals( "/sekk5?vekt=1&vekt=2", RequestKey.of( get( "/sekk5", "vekt", "1", "2" ), List.list( "vekt" ) ) );
+        Assert.assertEquals( "/sekk5", RequestKey.of( get( "/sekk5", "vekt", "1" ), List.<String>nil() ) );
+    }
+
+    @Test
+    public void valuesCannotForgeTheKeyOfAnotherRequest() {
+        String two = RequestKey.of( get( "/sekk5", "vekt", "1", "2" ), List.list( "vekt" ) );
+        String one = RequestKey.of( get( "/sekk5", "vekt", "1&vekt=2" ), List.list( "vekt" ) );
+        Assert.assertFalse( two.equals( one ) );
+        Assert.assertEquals( "/sekk5?vekt=1%26vekt%3D2", one );
+    }
+}
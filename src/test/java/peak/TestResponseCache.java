@@ -0,0 +1,263 @@
+package peak;
+
+import js.Gave2;
+import js.Sekk2;
+import js.Weight2;
+import js.db.Delete;
+import js.db.Get;
+import js.db.Id;
+import js.db.MemoryDb;
+import js.db.Put;
+import org.junit.Assert;
+import org.junit.Test;
+import peak.request.Request;
+import peak.response.CompressedResponse;
+import peak.response.ResponseBuilder;
+import peak.response.StringResponse;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestResponseCache {
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private final MemoryDb db = new MemoryDb();
+
+    /**
+     * Lists the gifts of norge, and counts how often it runs.
+     */
+    private final Responder sekk = (request) -> {
+        runs.incrementAndGet();
+        return new StringResponse( db.run( new Get<>( Sekk2.class, "norge" ) ).map( (s) -> s.gaver.toString() ).orSome( "" ) );
+    };
+
+    private static Request get(String path, String... params) {
+        Map<String, String[]> parameters = new HashMap<>();
+        for (int i = 0; i < params.length; i += 2) {
+            parameters.put( params[i], new String[]{params[i + 1]} );
+        }
+        return new Request( ServletStubs.getRequest( path, parameters ), null );
+    }
+
+    private static Request withAcceptEncoding(final Request request, final String acceptEncoding) {
+        final HttpServletRequest underlying = request.underlying;
+        return new Request( ServletStubs.request( (proxy, method, args) -> {
+            if (method.getName().equals( "getHeader" ))
+                return "Accept-Encoding".equals( args[0] ) ? acceptEncoding : null;
+            return method.invoke( underlying, args );
+        } ), null );
+    }
+
+    /**
+     * Runs the responder and writes its response, the way RouteFilter does, and gives the headers and body written.
+     */
+    private static Map<String, String> answer(Responder responder, Request request) throws Exception {
+        final Map<String, String> written = new HashMap<>();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = ServletStubs.response( (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getOutputStream":
+                    return new ServletOutputStream() {
+                        @Override public void write(int b) {
+                            body.write( b );
+                        }
+                    };
+                case "getWriter":
+                    return new PrintWriter( new OutputStreamWriter( body, StandardCharsets.UTF_8 ), true );
+                case "setHeader":
+                case "addHeader":
+                    written.put( (String) args[0], (String) args[1] );
+                    return null;
+                case "getCharacterEncoding":
+                    return "UTF-8";
+                default:
+                    return null;
+            }
+        } );
+        ResponseBuilder builder = responder.run( request );
+        builder.handle( request.underlying, response );
+        written.put( "body", new String( body.toByteArray(), StandardCharsets.ISO_8859_1 ) );
+        return written;
+    }
+
+    @Test
+    public void repeatedRequestsAreAnsweredFromTheCache() throws Exception {
+        ResponseCache cache = new ResponseCache( 10, 1, TimeUnit.MINUTES );
+        Responder cached = cache.by( "vekt" ).wrap( sekk );
+
+        String first = answer( cached, get( "/sekk5", "vekt", "2" ) ).get( "body" );
+        Assert.assertEquals( first, answer( cached, get( "/sekk5", "vekt", "2" ) ).get( "body" ) );
+        Assert.assertEquals( first, answer( cached, get( "/sekk5", "vekt", "2", "annen", "x" ) ).get( "body" ) );
+        answer( cached, get( "/sekk5", "vekt", "3" ) );
+        answer( cached, get( "/sekk5" ) );
+
+        Assert.assertEquals( 3, runs.get() );
+        Assert.assertEquals( 2, cache.hits() );
+        Assert.assertEquals( 3, cache.misses() );
+    }
+
+    @Test
+    public void putAndDeleteInvalidateTaggedEntries() throws Exception {
+        ResponseCache cache = new ResponseCache( 10, 1, TimeUnit.MINUTES );
+        db.onWrite( cache::invalidate );
+        Responder cached = cache.by( "vekt" ).invalidatedBy( "norge" ).wrap( sekk );
+        Responder untagged = cache.by().wrap( sekk );
+
+        answer( cached, get( "/sekk5" ) );
+        answer( untagged, get( "/annen" ) );
+        db.run( Put.put( "norge", Sekk2.nyTomSekk( "norge" ).leggTilGave( new Gave2( "sokker", new Weight2( 1 ) ) ) ) );
+        answer( cached, get( "/sekk5" ) );
+        answer( untagged, get( "/annen" ) );
+        Assert.assertEquals( 3, runs.get() );
+
+        db.run( new Delete<>( new Id<Sekk2>( "norge", null ) ) );
+        answer( cached, get( "/sekk5" ) );
+        Assert.assertEquals( 4, runs.get() );
+
+        db.run( Put.put( "sverige", Sekk2.nyTomSekk( "sverige" ) ) );
+        answer( cached, get( "/sekk5" ) );
+        Assert.assertEquals( 4, runs.get() );
+    }
+
+    @Test
+    public void entriesAreEvictedBySizeAndAge() throws Exception {
+        ResponseCache small = new ResponseCache( 2, 1, TimeUnit.MINUTES );
+        Responder cached = small.by( "vekt" ).wrap( sekk );
+        answer( cached, get( "/sekk5", "vekt", "1" ) );
+        answer( cached, get( "/sekk5", "vekt", "2" ) );
+        answer( cached, get( "/sekk5", "vekt", "1" ) );
+        answer( cached, get( "/sekk5", "vekt", "3" ) );
+        Assert.assertEquals( 2, small.size() );
+        answer( cached, get( "/sekk5", "vekt", "1" ) );
+        Assert.assertEquals( 3, runs.get() );
+        answer( cached, get( "/sekk5", "vekt", "2" ) );
+        Assert.assertEquals( 4, runs.get() );
+
+        ResponseCache shortLived = new ResponseCache( 10, 10, TimeUnit.MILLISECONDS );
+        Responder expiring = shortLived.by().wrap( sekk );
+        answer( expiring, get( "/sekk5" ) );
+        Thread.sleep( 20 );
+        answer( expiring, get( "/sekk5" ) );
+        Assert.assertEquals( 6, runs.get() );
+    }
+
+    /**
+     * Writes the given number of bytes, and counts how often it runs.
+     */
+    private Responder writing(final int size) {
+        return (request) -> {
+            runs.incrementAndGet();
+            return new ResponseBuilder() {
+                @Override public void handle(HttpServletRequest req, HttpServletResponse res) throws Exception {
+                    ServletOutputStream out = res.getOutputStream();
+                    for (int i = 0; i < size; i += 100) {
+                        out.write( new byte[Math.min( 100, size - i )] );
+                    }
+                }
+            };
+        };
+    }
+
+    @Test
+    public void bodiesOverTheLimitAreWrittenButNotKept() throws Exception {
+        ResponseCache cache = new ResponseCache( 10, 10000, 1000, 1, TimeUnit.MINUTES );
+        Responder large = cache.by().wrap( writing( 1001 ) );
+        Assert.assertEquals( 1001, answer( large, get( "/stor" ) ).get( "body" ).length() );
+        Assert.assertEquals( 1001, answer( large, get( "/stor" ) ).get( "body" ).length() );
+        Assert.assertEquals( 2, runs.get() );
+        Assert.assertEquals( 0, cache.size() );
+        Assert.assertEquals( 0, cache.bytes() );
+
+        Responder small = cache.by().wrap( writing( 1000 ) );
+        answer( small, get( "/liten" ) );
+        Assert.assertEquals( 1000, answer( small, get( "/liten" ) ).get( "body" ).length() );
+        Assert.assertEquals( 3, runs.get() );
+        Assert.assertEquals( 1000, cache.bytes() );
+    }
+
+    @Test
+    public void entriesAreEvictedByTotalBytes() throws Exception {
+        ResponseCache cache = new ResponseCache( 100, 2500, 1000, 1, TimeUnit.MINUTES );
+        Responder cached = cache.by( "vekt" ).wrap( writing( 1000 ) );
+        answer( cached, get( "/sekk5", "vekt", "1" ) );
+        answer( cached, get( "/sekk5", "vekt", "2" ) );
+        answer( cached, get( "/sekk5", "vekt", "1" ) );
+        answer( cached, get( "/sekk5", "vekt", "3" ) );
+        Assert.assertEquals( 2, cache.size() );
+        Assert.assertEquals( 2000, cache.bytes() );
+        Assert.assertEquals( 3, runs.get() );
+
+        answer( cached, get( "/sekk5", "vekt", "1" ) );
+        Assert.assertEquals( 3, runs.get() );
+        answer( cached, get( "/sekk5", "vekt", "2" ) );
+        Assert.assertEquals( 4, runs.get() );
+
+        cache.invalidateAll();
+        Assert.assertEquals( 0, cache.bytes() );
+    }
+
+    @Test
+    public void hitsWriteTheRecordedBytes() throws Exception {
+        final AtomicInteger handled = new AtomicInteger();
+        Responder counting = (request) -> new ResponseBuilder() {
+            @Override public void handle(HttpServletRequest req, HttpServletResponse res) throws Exception {
+                handled.incrementAndGet();
+                res.setHeader( "X-Sekk", "norge" );
+                res.getWriter().print( "[\"sokker\"]" );
+            }
+        };
+        ResponseCache cache = new ResponseCache( 10, 1, TimeUnit.MINUTES );
+        Responder cached = cache.by().wrap( counting );
+
+        Map<String, String> miss = answer( cached, get( "/sekk5" ) );
+        Map<String, String> hit = answer( cached, get( "/sekk5" ) );
+        Assert.assertEquals( 1, handled.get() );
+        Assert.assertEquals( "[\"sokker\"]", hit.get( "body" ) );
+        Assert.assertEquals( miss.get( "body" ), hit.get( "body" ) );
+        Assert.assertEquals( "norge", hit.get( "X-Sekk" ) );
+        Assert.assertEquals( "10", hit.get( "Content-Length" ) );
+    }
+
+    @Test
+    public void responsesAreKeptForEveryVariant() throws Exception {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            json.append( "{\"betegnelse\":\"gave\"}," );
+        }
+        final String large = json.toString();
+        ResponseCache cache = new ResponseCache( 10, 1, TimeUnit.MINUTES );
+        Responder cached = cache.by().wrap( (request) -> {
+            runs.incrementAndGet();
+            return new CompressedResponse( new StringResponse( large ) );
+        } );
+
+        Map<String, String> gzip = answer( cached, withAcceptEncoding( get( "/sekk5" ), "gzip" ) );
+        Map<String, String> plain = answer( cached, get( "/sekk5" ) );
+        Assert.assertEquals( "gzip", gzip.get( "Content-Encoding" ) );
+        Assert.assertEquals( null, plain.get( "Content-Encoding" ) );
+        Assert.assertEquals( 2, runs.get() );
+
+        Map<String, String> gzipHit = answer( cached, withAcceptEncoding( get( "/sekk5" ), "gzip" ) );
+        Assert.assertEquals( "gzip", gzipHit.get( "Content-Encoding" ) );
+        Assert.assertEquals( gzip.get( "body" ), gzipHit.get( "body" ) );
+        Assert.assertEquals( plain.get( "body" ), answer( cached, get( "/sekk5" ) ).get( "body" ) );
+        Assert.assertEquals( 2, runs.get() );
+        Assert.assertEquals( 1, cache.size() );
+
+        Map<String, String> browser = answer( cached, withAcceptEncoding( get( "/sekk5" ), "gzip, deflate, br" ) );
+        Assert.assertEquals( "gzip", browser.get( "Content-Encoding" ) );
+        Assert.assertEquals( gzip.get( "body" ), browser.get( "body" ) );
+        Assert.assertEquals( plain.get( "body" ), answer( cached, withAcceptEncoding( get( "/sekk5" ), "br" ) ).get( "body" ) );
+        Assert.assertEquals( 2, runs.get() );
+    }
+}
@@ -0,0 +1,64 @@
+package peak;
+
+import js.db.HashMapStore;
+import js.db.MemoryDb;
+import org.junit.Assert;
+import org.junit.Test;
+import peak.lifecycle.Register;
+
+import javax.servlet.ServletContext;
+
+public class TestServices {
+
+    @Test
+    public void servicesAreTakenFromTheContextByClass() {
+        MemoryDb db = new MemoryDb();
+        HashMapStore store = new HashMapStore();
+        ServletContext context = Register.inContext( db ).andThen( Register.inContext( store ) ).f( ServletStubs.context() );
+        context.setAttribute( "annet", "ikke en tjeneste" );
+
+        Services services = Services.fromContext( context );
+        Assert.assertSame( db, services.get( MemoryDb.class ).some() );
+        Assert.assertSame( store, services.get( HashMapStore.class ).some() );
+        Assert.assertSame( services.get( MemoryDb.class ), services.get( MemoryDb.class ) );
+        Assert.assertTrue( services.get( String.class ).isNone() );
+        Assert.assertTrue( Services.empty().get( MemoryDb.class ).isNone() );
+    }
+
+    @Test
+    public void withReplacesAndLeavesTheOriginalAlone() {
+        MemoryDb first = new MemoryDb();
+        MemoryDb second = new MemoryDb();
+        Services one = Services.empty().with( first );
+        Services two = one.with( second );
+        Assert.assertSame( first, one.get( MemoryDb.class ).some() );
+        Assert.assertSame( second, two.get( MemoryDb.class ).some() );
+    }
+
+    @Test
+    public void handlerContextFallsBackToTheServletContext() {
+        ServletContext context = ServletStubs.context();
+        MemoryDb db = new MemoryDb();
+        HandlerContext handlerContext = new HandlerContext( context, Services.empty().with( db ) );
+        HashMapStore store = new HashMapStore();
+        handlerContext.set( store );
+
+        Assert.assertSame( db, handlerContext.get( MemoryDb.class ).some() );
+        Assert.assertSame( store, handlerContext.get( HashMapStore.class ).some() );
+        Assert.assertTrue( handlerContext.get( String.class ).isNone() );
+    }
+
+    @Test
+    public void servicesSetThroughTheHandlerContextReplaceTheRegisteredOnes() {
+        ServletContext context = ServletStubs.context();
+        MemoryDb registered = new MemoryDb();
+        HandlerContext handlerContext = new HandlerContext( context, Services.empty().with( registered ) );
+
+        MemoryDb replacement = new MemoryDb();
+        handlerContext.set( replacement );
+        Assert.assertSame( replacement, handlerContext.get( MemoryDb.class ).some() );
+
+        handlerContext.set( MemoryDb.class.getName(), null );
+        Assert.assertTrue( handlerContext.get( MemoryDb.class ).isNone() );
+    }
+}
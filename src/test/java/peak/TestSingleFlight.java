@@ -0,0 +1,148 @@
+package peak;
+
+import fj.data.Stream;
+import org.junit.Assert;
+import org.junit.Test;
+import peak.request.Request;
+import peak.response.Json;
+import peak.response.JsonResponse;
+import peak.response.ResponseBuilder;
+import peak.response.StringResponse;
+
+import javax.servlet.ServletOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestSingleFlight {
+
+    private static final int clients = 16;
+
+    private static Request get(String path, String vekt) {
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put( "vekt", new String[]{vekt} );
+        return new Request( ServletStubs.getRequest( path, parameters ), null );
+    }
+
+    @Test
+    public void concurrentIdenticalRequestsShareOneRun() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch( 1 );
+        SingleFlight flights = new SingleFlight();
+        final Responder slow = flights.by( "vekt" ).wrap( (request) -> {
+            runs.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new StringResponse( request.getParameter( "vekt" ).some() );
+        } );
+
+        ExecutorService pool = Executors.newFixedThreadPool( clients * 2 );
+        List<Future<ResponseBuilder>> two = new ArrayList<>();
+        List<Future<ResponseBuilder>> three = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            two.add( pool.submit( () -> slow.run( get( "/sekk5", "2" ) ) ) );
+            three.add( pool.submit( () -> slow.run( get( "/sekk5", "3" ) ) ) );
+        }
+        while (flights.runs() + flights.shared() < clients * 2)
+            Thread.sleep( 5 );
+        release.countDown();
+
+        ResponseBuilder first = two.get( 0 ).get( 5, TimeUnit.SECONDS );
+        for (Future<ResponseBuilder> f : two) {
+            Assert.assertSame( first, f.get( 5, TimeUnit.SECONDS ) );
+        }
+        Assert.assertNotSame( first, three.get( 0 ).get( 5, TimeUnit.SECONDS ) );
+        pool.shutdown();
+
+        Assert.assertEquals( 2, runs.get() );
+        Assert.assertEquals( clients * 2 - 2, flights.shared() );
+
+        slow.run( get( "/sekk5", "2" ) );
+        Assert.assertEquals( 3, runs.get() );
+    }
+
+    @Test
+    public void sharedLazyBodiesCanBeWrittenByAllWaitingRequests() throws Exception {
+        final CountDownLatch release = new CountDownLatch( 1 );
+        SingleFlight flights = new SingleFlight();
+        final Responder lazy = flights.by().wrap( (request) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return JsonResponse.array( Stream.range( 0, 2000 ).map( (i) -> "gave " + i ), Json.string );
+        } );
+
+        ExecutorService pool = Executors.newFixedThreadPool( clients );
+        List<Future<String>> bodies = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            bodies.add( pool.submit( () -> {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                lazy.run( get( "/sekk5", "1" ) ).handle( null, ServletStubs.response( (proxy, method, args) ->
+                        !method.getName().equals( "getOutputStream" ) ? null : new ServletOutputStream() {
+                            @Override public void write(int b) {
+                                body.write( b );
+                            }
+                        } ) );
+                return body.toString( "UTF-8" );
+            } ) );
+        }
+        while (flights.runs() + flights.shared() < clients)
+            Thread.sleep( 5 );
+        release.countDown();
+
+        String expected = bodies.get( 0 ).get( 5, TimeUnit.SECONDS );
+        Assert.assertTrue( expected.endsWith( "\"gave 1999\"]" ) );
+        for (Future<String> body : bodies) {
+            Assert.assertEquals( expected, body.get( 5, TimeUnit.SECONDS ) );
+        }
+        pool.shutdown();
+        Assert.assertEquals( 1, flights.runs() );
+    }
+
+    @Test
+    public void waitingRequestsGetTheSameException() throws Exception {
+        final CountDownLatch release = new CountDownLatch( 1 );
+        SingleFlight flights = new SingleFlight();
+        final Responder failing = flights.by().wrap( (request) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException( "nede" );
+        } );
+
+        ExecutorService pool = Executors.newFixedThreadPool( 2 );
+        List<Future<ResponseBuilder>> calls = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            calls.add( pool.submit( () -> failing.run( get( "/sekk5", "1" ) ) ) );
+        }
+        while (flights.runs() + flights.shared() < 2)
+            Thread.sleep( 5 );
+        release.countDown();
+
+        for (Future<ResponseBuilder> call : calls) {
+            try {
+                call.get( 5, TimeUnit.SECONDS );
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertEquals( "nede", e.getCause().getMessage() );
+            }
+        }
+        pool.shutdown();
+    }
+}
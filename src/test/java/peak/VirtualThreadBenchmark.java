@@ -0,0 +1,82 @@
+package peak;
+
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClientConfig;
+import com.ning.http.client.ListenableFuture;
+import com.ning.http.client.Response;
+import js.TestWebServer;
+import org.eclipse.jetty.server.Server;
+import org.openjdk.jmh.annotations.*;
+import peak.response.StringResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires concurrent requests at a route that blocks for 50 ms, with responders on the default Jetty pool and on virtual
+ * threads. Each invocation is one burst; requests per second is <code>requests</code> divided by the score.
+ * <p/>
+ * Virtual threads need Java 21. On older runtimes the application logs a warning and keeps the responders on the
+ * container threads, so both modes measure the default Jetty pool and their numbers are the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VirtualThreadBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"10000"})
+    public int requests;
+
+    private Server server;
+
+    private AsyncHttpClient client;
+
+    @Setup
+    public void setup() throws Exception {
+        final boolean virtual = virtualThreads;
+        server = TestWebServer.start( 8082, new WebApplication() {
+            @Override protected boolean virtualThreads() {
+                return virtual;
+            }
+
+            @Override protected RouteBuilder init(RouteBuilder builder) {
+                return builder.get( "/blocking", (request) -> {
+                    try {
+                        Thread.sleep( 50 );
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new StringResponse( "ok" );
+                } );
+            }
+        } );
+        client = new AsyncHttpClient( new AsyncHttpClientConfig.Builder().setRequestTimeoutInMs( 120000 ).build() );
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public int burst() throws Exception {
+        List<ListenableFuture<Response>> calls = new ArrayList<ListenableFuture<Response>>( requests );
+        for (int i = 0; i < requests; i++) {
+            calls.add( client.prepareGet( "http://localhost:8082/blocking" ).execute() );
+        }
+        int ok = 0;
+        for (ListenableFuture<Response> call : calls) {
+            if (call.get().getStatusCode() == 200)
+                ok++;
+        }
+        return ok;
+    }
+}
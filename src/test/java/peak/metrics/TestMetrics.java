@@ -0,0 +1,63 @@
+package peak.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import peak.request.CompositeMatcher;
+import peak.request.HttpMethod;
+import peak.request.MethodMatcher;
+import peak.request.Route;
+import peak.request.RouteMatcher;
+
+import java.util.Random;
+
+public class TestMetrics {
+
+    @Test
+    public void bucketsAreWithinASixteenthOfTheValue() {
+        Random random = new Random( 1 );
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >>> (24 + random.nextInt( 40 ));
+            int bucket = Histogram.bucketOf( value );
+            long upper = Histogram.upperBound( bucket );
+            long lower = bucket == 0 ? 0 : Histogram.upperBound( bucket - 1 ) + 1;
+            Assert.assertTrue( value + " in [" + lower + ", " + upper + "]", lower <= value && value <= upper );
+            Assert.assertTrue( value + " has a bucket of " + (upper - lower + 1), upper - lower <= Math.max( 0, value / 16 ) );
+        }
+        Assert.assertEquals( Histogram.BUCKETS - 1, Histogram.bucketOf( Long.MAX_VALUE ) );
+    }
+
+    @Test
+    public void quantilesComeFromTheRecordedValues() {
+        Histogram histogram = new Histogram();
+        Assert.assertEquals( 0, histogram.valueAt( 0.5 ) );
+        for (long v = 1; v <= 1000; v++) {
+            histogram.record( v );
+        }
+        Assert.assertEquals( 1000, histogram.count() );
+        Assert.assertEquals( 500500, histogram.sum() );
+        Assert.assertTrue( Math.abs( histogram.valueAt( 0.5 ) - 500 ) <= 500 / 16 );
+        Assert.assertTrue( Math.abs( histogram.valueAt( 0.99 ) - 990 ) <= 990 / 16 );
+    }
+
+    @Test
+    public void routesAreReportedByPattern() {
+        Metrics metrics = new Metrics();
+        RouteMetrics sekk = metrics.route( CompositeMatcher.and( new MethodMatcher( HttpMethod.GET ), new RouteMatcher( new Route( "/sekk/:navn" ) ) ) );
+        Assert.assertSame( sekk, metrics.route( "GET /sekk/:navn" ) );
+
+        sekk.end( sekk.start(), false, 100 );
+        long started = sekk.start();
+        Assert.assertEquals( 1, sekk.inFlight() );
+        sekk.end( started, true, -1 );
+
+        Assert.assertEquals( 2, sekk.requests() );
+        Assert.assertEquals( 1, sekk.errors() );
+        Assert.assertEquals( 100, sekk.bytesWritten() );
+        Assert.assertEquals( 0, sekk.inFlight() );
+
+        String text = metrics.prometheus();
+        Assert.assertTrue( text, text.contains( "peak_requests_total{route=\"GET /sekk/:navn\"} 2\n" ) );
+        Assert.assertTrue( text, text.contains( "peak_request_errors_total{route=\"GET /sekk/:navn\"} 1\n" ) );
+        Assert.assertTrue( text, text.contains( "peak_request_duration_seconds_count{route=\"GET /sekk/:navn\"} 2\n" ) );
+    }
+}
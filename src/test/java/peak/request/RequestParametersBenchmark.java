@@ -0,0 +1,60 @@
+package peak.request;
+
+import fj.Ord;
+import fj.P;
+import fj.data.Array;
+import fj.data.Conversions;
+import fj.data.List;
+import fj.data.Option;
+import fj.data.TreeMap;
+import org.openjdk.jmh.annotations.*;
+import peak.ServletStubs;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads three parameters from one request, the way the <code>/sekk</code> handlers do. <code>rebuildPerLookup</code> is
+ * what <code>Request.getParameter</code> used to do; <code>cachedPerRequest</code> is the current implementation.
+ * <p/>
+ * Run with <code>-prof gc</code> to see the allocation per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParametersBenchmark {
+
+    private HttpServletRequest servletRequest;
+
+    @Setup
+    public void setup() {
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put( "type", new String[]{"bok"} );
+        parameters.put( "vekt", new String[]{"1.5"} );
+        parameters.put( "sekk", new String[]{"norge"} );
+        parameters.put( "pakket", new String[]{"true"} );
+        servletRequest = ServletStubs.getRequest( "/sekk2", parameters );
+    }
+
+    @Benchmark
+    public Object rebuildPerLookup() {
+        return P.p( rebuilt( "type" ), rebuilt( "vekt" ), rebuilt( "sekk" ) );
+    }
+
+    @Benchmark
+    public Object cachedPerRequest() {
+        Request request = new Request( servletRequest, null );
+        return P.p( request.getParameter( "type" ), request.getParameter( "vekt" ), request.getParameter( "sekk" ) );
+    }
+
+    private Option<String> rebuilt(String name) {
+        TreeMap<String, List<String>> parameters =
+                TreeMap.fromMutableMap( Ord.stringOrd, servletRequest.getParameterMap() ).map( Array.<String>wrap().andThen( Conversions.<String>Array_List() ) );
+        return parameters.get( name ).map( List.<String>head_() );
+    }
+}
@@ -0,0 +1,72 @@
+package peak.request;
+
+import fj.P;
+import fj.P2;
+import fj.data.List;
+import fj.data.Option;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch through 10, 100 and 1000 routes, with a linear scan over the route regexes and with the compiled trie. The
+ * request hits the last registered route, which is the worst case for the scan.
+ * <p/>
+ * Run with <code>mvn test-compile</code> and <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main RouteTrieBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteTrieBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int routeCount;
+
+    private List<P2<RequestMatcher, Integer>> handlers;
+
+    private RouteTrie<Integer> trie;
+
+    private String path;
+
+    @Setup
+    public void setup() {
+        List<P2<RequestMatcher, Integer>> hs = List.nil();
+        for (int i = 0; i < routeCount; i++) {
+            String route = i % 2 == 0 ? "/sekk" + i + "/:id" : "/sekk" + i + "/gaver/*rest";
+            hs = hs.cons( P.p( (RequestMatcher) CompositeMatcher.and( new MethodMatcher( HttpMethod.GET ), new RouteMatcher( new Route( route ) ) ), i ) );
+        }
+        handlers = hs.reverse();
+        trie = RouteTrie.compile( handlers );
+        int last = routeCount - 1;
+        path = last % 2 == 0 ? "/sekk" + last + "/norge" : "/sekk" + last + "/gaver/norge/pakke";
+    }
+
+    @Benchmark
+    public Object linear() {
+        for (P2<RequestMatcher, Integer> handler : handlers) {
+            Route route = ((RouteMatcher) ((CompositeMatcher) handler._1()).matchers().index( 1 )).route;
+            if (route.matches( path ))
+                return route.getParams( path );
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Object linearSinglePass() {
+        for (P2<RequestMatcher, Integer> handler : handlers) {
+            Route route = ((RouteMatcher) ((CompositeMatcher) handler._1()).matchers().index( 1 )).route;
+            Option<RouteMatch> match = route.match( path );
+            if (match.isSome())
+                return match;
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Object trie() {
+        return trie.find( "GET", path );
+    }
+}
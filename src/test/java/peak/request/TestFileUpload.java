@@ -0,0 +1,147 @@
+package peak.request;
+
+import fj.Func;
+import fj.data.Iteratee.Input;
+import fj.data.Iteratee.IterV;
+import fj.data.Validation;
+import org.junit.Assert;
+import org.junit.Test;
+import peak.ServletStubs;
+
+import javax.servlet.http.Part;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestFileUpload {
+
+    /**
+     * A stream of the given length that hands out at most 1000 bytes per read, like a slow connection.
+     */
+    private static InputStream slow(final long length) {
+        return new InputStream() {
+            long position;
+
+            @Override public int read() {
+                return position < length ? (int) (position++ % 251) : -1;
+            }
+
+            @Override public int read(byte[] b, int off, int len) {
+                if (position >= length)
+                    return -1;
+                int n = (int) Math.min( Math.min( len, 1000 ), length - position );
+                for (int i = 0; i < n; i++) {
+                    b[off + i] = (byte) (position++ % 251);
+                }
+                return n;
+            }
+
+            @Override public int available() {
+                return 0;
+            }
+        };
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = is.read( buffer )) != -1; )
+            out.write( buffer, 0, n );
+        is.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Counts the bytes of the chunks it is fed.
+     */
+    private static IterV<byte[], Long> count(final long counted) {
+        return IterV.cont( (Input<byte[]> input) -> input.apply(
+                () -> count( counted ),
+                () -> (Func<byte[], IterV<byte[], Long>>) (chunk) -> count( counted + chunk.length ),
+                () -> IterV.done( counted, Input.<byte[]>eof() ) ) );
+    }
+
+    @Test
+    public void smallUploadsStayInMemoryWithoutTruncation() throws IOException {
+        FileUpload upload = FileUpload.read( "liten.txt", slow( 5000 ), 5000 );
+        Assert.assertTrue( upload.isInMemory() );
+        Assert.assertEquals( 5000, upload.size );
+        Assert.assertSame( upload.content.left().value(), upload.bytes );
+        Assert.assertArrayEquals( readAll( slow( 5000 ) ), readAll( upload.openStream() ) );
+    }
+
+    @Test
+    public void largeUploadsAreSpooledToFile() throws IOException {
+        long length = 8 * 1024 * 1024 + 17;
+        FileUpload upload = FileUpload.read( "stor.bin", slow( length ), FileUpload.SPOOL_THRESHOLD );
+        try {
+            Assert.assertFalse( upload.isInMemory() );
+            Assert.assertEquals( length, upload.size );
+            Assert.assertNull( upload.bytes );
+            Assert.assertTrue( Arrays.equals( readAll( slow( length ) ), readAll( upload.openStream() ) ) );
+            Assert.assertTrue( Arrays.equals( readAll( slow( length ) ), upload.bytes() ) );
+        } finally {
+            upload.delete();
+        }
+        Assert.assertFalse( upload.content.right().value().exists() );
+    }
+
+    @Test
+    public void partsAreStreamedInChunks() {
+        final long length = 256L * 1024 * 1024;
+        final Part part = (Part) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[]{Part.class},
+                (proxy, method, args) -> method.getName().equals( "getInputStream" ) ? slow( length ) : null );
+        Request request = new Request( ServletStubs.request( (proxy, method, args) ->
+                method.getName().equals( "getPart" ) && "fil".equals( args[0] ) ? part : null ), null );
+
+        Validation<Exception, Long> counted = request.streamPart( "fil", count( 0 ) );
+        Assert.assertEquals( length, (long) counted.success() );
+        Assert.assertTrue( request.streamPart( "ingen", count( 0 ) ).isFail() );
+    }
+
+    @Test
+    public void spooledPartsAreDeletedWhenTheRequestEnds() throws IOException {
+        final long length = FileUpload.SPOOL_THRESHOLD + 1;
+        final Part part = (Part) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[]{Part.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals( "getInputStream" ))
+                        return slow( length );
+                    if (method.getName().equals( "getHeader" ))
+                        return "form-data; name=\"fil\"; filename=\"stor.bin\"";
+                    return null;
+                } );
+        final Map<String, Object> attributes = new HashMap<>();
+        Request request = new Request( ServletStubs.request( (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getPart":
+                    return part;
+                case "getAttribute":
+                    return attributes.get( (String) args[0] );
+                case "setAttribute":
+                    return attributes.put( (String) args[0], args[1] );
+                case "removeAttribute":
+                    return attributes.remove( (String) args[0] );
+                default:
+                    return null;
+            }
+        } ), null );
+
+        FileUpload first = request.getPartAsFile( "fil" ).some();
+        FileUpload second = request.getPartAsFile( "fil" ).some();
+        File firstFile = first.content.right().value();
+        File secondFile = second.content.right().value();
+        Assert.assertEquals( "stor.bin", first.name );
+        Assert.assertTrue( firstFile.exists() && secondFile.exists() );
+
+        Request.deleteUploads( request.underlying );
+        Assert.assertFalse( firstFile.exists() );
+        Assert.assertFalse( secondFile.exists() );
+        Assert.assertTrue( attributes.isEmpty() );
+    }
+}
@@ -0,0 +1,58 @@
+package peak.request;
+
+import fj.P;
+import fj.P2;
+import fj.data.List;
+import fj.data.Option;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestRouteTrie {
+
+    private final String[] routes = {
+            "/",
+            "/sekk1a",
+            "/sekk/:navn",
+            "/sekk/:navn/gaver",
+            "/sekk/norge/gaver",
+            "/filer/*sti",
+            "/filer/*sti/rediger",
+            "/a/:b/:c"
+    };
+
+    private final String[] paths = {
+            "/", "/sekk1a", "/sekk1a/", "/sekk/norge", "/sekk/:norge", "/sekk/no.rge-1", "/sekk/nor ge", "/sekk/norge/gaver",
+            "/sekk/sverige/gaver", "/filer", "/filer/", "/filer/a", "/filer/a/b/c", "/filer//", "/filer/*", "/filer/*a",
+            "/filer/a/b/rediger", "/a/b/c", "/a/b", "/a//c", "/ukjent"
+    };
+
+    @Test
+    public void trieFindsSameRouteAndParamsAsRegex() {
+        List<P2<RequestMatcher, Integer>> handlers = List.nil();
+        for (int i = 0; i < routes.length; i++) {
+            handlers = handlers.cons( P.p( (RequestMatcher) CompositeMatcher.and( new MethodMatcher( HttpMethod.GET ), new RouteMatcher( new Route( routes[i] ) ) ), i ) );
+        }
+        RouteTrie<Integer> trie = RouteTrie.compile( handlers.reverse() );
+
+        for (String path : paths) {
+            Option<Integer> expected = Option.none();
+            Map<String, String> expectedParams = new HashMap<String, String>();
+            for (int i = 0; i < routes.length && expected.isNone(); i++) {
+                Route route = new Route( routes[i] );
+                if (route.matches( path )) {
+                    expected = Option.some( i );
+                    expectedParams = route.getParams( path );
+                }
+            }
+
+            Option<P2<Integer, RouteMatch>> found = trie.find( "GET", path );
+
+            Assert.assertEquals( path, expected.toString(), found.map( P2.<Integer, RouteMatch>__1() ).toString() );
+            Assert.assertEquals( path, expectedParams, found.option( new HashMap<String, String>(), (match) -> match._2().toMap() ) );
+            Assert.assertTrue( path, trie.find( "POST", path ).isNone() );
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package peak.response;
+
+import js.Gave2;
+import js.Jsons;
+import js.Weight2;
+import org.openjdk.jmh.annotations.*;
+import peak.ServletStubs;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes about 1 MB of sekk JSON to a response that only counts the bytes, as a plain <code>StringResponse</code> and
+ * compressed with gzip. The time per operation is the CPU cost per MB; the benchmarks return the bytes sent.
+ * <p/>
+ * Run with <code>-prof gc</code> to see that the deflaters and buffers come from the pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private StringResponse plain;
+
+    private ResponseBuilder compressed;
+
+    private HttpServletRequest request;
+
+    private HttpServletResponse response;
+
+    private long sent;
+
+    @Setup
+    public void setup() throws Exception {
+        List<Gave2> gaver = new ArrayList<Gave2>();
+        for (int i = 0; i < 30000; i++) {
+            gaver.add( new Gave2( "gave " + i, new Weight2( (i % 100) / 10.0 ) ) );
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonWriter out = new JsonWriter( bytes );
+        Json.array( Jsons.gave2 ).write( gaver, out );
+        out.flush();
+        String json = new String( bytes.toByteArray(), "UTF-8" );
+        plain = new StringResponse( json.substring( 0, Math.min( json.length(), 1024 * 1024 ) ) );
+        compressed = plain.compressed();
+
+        request = ServletStubs.request( (proxy, method, args) ->
+                method.getName().equals( "getHeader" ) && args[0].equals( "Accept-Encoding" ) ? "gzip" : null );
+        final ServletOutputStream counting = new ServletOutputStream() {
+            @Override public void write(int b) {
+                sent++;
+            }
+
+            @Override public void write(byte[] b, int off, int len) {
+                sent += len;
+            }
+        };
+        response = ServletStubs.response( (proxy, method, args) -> {
+            if (method.getName().equals( "getOutputStream" ))
+                return counting;
+            if (method.getName().equals( "getCharacterEncoding" ))
+                return "UTF-8";
+            return null;
+        } );
+    }
+
+    @Benchmark
+    public long uncompressed() throws Exception {
+        sent = 0;
+        plain.handle( request, response );
+        return sent;
+    }
+
+    @Benchmark
+    public long gzip() throws Exception {
+        sent = 0;
+        compressed.handle( request, response );
+        return sent;
+    }
+}
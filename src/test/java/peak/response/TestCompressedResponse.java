@@ -0,0 +1,136 @@
+package peak.response;
+
+import org.junit.Assert;
+import org.junit.Test;
+import peak.ServletStubs;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+public class TestCompressedResponse {
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private final Map<String, String> headers = new HashMap<>();
+
+    private final HttpServletResponse response = ServletStubs.response( (proxy, method, args) -> {
+        switch (method.getName()) {
+            case "getOutputStream":
+                return new ServletOutputStream() {
+                    @Override public void write(int b) {
+                        body.write( b );
+                    }
+                };
+            case "getWriter":
+                return new PrintWriter( new OutputStreamWriter( body, StandardCharsets.UTF_8 ), true ) {
+                    @Override public void print(String s) {
+                        super.print( s );
+                        flush();
+                    }
+                };
+            case "setHeader":
+            case "addHeader":
+                headers.put( (String) args[0], (String) args[1] );
+                return null;
+            case "getCharacterEncoding":
+                return "UTF-8";
+            default:
+                return null;
+        }
+    } );
+
+    private static HttpServletRequest request(final String acceptEncoding, final String range) {
+        return ServletStubs.request( (proxy, method, args) -> {
+            if (method.getName().equals( "getHeader" ))
+                return args[0].equals( "Accept-Encoding" ) ? acceptEncoding : args[0].equals( "Range" ) ? range : null;
+            return null;
+        } );
+    }
+
+    private static String sekk(int gaver) {
+        StringBuilder json = new StringBuilder( "[" );
+        for (int i = 0; i < gaver; i++) {
+            json.append( i == 0 ? "" : "," ).append( "{\"betegnelse\":\"gave ").append( i ).append( " – blå\",\"vekt\":" ).append( i % 10 ).append( ".5}" );
+        }
+        return json.append( "]" ).toString();
+    }
+
+    private static String read(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n; (n = is.read( buffer )) != -1; )
+            out.write( buffer, 0, n );
+        return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+    }
+
+    private static ResponseBuilder writing(final String text) {
+        return new ResponseBuilder() {
+            @Override public void handle(HttpServletRequest request, HttpServletResponse response) throws Exception {
+                response.setHeader( "Content-Length", Integer.toString( text.getBytes( StandardCharsets.UTF_8 ).length ) );
+                response.getWriter().print( text );
+            }
+        };
+    }
+
+    @Test
+    public void largeBodiesAreGzippedWhenAccepted() throws Exception {
+        String json = sekk( 5000 );
+        new CompressedResponse( writing( json ) ).handle( request( "deflate, gzip;q=0.8", null ), response );
+
+        Assert.assertEquals( "gzip", headers.get( "Content-Encoding" ) );
+        Assert.assertEquals( null, headers.get( "Content-Length" ) );
+        Assert.assertEquals( "Accept-Encoding", headers.get( "Vary" ) );
+        Assert.assertTrue( body.size() * 10 < json.length() );
+        Assert.assertEquals( json, read( new GZIPInputStream( new ByteArrayInputStream( body.toByteArray() ) ) ) );
+    }
+
+    @Test
+    public void deflateIsUsedWhenGzipIsNotAccepted() throws Exception {
+        String json = sekk( 100 );
+        new CompressedResponse( writing( json ) ).handle( request( "gzip;q=0, deflate", null ), response );
+
+        Assert.assertEquals( "deflate", headers.get( "Content-Encoding" ) );
+        Assert.assertEquals( json, read( new InflaterInputStream( new ByteArrayInputStream( body.toByteArray() ) ) ) );
+    }
+
+    @Test
+    public void smallBodiesAndRangesAreSentAsTheyAre() throws Exception {
+        String small = sekk( 2 );
+        new CompressedResponse( writing( small ) ).handle( request( "gzip", null ), response );
+        Assert.assertEquals( null, headers.get( "Content-Encoding" ) );
+        Assert.assertEquals( Integer.toString( small.getBytes( StandardCharsets.UTF_8 ).length ), headers.get( "Content-Length" ) );
+        Assert.assertEquals( small, new String( body.toByteArray(), StandardCharsets.UTF_8 ) );
+
+        body.reset();
+        headers.clear();
+        String large = sekk( 1000 );
+        new CompressedResponse( writing( large ) ).handle( request( "gzip", "bytes=0-10" ), response );
+        Assert.assertEquals( null, headers.get( "Content-Encoding" ) );
+        Assert.assertEquals( large, new String( body.toByteArray(), StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    public void negotiatesAcceptEncoding() {
+        Assert.assertEquals( "gzip", CompressedResponse.negotiate( "gzip, deflate, br" ) );
+        Assert.assertEquals( "gzip", CompressedResponse.negotiate( "br;q=1.0, *;q=0.1" ) );
+        Assert.assertEquals( "deflate", CompressedResponse.negotiate( "deflate;q=0.5, gzip;q=0" ) );
+        Assert.assertEquals( null, CompressedResponse.negotiate( "identity" ) );
+        Assert.assertEquals( "deflate", CompressedResponse.negotiate( "gzip;q=0, *" ) );
+        Assert.assertEquals( null, CompressedResponse.negotiate( "gzip;q=0, deflate;q=0, *" ) );
+        Assert.assertEquals( null, CompressedResponse.negotiate( "*;q=0" ) );
+        Assert.assertEquals( "gzip", CompressedResponse.negotiate( "x-gzip, *;q=0" ) );
+        Assert.assertEquals( null, CompressedResponse.negotiate( null ) );
+    }
+}
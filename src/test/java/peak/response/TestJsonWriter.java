@@ -0,0 +1,61 @@
+package peak.response;
+
+import fj.data.Stream;
+import js.Gave2;
+import js.Jsons;
+import js.Sekk2;
+import js.Weight2;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class TestJsonWriter {
+
+    private static <A> String write(A value, Json<A> json, int bufferSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonWriter out = new JsonWriter( bytes, new byte[bufferSize] );
+        json.write( value, out );
+        out.flush();
+        return new String( bytes.toByteArray(), StandardCharsets.UTF_8 );
+    }
+
+    @Test
+    public void writesEscapedUtf8WithCommas() throws IOException {
+        Sekk2 sekk = Sekk2.nyTomSekk( "norge" )
+                .leggTilGave( new Gave2( "ski", new Weight2( 2.5 ) ) )
+                .leggTilGave( new Gave2( "\"blå\" \\ lue\n🎄", new Weight2( 0.25 ) ) );
+
+        String expected = "{\"navn\":\"norge\",\"gaver\":[{\"betegnelse\":\"\\\"blå\\\" \\\\ lue\\u000a🎄\",\"vekt\":0.25},{\"betegnelse\":\"ski\",\"vekt\":2.5}]}";
+        Assert.assertEquals( expected, write( sekk, Jsons.sekk2, JsonWriter.BUFFER_SIZE ) );
+        Assert.assertEquals( expected, write( sekk, Jsons.sekk2, 3 ) );
+        Assert.assertEquals( "[]", write( Stream.<Gave2>nil(), Json.array( Jsons.gave2 ), 3 ) );
+    }
+
+    @Test
+    public void largeArraysAreWrittenThroughTheBuffer() throws IOException {
+        final int gifts = 100000;
+        final long[] written = new long[1];
+        final int[] largestWrite = new int[1];
+        OutputStream counting = new OutputStream() {
+            @Override public void write(int b) {
+                written[0]++;
+            }
+
+            @Override public void write(byte[] b, int off, int len) {
+                written[0] += len;
+                largestWrite[0] = Math.max( largestWrite[0], len );
+            }
+        };
+
+        JsonWriter out = new JsonWriter( counting );
+        Json.array( Jsons.gave2 ).write( Stream.range( 0, gifts ).map( (i) -> new Gave2( "gave" + i, new Weight2( i ) ) ), out );
+        out.flush();
+
+        Assert.assertTrue( written[0] > gifts * 30 );
+        Assert.assertEquals( JsonWriter.BUFFER_SIZE, largestWrite[0] );
+    }
+}
@@ -0,0 +1,139 @@
+package peak.response;
+
+import fj.data.Option;
+import org.junit.Assert;
+import org.junit.Test;
+import peak.ServletStubs;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestTransfer {
+
+    private static final byte[] CONTENT = "0123456789".getBytes( StandardCharsets.US_ASCII );
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private final Map<String, String> headers = new HashMap<>();
+
+    private int status = HttpServletResponse.SC_OK;
+
+    private final HttpServletResponse response = ServletStubs.response( (proxy, method, args) -> {
+        switch (method.getName()) {
+            case "getOutputStream":
+                return new ServletOutputStream() {
+                    @Override public void write(int b) {
+                        body.write( b );
+                    }
+                };
+            case "setHeader":
+            case "addHeader":
+                headers.put( (String) args[0], (String) args[1] );
+                return null;
+            case "setStatus":
+                status = (Integer) args[0];
+                return null;
+            default:
+                return null;
+        }
+    } );
+
+    private static HttpServletRequest request(final String... nameValues) {
+        return ServletStubs.request( (proxy, method, args) -> {
+            if (method.getName().equals( "getHeader" )) {
+                for (int i = 0; i < nameValues.length; i += 2) {
+                    if (nameValues[i].equals( args[0] ))
+                        return nameValues[i + 1];
+                }
+            }
+            return null;
+        } );
+    }
+
+    private static String range(Option<Transfer.Range> range) {
+        return range.isNone() ? "none" : range.some().start + "+" + range.some().length;
+    }
+
+    @Test
+    public void parsesSingleRanges() {
+        Assert.assertEquals( "2+4", range( Transfer.Range.parse( "bytes=2-5", 10 ) ) );
+        Assert.assertEquals( "7+3", range( Transfer.Range.parse( "bytes=7-", 10 ) ) );
+        Assert.assertEquals( "6+4", range( Transfer.Range.parse( "bytes=6-100", 10 ) ) );
+        Assert.assertEquals( "3+1", range( Transfer.Range.parse( " bytes=3-3 ", 10 ) ) );
+    }
+
+    @Test
+    public void parsesSuffixRanges() {
+        Assert.assertEquals( "7+3", range( Transfer.Range.parse( "bytes=-3", 10 ) ) );
+        Assert.assertEquals( "0+10", range( Transfer.Range.parse( "bytes=-30", 10 ) ) );
+        Assert.assertEquals( "10+0", range( Transfer.Range.parse( "bytes=-0", 10 ) ) );
+        Assert.assertEquals( "none", range( Transfer.Range.parse( "bytes=-", 10 ) ) );
+    }
+
+    @Test
+    public void ignoresMultipleAndMalformedRanges() {
+        Assert.assertEquals( "none", range( Transfer.Range.parse( "bytes=0-1,4-5", 10 ) ) );
+        Assert.assertEquals( "none", range( Transfer.Range.parse( "items=0-1", 10 ) ) );
+        Assert.assertEquals( "none", range( Transfer.Range.parse( "bytes=a-b", 10 ) ) );
+        Assert.assertEquals( "none", range( Transfer.Range.parse( "bytes=5", 10 ) ) );
+        Assert.assertEquals( "none", range( Transfer.Range.parse( "bytes=5-2", 10 ) ) );
+    }
+
+    @Test
+    public void rangesPastTheEndCannotBeSatisfied() {
+        Assert.assertEquals( "10+0", range( Transfer.Range.parse( "bytes=10-", 10 ) ) );
+        Assert.assertEquals( "50+0", range( Transfer.Range.parse( "bytes=50-60", 10 ) ) );
+    }
+
+    @Test
+    public void wholeContentWithValidators() throws Exception {
+        new BytesResponse( CONTENT, "text/plain" ).handle( request(), response );
+        Assert.assertEquals( HttpServletResponse.SC_OK, status );
+        Assert.assertEquals( "10", headers.get( "Content-Length" ) );
+        Assert.assertEquals( "bytes", headers.get( "Accept-Ranges" ) );
+        Assert.assertNotNull( headers.get( "ETag" ) );
+        Assert.assertEquals( "0123456789", body.toString( "US-ASCII" ) );
+    }
+
+    @Test
+    public void partialContent() throws Exception {
+        new BytesResponse( CONTENT, "text/plain" ).handle( request( "Range", "bytes=2-4" ), response );
+        Assert.assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, status );
+        Assert.assertEquals( "bytes 2-4/10", headers.get( "Content-Range" ) );
+        Assert.assertEquals( "3", headers.get( "Content-Length" ) );
+        Assert.assertEquals( "234", body.toString( "US-ASCII" ) );
+    }
+
+    @Test
+    public void notModifiedWhenTheETagMatches() throws Exception {
+        BytesResponse bytes = new BytesResponse( CONTENT, "text/plain" );
+        bytes.handle( request(), response );
+        String etag = headers.get( "ETag" );
+        body.reset();
+
+        bytes.handle( request( "If-None-Match", "\"other\", " + etag, "Range", "bytes=0-1" ), response );
+        Assert.assertEquals( HttpServletResponse.SC_NOT_MODIFIED, status );
+        Assert.assertEquals( 0, body.size() );
+    }
+
+    @Test
+    public void unsatisfiableRange() throws Exception {
+        new BytesResponse( CONTENT, "text/plain" ).handle( request( "Range", "bytes=20-" ), response );
+        Assert.assertEquals( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, status );
+        Assert.assertEquals( "bytes */10", headers.get( "Content-Range" ) );
+        Assert.assertEquals( 0, body.size() );
+    }
+
+    @Test
+    public void staleIfRangeGetsTheWholeContent() throws Exception {
+        new BytesResponse( CONTENT, "text/plain" ).handle( request( "Range", "bytes=2-4", "If-Range", "\"stale\"" ), response );
+        Assert.assertEquals( HttpServletResponse.SC_OK, status );
+        Assert.assertEquals( "10", headers.get( "Content-Length" ) );
+        Assert.assertEquals( "0123456789", body.toString( "US-ASCII" ) );
+    }
+}